@@ -5,6 +5,7 @@
  */
 package com.archimatetool.canvas;
 
+import org.eclipse.draw2d.LayeredPane;
 import org.eclipse.draw2d.geometry.Insets;
 import org.eclipse.gef.AutoexposeHelper;
 import org.eclipse.gef.GraphicalViewer;
@@ -25,6 +26,7 @@ import com.archimatetool.canvas.editparts.CanvasModelEditPartFactory;
 import com.archimatetool.editor.diagram.AbstractDiagramEditor;
 import com.archimatetool.editor.diagram.DiagramEditorFindReplaceProvider;
 import com.archimatetool.editor.diagram.actions.FindReplaceAction;
+import com.archimatetool.editor.diagram.figures.connections.IndexedConnectionLayer;
 import com.archimatetool.editor.diagram.util.ExtendedViewportAutoexposeHelper;
 import com.archimatetool.editor.ui.findreplace.IFindReplaceProvider;
 
@@ -87,6 +89,12 @@ implements ICanvasEditor {
          * We'll have a Zoom Manager using ScalableFreeformRootEditPart
          */
         RootEditPart rootPart = new ScalableFreeformRootEditPart() {
+            @Override
+            protected LayeredPane createPrintableLayers() {
+                // Connection layer with an index for line jumps
+                return IndexedConnectionLayer.createPrintableLayers();
+            }
+
             @SuppressWarnings("rawtypes")
             @Override
             public Object getAdapter(Class adapter) {
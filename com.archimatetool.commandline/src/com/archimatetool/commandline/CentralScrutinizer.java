@@ -166,7 +166,8 @@ public class CentralScrutinizer implements IApplication {
             pause();
         }
         
-        return EXIT_OK;
+        // A provider may have set a non-zero exit code
+        return CommandLineState.getExitCode();
     }
     
     private void showHelp() {
@@ -28,4 +28,20 @@ public class CommandLineState {
         singletonModel = model;
     }
     
+    /**
+     * The exit code returned by the application once all providers have run
+     */
+    private static int exitCode = 0;
+    
+    public static int getExitCode() {
+        return exitCode;
+    }
+    
+    /**
+     * Set the exit code returned by the application. A provider can set this to report a failure without aborting later providers.
+     */
+    public static void setExitCode(int code) {
+        exitCode = code;
+    }
+    
 }
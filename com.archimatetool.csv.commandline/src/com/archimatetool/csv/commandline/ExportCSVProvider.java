@@ -27,6 +27,7 @@ import com.archimatetool.model.IArchimateModel;
  * Archi -consoleLog -nosplash -application com.archimatetool.commandline.app
    --loadModel "/pathToModel/model.archimate"
    --csv.export "/pathToOutputFolder"
+   --csv.exportGzip
  * 
  * @author Phillip Beauvoir
  */
@@ -40,6 +41,7 @@ public class ExportCSVProvider extends AbstractCommandLineProvider {
     static final String OPTION_STRIP_NEW_LINES = "csv.exportStripNewLines"; //$NON-NLS-1$
     static final String OPTION_LEADING_CHARS_HACK = "csv.exportLeadingZeros"; //$NON-NLS-1$
     static final String OPTION_ENCODING = "csv.exportEncoding"; //$NON-NLS-1$
+    static final String OPTION_GZIP = "csv.exportGzip"; //$NON-NLS-1$
 
     
     public ExportCSVProvider() {
@@ -110,8 +112,13 @@ public class ExportCSVProvider extends AbstractCommandLineProvider {
         // Strip newlines
         exporter.setStripNewLines(commandLine.hasOption(OPTION_STRIP_NEW_LINES));
 
+        // Compress
+        exporter.setCompress(commandLine.hasOption(OPTION_GZIP));
+
         logMessage(NLS.bind(Messages.ExportCSVProvider_4, model.getName(), folderOutput.getPath()));
-        exporter.export(folderOutput);
+        CSVExporter.Result result = exporter.export(folderOutput);
+        logMessage(NLS.bind(Messages.ExportCSVProvider_17, new Object[] { result.getElementsCount(), result.getRelationsCount(),
+                result.getPropertiesCount(), result.getTotalTime() }));
         logMessage(Messages.ExportCSVProvider_5);
     }
     
@@ -166,6 +173,12 @@ public class ExportCSVProvider extends AbstractCommandLineProvider {
                 .desc(Messages.ExportCSVProvider_15)
                 .build();
         options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_GZIP)
+                .desc(Messages.ExportCSVProvider_16)
+                .build();
+        options.addOption(option);
         
         return options;
     }
@@ -27,6 +27,8 @@ import com.archimatetool.model.IArchimateModel;
  * Archi -consoleLog -nosplash -application com.archimatetool.commandline.app
    --createEmptyModel
    --csv.import "elements.csv"
+   --csv.importSync "syncFolder"
+   --csv.importDeleteMissing
  * 
  * @author Phillip Beauvoir
  */
@@ -35,6 +37,8 @@ public class ImportCSVProvider extends AbstractCommandLineProvider {
     static final String PREFIX = Messages.ImportCSVProvider_0;
     
     static final String OPTION_IMPORT_CSV = "csv.import"; //$NON-NLS-1$
+    static final String OPTION_SYNC = "csv.importSync"; //$NON-NLS-1$
+    static final String OPTION_DELETE_MISSING = "csv.importDeleteMissing"; //$NON-NLS-1$
     
     public ImportCSVProvider() {
     }
@@ -68,7 +72,20 @@ public class ImportCSVProvider extends AbstractCommandLineProvider {
         logMessage(NLS.bind(Messages.ImportCSVProvider_4, csvFile.getPath(), model.getName()));
         
         CSVImporter importer = new CSVImporter(model);
+        
+        // Sync
+        if(commandLine.hasOption(OPTION_SYNC)) {
+            importer.setSyncFolder(new File(commandLine.getOptionValue(OPTION_SYNC)));
+        }
+        
+        // Delete missing
+        importer.setDeleteMissing(commandLine.hasOption(OPTION_DELETE_MISSING));
+        
         importer.doImport(csvFile);
+        
+        CSVImporter.ChangeSet changeSet = importer.getChangeSet();
+        logMessage(NLS.bind(Messages.ImportCSVProvider_11, new Object[] { changeSet.getAddedIDs().size(), changeSet.getUpdatedIDs().size(),
+                changeSet.getDeletedIDs().size(), changeSet.getUnchangedCount() }));
 
         logMessage(Messages.ImportCSVProvider_5);
     }
@@ -94,6 +111,19 @@ public class ImportCSVProvider extends AbstractCommandLineProvider {
                 .build();
         options.addOption(option);
         
+        option = Option.builder()
+                .longOpt(OPTION_SYNC)
+                .hasArg().argName(Messages.ImportCSVProvider_8)
+                .desc(Messages.ImportCSVProvider_9)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_DELETE_MISSING)
+                .desc(Messages.ImportCSVProvider_10)
+                .build();
+        options.addOption(option);
+        
         return options;
     }
     
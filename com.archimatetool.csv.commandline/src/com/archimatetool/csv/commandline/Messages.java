@@ -22,6 +22,10 @@ public class Messages extends NLS {
 
     public static String ExportCSVProvider_15;
 
+    public static String ExportCSVProvider_16;
+
+    public static String ExportCSVProvider_17;
+
     public static String ExportCSVProvider_2;
 
     public static String ExportCSVProvider_3;
@@ -42,6 +46,10 @@ public class Messages extends NLS {
 
     public static String ImportCSVProvider_1;
 
+    public static String ImportCSVProvider_10;
+
+    public static String ImportCSVProvider_11;
+
     public static String ImportCSVProvider_2;
 
     public static String ImportCSVProvider_3;
@@ -53,6 +61,10 @@ public class Messages extends NLS {
     public static String ImportCSVProvider_6;
 
     public static String ImportCSVProvider_7;
+
+    public static String ImportCSVProvider_8;
+
+    public static String ImportCSVProvider_9;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
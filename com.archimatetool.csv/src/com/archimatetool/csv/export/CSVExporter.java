@@ -5,16 +5,27 @@
  */
 package com.archimatetool.csv.export;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.emf.ecore.EObject;
 
@@ -41,6 +52,17 @@ import com.archimatetool.model.IProperty;
  */
 public class CSVExporter implements CSVConstants {
     
+    /**
+     * Extension added to the file names when the files are compressed
+     */
+    public static final String GZIP_EXTENSION = ".gz"; //$NON-NLS-1$
+    
+    // Newlines
+    private static final Pattern NEWLINES_PATTERN = Pattern.compile("(\r\n|\r|\n)"); //$NON-NLS-1$
+    
+    // Size of the buffer for each file
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
     private char fDelimiter = ',';
     private String fFilePrefix = ""; //$NON-NLS-1$
     
@@ -51,6 +73,8 @@ public class CSVExporter implements CSVConstants {
     
     private String fEncoding = "UTF-8"; //$NON-NLS-1$
     
+    private boolean fCompress = false;
+    
     /*
      * Internal option. BUT...
      * If one exports to the csv files with a model that has properties, then edits the model and removes all properties,
@@ -62,14 +86,211 @@ public class CSVExporter implements CSVConstants {
     
     private IArchimateModel fModel;
     
+    /**
+     * The number of rows written to each file and the time taken
+     */
+    public static class Result {
+        private int fElementsCount, fRelationsCount, fPropertiesCount;
+        private long fElementsTime, fRelationsTime, fPropertiesTime, fTotalTime;
+        
+        /**
+         * @return The number of element rows written, not including the header and model rows
+         */
+        public int getElementsCount() {
+            return fElementsCount;
+        }
+        
+        /**
+         * @return The number of relation rows written, not including the header row
+         */
+        public int getRelationsCount() {
+            return fRelationsCount;
+        }
+        
+        /**
+         * @return The number of property rows written, not including the header row
+         */
+        public int getPropertiesCount() {
+            return fPropertiesCount;
+        }
+        
+        /**
+         * @return The time taken to write the elements file in milliseconds
+         */
+        public long getElementsTime() {
+            return fElementsTime;
+        }
+        
+        /**
+         * @return The time taken to write the relations file in milliseconds
+         */
+        public long getRelationsTime() {
+            return fRelationsTime;
+        }
+        
+        /**
+         * @return The time taken to write the properties file in milliseconds
+         */
+        public long getPropertiesTime() {
+            return fPropertiesTime;
+        }
+        
+        /**
+         * @return The time taken for the whole export in milliseconds
+         */
+        public long getTotalTime() {
+            return fTotalTime;
+        }
+    }
+    
+    /**
+     * The concepts to export, collected from the model before the files are written
+     */
+    private static class Snapshot {
+        // Elements in the order they are written
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        
+        // Relations in the order they are written
+        List<IArchimateRelationship> relations = new ArrayList<IArchimateRelationship>();
+        
+        // All concepts in model order
+        List<IArchimateConcept> concepts = new ArrayList<IArchimateConcept>();
+        
+        boolean hasProperties;
+    }
+    
     public CSVExporter(IArchimateModel model) {
         fModel = model;
     }
     
-    public void export(File folder) throws IOException {
-        writeModelAndElements(new File(folder, createElementsFileName()));
-        writeRelationships(new File(folder, createRelationsFileName()));
-        writeProperties(new File(folder, createPropertiesFileName()));
+    /**
+     * Export the model to the elements, relations and properties files in folder.
+     * The concepts are collected from the model first, then the three files are written at the same time.
+     * @return The number of rows written and the time taken
+     */
+    public Result export(File folder) throws IOException {
+        long start = System.currentTimeMillis();
+        
+        Snapshot snapshot = createSnapshot();
+        
+        Result result = new Result();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        
+        try {
+            // Each task sets its own fields of the result
+            List<Future<Void>> futures = executor.invokeAll(Arrays.<Callable<Void>>asList(
+                () -> {
+                    long time = System.currentTimeMillis();
+                    result.fElementsCount = writeModelAndElements(new File(folder, createElementsFileName()), snapshot);
+                    result.fElementsTime = System.currentTimeMillis() - time;
+                    return null;
+                },
+                () -> {
+                    long time = System.currentTimeMillis();
+                    result.fRelationsCount = writeRelationships(new File(folder, createRelationsFileName()), snapshot);
+                    result.fRelationsTime = System.currentTimeMillis() - time;
+                    return null;
+                },
+                () -> {
+                    long time = System.currentTimeMillis();
+                    result.fPropertiesCount = writeProperties(new File(folder, createPropertiesFileName()), snapshot);
+                    result.fPropertiesTime = System.currentTimeMillis() - time;
+                    return null;
+                }
+            ));
+            
+            for(Future<Void> future : futures) {
+                checkResult(future);
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        finally {
+            executor.shutdown();
+        }
+        
+        result.fTotalTime = System.currentTimeMillis() - start;
+        
+        return result;
+    }
+    
+    /**
+     * Throw the exception of a task if it failed
+     */
+    private void checkResult(Future<Void> future) throws IOException, InterruptedException {
+        try {
+            future.get();
+        }
+        catch(ExecutionException ex) {
+            if(ex.getCause() instanceof IOException) {
+                throw (IOException)ex.getCause();
+            }
+            if(ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+    
+    /**
+     * Collect the concepts to export from the model.
+     * This is done on the calling thread so that the model's folders are walked once, and the writer threads only read the concepts.
+     */
+    private Snapshot createSnapshot() {
+        Snapshot snapshot = new Snapshot();
+        
+        // Elements, sorted in each top level folder
+        addElements(snapshot, fModel.getFolder(FolderType.STRATEGY));
+        addElements(snapshot, fModel.getFolder(FolderType.BUSINESS));
+        addElements(snapshot, fModel.getFolder(FolderType.APPLICATION));
+        addElements(snapshot, fModel.getFolder(FolderType.TECHNOLOGY));
+        addElements(snapshot, fModel.getFolder(FolderType.MOTIVATION));
+        addElements(snapshot, fModel.getFolder(FolderType.IMPLEMENTATION_MIGRATION));
+        addElements(snapshot, fModel.getFolder(FolderType.OTHER));
+        
+        // Relations, sorted
+        List<IArchimateConcept> concepts = getConcepts(fModel.getFolder(FolderType.RELATIONS));
+        sort(concepts);
+        for(IArchimateConcept concept : concepts) {
+            if(concept instanceof IArchimateRelationship) {
+                snapshot.relations.add((IArchimateRelationship)concept);
+            }
+        }
+        
+        // All concepts for properties
+        snapshot.hasProperties = !fModel.getProperties().isEmpty();
+        
+        for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IArchimateConcept) {
+                IArchimateConcept concept = (IArchimateConcept)eObject;
+                snapshot.concepts.add(concept);
+                snapshot.hasProperties |= !concept.getProperties().isEmpty();
+            }
+        }
+        
+        return snapshot;
+    }
+    
+    /**
+     * Add all elements in a given folder and its child folders to the snapshot
+     */
+    private void addElements(Snapshot snapshot, IFolder folder) {
+        if(folder == null) {
+            return;
+        }
+        
+        List<IArchimateConcept> concepts = getConcepts(folder);
+        sort(concepts);
+        
+        for(IArchimateConcept concept : concepts) {
+            if(concept instanceof IArchimateElement) {
+                snapshot.elements.add((IArchimateElement)concept);
+            }
+        }
     }
     
     /**
@@ -104,138 +325,125 @@ public class CSVExporter implements CSVConstants {
     }
     
     /**
-     * Write the Model and All Elements
+     * Set whether to compress the files with gzip. If set ".gz" is added to the file names.
+     * Default is false
      */
-    private void writeModelAndElements(File file) throws IOException {
-        Writer writer = createOutputStreamWriter(file);
-        
-        // Write BOM
-        writeBOM(writer);
-        
-        // Write Header
-        String header = createHeader(MODEL_ELEMENTS_HEADER);
-        writer.write(header);
-        
-        // CRLF
-        writer.write(CRLF);
-        
-        // Write Model
-        String modelRow = createModelRow();
-        writer.write(modelRow);
-        
-        // Write Elements
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.STRATEGY));
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.BUSINESS));
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.APPLICATION));
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.TECHNOLOGY));
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.MOTIVATION));
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.IMPLEMENTATION_MIGRATION));
-        writeElementsInFolder(writer, fModel.getFolder(FolderType.OTHER));
-        
-        writer.close();
+    public void setCompress(boolean set) {
+        fCompress = set;
     }
     
     /**
-     * Write all elements in a given folder and its child folders to Writer
+     * Write the Model and All Elements
+     * @return The number of elements written
      */
-    private void writeElementsInFolder(Writer writer, IFolder folder) throws IOException {
-        if(folder == null) {
-            return;
-        }
-        
-        List<IArchimateConcept> concepts = getConcepts(folder);
-        sort(concepts);
-        
-        for(IArchimateConcept concept : concepts) {
-            if(concept instanceof IArchimateElement) {
+    private int writeModelAndElements(File file, Snapshot snapshot) throws IOException {
+        try(Writer writer = createWriter(file)) {
+            // Write BOM
+            writeBOM(writer);
+            
+            // Write Header
+            String header = createHeader(MODEL_ELEMENTS_HEADER);
+            writer.write(header);
+            
+            // CRLF
+            writer.write(CRLF);
+            
+            // Write Model
+            String modelRow = createModelRow();
+            writer.write(modelRow);
+            
+            // Write Elements
+            for(IArchimateElement element : snapshot.elements) {
                 writer.write(CRLF);
-                writer.write(createElementRow((IArchimateElement)concept));
+                writer.write(createElementRow(element));
             }
         }
+        
+        return snapshot.elements.size();
     }
     
     /**
      * Write All Relationships
+     * @return The number of relationships written
      */
-    private void writeRelationships(File file) throws IOException {
-        List<IArchimateConcept> concepts = getConcepts(fModel.getFolder(FolderType.RELATIONS));
-        sort(concepts);
-        
+    private int writeRelationships(File file, Snapshot snapshot) throws IOException {
         // Are there any to write?
-        if(!fWriteEmptyFile && concepts.isEmpty()) {
-            return;
+        if(!fWriteEmptyFile && snapshot.relations.isEmpty()) {
+            return 0;
         }
         
-        Writer writer = createOutputStreamWriter(file);
-        
-        // Write BOM
-        writeBOM(writer);
-        
-        // Write Header
-        String header = createHeader(RELATIONSHIPS_HEADER);
-        writer.write(header);
-        
-        // Write Relationships
-        for(IArchimateConcept concept : concepts) {
-            if(concept instanceof IArchimateRelationship) {
+        try(Writer writer = createWriter(file)) {
+            // Write BOM
+            writeBOM(writer);
+            
+            // Write Header
+            String header = createHeader(RELATIONSHIPS_HEADER);
+            writer.write(header);
+            
+            // Write Relationships
+            for(IArchimateRelationship relationship : snapshot.relations) {
                 writer.write(CRLF);
-                writer.write(createRelationshipRow((IArchimateRelationship)concept));
+                writer.write(createRelationshipRow(relationship));
             }
         }
         
-        writer.close();
+        return snapshot.relations.size();
     }
     
     /**
      * Write All Properties
+     * @return The number of properties written
      */
-    private void writeProperties(File file) throws IOException {
+    private int writeProperties(File file, Snapshot snapshot) throws IOException {
         // Are there any to write?
-        if(!fWriteEmptyFile && !hasProperties()) {
-            return;
-        }
-        
-        Writer writer = createOutputStreamWriter(file);
-        
-        // Write BOM
-        writeBOM(writer);
-        
-        // Write Header
-        String header = createHeader(PROPERTIES_HEADER);
-        writer.write(header);
-        
-        // Write Model Properties
-        for(IProperty property : fModel.getProperties()) {
-            writer.write(CRLF);
-            writer.write(createPropertyRow(fModel.getId(), property));
+        if(!fWriteEmptyFile && !snapshot.hasProperties) {
+            return 0;
         }
         
-        // Write Element and Relationship Properties
-        for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
-            EObject eObject = iter.next();
-            if(eObject instanceof IArchimateConcept) {
-                IArchimateConcept concept = (IArchimateConcept)eObject;
-                
+        int count = 0;
+        
+        try(Writer writer = createWriter(file)) {
+            // Write BOM
+            writeBOM(writer);
+            
+            // Write Header
+            String header = createHeader(PROPERTIES_HEADER);
+            writer.write(header);
+            
+            // Write Model Properties
+            for(IProperty property : fModel.getProperties()) {
+                writer.write(CRLF);
+                writer.write(createPropertyRow(fModel.getId(), property));
+                count++;
+            }
+            
+            // Write Element and Relationship Properties
+            for(IArchimateConcept concept : snapshot.concepts) {
                 for(IProperty property : concept.getProperties()) {
                     writer.write(CRLF);
                     writer.write(createPropertyRow(concept.getId(), property));
+                    count++;
                 }
                 
                 // Write special attributes as properties
-                writeSpecialProperties(writer, concept);
+                count += writeSpecialProperties(writer, concept);
             }
         }
         
-        writer.close();
+        return count;
     }
     
-    private void writeSpecialProperties(Writer writer, IArchimateConcept concept) throws IOException {
+    /**
+     * @return The number of properties written
+     */
+    private int writeSpecialProperties(Writer writer, IArchimateConcept concept) throws IOException {
         // Influence relationship strength
         if(concept instanceof IInfluenceRelationship) {
             String strength = ((IInfluenceRelationship)concept).getStrength();
             if(StringUtils.isSet(strength)) {
                 writer.write(CRLF);
                 writer.write(createPropertyRow(concept.getId(), INFLUENCE_STRENGTH, strength));
+                return 1;
             }
         }
         
@@ -243,6 +451,7 @@ public class CSVExporter implements CSVConstants {
         else if(concept instanceof IAccessRelationship) {
             writer.write(CRLF);
             writer.write(createPropertyRow(concept.getId(), ACCESS_TYPE, ACCESS_TYPES.get(((IAccessRelationship)concept).getAccessType())));
+            return 1;
         }
         
         // Association relationship directed
@@ -250,6 +459,7 @@ public class CSVExporter implements CSVConstants {
             writer.write(CRLF);
             writer.write(createPropertyRow(concept.getId(), ASSOCIATION_DIRECTED,
                     ((IAssociationRelationship)concept).isDirected() ? "true" : "false")); //$NON-NLS-1$ //$NON-NLS-2$
+            return 1;
         }
         
         // Junction Type
@@ -263,28 +473,10 @@ public class CSVExporter implements CSVConstants {
             }
             writer.write(CRLF);
             writer.write(createPropertyRow(concept.getId(), JUNCTION_TYPE, type));
-        }
-    }
-    
-    /**
-     * @return true if the model has any user properties
-     */
-    boolean hasProperties() {
-        if(!fModel.getProperties().isEmpty()) {
-            return true;
+            return 1;
         }
         
-        for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
-            EObject eObject = iter.next();
-            if(eObject instanceof IArchimateConcept) {
-                IArchimateConcept concept = (IArchimateConcept)eObject;
-                if(!concept.getProperties().isEmpty()) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        return 0;
     }
 
     /**
@@ -442,7 +634,7 @@ public class CSVExporter implements CSVConstants {
         
         // Newlines (optional)
         if(fStripNewLines) {
-            s = s.replaceAll("(\r\n|\r|\n)", " ");  //$NON-NLS-1$//$NON-NLS-2$
+            s = NEWLINES_PATTERN.matcher(s).replaceAll(" "); //$NON-NLS-1$
         }
         
         // Tabs become a space
@@ -514,26 +706,48 @@ public class CSVExporter implements CSVConstants {
     }
     
     String createElementsFileName() {
-        return fFilePrefix + ELEMENTS_FILENAME + FILE_EXTENSION;
+        return createFileName(ELEMENTS_FILENAME);
     }
     
     String createRelationsFileName() {
-        return fFilePrefix + RELATIONS_FILENAME + FILE_EXTENSION;
+        return createFileName(RELATIONS_FILENAME);
     }
     
     String createPropertiesFileName() {
-        return fFilePrefix + PROPERTIES_FILENAME + FILE_EXTENSION;
+        return createFileName(PROPERTIES_FILENAME);
+    }
+    
+    private String createFileName(String name) {
+        return fFilePrefix + name + FILE_EXTENSION + (fCompress ? GZIP_EXTENSION : ""); //$NON-NLS-1$
+    }
+    
+    /**
+     * Create a buffered Writer for the file in the encoding, compressed if set
+     */
+    Writer createWriter(File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        
+        try {
+            if(fCompress) {
+                out = new GZIPOutputStream(out, BUFFER_SIZE);
+            }
+            return new BufferedWriter(createOutputStreamWriter(out), BUFFER_SIZE);
+        }
+        catch(IOException | RuntimeException ex) {
+            out.close();
+            throw ex;
+        }
     }
     
-    OutputStreamWriter createOutputStreamWriter(File file) throws IOException {
+    private OutputStreamWriter createOutputStreamWriter(OutputStream out) throws IOException {
         if("ANSI".equals(fEncoding)) { //$NON-NLS-1$
-            return new OutputStreamWriter(new FileOutputStream(file));
+            return new OutputStreamWriter(out);
         }
         else if(fEncoding.startsWith("UTF-8")) { //$NON-NLS-1$
-            return new OutputStreamWriter(new FileOutputStream(file), "UTF-8"); //$NON-NLS-1$
+            return new OutputStreamWriter(out, StandardCharsets.UTF_8);
         }
         else {
-            return new OutputStreamWriter(new FileOutputStream(file), fEncoding);
+            return new OutputStreamWriter(out, fEncoding);
         }
     }
 }
@@ -5,16 +5,36 @@
  */
 package com.archimatetool.csv.importer;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -29,7 +49,9 @@ import org.eclipse.gef.commands.CompoundCommand;
 
 import com.archimatetool.csv.CSVConstants;
 import com.archimatetool.csv.CSVParseException;
-import com.archimatetool.editor.model.commands.EObjectFeatureCommand;
+import com.archimatetool.editor.diagram.commands.DiagramCommandFactory;
+import com.archimatetool.editor.model.commands.BulkChangeCommand;
+import com.archimatetool.editor.model.commands.FeatureCommand;
 import com.archimatetool.editor.model.commands.NonNotifyingCompoundCommand;
 import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.editor.utils.StringUtils;
@@ -41,7 +63,11 @@ import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IAssociationRelationship;
-import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IConnectable;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.model.IIdentifier;
 import com.archimatetool.model.IInfluenceRelationship;
 import com.archimatetool.model.IJunction;
 import com.archimatetool.model.IProperties;
@@ -56,8 +82,109 @@ import com.archimatetool.model.util.ArchimateModelUtils;
  */
 public class CSVImporter implements CSVConstants {
     
+    // Valid characters for an id
+    private static final Pattern ID_PATTERN = Pattern.compile("^[a-zA-Z0-9._-]+$"); //$NON-NLS-1$
+    
+    // Newlines and Tabs
+    private static final Pattern NORMALISE_PATTERN = Pattern.compile("(\r\n|\r|\n|\t)"); //$NON-NLS-1$
+    
+    // Delimiters that we can detect, in order of preference
+    private static final char[] DELIMITERS = { ',', ';', '\t' };
+    
+    // Number of characters read from the start of a file to detect the delimiter
+    private static final int SNIFF_SIZE = 8192;
+    
+    // Name of the model feature that stores the token of the row hashes of the last sync
+    static final String SYNC_FEATURE = "csvSyncToken"; //$NON-NLS-1$
+    
+    // Extension of the sync file of a model. The file name is the model's id.
+    static final String SYNC_FILE_EXTENSION = ".csvsync"; //$NON-NLS-1$
+    
+    // First int in a sync file
+    private static final int SYNC_FILE_MAGIC = 0x43535631; // "CSV1"
+    
+    // Maximum length of a key in a sync file. A character is at most 3 bytes in writeUTF() which has a limit of 65535 bytes.
+    private static final int MAX_SYNC_KEY_LENGTH = 16384;
+    
+    // Prefixes of the keys of row hashes
+    static final String ELEMENT_KEY = "E:"; //$NON-NLS-1$
+    static final String RELATION_KEY = "R:"; //$NON-NLS-1$
+    static final String PROPERTY_KEY = "P:"; //$NON-NLS-1$
+    
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    /**
+     * The changes made by an import
+     */
+    public static class ChangeSet {
+        private List<String> fAdded = new ArrayList<String>();
+        private List<String> fUpdated = new ArrayList<String>();
+        private List<String> fDeleted = new ArrayList<String>();
+        private int fUnchanged;
+        
+        /**
+         * @return The IDs of the elements and relations added
+         */
+        public List<String> getAddedIDs() {
+            return Collections.unmodifiableList(fAdded);
+        }
+        
+        /**
+         * @return The IDs of the elements and relations whose name, documentation, attributes or properties changed
+         */
+        public List<String> getUpdatedIDs() {
+            return Collections.unmodifiableList(fUpdated);
+        }
+        
+        /**
+         * @return The IDs of the elements and relations deleted
+         */
+        public List<String> getDeletedIDs() {
+            return Collections.unmodifiableList(fDeleted);
+        }
+        
+        /**
+         * @return The number of rows that were skipped because they had not changed since the last sync
+         */
+        public int getUnchangedCount() {
+            return fUnchanged;
+        }
+    }
+    
     private IArchimateModel fModel;
     
+    // Folder of the sync files. If set rows that have not changed since the last sync are skipped.
+    private File fSyncFolder;
+    
+    // Whether to delete concepts that are not in the CSV files
+    private boolean fDeleteMissing;
+    
+    // Key -> Hash: row hashes from the last sync
+    private Map<String, Long> fPreviousHashes = new HashMap<String, Long>();
+    
+    // Key -> Hash: row hashes of this import
+    private Map<String, Long> fRowHashes = new HashMap<String, Long>();
+    
+    // Key -> Hash: row hashes to store for the next sync, sorted by key, and their token
+    private SortedMap<String, Long> fSyncHashes;
+    private String fSyncToken;
+    
+    // Prefixes of the keys of the types of rows that were imported
+    private Set<String> fImportedKeys = new HashSet<String>();
+    
+    // IDs of the elements and relations in the CSV files and the IDs of the relations' sources and targets. Only used when deleting.
+    private Set<String> fSourceElementIDs, fSourceRelationIDs;
+    private Set<String> fReferencedIDs = new HashSet<String>();
+    
+    // Number of rows skipped because they have not changed
+    private int fUnchangedCount;
+    
+    private ChangeSet fChangeSet;
+    
+    // ID -> EObject: Index of the objects in the model, created when first needed
+    private Map<String, EObject> fModelIndex;
+    
     // ID -> IArchimateConcept: new elements and relations added
     Map<String, IArchimateConcept> newConcepts = new HashMap<String, IArchimateConcept>();
     
@@ -72,6 +199,9 @@ public class CSVImporter implements CSVConstants {
     
     // IArchimateRelationship -> Source/Target IDs in two String array objects [0] and [1]
     Map<IArchimateRelationship, String[]> relationshipSourceTargets = new HashMap<IArchimateRelationship, String[]>();
+    
+    // Elements and relations to delete, and the relations connected to them
+    Set<IArchimateConcept> deletedConcepts = new LinkedHashSet<IArchimateConcept>();
 
     // CSV Model id. This might be set as a reference for Properties. Might be null.
     private String modelID;
@@ -86,11 +216,56 @@ public class CSVImporter implements CSVConstants {
         fModel = model;
     }
     
+    /**
+     * Sync with the CSV files.
+     * The hash of each row that has an ID is stored in a sync file in syncFolder named after the model's id.
+     * The import command sets a token of the hashes in a feature of the model, so the hashes are only used on the next
+     * import if the model has the same token, which it doesn't if the import was undone or the model was not saved.
+     * On the next import rows whose hash has not changed are skipped if their concept is still in the model,
+     * so changes made in the model to those concepts are kept.
+     * Elements and relations must not have the same ID as another row in the same file.
+     * Default is null, no sync
+     * @param syncFolder The folder of the sync files, or null to not sync
+     */
+    public void setSyncFolder(File syncFolder) {
+        fSyncFolder = syncFolder;
+    }
+    
+    /**
+     * @return The sync file of the model in the sync folder
+     */
+    File getSyncFile() {
+        return new File(fSyncFolder, fModel.getId() + SYNC_FILE_EXTENSION);
+    }
+    
+    /**
+     * Delete the elements that are not in the elements file and the relations that are not in the relations file,
+     * and the relations connected to them. Only types of concepts whose file is imported are deleted.
+     * An element or relation that is the source or target of a relation in the relations file is not deleted.
+     * Elements and relations must have an ID in the CSV files for this to work.
+     * Default is false
+     */
+    public void setDeleteMissing(boolean set) {
+        fDeleteMissing = set;
+    }
+    
+    /**
+     * @return The changes made by the last import, or null if there has not been one
+     */
+    public ChangeSet getChangeSet() {
+        return fChangeSet;
+    }
+    
     /**
      * Do the actual import given the file
      * @param file
      */
     public void doImport(File file) throws IOException, CSVParseException {
+        // Row hashes from the last sync
+        if(isSync()) {
+            readSyncHashes();
+        }
+        
         // What file is it?
         
         File elementsFile = getMatchingFile(file, ELEMENTS_FILENAME);
@@ -108,96 +283,200 @@ public class CSVImporter implements CSVConstants {
             importProperties(propertiesFile);
         }
 
+        // Concepts not in the files
+        if(fDeleteMissing) {
+            collectDeletedConcepts();
+        }
+        
+        fChangeSet = createChangeSet();
+        
         // Execute the Commands
         CommandStack stack = (CommandStack)fModel.getAdapter(CommandStack.class);
         stack.execute(createCommands());
+        
+        // Row hashes for the next sync
+        if(isSync()) {
+            writeSyncHashes();
+        }
+        
+        // The model has changed so the index is out of date
+        fModelIndex = null;
     }
     
     /**
-     * Create Commands
+     * Create the Command to apply the changes as one bulk change.
+     * If syncing the token of the row hashes is set in the same Command so that it is undone with the changes.
      */
     Command createCommands() {
-        // Create Commands
-        CompoundCommand compoundCommand = new NonNotifyingCompoundCommand();
+        Command command = createChangeCommand();
+        
+        if(!isSync()) {
+            return command;
+        }
+        
+        // The token is the same if the rows are the same, so the model doesn't change if nothing was imported
+        FeatureCommand featureCommand = new FeatureCommand(Messages.CSVImporter_0, fModel, SYNC_FEATURE, getSyncToken(), ""); //$NON-NLS-1$
+        if(!featureCommand.canExecute()) {
+            return command;
+        }
+        
+        // A CompoundCommand can't be executed if one of its Commands can't
+        CompoundCommand compoundCommand = new CompoundCommand(Messages.CSVImporter_0);
+        
+        if(command.canExecute()) {
+            compoundCommand.add(command);
+        }
+        
+        compoundCommand.add(featureCommand);
+        
+        return compoundCommand;
+    }
+    
+    /**
+     * Create the Command to apply the changes to the model's concepts
+     */
+    private Command createChangeCommand() {
+        BulkChangeCommand bulkCommand = new BulkChangeCommand(Messages.CSVImporter_0);
+        
+        // Deleted elements/relations
+        for(IArchimateConcept concept : deletedConcepts) {
+            bulkCommand.remove(concept);
+        }
         
         // Model Name
         if(modelName != null) {
-            Command cmd = new EObjectFeatureCommand(Messages.CSVImporter_0, fModel, IArchimatePackage.Literals.NAMEABLE__NAME, modelName);
-            if(cmd.canExecute()) {
-                compoundCommand.add(cmd);
-            }
+            bulkCommand.set(fModel, IArchimatePackage.Literals.NAMEABLE__NAME, modelName);
         }
         
         // Model Purpose
         if(modelPurpose != null) {
-            Command cmd = new EObjectFeatureCommand(Messages.CSVImporter_0, fModel, IArchimatePackage.Literals.ARCHIMATE_MODEL__PURPOSE, modelPurpose);
-            if(cmd.canExecute()) {
-                compoundCommand.add(cmd);
-            }
+            bulkCommand.set(fModel, IArchimatePackage.Literals.ARCHIMATE_MODEL__PURPOSE, modelPurpose);
         }
         
         // New elements/relations
-        for(final IArchimateConcept concept : newConcepts.values()) {
-            Command cmd = new Command() {
-                IFolder folder = fModel.getDefaultFolderForObject(concept);
-                
-                @Override
-                public void execute() {
-                    folder.getElements().add(concept);
-                }
-                
-                @Override
-                public void undo() {
-                    folder.getElements().remove(concept);
-                }
-            };
-            
-            if(cmd.canExecute()) {
-                compoundCommand.add(cmd);
-            }
+        for(IArchimateConcept concept : newConcepts.values()) {
+            bulkCommand.add(fModel.getDefaultFolderForObject(concept), IArchimatePackage.Literals.FOLDER__ELEMENTS, concept);
         }
         
         // Updated concepts' features
         for(Entry<IArchimateConcept, Map<EAttribute, Object>> conceptEntry : updatedConcepts.entrySet()) {
             for(Entry<EAttribute, Object> entry : conceptEntry.getValue().entrySet()) {
-                Command cmd = new EObjectFeatureCommand(Messages.CSVImporter_0, conceptEntry.getKey(), entry.getKey(), entry.getValue());
-                if(cmd.canExecute()) {
-                    compoundCommand.add(cmd);
-                }
+                bulkCommand.set(conceptEntry.getKey(), entry.getKey(), entry.getValue());
             }
         }
 
         // New Properties
         for(Entry<IProperty, IProperties> entry : newProperties.entrySet()) {
-            Command cmd = new Command() {
-                IProperty property = entry.getKey();
-                IProperties propertiesObject = entry.getValue();
-                
-                @Override
-                public void execute() {
-                    propertiesObject.getProperties().add(property);
+            bulkCommand.add(entry.getValue(), IArchimatePackage.Literals.PROPERTIES__PROPERTIES, entry.getKey());
+        }
+        
+        // Updated Property Value
+        for(Entry<IProperty, String> entry : updatedProperties.entrySet()) {
+            bulkCommand.set(entry.getKey(), IArchimatePackage.Literals.PROPERTY__VALUE, entry.getValue());
+        }
+        
+        if(deletedConcepts.isEmpty()) {
+            return bulkCommand;
+        }
+        
+        // Delete the diagram references of deleted concepts before the concepts
+        CompoundCommand compoundCommand = new NonNotifyingCompoundCommand(Messages.CSVImporter_0);
+        
+        Set<EObject> diagramComponents = new HashSet<EObject>();
+        for(IArchimateConcept concept : deletedConcepts) {
+            diagramComponents.addAll(concept.getReferencingDiagramComponents());
+        }
+        
+        for(IArchimateConcept concept : deletedConcepts) {
+            for(IDiagramModelArchimateComponent dmc : concept.getReferencingDiagramComponents()) {
+                // Deleted with its parent or connected object
+                if(isDeletedWith(dmc, diagramComponents)) {
+                    continue;
                 }
                 
-                @Override
-                public void undo() {
-                    propertiesObject.getProperties().remove(property);
+                if(dmc instanceof IDiagramModelObject) {
+                    compoundCommand.add(DiagramCommandFactory.createDeleteDiagramObjectCommand((IDiagramModelObject)dmc));
+                }
+                else if(dmc instanceof IDiagramModelConnection) {
+                    compoundCommand.add(DiagramCommandFactory.createDeleteDiagramConnectionCommand((IDiagramModelConnection)dmc));
                 }
-            };
-            
-            if(cmd.canExecute()) {
-                compoundCommand.add(cmd);
             }
         }
         
-        // Updated Property Value
+        bulkCommand.setBatchNotifications(false);
+        compoundCommand.add(bulkCommand);
+        
+        return compoundCommand;
+    }
+    
+    /**
+     * @return True if a diagram component will be deleted when a parent object or a connected object or connection in deleted is deleted
+     */
+    private boolean isDeletedWith(EObject dmc, Set<EObject> deleted) {
+        if(dmc instanceof IDiagramModelConnection) {
+            IConnectable source = ((IDiagramModelConnection)dmc).getSource();
+            IConnectable target = ((IDiagramModelConnection)dmc).getTarget();
+            return deleted.contains(source) || deleted.contains(target) || isDeletedWith(source, deleted) || isDeletedWith(target, deleted);
+        }
+        
+        if(dmc instanceof IDiagramModelObject) {
+            for(EObject parent = dmc.eContainer(); parent instanceof IDiagramModelObject; parent = parent.eContainer()) {
+                if(deleted.contains(parent)) {
+                    return true;
+                }
+            }
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Create the change set from the changes to be applied
+     */
+    ChangeSet createChangeSet() {
+        ChangeSet changeSet = new ChangeSet();
+        
+        changeSet.fAdded.addAll(newConcepts.keySet());
+        
+        for(IArchimateConcept concept : deletedConcepts) {
+            changeSet.fDeleted.add(concept.getId());
+        }
+        
+        // Concepts with a feature that has a new value
+        Set<IArchimateConcept> updated = new LinkedHashSet<IArchimateConcept>();
+        
+        for(Entry<IArchimateConcept, Map<EAttribute, Object>> conceptEntry : updatedConcepts.entrySet()) {
+            for(Entry<EAttribute, Object> entry : conceptEntry.getValue().entrySet()) {
+                Object value = conceptEntry.getKey().eGet(entry.getKey());
+                if(entry.getValue() == null ? value != null : !entry.getValue().equals(value)) {
+                    updated.add(conceptEntry.getKey());
+                }
+            }
+        }
+        
+        // Concepts with a new property
+        for(IProperties propertiesObject : newProperties.values()) {
+            if(propertiesObject instanceof IArchimateConcept) {
+                updated.add((IArchimateConcept)propertiesObject);
+            }
+        }
+        
+        // Concepts with a property that has a new value
         for(Entry<IProperty, String> entry : updatedProperties.entrySet()) {
-            Command cmd = new EObjectFeatureCommand(Messages.CSVImporter_0, entry.getKey(), IArchimatePackage.Literals.PROPERTY__VALUE, entry.getValue());
-            if(cmd.canExecute()) {
-                compoundCommand.add(cmd);
+            if(entry.getKey().eContainer() instanceof IArchimateConcept && !entry.getValue().equals(entry.getKey().getValue())) {
+                updated.add((IArchimateConcept)entry.getKey().eContainer());
             }
         }
-     
-        return compoundCommand;
+        
+        for(IArchimateConcept concept : updated) {
+            if(!newConcepts.containsKey(concept.getId()) && !deletedConcepts.contains(concept)) {
+                changeSet.fUpdated.add(concept.getId());
+            }
+        }
+        
+        changeSet.fUnchanged = fUnchangedCount;
+        
+        return changeSet;
     }
     
     // -------------------------------- Import Model and Elements --------------------------------
@@ -209,32 +488,45 @@ public class CSVImporter implements CSVConstants {
      * @throws CSVParseException
      */
     void importElements(File file) throws IOException, CSVParseException {
-        List<CSVRecord> records = getRecords(file);
+        fImportedKeys.add(ELEMENT_KEY);
         
-        // Should have at least one record
-        if(records.isEmpty()) {
-            throw new CSVParseException(Messages.CSVImporter_1);
+        if(fDeleteMissing) {
+            fSourceElementIDs = new HashSet<String>();
         }
         
-        for(CSVRecord csvRecord : records) {
-            if(!isElementsRecordCorrectSize(csvRecord)) {
-                throw new CSVParseException(Messages.CSVImporter_2);
+        try(CSVParser parser = getParser(file)) {
+            Iterator<CSVRecord> iter = parser.iterator();
+            
+            // Should have at least one record
+            if(!iter.hasNext()) {
+                throw new CSVParseException(Messages.CSVImporter_1);
             }
+            
+            while(iter.hasNext()) {
+                CSVRecord csvRecord = iter.next();
+                
+                if(!isElementsRecordCorrectSize(csvRecord)) {
+                    throw new CSVParseException(Messages.CSVImporter_2);
+                }
 
-            // Header
-            if(isHeaderRecord(csvRecord, MODEL_ELEMENTS_HEADER)) {
-                continue;
-            }
+                // Header
+                if(isHeaderRecord(csvRecord, MODEL_ELEMENTS_HEADER)) {
+                    continue;
+                }
 
-            // Model (this is optional)
-            if(isModelRecord(csvRecord)) {
-                parseModelRecord(csvRecord);
-            }
-            // Element
-            else {
-                createElementFromRecord(csvRecord);
+                // Model (this is optional)
+                if(isModelRecord(csvRecord)) {
+                    parseModelRecord(csvRecord);
+                }
+                // Element
+                else {
+                    createElementFromRecord(csvRecord);
+                }
             }
         }
+        catch(IllegalStateException ex) {
+            throw getIOException(ex);
+        }
     }
     
     /**
@@ -275,6 +567,15 @@ public class CSVImporter implements CSVConstants {
         }
         else {
             checkIDForInvalidCharacters(id);
+            
+            if(fSourceElementIDs != null) {
+                fSourceElementIDs.add(id);
+            }
+            
+            // Not changed since the last sync
+            if(isUnchangedRecord(ELEMENT_KEY + id, id, csvRecord)) {
+                return;
+            }
         }
         
         // Class type
@@ -315,20 +616,31 @@ public class CSVImporter implements CSVConstants {
      * @throws CSVParseException
      */
     void importRelations(File file) throws IOException, CSVParseException {
-        for(CSVRecord csvRecord : getRecords(file)) {
-            if(!isRelationsRecordCorrectSize(csvRecord)) {
-                throw new CSVParseException(Messages.CSVImporter_2);
-            }
+        fImportedKeys.add(RELATION_KEY);
+        
+        if(fDeleteMissing) {
+            fSourceRelationIDs = new HashSet<String>();
+        }
+        
+        try(CSVParser parser = getParser(file)) {
+            for(CSVRecord csvRecord : parser) {
+                if(!isRelationsRecordCorrectSize(csvRecord)) {
+                    throw new CSVParseException(Messages.CSVImporter_2);
+                }
 
-            // Header
-            if(isHeaderRecord(csvRecord, RELATIONSHIPS_HEADER)) {
-                continue;
-            }
-            // Relation
-            else {
-                createRelationFromRecord(csvRecord);
+                // Header
+                if(isHeaderRecord(csvRecord, RELATIONSHIPS_HEADER)) {
+                    continue;
+                }
+                // Relation
+                else {
+                    createRelationFromRecord(csvRecord);
+                }
             }
         }
+        catch(IllegalStateException ex) {
+            throw getIOException(ex);
+        }
         
         // Now connect the relations
         for(Entry<String, IArchimateConcept> entry : newConcepts.entrySet()) {
@@ -362,11 +674,26 @@ public class CSVImporter implements CSVConstants {
         // ID
         String id = csvRecord.get(0);
         
+        // Sources and targets are not deleted
+        if(fDeleteMissing) {
+            fReferencedIDs.add(csvRecord.get(4));
+            fReferencedIDs.add(csvRecord.get(5));
+        }
+        
         if(!StringUtils.isSet(id)) {
             id = generateID();
         }
         else {
             checkIDForInvalidCharacters(id);
+            
+            if(fSourceRelationIDs != null) {
+                fSourceRelationIDs.add(id);
+            }
+            
+            // Not changed since the last sync
+            if(isUnchangedRecord(RELATION_KEY + id, id, csvRecord)) {
+                return;
+            }
         }
         
         // Type
@@ -412,20 +739,27 @@ public class CSVImporter implements CSVConstants {
      * @throws CSVParseException
      */
     void importProperties(File file) throws IOException, CSVParseException {
-        for(CSVRecord csvRecord : getRecords(file)) {
-            if(!isPropertiesRecordCorrectSize(csvRecord)) {
-                throw new CSVParseException(Messages.CSVImporter_2);
-            }
+        fImportedKeys.add(PROPERTY_KEY);
+        
+        try(CSVParser parser = getParser(file)) {
+            for(CSVRecord csvRecord : parser) {
+                if(!isPropertiesRecordCorrectSize(csvRecord)) {
+                    throw new CSVParseException(Messages.CSVImporter_2);
+                }
 
-            // Header
-            if(isHeaderRecord(csvRecord, PROPERTIES_HEADER)) {
-                continue;
-            }
-            // Property
-            else {
-                createPropertyFromRecord(csvRecord);
+                // Header
+                if(isHeaderRecord(csvRecord, PROPERTIES_HEADER)) {
+                    continue;
+                }
+                // Property
+                else {
+                    createPropertyFromRecord(csvRecord);
+                }
             }
         }
+        catch(IllegalStateException ex) {
+            throw getIOException(ex);
+        }
     }
     
     private boolean isPropertiesRecordCorrectSize(CSVRecord csvRecord) {
@@ -446,12 +780,17 @@ public class CSVImporter implements CSVConstants {
             checkIDForInvalidCharacters(id);
         }
         
+        // Not changed since the last sync
+        if(isUnchangedRecord(getPropertyKey(id, csvRecord), id, csvRecord)) {
+            return;
+        }
+        
         // Find referenced concept in newly created list
         IProperties propertiesObject = newConcepts.get(id);
         
         // Not found, check if it's referencing an existing element in the model
         if(propertiesObject == null) {
-            EObject eObject = ArchimateModelUtils.getObjectByID(fModel, id);
+            EObject eObject = getObjectByID(id);
             if(eObject instanceof IProperties) {
                 propertiesObject = (IProperties)eObject;
             }
@@ -514,63 +853,297 @@ public class CSVImporter implements CSVConstants {
     }
 
     
+    // -------------------------------- Sync --------------------------------
+    
+    /**
+     * If syncing, store the hash of a row and check it against the hash from the last sync
+     * @param key The key of the row
+     * @param id The id of the row's concept
+     * @return True if the row has the same hash as in the last sync and its concept is in the model
+     * @throws CSVParseException if another row has the same key
+     */
+    private boolean isUnchangedRecord(String key, String id, CSVRecord csvRecord) throws CSVParseException {
+        if(!isSync()) {
+            return false;
+        }
+        
+        // The hash of one row would replace the other
+        if(fRowHashes.containsKey(key)) {
+            throw new CSVParseException(Messages.CSVImporter_13 + id);
+        }
+        
+        long hash = hashRecord(csvRecord);
+        fRowHashes.put(key, hash);
+        
+        Long previousHash = fPreviousHashes.get(key);
+        if(previousHash != null && previousHash == hash && (getObjectByID(id) != null || id.equals(modelID))) {
+            fUnchangedCount++;
+            return true;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * A concept can have more than one property with the same key, so the second and later of these rows are numbered
+     * @return The key of a property row
+     */
+    private String getPropertyKey(String id, CSVRecord csvRecord) {
+        String key = PROPERTY_KEY + id + '\t' + normalise(csvRecord.get(1));
+        
+        String numberedKey = key;
+        for(int i = 2; fRowHashes.containsKey(numberedKey); i++) {
+            numberedKey = key + '\t' + i;
+        }
+        
+        return numberedKey;
+    }
+    
+    /**
+     * @return A 64 bit FNV-1a hash of the values of a record
+     */
+    long hashRecord(CSVRecord csvRecord) {
+        long hash = FNV_OFFSET_BASIS;
+        
+        for(String value : csvRecord) {
+            hash = hashString(hash, value);
+        }
+        
+        return hash;
+    }
+    
+    /**
+     * Add a String to a FNV-1a hash
+     */
+    private static long hashString(long hash, String value) {
+        // Length first so that ("ab", "c") and ("a", "bc") are different
+        hash = (hash ^ value.length()) * FNV_PRIME;
+        
+        for(int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        
+        return hash;
+    }
+    
+    private boolean isSync() {
+        return fSyncFolder != null;
+    }
+    
+    /**
+     * Read the row hashes of the last sync from the model's sync file.
+     * There are none if the model has not been synced, or if the file's token is not the model's token
+     * because the last sync was undone or the model was not saved after it.
+     */
+    private void readSyncHashes() throws IOException {
+        fPreviousHashes.clear();
+        
+        String token = fModel.getFeatures().getString(SYNC_FEATURE, null);
+        File file = getSyncFile();
+        
+        if(token == null || !file.exists()) {
+            return;
+        }
+        
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(in.readInt() != SYNC_FILE_MAGIC || !token.equals(in.readUTF())) {
+                return;
+            }
+            
+            int count = in.readInt();
+            for(int i = 0; i < count; i++) {
+                fPreviousHashes.put(in.readUTF(), in.readLong());
+            }
+        }
+        catch(EOFException ex) {
+            // Part of a file. All of the rows will be imported again.
+            fPreviousHashes.clear();
+        }
+    }
+    
+    /**
+     * Write the row hashes and their token to the model's sync file
+     */
+    private void writeSyncHashes() throws IOException {
+        fSyncFolder.mkdirs();
+        File file = getSyncFile();
+        
+        // Write to a temporary file in the same folder first so that a failed write doesn't leave part of a file
+        Path tmpFile = Files.createTempFile(fSyncFolder.toPath(), file.getName(), ".tmp"); //$NON-NLS-1$
+        
+        try {
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(SYNC_FILE_MAGIC);
+                out.writeUTF(getSyncToken());
+                out.writeInt(getSyncHashes().size());
+                
+                for(Entry<String, Long> entry : getSyncHashes().entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            
+            try {
+                Files.move(tmpFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch(AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+    
+    /**
+     * @return The row hashes of this import, and those from the last sync of types of rows that were not imported, sorted by key
+     */
+    SortedMap<String, Long> getSyncHashes() {
+        if(fSyncHashes == null) {
+            fSyncHashes = new TreeMap<String, Long>();
+            
+            for(Entry<String, Long> entry : fPreviousHashes.entrySet()) {
+                String key = entry.getKey();
+                String prefix = key.substring(0, Math.min(2, key.length()));
+                if(!fImportedKeys.contains(prefix)) {
+                    fSyncHashes.put(key, entry.getValue());
+                }
+            }
+            
+            for(Entry<String, Long> entry : fRowHashes.entrySet()) {
+                // A key that is too long to write is left out, so its row is compared again on the next import
+                if(entry.getKey().length() <= MAX_SYNC_KEY_LENGTH) {
+                    fSyncHashes.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        
+        return fSyncHashes;
+    }
+    
+    /**
+     * @return A token of the row hashes. It is the same for the same row hashes.
+     */
+    String getSyncToken() {
+        if(fSyncToken == null) {
+            long hash = FNV_OFFSET_BASIS;
+            
+            for(Entry<String, Long> entry : getSyncHashes().entrySet()) {
+                hash = hashString(hash, entry.getKey());
+                hash = (hash ^ entry.getValue()) * FNV_PRIME;
+            }
+            
+            fSyncToken = Long.toHexString(hash) + ":" + getSyncHashes().size(); //$NON-NLS-1$
+        }
+        
+        return fSyncToken;
+    }
+    
+    /**
+     * Collect the elements that are not in the elements file and the relations that are not in the relations file.
+     * Those that are the source or target of a relation in the relations file are kept.
+     */
+    private void collectDeletedConcepts() {
+        for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            
+            Set<String> sourceIDs = eObject instanceof IArchimateElement ? fSourceElementIDs
+                    : eObject instanceof IArchimateRelationship ? fSourceRelationIDs : null;
+            
+            if(sourceIDs != null) {
+                IArchimateConcept concept = (IArchimateConcept)eObject;
+                if(!sourceIDs.contains(concept.getId()) && !fReferencedIDs.contains(concept.getId())) {
+                    deletedConcepts.add(concept);
+                    // And its relations
+                    deletedConcepts.addAll(ArchimateModelUtils.getAllRelationshipsForConcept(concept));
+                }
+            }
+        }
+    }
+    
     // -------------------------------- Helpers --------------------------------
     
     /**
-     * Get all records for a CSV file.
-     * This is a brute-force approach to try with a comma delimiter first. If that fails then
-     * try a semicolon, and if that fails, a tab.
+     * Get a parser for a CSV file that reads the records one at a time.
+     * The delimiter is detected from the start of the file. It can be a comma, a semicolon or a tab.
+     * The caller must close the parser.
      * 
      * @param file The file to open
-     * @return Records, which may be empty but never null
+     * @return The parser
      * @throws IOException
      */
-    List<CSVRecord> getRecords(File file) throws IOException {
-        List<CSVRecord> records = new ArrayList<CSVRecord>(); 
-        CSVParser parser = null;
-        
-        String errorMessage = "invalid char between encapsulated token and delimiter"; //$NON-NLS-1$
+    CSVParser getParser(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new BOMInputStream(new FileInputStream(file)), StandardCharsets.UTF_8));
         
         try {
-            InputStreamReader is = new InputStreamReader(new BOMInputStream(new FileInputStream(file)), "UTF-8"); //$NON-NLS-1$
-            parser = new CSVParser(is, CSVFormat.DEFAULT);
-            records = parser.getRecords();
+            char delimiter = detectDelimiter(reader);
+            return new CSVParser(reader, CSVFormat.DEFAULT.withDelimiter(delimiter));
         }
         catch(IOException ex) {
-            if(parser != null) {
-                parser.close();
-            }
-            if(ex.getMessage() != null && ex.getMessage().contains(errorMessage)) {
-                try {
-                    InputStreamReader is = new InputStreamReader(new BOMInputStream(new FileInputStream(file)), "UTF-8"); //$NON-NLS-1$
-                    parser = new CSVParser(is, CSVFormat.DEFAULT.withDelimiter(';'));
-                    records = parser.getRecords();
+            reader.close();
+            throw ex;
+        }
+    }
+    
+    /**
+     * The parser's record iterator wraps an IOException in an IllegalStateException
+     */
+    private IOException getIOException(IllegalStateException ex) {
+        if(ex.getCause() instanceof IOException) {
+            return (IOException)ex.getCause();
+        }
+        return new IOException(ex.getMessage(), ex);
+    }
+    
+    /**
+     * Detect the delimiter by counting each possible delimiter in the first record, ignoring any in quoted fields.
+     * The reader is reset to where it was.
+     * 
+     * @return The delimiter that occurs most often, or a comma if none are found
+     */
+    char detectDelimiter(Reader reader) throws IOException {
+        reader.mark(SNIFF_SIZE);
+        
+        char[] buffer = new char[SNIFF_SIZE];
+        int length = 0;
+        int read;
+        while(length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+        }
+        
+        reader.reset();
+        
+        int[] counts = new int[DELIMITERS.length];
+        boolean inQuotes = false;
+        
+        for(int i = 0; i < length; i++) {
+            char c = buffer[i];
+            
+            if(c == '"') {
+                inQuotes = !inQuotes;
+            }
+            else if(!inQuotes) {
+                // End of first record
+                if(c == '\r' || c == '\n') {
+                    break;
                 }
-                catch(IOException ex2) {
-                    if(parser != null) {
-                        parser.close();
-                    }
-                    if(ex2.getMessage() != null && ex2.getMessage().contains(errorMessage)) {
-                        InputStreamReader is = new InputStreamReader(new BOMInputStream(new FileInputStream(file)), "UTF-8"); //$NON-NLS-1$
-                        parser = new CSVParser(is, CSVFormat.DEFAULT.withDelimiter('\t'));
-                        records = parser.getRecords();
-                    }
-                    else {
-                        throw ex2;
+                
+                for(int j = 0; j < DELIMITERS.length; j++) {
+                    if(c == DELIMITERS[j]) {
+                        counts[j]++;
                     }
                 }
             }
-            else {
-                throw ex;
-            }
         }
-        finally {
-            if(parser != null) {
-                parser.close();
+        
+        int best = 0;
+        for(int j = 1; j < DELIMITERS.length; j++) {
+            if(counts[j] > counts[best]) {
+                best = j;
             }
         }
         
-        return records;
+        return DELIMITERS[best];
     }
     
     /**
@@ -639,10 +1212,7 @@ public class CSVImporter implements CSVConstants {
             return ""; //$NON-NLS-1$
         }
         
-        // Newlines and Tabs
-        s = s.replaceAll("(\r\n|\r|\n|\t)", " ");  //$NON-NLS-1$//$NON-NLS-2$
-        
-        return s;
+        return NORMALISE_PATTERN.matcher(s).replaceAll(" "); //$NON-NLS-1$
     }
     
     /**
@@ -676,7 +1246,7 @@ public class CSVImporter implements CSVConstants {
     }
     
     void checkIDForInvalidCharacters(String id) throws CSVParseException {
-        if(!id.matches("^[a-zA-Z0-9._-]+$")) { //$NON-NLS-1$
+        if(!ID_PATTERN.matcher(id).matches()) {
             throw new CSVParseException(Messages.CSVImporter_12 + id);
         }
     }
@@ -686,7 +1256,7 @@ public class CSVImporter implements CSVConstants {
      * @throws CSVParseException 
      */
     IArchimateConcept findArchimateConceptInModel(String id, EClass eClass) throws CSVParseException {
-        EObject eObject = ArchimateModelUtils.getObjectByID(fModel, id);
+        EObject eObject = getObjectByID(id);
         
         // Found an element with this id
         if(eObject != null) {
@@ -713,7 +1283,7 @@ public class CSVImporter implements CSVConstants {
         
         // No. How about in the model?
         if(eObject == null) {
-            eObject = ArchimateModelUtils.getObjectByID(fModel, id);
+            eObject = getObjectByID(id);
         }
         
         // Not found
@@ -729,6 +1299,33 @@ public class CSVImporter implements CSVConstants {
         return (IArchimateConcept)eObject;
     }
     
+    /**
+     * Find an object in the model given its id. Return null if not found.
+     * The first time this is called an index of all the objects in the model is created so that each look up doesn't have to iterate through the model.
+     */
+    EObject getObjectByID(String id) {
+        if(id == null) {
+            return null;
+        }
+        
+        if(fModelIndex == null) {
+            fModelIndex = new HashMap<String, EObject>();
+            
+            for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IIdentifier) {
+                    // First one wins, as in ArchimateModelUtils.getObjectByID()
+                    fModelIndex.putIfAbsent(((IIdentifier)eObject).getId(), eObject);
+                }
+            }
+            
+            // The model comes first
+            fModelIndex.put(fModel.getId(), fModel);
+        }
+        
+        return fModelIndex.get(id);
+    }
+    
     boolean isArchimateConceptEClass(EClass eClass) {
         return eClass != null && IArchimatePackage.eINSTANCE.getArchimateConcept().isSuperTypeOf(eClass);
     }
@@ -8,6 +8,7 @@ package com.archimatetool.editor.diagram;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.eclipse.draw2d.LayeredPane;
 import org.eclipse.draw2d.geometry.Insets;
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.gef.AutoexposeHelper;
@@ -29,6 +30,7 @@ import com.archimatetool.editor.diagram.actions.GenerateViewAction;
 import com.archimatetool.editor.diagram.actions.ViewpointAction;
 import com.archimatetool.editor.diagram.dnd.ArchimateDiagramTransferDropTargetListener;
 import com.archimatetool.editor.diagram.editparts.ArchimateDiagramEditPartFactory;
+import com.archimatetool.editor.diagram.figures.connections.IndexedConnectionLayer;
 import com.archimatetool.editor.diagram.util.ExtendedViewportAutoexposeHelper;
 import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.editor.preferences.IPreferenceConstants;
@@ -139,6 +141,12 @@ implements IArchimateDiagramEditor {
     protected void createRootEditPart(GraphicalViewer viewer) {
         // We'll have a Zoom Manager for our Root Edit Part
         viewer.setRootEditPart(new ScalableFreeformRootEditPart() {
+            @Override
+            protected LayeredPane createPrintableLayers() {
+                // Connection layer with an index for line jumps
+                return IndexedConnectionLayer.createPrintableLayers();
+            }
+
             @SuppressWarnings("rawtypes")
             @Override
             public Object getAdapter(Class adapter) {
@@ -11,10 +11,12 @@ import java.util.Map.Entry;
 
 import org.eclipse.draw2d.PositionConstants;
 import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.gef.commands.Command;
 import org.eclipse.gef.commands.CompoundCommand;
 import org.eclipse.gef.requests.ChangeBoundsRequest;
 import org.eclipse.osgi.util.NLS;
 
+import com.archimatetool.editor.model.commands.IMergeableCommand;
 import com.archimatetool.editor.preferences.IPreferenceConstants;
 import com.archimatetool.editor.preferences.Preferences;
 import com.archimatetool.editor.ui.ArchiLabelProvider;
@@ -27,11 +29,12 @@ import com.archimatetool.model.IDiagramModelObject;
 
 
 /**
- * Command for moving/resizing an Object
+ * Command for moving/resizing an Object.<p>
+ * Consecutive moves/resizes of the same Object that do not adjust child objects can be merged.
  * 
  * @author Phillip Beauvoir
  */
-public class SetConstraintObjectCommand extends CompoundCommand {
+public class SetConstraintObjectCommand extends CompoundCommand implements IMergeableCommand {
 
     private IDiagramModelObject fObject;
     private IBounds fNewPos, fOldPos;
@@ -104,27 +107,49 @@ public class SetConstraintObjectCommand extends CompoundCommand {
         super.execute();
     }
     
+    @Override
+    public boolean canMerge(Command command) {
+        if(command == null || command.getClass() != getClass() || fObject == null || !isEmpty()) {
+            return false;
+        }
+        
+        SetConstraintObjectCommand other = (SetConstraintObjectCommand)command;
+        return other.fObject == fObject && other.fOldPos == fNewPos && !other.willCreateChildConstraintCommands();
+    }
+    
+    @Override
+    public void merge(Command command) {
+        fNewPos = ((SetConstraintObjectCommand)command).fNewPos;
+    }
+    
     /**
-     * If the option is set, move children in relation to new resize x, y
+     * @return true if execute() will add commands to move children in relation to new resize x, y
      */
-    protected void createChildConstraintCommands() {
+    private boolean willCreateChildConstraintCommands() {
         if(Preferences.STORE.getInt(IPreferenceConstants.DIAGRAM_OBJECT_RESIZE_BEHAVIOUR) != 0 ||
                 fRequest == null ||
                 !(fObject instanceof IDiagramModelContainer)) {
-            return;
+            return false;
         }
         
-        IDiagramModelContainer container = (IDiagramModelContainer)fObject;
-        
-        if(container.getChildren().isEmpty()) {
-            return;
+        if(((IDiagramModelContainer)fObject).getChildren().isEmpty()) {
+            return false;
         }
         
-        if((fRequest.getResizeDirection() & PositionConstants.NORTH) == 0 &&
-                (fRequest.getResizeDirection() & PositionConstants.WEST) == 0) {
+        return (fRequest.getResizeDirection() & PositionConstants.NORTH) != 0 ||
+                (fRequest.getResizeDirection() & PositionConstants.WEST) != 0;
+    }
+    
+    /**
+     * If the option is set, move children in relation to new resize x, y
+     */
+    protected void createChildConstraintCommands() {
+        if(!willCreateChildConstraintCommands()) {
             return;
         }
         
+        IDiagramModelContainer container = (IDiagramModelContainer)fObject;
+        
         // Use a map of object->bounds so that setting bounds in both north and west cases are cumulative
         Map<IDiagramModelObject, IBounds> map = new HashMap<>();
         for(IDiagramModelObject dmo : container.getChildren()) {
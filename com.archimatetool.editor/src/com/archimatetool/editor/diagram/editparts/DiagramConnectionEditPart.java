@@ -188,10 +188,10 @@ public class DiagramConnectionEditPart extends AbstractConnectionEditPart {
             getFigure().refreshVisuals();
         }
         else if(IPreferenceConstants.USE_LINE_CURVES.equals(property)) {
-            getFigure().repaint();
+            ((AbstractDiagramConnectionFigure)getFigure()).updateLinePreferences();
         }
         else if(IPreferenceConstants.USE_LINE_JUMPS.equals(property)) {
-            getFigure().repaint();
+            ((AbstractDiagramConnectionFigure)getFigure()).updateLinePreferences();
         }
         else if(IPreferenceConstants.VIEWPOINTS_GHOST_DIAGRAM_ELEMENTS.equals(event.getProperty())) {
             getFigure().refreshVisuals();
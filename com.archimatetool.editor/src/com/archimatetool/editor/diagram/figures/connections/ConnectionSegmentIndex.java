@@ -0,0 +1,206 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures.connections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.PointList;
+
+
+/**
+ * Uniform grid of the line segments of the connections on an IndexedConnectionLayer.<p>
+ *
+ * This is used to find the segments that might cross a line segment when drawing line jumps
+ * without having to check every segment of every other connection on the diagram.
+ * Each segment is added to the cells that its bounds cover.<p>
+ *
+ * Each cell has a version that is set to a new, higher, value when one of its segments changes.
+ * A connection can keep the line jumps it drew while the version of the cells it covers is the same.<p>
+ *
+ * Figures are only used in the UI thread so this is not thread safe.
+ *
+ * @author Phillip Beauvoir
+ */
+class ConnectionSegmentIndex {
+
+    static final int CELL_SIZE = 100;
+
+    /**
+     * A line segment of a connection
+     */
+    static class Segment {
+        final RoundedPolylineConnection connection;
+        final Point start;
+        final Point end;
+
+        // The last query that found this segment, so it is only found once if it is in more than one cell
+        private int queryStamp;
+
+        Segment(RoundedPolylineConnection connection, Point start, Point end) {
+            this.connection = connection;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class Cell {
+        List<Segment> segments = new ArrayList<>();
+        long version;
+    }
+
+    private static class Entry {
+        // Copy of the connection's points when its segments were added
+        int[] points;
+        List<Segment> segments = new ArrayList<>();
+        List<Cell> cells = new ArrayList<>();
+    }
+
+    // Cells by key. Empty cells are kept so that their version is never lost.
+    private Map<Long, Cell> cells = new HashMap<>();
+
+    private Map<RoundedPolylineConnection, Entry> entries = new HashMap<>();
+
+    private long version;
+
+    private int queryStamp;
+
+    /**
+     * Add the segments of connection, or update them if its points have changed since they were added
+     */
+    void update(RoundedPolylineConnection connection) {
+        PointList points = connection.getPoints();
+
+        Entry entry = entries.get(connection);
+        if(entry != null && isSame(entry.points, points)) {
+            return;
+        }
+
+        remove(connection);
+
+        entry = new Entry();
+        entry.points = Arrays.copyOf(points.toIntArray(), points.size() * 2);
+        entries.put(connection, entry);
+
+        version++;
+
+        for(int i = 0; i < points.size() - 1; i++) {
+            Segment segment = new Segment(connection, points.getPoint(i), points.getPoint(i + 1));
+            entry.segments.add(segment);
+
+            for(Cell cell : getCells(segment.start, segment.end, true)) {
+                cell.segments.add(segment);
+                cell.version = version;
+                if(!entry.cells.contains(cell)) {
+                    entry.cells.add(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove the segments of connection
+     */
+    void remove(RoundedPolylineConnection connection) {
+        Entry entry = entries.remove(connection);
+        if(entry == null) {
+            return;
+        }
+
+        version++;
+
+        for(Cell cell : entry.cells) {
+            cell.segments.removeAll(entry.segments);
+            cell.version = version;
+        }
+    }
+
+    /**
+     * @return The segments of other connections in the cells covered by the segment from start to end
+     */
+    List<Segment> getSegments(Point start, Point end, RoundedPolylineConnection exclude) {
+        List<Segment> result = new ArrayList<>();
+
+        queryStamp++;
+
+        for(Cell cell : getCells(start, end, false)) {
+            for(Segment segment : cell.segments) {
+                if(segment.connection != exclude && segment.queryStamp != queryStamp) {
+                    segment.queryStamp = queryStamp;
+                    result.add(segment);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The version of the cells covered by connection's segments, or -1 if they have not been added.
+     *         This changes when any segment in those cells changes.
+     */
+    long getVersion(RoundedPolylineConnection connection) {
+        Entry entry = entries.get(connection);
+        if(entry == null) {
+            return -1;
+        }
+
+        // This is called on every paint so don't create an iterator
+        long result = 0;
+        for(int i = 0; i < entry.cells.size(); i++) {
+            result = Math.max(result, entry.cells.get(i).version);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The cells covered by the bounds of the segment from start to end
+     */
+    private List<Cell> getCells(Point start, Point end, boolean create) {
+        List<Cell> result = new ArrayList<>();
+
+        int minX = Math.floorDiv(Math.min(start.x, end.x), CELL_SIZE);
+        int maxX = Math.floorDiv(Math.max(start.x, end.x), CELL_SIZE);
+        int minY = Math.floorDiv(Math.min(start.y, end.y), CELL_SIZE);
+        int maxY = Math.floorDiv(Math.max(start.y, end.y), CELL_SIZE);
+
+        for(int x = minX; x <= maxX; x++) {
+            for(int y = minY; y <= maxY; y++) {
+                Long key = ((long)x << 32) | (y & 0xFFFFFFFFL);
+                Cell cell = create ? cells.computeIfAbsent(key, k -> new Cell()) : cells.get(key);
+                if(cell != null) {
+                    result.add(cell);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return true if points is a copy of the points in pointList
+     */
+    static boolean isSame(int[] points, PointList pointList) {
+        if(points.length != pointList.size() * 2) {
+            return false;
+        }
+
+        // This is the PointList's own array and might be longer than its size
+        int[] array = pointList.toIntArray();
+        for(int i = 0; i < points.length; i++) {
+            if(points[i] != array[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
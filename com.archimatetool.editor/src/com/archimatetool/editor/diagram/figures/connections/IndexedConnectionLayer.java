@@ -0,0 +1,45 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures.connections;
+
+import org.eclipse.draw2d.ConnectionLayer;
+import org.eclipse.draw2d.FreeformLayer;
+import org.eclipse.draw2d.FreeformLayeredPane;
+import org.eclipse.draw2d.LayeredPane;
+import org.eclipse.gef.LayerConstants;
+
+
+/**
+ * Connection Layer that keeps an index of the line segments of its connections.<p>
+ *
+ * RoundedPolylineConnection uses the index to find crossing connections when drawing line jumps.
+ * Line jumps are not drawn for connections on other layers.
+ * The index belongs to the layer so it is gone when the layer is.
+ *
+ * @author Phillip Beauvoir
+ */
+public class IndexedConnectionLayer extends ConnectionLayer {
+
+    /**
+     * @return The printable layers for a root edit part, the same as those of a FreeformGraphicalRootEditPart
+     *         but with an IndexedConnectionLayer as the connection layer
+     */
+    public static LayeredPane createPrintableLayers() {
+        FreeformLayeredPane layeredPane = new FreeformLayeredPane();
+        layeredPane.add(new FreeformLayer(), LayerConstants.PRIMARY_LAYER);
+        layeredPane.add(new IndexedConnectionLayer(), LayerConstants.CONNECTION_LAYER);
+        return layeredPane;
+    }
+
+    private ConnectionSegmentIndex segmentIndex = new ConnectionSegmentIndex();
+
+    /**
+     * @return The index of the segments of the connections on this layer
+     */
+    ConnectionSegmentIndex getSegmentIndex() {
+        return segmentIndex;
+    }
+}
@@ -31,11 +31,11 @@ import org.eclipse.draw2d.geometry.Point;
 import org.eclipse.draw2d.geometry.PointList;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.List;
 
-import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.geometry.Rectangle;
 
 import com.archimatetool.editor.diagram.figures.PolarPoint;
@@ -64,28 +64,94 @@ public class RoundedPolylineConnection extends PolylineConnection {
 	final double PI2 = Math.PI * 2.0;
 	final double PI12 = Math.PI * 1.0 / 2.0;
 
+	// Line-curves and line-jumps preferences
+	private boolean useLineCurves = Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_CURVES);
+	private boolean useLineJumps = Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS);
+
+	// Index of the segments of the connections on the same layer, used to find crossing points.
+	// Null if the layer is not an IndexedConnectionLayer.
+	private ConnectionSegmentIndex segmentIndex;
+
+	// Points drawn for the bendpoints, kept until the bendpoints, the preferences
+	// or, if line-jumps are used, a segment near this connection change
+	private PointList linepointsCache;
+	private int[] linepointsBendpoints;
+	private long linepointsVersion = -1;
+
+	@Override
+	public void addNotify() {
+		super.addNotify();
+		if (getParent() instanceof IndexedConnectionLayer) {
+			segmentIndex = ((IndexedConnectionLayer)getParent()).getSegmentIndex();
+			segmentIndex.update(this);
+		}
+	}
+
+	@Override
+	public void removeNotify() {
+		if (segmentIndex != null) {
+			segmentIndex.remove(this);
+			segmentIndex = null;
+		}
+		linepointsCache = null;
+		super.removeNotify();
+	}
+
+	@Override
+	public void setPoints(PointList points) {
+		super.setPoints(points);
+		if (segmentIndex != null)
+			segmentIndex.update(this);
+	}
+
+	/**
+	 * Read the line-curves and line-jumps preferences again after they have changed and repaint
+	 */
+	public void updateLinePreferences() {
+		useLineCurves = Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_CURVES);
+		useLineJumps = Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS);
+		linepointsCache = null;
+		repaint();
+	}
+
 	@Override
 	public Rectangle getBounds() {
-		if (Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS))
+		if (useLineJumps)
 			return super.getBounds().getCopy().expand(10, 10);
 		else
 			return super.getBounds();
 	}
 	
 	@Override
-	@SuppressWarnings("rawtypes")
 	protected void outlineShape(Graphics g) {
 		// Original list of bendpoints
 		PointList bendpoints = getPoints();
-		// List of bendpoints and points added to draw line-curves and line-jumps
-		PointList linepoints = new PointList();
-		// List of all connections on current diagram
-		ArrayList connections = getAllConnections();
 
 		if (bendpoints.size() == 0) {
 			return;
 		}
 		
+		// Forget the points drawn if a segment near this connection has changed
+		if (useLineJumps && segmentIndex != null) {
+			// Points might have been changed without calling setPoints()
+			segmentIndex.update(this);
+			long version = segmentIndex.getVersion(this);
+			if (version != linepointsVersion) {
+				linepointsCache = null;
+				linepointsVersion = version;
+			}
+		}
+		
+		// Nothing has changed so draw the same points again
+		if (linepointsCache != null && ConnectionSegmentIndex.isSame(linepointsBendpoints, bendpoints)) {
+			g.drawPolyline(linepointsCache);
+			return;
+		}
+		
+		// List of bendpoints and points added to draw line-curves and line-jumps
+		PointList linepoints = new PointList();
+		
+
 		// Start point is the first "previous" point
 		Point prev = bendpoints.getPoint(0);
 		
@@ -97,7 +163,7 @@ public class RoundedPolylineConnection extends PolylineConnection {
 			// If last bendpoint, define points for line segment
 			// and then draw polyline
 			if (i == bendpoints.size() - 1) {
-				addSegment(g, prev, bp, connections, linepoints);
+				addSegment(g, prev, bp, linepoints);
 				continue;
 			}
 
@@ -105,7 +171,7 @@ public class RoundedPolylineConnection extends PolylineConnection {
 			Point next = bendpoints.getPoint(i + 1);
 			
 			// If line-curves are enabled draw bendpoints using ellipse approximation
-			if(Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_CURVES)) {
+			if(useLineCurves) {
 				// Switch to polar coordinates
 				PolarPoint prev_p = new PolarPoint(bp, prev);
 				PolarPoint next_p = new PolarPoint(bp, next);
@@ -144,7 +210,7 @@ public class RoundedPolylineConnection extends PolylineConnection {
 				}
 				
 				// Now that bendpoint position has been refined we can add line segment
-				addSegment(g, prev, bpprev, connections, linepoints);
+				addSegment(g, prev, bpprev, linepoints);
 				
 				// Create circle approximation
 				for (double a = 1; a < MAX_ITER; a++) {
@@ -158,20 +224,21 @@ public class RoundedPolylineConnection extends PolylineConnection {
 				prev = bpnext;
 			} else {
 				// Add line segment
-				addSegment(g, prev, bp, connections, linepoints);
+				addSegment(g, prev, bp, linepoints);
 				// Prepare next iteration
 				prev = bp;
 			}
 		}
 		
+		// Keep the points until something changes
+		linepointsCache = linepoints;
+		linepointsBendpoints = Arrays.copyOf(bendpoints.toIntArray(), bendpoints.size() * 2);
+		
 		// Finally draw the polyLine
 		g.drawPolyline(linepoints);
 	}
 	
-	@SuppressWarnings({ "rawtypes" })
-	private void addSegment(Graphics g, Point start, Point end, ArrayList connections, PointList linepoints){
-		// List of crossing points
-		ArrayList<Point> crosspoints = new ArrayList<Point>();
+	private void addSegment(Graphics g, Point start, Point end, PointList linepoints){
 		//
 		int radius = (int) JUMP_MAX_RADIUS;
 		
@@ -179,42 +246,17 @@ public class RoundedPolylineConnection extends PolylineConnection {
 		linepoints.addPoint(start);
 		
 		// If line-jumps are enabled, draw them using half circles
-		if (Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS)) {
+		if (useLineJumps) {
 			// Compute angle between line segment and horizontal line
 			PolarPoint end_p = new PolarPoint(start, end);
 			double angle = end_p.theta % Math.PI;
 			boolean reverse = (end_p.theta != angle);
 			
-			// For each other connection, check if a crossing point exist.
-			// If yes, add it to the list
-			for (Iterator I = connections.iterator(); I.hasNext();) {
-				RoundedPolylineConnection conn = (RoundedPolylineConnection) I.next();
-				PointList bendpoints = conn.getPoints();
-				
-				// Iterate on connection segments
-				for (int j = 0; j < bendpoints.size() - 1; j++) {
-					Point bp = bendpoints.getPoint(j);
-					Point next = bendpoints.getPoint(j + 1);
-					Point crosspoint = lineIntersect(start, end, bp, next);
-					// Check if crossing point found and not too close from ends
-					if (crosspoint != null
-						&& (new PolarPoint(crosspoint, start)).r > JUMP_MAX_RADIUS
-						&& (new PolarPoint(crosspoint, end)).r > JUMP_MAX_RADIUS
-						&& (new PolarPoint(crosspoint, bp)).r > JUMP_MAX_RADIUS
-						&& (new PolarPoint(crosspoint, next)).r > JUMP_MAX_RADIUS) {
-						double con_angle = ((new PolarPoint(bp, next)).theta % Math.PI);
-						if (angle > con_angle && !crosspoints.contains(crosspoint))
-							crosspoints.add(crosspoint);
-					}
-				}
-			}
+			// List of crossing points
+			List<Point> crosspoints = getCrossPoints(start, end, angle);
 	
 			// If crossing points found, render them using a half circle
 			if (crosspoints.size() != 0) {
-				// Sort crosspoints from start to end
-				crosspoints.add(start);
-				Collections.sort(crosspoints, new PointCompare());
-				if (crosspoints.get(0) != start) Collections.reverse(crosspoints);
 				// Do not add start point to the list a second time, so start at i=1
 				for (int i = 1; i < crosspoints.size(); i++ ) {
 					for (double a = 0; a <= MAX_ITER; a++) {
@@ -231,32 +273,42 @@ public class RoundedPolylineConnection extends PolylineConnection {
 		linepoints.addPoint(end);
 	}
 
-	@SuppressWarnings("rawtypes")
-	private ArrayList getAllConnections() {
-		ArrayList result = new ArrayList();
-		getAllConnections(getRoot(), result);
-		return result;
-	}
-
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private void getAllConnections(IFigure figure, ArrayList list) {
-		for (Iterator I = figure.getChildren().iterator(); I.hasNext();) {
-			IFigure child = (IFigure) I.next();
-			if (child == this)
-				continue;
-			getAllConnections(child, list);
-
-			if (!(child instanceof RoundedPolylineConnection))
-				continue;
-			list.add(child);
+	/**
+	 * @return The crossing points of the line segment from start to end with the segments of other connections
+	 * sorted from start to end and starting with start, or an empty list if there are none
+	 */
+	private List<Point> getCrossPoints(Point start, Point end, double angle) {
+		if (segmentIndex == null)
+			return Collections.emptyList();
+		
+		List<Point> crosspoints = new ArrayList<Point>();
+		
+		// For each nearby segment of another connection, check if a crossing point exist.
+		// If yes, add it to the list
+		for (ConnectionSegmentIndex.Segment other : segmentIndex.getSegments(start, end, this)) {
+			Point bp = other.start;
+			Point next = other.end;
+			Point crosspoint = lineIntersect(start, end, bp, next);
+			// Check if crossing point found and not too close from ends
+			if (crosspoint != null
+				&& (new PolarPoint(crosspoint, start)).r > JUMP_MAX_RADIUS
+				&& (new PolarPoint(crosspoint, end)).r > JUMP_MAX_RADIUS
+				&& (new PolarPoint(crosspoint, bp)).r > JUMP_MAX_RADIUS
+				&& (new PolarPoint(crosspoint, next)).r > JUMP_MAX_RADIUS) {
+				double con_angle = ((new PolarPoint(bp, next)).theta % Math.PI);
+				if (angle > con_angle && !crosspoints.contains(crosspoint))
+					crosspoints.add(crosspoint);
+			}
 		}
-	}
-
-	private IFigure getRoot() {
-		IFigure figure = this;
-		while (figure.getParent() != null)
-			figure = figure.getParent();
-		return figure;
+		
+		if (crosspoints.size() != 0) {
+			// Sort crosspoints from start to end
+			crosspoints.add(start);
+			Collections.sort(crosspoints, new PointCompare());
+			if (crosspoints.get(0) != start) Collections.reverse(crosspoints);
+		}
+		
+		return crosspoints;
 	}
 	
 	/**
@@ -5,6 +5,7 @@
  */
 package com.archimatetool.editor.diagram.sketch;
 
+import org.eclipse.draw2d.LayeredPane;
 import org.eclipse.draw2d.ScalableFreeformLayeredPane;
 import org.eclipse.draw2d.geometry.Insets;
 import org.eclipse.gef.AutoexposeHelper;
@@ -24,6 +25,7 @@ import org.eclipse.ui.PlatformUI;
 import com.archimatetool.editor.diagram.AbstractDiagramEditor;
 import com.archimatetool.editor.diagram.DiagramEditorFindReplaceProvider;
 import com.archimatetool.editor.diagram.actions.FindReplaceAction;
+import com.archimatetool.editor.diagram.figures.connections.IndexedConnectionLayer;
 import com.archimatetool.editor.diagram.sketch.dnd.SketchDiagramTransferDropTargetListener;
 import com.archimatetool.editor.diagram.sketch.editparts.SketchEditPartFactory;
 import com.archimatetool.editor.diagram.util.ExtendedViewportAutoexposeHelper;
@@ -104,6 +106,12 @@ implements ISketchEditor {
                 return fScalableFreeformLayeredPane;
             }
 
+            @Override
+            protected LayeredPane createPrintableLayers() {
+                // Connection layer with an index for line jumps
+                return IndexedConnectionLayer.createPrintableLayers();
+            }
+
             @SuppressWarnings("rawtypes")
             @Override
             public Object getAdapter(Class adapter) {
@@ -5,14 +5,30 @@
  */
 package com.archimatetool.editor.diagram.tools;
 
+import org.eclipse.gef.EditPartViewer;
 import org.eclipse.gef.tools.PanningSelectionTool;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.FocusEvent;
+import org.eclipse.swt.events.KeyEvent;
+import org.eclipse.swt.events.MouseEvent;
+
+import com.archimatetool.editor.model.commands.ModelCommandStack;
 
 /**
- * Extend the PanningSelectionTool so that Panning occurs on middle mouse button
+ * Extend the PanningSelectionTool so that Panning occurs on middle mouse button.<p>
+ * 
+ * Moving or resizing with the keyboard (select a handle with '.', move it with the arrow keys and press Enter)
+ * executes a Command each time Enter is pressed. These keys are one gesture on the ModelCommandStack so that
+ * consecutive moves of the same objects are one Undo entry. Any other key or a mouse click ends the gesture.
  * 
  * @author Phillip Beauvoir
  */
 public class PanningSelectionExtendedTool extends PanningSelectionTool {
+    
+    /**
+     * The Command Stack of the open keyboard gesture, or null
+     */
+    private ModelCommandStack fGestureCommandStack;
 
 	@Override
     protected boolean handleButtonDown(int which) {
@@ -35,4 +51,70 @@ public class PanningSelectionExtendedTool extends PanningSelectionTool {
 		return super.handleButtonUp(which);
 	}
 
-}
\ No newline at end of file
+    @Override
+    public void keyDown(KeyEvent event, EditPartViewer viewer) {
+        if(event.character == '.') {
+            beginGesture();
+        }
+        else if(!isKeyboardMoveKey(event)) {
+            endGesture();
+        }
+        
+        super.keyDown(event, viewer);
+    }
+    
+    @Override
+    public void mouseDown(MouseEvent event, EditPartViewer viewer) {
+        endGesture();
+        super.mouseDown(event, viewer);
+    }
+    
+    @Override
+    public void focusLost(FocusEvent event, EditPartViewer viewer) {
+        endGesture();
+        super.focusLost(event, viewer);
+    }
+    
+    @Override
+    public void deactivate() {
+        endGesture();
+        super.deactivate();
+    }
+    
+    /**
+     * @return true if the key moves or resizes with the keyboard, or commits the move
+     */
+    private boolean isKeyboardMoveKey(KeyEvent event) {
+        // A modifier key on its own
+        if((event.keyCode & SWT.MODIFIER_MASK) != 0) {
+            return true;
+        }
+        
+        switch(event.keyCode) {
+            case SWT.ARROW_UP:
+            case SWT.ARROW_DOWN:
+            case SWT.ARROW_LEFT:
+            case SWT.ARROW_RIGHT:
+            case SWT.CR:
+            case SWT.KEYPAD_CR:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+    
+    private void beginGesture() {
+        if(fGestureCommandStack == null && getDomain() != null && getDomain().getCommandStack() instanceof ModelCommandStack) {
+            fGestureCommandStack = (ModelCommandStack)getDomain().getCommandStack();
+            fGestureCommandStack.beginGesture();
+        }
+    }
+    
+    private void endGesture() {
+        if(fGestureCommandStack != null) {
+            fGestureCommandStack.endGesture();
+            fGestureCommandStack = null;
+        }
+    }
+}
@@ -8,6 +8,7 @@ package com.archimatetool.editor.diagram.util;
 import org.eclipse.draw2d.FreeformFigure;
 import org.eclipse.draw2d.Graphics;
 import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.LayeredPane;
 import org.eclipse.draw2d.SWTGraphics;
 import org.eclipse.draw2d.ScaledGraphics;
 import org.eclipse.draw2d.geometry.Rectangle;
@@ -28,6 +29,7 @@ import org.eclipse.swt.widgets.Shell;
 import com.archimatetool.editor.diagram.DiagramEditorFactoryExtensionHandler;
 import com.archimatetool.editor.diagram.IDiagramEditorFactory;
 import com.archimatetool.editor.diagram.editparts.ArchimateDiagramEditPartFactory;
+import com.archimatetool.editor.diagram.figures.connections.IndexedConnectionLayer;
 import com.archimatetool.editor.diagram.sketch.editparts.SketchEditPartFactory;
 import com.archimatetool.model.IArchimateDiagramModel;
 import com.archimatetool.model.IDiagramModel;
@@ -74,7 +76,13 @@ public final class DiagramUtils {
         
         viewer.setEditPartFactory(editPartFactory);
         
-        RootEditPart rootPart = new FreeformGraphicalRootEditPart();
+        RootEditPart rootPart = new FreeformGraphicalRootEditPart() {
+            @Override
+            protected LayeredPane createPrintableLayers() {
+                // Connection layer with an index for line jumps
+                return IndexedConnectionLayer.createPrintableLayers();
+            }
+        };
         viewer.setRootEditPart(rootPart);
         
         viewer.setContents(model);
@@ -0,0 +1,300 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.commands;
+
+import java.util.Arrays;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.gef.commands.Command;
+
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.model.IArchimateRelationship;
+
+
+
+/**
+ * Command that applies a prepared set of changes to a model in one go.<p>
+ *
+ * Changes are added before execution as adds (an object added to a list feature), removes (an object removed from its container)
+ * and sets (a new value for a feature). On execute the removes are applied first, then the adds, then the sets. Undo reverses this.<p>
+ *
+ * Rather than one Command instance per change the change set and its undo data are held in parallel arrays.
+ * Removed relationships are disconnected from their source and target and reconnected on undo.<p>
+ *
+ * By default listeners are told to buffer the resulting notifications in the same way as NonNotifyingCompoundCommand.
+ * Set batchNotifications to false if this Command is executed as part of a NonNotifyingCompoundCommand.
+ *
+ * @author Phillip Beauvoir
+ */
+public class BulkChangeCommand extends Command {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // Adds
+    private EObject[] fAddOwners = new EObject[0];
+    private EReference[] fAddFeatures = new EReference[0];
+    private EObject[] fAddValues = new EObject[0];
+    private int fAddCount;
+
+    // Removes. Owners, features and indexes are stored on execute
+    private EObject[] fRemoveValues = new EObject[0];
+    private EObject[] fRemoveOwners = new EObject[0];
+    private EReference[] fRemoveFeatures = new EReference[0];
+    private int[] fRemoveIndexes = new int[0];
+    private int fRemoveCount;
+
+    // Sets
+    private EObject[] fSetOwners = new EObject[0];
+    private EStructuralFeature[] fSetFeatures = new EStructuralFeature[0];
+    private Object[] fSetNewValues = new Object[0];
+    private Object[] fSetOldValues = new Object[0];
+    private int fSetCount;
+
+    private boolean fBatchNotifications = true;
+
+    public BulkChangeCommand() {
+    }
+
+    public BulkChangeCommand(String label) {
+        super(label);
+    }
+
+    /**
+     * @param set If true (the default) listeners are told to buffer notifications while this Command executes, undoes and redoes
+     */
+    public void setBatchNotifications(boolean set) {
+        fBatchNotifications = set;
+    }
+
+    /**
+     * Add an object to a list feature
+     * @param owner The owner of the list
+     * @param feature The list feature
+     * @param value The object to add
+     */
+    public void add(EObject owner, EReference feature, EObject value) {
+        if(fAddCount == fAddValues.length) {
+            int capacity = newCapacity(fAddCount);
+            fAddOwners = Arrays.copyOf(fAddOwners, capacity);
+            fAddFeatures = Arrays.copyOf(fAddFeatures, capacity);
+            fAddValues = Arrays.copyOf(fAddValues, capacity);
+        }
+
+        fAddOwners[fAddCount] = owner;
+        fAddFeatures[fAddCount] = feature;
+        fAddValues[fAddCount] = value;
+        fAddCount++;
+    }
+
+    /**
+     * Remove an object from its container.
+     * If the object has already been removed when this Command is executed then it is ignored.
+     * @param value The object to remove
+     */
+    public void remove(EObject value) {
+        if(fRemoveCount == fRemoveValues.length) {
+            int capacity = newCapacity(fRemoveCount);
+            fRemoveValues = Arrays.copyOf(fRemoveValues, capacity);
+            fRemoveOwners = Arrays.copyOf(fRemoveOwners, capacity);
+            fRemoveFeatures = Arrays.copyOf(fRemoveFeatures, capacity);
+            fRemoveIndexes = Arrays.copyOf(fRemoveIndexes, capacity);
+        }
+
+        fRemoveValues[fRemoveCount] = value;
+        fRemoveCount++;
+    }
+
+    /**
+     * Set a new value for a feature. If the new value is the same as the current value it is ignored.
+     * @param owner The owner of the feature
+     * @param feature The feature
+     * @param newValue The new value
+     */
+    public void set(EObject owner, EStructuralFeature feature, Object newValue) {
+        Object oldValue = owner.eGet(feature);
+        if(newValue == null ? oldValue == null : newValue.equals(oldValue)) {
+            return;
+        }
+
+        if(fSetCount == fSetOwners.length) {
+            int capacity = newCapacity(fSetCount);
+            fSetOwners = Arrays.copyOf(fSetOwners, capacity);
+            fSetFeatures = Arrays.copyOf(fSetFeatures, capacity);
+            fSetNewValues = Arrays.copyOf(fSetNewValues, capacity);
+            fSetOldValues = Arrays.copyOf(fSetOldValues, capacity);
+        }
+
+        fSetOwners[fSetCount] = owner;
+        fSetFeatures[fSetCount] = feature;
+        fSetNewValues[fSetCount] = newValue;
+        fSetOldValues[fSetCount] = oldValue;
+        fSetCount++;
+    }
+
+    /**
+     * @return The total number of changes
+     */
+    public int size() {
+        return fAddCount + fRemoveCount + fSetCount;
+    }
+
+    /**
+     * @return true if there are no changes
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean canExecute() {
+        return !isEmpty();
+    }
+
+    @Override
+    public void execute() {
+        startBatch();
+
+        try {
+            doRemoves();
+            doAdds();
+            doSets();
+        }
+        finally {
+            endBatch();
+        }
+    }
+
+    @Override
+    public void undo() {
+        startBatch();
+
+        try {
+            undoSets();
+            undoAdds();
+            undoRemoves();
+        }
+        finally {
+            endBatch();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        fAddOwners = null;
+        fAddFeatures = null;
+        fAddValues = null;
+        fRemoveValues = null;
+        fRemoveOwners = null;
+        fRemoveFeatures = null;
+        fRemoveIndexes = null;
+        fSetOwners = null;
+        fSetFeatures = null;
+        fSetNewValues = null;
+        fSetOldValues = null;
+    }
+
+    private void doRemoves() {
+        for(int i = 0; i < fRemoveCount; i++) {
+            EObject value = fRemoveValues[i];
+            EObject owner = value.eContainer();
+            EReference feature = value.eContainmentFeature();
+
+            // Ensure index is stored just before execute because the index positions might have changed
+            int index = -1;
+
+            if(owner != null) {
+                if(feature.isMany()) {
+                    EList<?> list = (EList<?>)owner.eGet(feature);
+                    index = list.indexOf(value);
+                    list.remove(index);
+                }
+                else {
+                    index = 0;
+                    owner.eSet(feature, null);
+                }
+            }
+
+            fRemoveOwners[i] = owner;
+            fRemoveFeatures[i] = feature;
+            fRemoveIndexes[i] = index;
+
+            // Disconnect source/target references
+            if(value instanceof IArchimateRelationship) {
+                ((IArchimateRelationship)value).disconnect();
+            }
+        }
+    }
+
+    private void undoRemoves() {
+        for(int i = fRemoveCount - 1; i >= 0; i--) {
+            EObject value = fRemoveValues[i];
+
+            if(fRemoveIndexes[i] != -1) { // might have already been removed
+                if(fRemoveFeatures[i].isMany()) {
+                    getList(fRemoveOwners[i], fRemoveFeatures[i]).add(fRemoveIndexes[i], value);
+                }
+                else {
+                    fRemoveOwners[i].eSet(fRemoveFeatures[i], value);
+                }
+            }
+
+            // Reconnect source/target references
+            if(value instanceof IArchimateRelationship) {
+                ((IArchimateRelationship)value).reconnect();
+            }
+        }
+    }
+
+    private void doAdds() {
+        for(int i = 0; i < fAddCount; i++) {
+            getList(fAddOwners[i], fAddFeatures[i]).add(fAddValues[i]);
+        }
+    }
+
+    private void undoAdds() {
+        for(int i = fAddCount - 1; i >= 0; i--) {
+            getList(fAddOwners[i], fAddFeatures[i]).remove(fAddValues[i]);
+        }
+    }
+
+    private void doSets() {
+        for(int i = 0; i < fSetCount; i++) {
+            fSetOwners[i].eSet(fSetFeatures[i], fSetNewValues[i]);
+        }
+    }
+
+    private void undoSets() {
+        for(int i = fSetCount - 1; i >= 0; i--) {
+            fSetOwners[i].eSet(fSetFeatures[i], fSetOldValues[i]);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private EList<EObject> getList(EObject owner, EReference feature) {
+        return (EList<EObject>)owner.eGet(feature);
+    }
+
+    private void startBatch() {
+        if(fBatchNotifications) {
+            IEditorModelManager.INSTANCE.firePropertyChange(this,
+                    IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
+        }
+    }
+
+    private void endBatch() {
+        if(fBatchNotifications) {
+            IEditorModelManager.INSTANCE.firePropertyChange(this,
+                    IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
+        }
+    }
+
+    private static int newCapacity(int size) {
+        return Math.max(INITIAL_CAPACITY, size * 2);
+    }
+}
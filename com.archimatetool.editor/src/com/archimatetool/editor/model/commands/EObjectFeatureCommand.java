@@ -11,11 +11,12 @@ import org.eclipse.gef.commands.Command;
 
 
 /**
- * General Purpose Command for setting a new value for an EObject's feature
+ * General Purpose Command for setting a new value for an EObject's feature.<p>
+ * Consecutive Commands of the same class that set the same feature on the same EObject can be merged.
  * 
  * @author Phillip Beauvoir
  */
-public class EObjectFeatureCommand extends Command {
+public class EObjectFeatureCommand extends Command implements IMergeableCommand {
 
     protected EObject fEObject;
     protected EStructuralFeature fFeature;
@@ -47,6 +48,22 @@ public class EObjectFeatureCommand extends Command {
                 : false;
     }
     
+    @Override
+    public boolean canMerge(Command command) {
+        if(command == null || command.getClass() != getClass() || fEObject == null) {
+            return false;
+        }
+        
+        EObjectFeatureCommand other = (EObjectFeatureCommand)command;
+        return other.fEObject == fEObject && other.fFeature == fFeature
+                && (fNewValue != null ? fNewValue.equals(other.fOldValue) : other.fOldValue == null);
+    }
+    
+    @Override
+    public void merge(Command command) {
+        fNewValue = ((EObjectFeatureCommand)command).fNewValue;
+    }
+    
     @Override
     public void dispose() {
         fEObject = null;
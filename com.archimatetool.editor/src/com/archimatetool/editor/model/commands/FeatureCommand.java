@@ -11,11 +11,12 @@ import com.archimatetool.model.IFeatures;
 import com.archimatetool.model.IFeaturesEList;
 
 /**
- * Command for setting an Archi Feature
+ * Command for setting an Archi Feature.<p>
+ * Consecutive Commands that set the same Feature on the same object can be merged.
  * 
  * @author Phillip Beauvoir
  */
-public class FeatureCommand extends Command {
+public class FeatureCommand extends Command implements IMergeableCommand {
     
     private IFeaturesEList features;
     private String name, value, oldValue, defaultValue;
@@ -44,6 +45,21 @@ public class FeatureCommand extends Command {
         return value != null && !value.equals(oldValue);
     }
 
+    @Override
+    public boolean canMerge(Command command) {
+        if(command == null || command.getClass() != getClass() || features == null) {
+            return false;
+        }
+        
+        FeatureCommand other = (FeatureCommand)command;
+        return other.features == features && other.name.equals(name) && value.equals(other.oldValue);
+    }
+    
+    @Override
+    public void merge(Command command) {
+        value = ((FeatureCommand)command).value;
+    }
+
     @Override
     public void dispose() {
         features = null;
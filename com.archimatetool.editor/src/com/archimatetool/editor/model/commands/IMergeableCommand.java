@@ -0,0 +1,33 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.commands;
+
+import org.eclipse.gef.commands.Command;
+
+
+/**
+ * A Command that can absorb a following Command of the same kind so that both are undone and redone as one.<p>
+ *
+ * Used by ModelCommandStack to collapse consecutive updates to the same object and feature,
+ * such as repeated nudges of a diagram object or repeated edits of a property, into one Undo entry.
+ *
+ * @author Phillip Beauvoir
+ */
+public interface IMergeableCommand {
+
+    /**
+     * @param command A Command that is about to be executed immediately after this one
+     * @return true if command can be merged into this Command once it has been executed
+     */
+    boolean canMerge(Command command);
+
+    /**
+     * Merge an executed Command into this one.
+     * Afterwards undo() restores the state before this Command and redo() restores the state after command.
+     * @param command The Command that was executed immediately after this one
+     */
+    void merge(Command command);
+}
@@ -0,0 +1,457 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.commands;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.gef.commands.Command;
+import org.eclipse.gef.commands.CommandStack;
+import org.eclipse.gef.commands.CompoundCommand;
+
+import com.archimatetool.model.IArchimateModel;
+
+
+
+/**
+ * Command Stack for Archimate Models.<p>
+ *
+ * Keeps an estimate of the memory retained by each Command on the Undo stack.
+ * If a memory limit is set and the Undo stack exceeds it then the oldest Undo Commands are removed and disposed
+ * the next time a Command is executed, so that long editing sessions do not keep large detached sub-trees alive.<p>
+ *
+ * The estimate is deliberately rough. Objects that are still contained in a model or a Resource (such as Ecore features)
+ * are counted as a reference only, detached objects (deleted objects held for Undo) are counted with all of their contents.<p>
+ *
+ * A Command that can be merged (see IMergeableCommand) into the Command on top of the Undo stack is merged into it
+ * rather than being added as a new Undo entry if it is executed while a merge gesture is open, such as while the user
+ * steps a spinner in a Property Section, moves objects with the keyboard in a diagram, or a script updates the model.
+ * Separate edits are not merged unless a merge time window is set.
+ * Plain CompoundCommands are merged if their child Commands can be merged pair by pair.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ModelCommandStack extends CommandStack {
+
+    /**
+     * Default time window in milliseconds in which consecutive mergeable Commands are merged.
+     * 0 so that only Commands in a gesture are merged.
+     */
+    public static final long DEFAULT_MERGE_TIME_WINDOW = 0;
+
+    /**
+     * Estimated size of a Command instance
+     */
+    static final long COMMAND_SIZE = 64;
+
+    /**
+     * Estimated size of an EObject that is retained only by a Command
+     */
+    static final long EOBJECT_SIZE = 256;
+
+    /**
+     * Estimated size of an object reference or a value that is not otherwise accounted for
+     */
+    static final long REFERENCE_SIZE = 16;
+
+    /**
+     * Cache of the instance fields of Command classes
+     */
+    private static final Map<Class<?>, Field[]> FIELDS_CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Estimated sizes of Commands on the Undo and Redo stacks, oldest first
+     */
+    private Deque<Long> fUndoSizes = new ArrayDeque<>();
+    private Deque<Long> fRedoSizes = new ArrayDeque<>();
+
+    private long fUndoMemory;
+    private long fRedoMemory;
+
+    /**
+     * Memory limit in bytes. 0 is no limit.
+     */
+    private long fMemoryLimit;
+
+    private long fMergeTimeWindow = DEFAULT_MERGE_TIME_WINDOW;
+    private long fLastExecuteTime;
+    private int fGestureDepth;
+
+    public ModelCommandStack() {
+    }
+
+    /**
+     * Set the maximum estimated memory in bytes that the Undo stack may retain
+     * @param memoryLimit the limit in bytes. 0 means no limit.
+     */
+    public void setMemoryLimit(long memoryLimit) {
+        fMemoryLimit = Math.max(0, memoryLimit);
+    }
+
+    /**
+     * @return The maximum estimated memory in bytes that the Undo stack may retain. 0 means no limit.
+     */
+    public long getMemoryLimit() {
+        return fMemoryLimit;
+    }
+
+    /**
+     * @return The estimated memory in bytes retained by the Commands on the Undo and Redo stacks
+     */
+    public long getUndoMemory() {
+        return fUndoMemory + fRedoMemory;
+    }
+
+    /**
+     * Set the time window in which consecutive mergeable Commands are merged into one Undo entry
+     * @param millis the time in milliseconds. 0 means Commands are only merged while a gesture is open.
+     */
+    public void setMergeTimeWindow(long millis) {
+        fMergeTimeWindow = Math.max(0, millis);
+    }
+
+    /**
+     * @return The time window in milliseconds in which consecutive mergeable Commands are merged into one Undo entry
+     */
+    public long getMergeTimeWindow() {
+        return fMergeTimeWindow;
+    }
+
+    /**
+     * Start a gesture. Until endGesture() is called, consecutive mergeable Commands are merged regardless of the time window.
+     * Calls can be nested.
+     */
+    public void beginGesture() {
+        fGestureDepth++;
+    }
+
+    /**
+     * End a gesture started with beginGesture()
+     */
+    public void endGesture() {
+        if(fGestureDepth > 0) {
+            fGestureDepth--;
+        }
+    }
+
+    /**
+     * Run a series of updates, such as the updates made by a script, as one gesture so that consecutive mergeable
+     * Commands that it executes are one Undo entry
+     * @param runnable The updates that execute Commands on this Command Stack
+     */
+    public void runGesture(Runnable runnable) {
+        beginGesture();
+        try {
+            runnable.run();
+        }
+        finally {
+            endGesture();
+        }
+    }
+
+    @Override
+    public void execute(Command command) {
+        if(command == null || !command.canExecute()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        boolean inWindow = fGestureDepth > 0 || (fMergeTimeWindow > 0 && now - fLastExecuteTime <= fMergeTimeWindow);
+        fLastExecuteTime = now;
+
+        if(inWindow && canMergeWithUndoCommand(command)) {
+            executeMerged(command);
+            return;
+        }
+
+        int undoLimit = getUndoLimit();
+        int effectiveLimit = getEffectiveUndoLimit(undoLimit);
+
+        // Executing a Command flushes the Redo stack
+        fRedoSizes.clear();
+        fRedoMemory = 0;
+
+        // Let the super class trim the oldest Commands by temporarily lowering the undo limit
+        super.setUndoLimit(effectiveLimit);
+        try {
+            super.execute(command);
+        }
+        finally {
+            super.setUndoLimit(undoLimit);
+        }
+
+        // Mirror the trimming done by the super class
+        if(effectiveLimit > 0) {
+            while(fUndoSizes.size() >= effectiveLimit) {
+                fUndoMemory -= fUndoSizes.removeFirst();
+            }
+        }
+
+        long size = estimateSize(command);
+        fUndoSizes.addLast(size);
+        fUndoMemory += size;
+    }
+
+    /**
+     * Execute a Command and merge it into the Command on top of the Undo stack
+     */
+    @SuppressWarnings("deprecation")
+    private void executeMerged(Command command) {
+        Command undoCommand = getUndoCommand();
+
+        notifyListeners(command, PRE_EXECUTE);
+        try {
+            command.execute();
+            merge(undoCommand, command);
+            notifyListeners();
+        }
+        finally {
+            notifyListeners(command, POST_EXECUTE);
+        }
+
+        command.dispose();
+    }
+
+    /**
+     * @return true if command can be merged into the Command on top of the Undo stack.
+     *         Not if there are Commands to Redo or if the top Command is at the save location.
+     */
+    private boolean canMergeWithUndoCommand(Command command) {
+        return getRedoCommand() == null && isDirty() && canMerge(getUndoCommand(), command);
+    }
+
+    private static boolean canMerge(Command target, Command command) {
+        if(target == null || command == null || target == command) {
+            return false;
+        }
+
+        if(target instanceof IMergeableCommand) {
+            return ((IMergeableCommand)target).canMerge(command);
+        }
+
+        if(target.getClass() == CompoundCommand.class && command.getClass() == CompoundCommand.class) {
+            List<?> targetCommands = ((CompoundCommand)target).getCommands();
+            List<?> commands = ((CompoundCommand)command).getCommands();
+            if(targetCommands.isEmpty() || targetCommands.size() != commands.size()) {
+                return false;
+            }
+            for(int i = 0; i < targetCommands.size(); i++) {
+                if(!canMerge((Command)targetCommands.get(i), (Command)commands.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private static void merge(Command target, Command command) {
+        if(target instanceof IMergeableCommand) {
+            ((IMergeableCommand)target).merge(command);
+        }
+        else {
+            List<?> targetCommands = ((CompoundCommand)target).getCommands();
+            List<?> commands = ((CompoundCommand)command).getCommands();
+            for(int i = 0; i < targetCommands.size(); i++) {
+                merge((Command)targetCommands.get(i), (Command)commands.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void undo() {
+        long size = fUndoSizes.isEmpty() ? 0 : fUndoSizes.removeLast();
+        fUndoMemory -= size;
+
+        super.undo();
+
+        fRedoSizes.addLast(size);
+        fRedoMemory += size;
+    }
+
+    @Override
+    public void redo() {
+        long size = fRedoSizes.isEmpty() ? 0 : fRedoSizes.removeLast();
+        fRedoMemory -= size;
+
+        super.redo();
+
+        fUndoSizes.addLast(size);
+        fUndoMemory += size;
+    }
+
+    @Override
+    public void flush() {
+        super.flush();
+        clearSizes();
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        clearSizes();
+    }
+
+    private void clearSizes() {
+        fUndoSizes.clear();
+        fRedoSizes.clear();
+        fUndoMemory = 0;
+        fRedoMemory = 0;
+    }
+
+    /**
+     * @return The undo limit to use for the next execute() so that the super class removes enough of the oldest
+     *         Commands to bring the Undo stack back under the memory limit
+     */
+    private int getEffectiveUndoLimit(int undoLimit) {
+        if(fMemoryLimit <= 0 || fUndoMemory <= fMemoryLimit) {
+            return undoLimit;
+        }
+
+        int dropCount = 0;
+        long memory = fUndoMemory;
+        for(Iterator<Long> iter = fUndoSizes.iterator(); iter.hasNext() && memory > fMemoryLimit;) {
+            memory -= iter.next();
+            dropCount++;
+        }
+
+        // The super class removes Commands while the stack size is >= the limit, and then pushes the new Command
+        int memoryUndoLimit = fUndoSizes.size() - dropCount + 1;
+
+        return undoLimit > 0 ? Math.min(undoLimit, memoryUndoLimit) : memoryUndoLimit;
+    }
+
+    // ========================================= Size Estimation =========================================
+
+    /**
+     * Estimate the memory retained by a Command after it has been executed
+     * @param command The Command
+     * @return The estimated size in bytes
+     */
+    public static long estimateSize(Command command) {
+        return estimateSize(command, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static long estimateSize(Object object, Set<Object> visited) {
+        if(object == null || !visited.add(object)) {
+            return 0;
+        }
+
+        if(object instanceof String) {
+            return 40 + 2 * ((String)object).length();
+        }
+
+        if(object instanceof EObject) {
+            return estimateEObjectSize((EObject)object, visited);
+        }
+
+        if(object instanceof CompoundCommand) {
+            long size = COMMAND_SIZE;
+            for(Object child : ((CompoundCommand)object).getCommands()) {
+                size += estimateSize(child, visited);
+            }
+            return size;
+        }
+
+        if(object instanceof Command) {
+            long size = COMMAND_SIZE;
+            for(Field field : getFields(object.getClass())) {
+                try {
+                    size += REFERENCE_SIZE + estimateSize(field.get(object), visited);
+                }
+                catch(Exception ex) {
+                    // Not accessible, ignore
+                }
+            }
+            return size;
+        }
+
+        if(object instanceof Collection<?>) {
+            long size = REFERENCE_SIZE;
+            for(Object o : (Collection<?>)object) {
+                size += REFERENCE_SIZE + estimateSize(o, visited);
+            }
+            return size;
+        }
+
+        if(object.getClass().isArray() && !object.getClass().getComponentType().isPrimitive()) {
+            long size = REFERENCE_SIZE;
+            for(int i = 0; i < Array.getLength(object); i++) {
+                size += REFERENCE_SIZE + estimateSize(Array.get(object, i), visited);
+            }
+            return size;
+        }
+
+        return REFERENCE_SIZE;
+    }
+
+    /**
+     * An EObject that is still in a model or a Resource is only referenced by the Command so it costs nothing extra.
+     * An EObject that is detached from the model (for example a deleted object kept for Undo) is retained by the Command
+     * along with all of its contents.
+     */
+    private static long estimateEObjectSize(EObject eObject, Set<Object> visited) {
+        EObject root = EcoreUtil.getRootContainer(eObject);
+        if(root instanceof IArchimateModel || root.eResource() != null || (root != eObject && !visited.add(root))) {
+            return REFERENCE_SIZE;
+        }
+
+        long size = EOBJECT_SIZE;
+        for(Iterator<EObject> iter = root.eAllContents(); iter.hasNext();) {
+            EObject child = iter.next();
+            if(visited.add(child)) {
+                size += EOBJECT_SIZE;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return The (cached) instance fields of a Command class and its super classes up to, but not including, Command
+     */
+    private static Field[] getFields(Class<?> clazz) {
+        Field[] fields = FIELDS_CACHE.get(clazz);
+
+        if(fields == null) {
+            List<Field> list = new ArrayList<>();
+
+            for(Class<?> c = clazz; c != null && c != Command.class && c != Object.class; c = c.getSuperclass()) {
+                for(Field field : c.getDeclaredFields()) {
+                    if(!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                        try {
+                            field.setAccessible(true);
+                            list.add(field);
+                        }
+                        catch(Exception ex) {
+                            // Not accessible, ignore
+                        }
+                    }
+                }
+            }
+
+            fields = list.toArray(new Field[list.size()]);
+            FIELDS_CACHE.put(clazz, fields);
+        }
+
+        return fields;
+    }
+}
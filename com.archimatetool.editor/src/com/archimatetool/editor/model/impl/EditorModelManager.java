@@ -22,6 +22,7 @@ import org.eclipse.gef.commands.CommandStackEvent;
 import org.eclipse.gef.commands.CommandStackEventListener;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
@@ -39,6 +40,7 @@ import com.archimatetool.editor.Logger;
 import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.model.ModelChecker;
+import com.archimatetool.editor.model.commands.ModelCommandStack;
 import com.archimatetool.editor.model.compatibility.CompatibilityHandlerException;
 import com.archimatetool.editor.model.compatibility.IncompatibleModelException;
 import com.archimatetool.editor.model.compatibility.ModelCompatibility;
@@ -127,9 +129,24 @@ implements IEditorModelManager {
         }
     };
     
+    /**
+     * Listen to Preference changes to update the Undo memory limit of open models
+     */
+    private IPropertyChangeListener preferencesListener = event -> {
+        if(IPreferenceConstants.UNDO_MEMORY_LIMIT.equals(event.getProperty()) && fModels != null) {
+            for(IArchimateModel model : fModels) {
+                Object stack = model.getAdapter(CommandStack.class);
+                if(stack instanceof ModelCommandStack) {
+                    ((ModelCommandStack)stack).setMemoryLimit(getUndoMemoryLimit());
+                }
+            }
+        }
+    };
+    
     public EditorModelManager() {
         if(PlatformUI.isWorkbenchRunning()) {
             PlatformUI.getWorkbench().addWorkbenchListener(workBenchListener);
+            Preferences.STORE.addPropertyChangeListener(preferencesListener);
         }
     }
     
@@ -568,7 +585,8 @@ implements IEditorModelManager {
      * @param model
      */
     private void createNewCommandStack(final IArchimateModel model) {
-        CommandStack cmdStack = new CommandStack();
+        ModelCommandStack cmdStack = new ModelCommandStack();
+        cmdStack.setMemoryLimit(getUndoMemoryLimit());
         
         if(PlatformUI.isWorkbenchRunning()) {
             // Forward on CommandStack Event to Tree
@@ -586,6 +604,13 @@ implements IEditorModelManager {
         model.setAdapter(CommandStack.class, cmdStack);
     }
     
+    /**
+     * @return The maximum memory in bytes that a model's Undo stack may retain, as set in Preferences
+     */
+    private long getUndoMemoryLimit() {
+        return Preferences.STORE.getInt(IPreferenceConstants.UNDO_MEMORY_LIMIT) * 1024L * 1024L;
+    }
+    
     /**
      * Remove a CommandStack
      * @param model
@@ -53,6 +53,7 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
     private Button fBackupOnSaveButton;
     
     private Spinner fMRUSizeSpinner;
+    private Spinner fUndoMemorySpinner;
     
     private ComboViewer fThemeComboViewer;
     
@@ -191,6 +192,19 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         label.setText(Messages.GeneralPreferencePage_14);
         label.setLayoutData(createHorizontalGridData(2));
         
+        // Undo memory limit
+        label = new Label(otherGroup, SWT.NULL);
+        label.setText(Messages.GeneralPreferencePage_16);
+        
+        fUndoMemorySpinner = new Spinner(otherGroup, SWT.BORDER);
+        fUndoMemorySpinner.setMinimum(0);
+        fUndoMemorySpinner.setMaximum(65536);
+        fUndoMemorySpinner.setIncrement(64);
+        
+        label = new Label(otherGroup, SWT.NULL);
+        label.setText(Messages.GeneralPreferencePage_17);
+        label.setLayoutData(createHorizontalGridData(2));
+        
         setValues();
         
         fThemeComboViewer.addSelectionChangedListener(new ISelectionChangedListener() {
@@ -246,6 +260,7 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
     
     private void setSpinnerValues() {
         fMRUSizeSpinner.setSelection(getPreferenceStore().getInt(MRU_MAX));
+        fUndoMemorySpinner.setSelection(getPreferenceStore().getInt(UNDO_MEMORY_LIMIT));
     }
     
     @Override
@@ -265,6 +280,7 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         }
 
         getPreferenceStore().setValue(SCALE_IMAGE_EXPORT, fScaleImagesButton.getSelection());
+        getPreferenceStore().setValue(UNDO_MEMORY_LIMIT, fUndoMemorySpinner.getSelection());
         
         return true;
     }
@@ -294,6 +310,7 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         }
         
         fScaleImagesButton.setSelection(getPreferenceStore().getDefaultBoolean(SCALE_IMAGE_EXPORT));
+        fUndoMemorySpinner.setSelection(getPreferenceStore().getDefaultInt(UNDO_MEMORY_LIMIT));
         
         super.performDefaults();
     }
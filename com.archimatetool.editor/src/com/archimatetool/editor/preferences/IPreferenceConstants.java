@@ -96,4 +96,6 @@ public interface IPreferenceConstants {
     String TREE_SEARCH_AUTO = "treeSearchAuto";
     
     String THEME_AUTO = "themeAuto";
+    
+    String UNDO_MEMORY_LIMIT = "undoMemoryLimit";
 }
@@ -201,6 +201,10 @@ public class Messages extends NLS {
 
     public static String GeneralPreferencePage_15;
 
+    public static String GeneralPreferencePage_16;
+
+    public static String GeneralPreferencePage_17;
+
     public static String GeneralPreferencePage_2;
 
     public static String GeneralPreferencePage_3;
@@ -104,5 +104,8 @@ implements IPreferenceConstants {
         store.setDefault(TREE_SEARCH_AUTO, true);
         
         store.setDefault(THEME_AUTO, false);
+        
+        // Undo memory limit in MB (0 is unlimited)
+        store.setDefault(UNDO_MEMORY_LIMIT, 512);
     }
 }
@@ -22,6 +22,7 @@ import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.views.properties.tabbed.TabbedPropertySheetPage;
 
 import com.archimatetool.editor.model.commands.EObjectFeatureCommand;
+import com.archimatetool.editor.model.commands.ModelCommandStack;
 import com.archimatetool.editor.model.commands.NonNotifyingCompoundCommand;
 import com.archimatetool.editor.ui.components.StyledTextControl;
 import com.archimatetool.model.IAdapter;
@@ -47,6 +48,11 @@ public abstract class AbstractECorePropertySection extends AbstractArchiProperty
      */
     protected boolean fIsExecutingCommand;
     
+    /**
+     * The CommandStack of an open gesture
+     */
+    private ModelCommandStack fGestureCommandStack;
+    
     /**
      * ArchimateModelObjects that are the subject of this Property Section
      */
@@ -166,6 +172,34 @@ public abstract class AbstractECorePropertySection extends AbstractArchiProperty
         fIsExecutingCommand = false;
     }
     
+    /**
+     * Start a gesture on the selected objects' CommandStack so that the Commands executed until endGesture()
+     * is called are merged into one Undo entry where they can be
+     */
+    protected void beginGesture() {
+        endGesture();
+        
+        EObject eObject = getFirstSelectedObject();
+        
+        if(eObject instanceof IAdapter) {
+            CommandStack commandStack = (CommandStack)((IAdapter)eObject).getAdapter(CommandStack.class);
+            if(commandStack instanceof ModelCommandStack) {
+                fGestureCommandStack = (ModelCommandStack)commandStack;
+                fGestureCommandStack.beginGesture();
+            }
+        }
+    }
+    
+    /**
+     * End a gesture started with beginGesture()
+     */
+    protected void endGesture() {
+        if(fGestureCommandStack != null) {
+            fGestureCommandStack.endGesture();
+            fGestureCommandStack = null;
+        }
+    }
+    
     /**
      * If the Property sheet was Active (or Pinned) and the Element deleted then the Element's
      * info could still be showing.
@@ -232,6 +266,7 @@ public abstract class AbstractECorePropertySection extends AbstractArchiProperty
     
     @Override
     public void dispose() {
+        endGesture();
         removeAdapter();
         labelListener.unregister();
         fObjects = null;
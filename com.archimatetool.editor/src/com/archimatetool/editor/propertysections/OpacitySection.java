@@ -72,6 +72,21 @@ public class OpacitySection extends AbstractECorePropertySection {
         }
     };
     
+    /**
+     * Changes made while the Spinner has the focus are one gesture so that they are one Undo entry
+     */
+    protected Listener gestureListener = new Listener() {
+        @Override
+        public void handleEvent(Event event) {
+            if(event.type == SWT.FocusIn) {
+                beginGesture();
+            }
+            else {
+                endGesture();
+            }
+        }
+    };
+    
     protected Spinner fSpinner;
     
     @Override
@@ -93,9 +108,13 @@ public class OpacitySection extends AbstractECorePropertySection {
         
         getWidgetFactory().adapt(fSpinner, true, true);
         
+        fSpinner.addListener(SWT.FocusIn, gestureListener);
         fSpinner.addListener(SWT.MouseUp, spinnerListener);
         fSpinner.addListener(SWT.FocusOut, spinnerListener);
         fSpinner.addListener(SWT.DefaultSelection, spinnerListener);
+        
+        // After spinnerListener so that the last change is in the gesture
+        fSpinner.addListener(SWT.FocusOut, gestureListener);
     }
     
     protected String getLabelString() {
@@ -143,6 +162,8 @@ public class OpacitySection extends AbstractECorePropertySection {
             fSpinner.removeListener(SWT.MouseUp, spinnerListener);
             fSpinner.removeListener(SWT.FocusOut, spinnerListener);
             fSpinner.removeListener(SWT.DefaultSelection, spinnerListener);
+            fSpinner.removeListener(SWT.FocusIn, gestureListener);
+            fSpinner.removeListener(SWT.FocusOut, gestureListener);
         }
     }
 }
@@ -2,6 +2,7 @@ package com.archimatetool.editor.ui.components;
 
 import java.lang.reflect.Method;
 
+import org.eclipse.gef.commands.CommandStack;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.ContributionItem;
 import org.eclipse.jface.action.IAction;
@@ -28,9 +29,12 @@ import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
 import org.eclipse.ui.internal.TrimUtil;
 
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.editor.model.commands.ModelCommandStack;
 import com.archimatetool.editor.ui.ColorFactory;
 import com.archimatetool.editor.ui.IArchiImages;
 import com.archimatetool.editor.ui.ThemeUtils;
+import com.archimatetool.model.IArchimateModel;
 
 
 /**
@@ -558,12 +562,27 @@ public class HeapStatusWidget extends Composite {
     	String totalStr = convertToMegString(totalMem);
     	String maxStr = maxMemKnown ? convertToMegString(maxMem) : "<unknown>"; //$NON-NLS-1$
     	String markStr = mark == -1 ? "<none>" : convertToMegString(mark); //$NON-NLS-1$
-    	String toolTip = "Heap size: " + usedStr + " of total: "  + totalStr + " max: " + maxStr + " mark: " + markStr; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    	String undoStr = convertToMegString(getUndoMemory());
+    	String toolTip = "Heap size: " + usedStr + " of total: "  + totalStr + " max: " + maxStr + " mark: " + markStr + " undo: " + undoStr; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
         if(!toolTip.equals(getToolTipText())) {
             setToolTipText(toolTip);
         }
     }
 	
+    /**
+     * Returns the estimated memory retained by the Undo history of all open models
+     */
+    private long getUndoMemory() {
+        long undoMem = 0;
+        for(IArchimateModel model : IEditorModelManager.INSTANCE.getModels()) {
+            Object stack = model.getAdapter(CommandStack.class);
+            if(stack instanceof ModelCommandStack) {
+                undoMem += ((ModelCommandStack)stack).getUndoMemory();
+            }
+        }
+        return undoMem;
+    }
+	
     /**
      * Converts the given number of bytes to a printable number of megabytes (rounded up).
      */
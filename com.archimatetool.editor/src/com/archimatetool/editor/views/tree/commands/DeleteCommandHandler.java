@@ -24,15 +24,13 @@ import org.eclipse.swt.widgets.TreeItem;
 
 import com.archimatetool.editor.diagram.commands.DiagramCommandFactory;
 import com.archimatetool.editor.model.DiagramModelUtils;
-import com.archimatetool.editor.model.commands.DeleteArchimateElementCommand;
-import com.archimatetool.editor.model.commands.DeleteArchimateRelationshipCommand;
+import com.archimatetool.editor.model.commands.BulkChangeCommand;
 import com.archimatetool.editor.model.commands.DeleteDiagramModelCommand;
-import com.archimatetool.editor.model.commands.DeleteFolderCommand;
+import com.archimatetool.editor.ui.ArchiLabelProvider;
 import com.archimatetool.editor.views.tree.TreeModelViewer;
 import com.archimatetool.model.FolderType;
 import com.archimatetool.model.IAdapter;
 import com.archimatetool.model.IArchimateConcept;
-import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimateModelObject;
 import com.archimatetool.model.IArchimateRelationship;
@@ -175,6 +173,7 @@ public class DeleteCommandHandler {
     
     /**
      * Create the Delete Commands
+     * Folders, elements and relationships are removed by one BulkChangeCommand per Command Stack
      */
     private void createCommands() {
         /*
@@ -197,6 +196,8 @@ public class DeleteCommandHandler {
         /*
          * Then the other types
          */
+        Map<CompoundCommand, BulkChangeCommand> bulkCommands = new HashMap<>();
+        
         for(Object object : fObjectsToDelete) {
             if(object instanceof IDiagramModel) { // already done
                 continue;
@@ -208,17 +209,19 @@ public class DeleteCommandHandler {
                 continue;
             }
 
-            if(object instanceof IFolder) {
-                Command cmd = new DeleteFolderCommand((IFolder)object);
-                compoundCommand.add(cmd);
-            }
-            else if(object instanceof IArchimateElement) {
-                Command cmd = new DeleteArchimateElementCommand((IArchimateElement)object);
-                compoundCommand.add(cmd);
-            }
-            else if(object instanceof IArchimateRelationship) {
-                Command cmd = new DeleteArchimateRelationshipCommand((IArchimateRelationship)object);
-                compoundCommand.add(cmd);
+            if(object instanceof IFolder || object instanceof IArchimateConcept) {
+                BulkChangeCommand bulkCommand = bulkCommands.get(compoundCommand);
+                if(bulkCommand == null) {
+                    bulkCommand = new BulkChangeCommand(com.archimatetool.editor.model.commands.Messages.DeleteElementCommand_0
+                            + " " + ArchiLabelProvider.INSTANCE.getLabel(object)); //$NON-NLS-1$
+                    // The DeleteElementsCompoundCommand already batches notifications
+                    bulkCommand.setBatchNotifications(false);
+                    bulkCommands.put(compoundCommand, bulkCommand);
+                }
+                else {
+                    bulkCommand.setLabel(Messages.DeleteElementsCompoundCommand_0);
+                }
+                bulkCommand.remove((EObject)object);
             }
             else if(object instanceof IDiagramModelObject) {
                 Command cmd = DiagramCommandFactory.createDeleteDiagramObjectCommand((IDiagramModelObject)object);
@@ -229,6 +232,13 @@ public class DeleteCommandHandler {
                 compoundCommand.add(cmd);
             }
         }
+        
+        /*
+         * Remove the concepts and folders after their diagram components so that on undo they are restored first
+         */
+        for(Entry<CompoundCommand, BulkChangeCommand> entry : bulkCommands.entrySet()) {
+            entry.getKey().add(entry.getValue());
+        }
     }
     
     /**
@@ -0,0 +1,61 @@
+package com.archimatetool.hammer.commandline;
+
+import org.eclipse.osgi.util.NLS;
+
+public class Messages extends NLS {
+
+    private static final String BUNDLE_NAME = "com.archimatetool.hammer.commandline.messages"; //$NON-NLS-1$
+
+    public static String ValidatorProvider_0;
+
+    public static String ValidatorProvider_1;
+
+    public static String ValidatorProvider_10;
+
+    public static String ValidatorProvider_11;
+
+    public static String ValidatorProvider_12;
+
+    public static String ValidatorProvider_13;
+
+    public static String ValidatorProvider_14;
+
+    public static String ValidatorProvider_15;
+
+    public static String ValidatorProvider_16;
+
+    public static String ValidatorProvider_17;
+
+    public static String ValidatorProvider_18;
+
+    public static String ValidatorProvider_19;
+
+    public static String ValidatorProvider_2;
+
+    public static String ValidatorProvider_20;
+
+    public static String ValidatorProvider_21;
+
+    public static String ValidatorProvider_22;
+
+    public static String ValidatorProvider_3;
+
+    public static String ValidatorProvider_4;
+
+    public static String ValidatorProvider_5;
+
+    public static String ValidatorProvider_6;
+
+    public static String ValidatorProvider_7;
+
+    public static String ValidatorProvider_8;
+
+    public static String ValidatorProvider_9;
+    static {
+        // initialize resource bundle
+        NLS.initializeMessages(BUNDLE_NAME, Messages.class);
+    }
+
+    private Messages() {
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.commandline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.editor.model.IArchiveManager;
+import com.archimatetool.editor.model.compatibility.CompatibilityHandlerException;
+import com.archimatetool.editor.model.compatibility.IncompatibleModelException;
+import com.archimatetool.editor.model.compatibility.ModelCompatibility;
+import com.archimatetool.hammer.validation.Validator;
+import com.archimatetool.hammer.validation.issues.AdviceType;
+import com.archimatetool.hammer.validation.issues.ErrorType;
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.hammer.validation.issues.WarningType;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.util.ArchimateResourceFactory;
+
+/**
+ * Validates one model and holds the results.<p>
+ *
+ * A model given as a file is loaded directly into its own Resource rather than through the Editor Model Manager
+ * so that several models can be loaded and validated at the same time on different threads.
+ *
+ * @author Phillip Beauvoir
+ */
+class ModelValidation implements Callable<ModelValidation> {
+
+    private File fFile;
+    private IArchimateModel fModel;
+
+    private Map<String, Long> fCheckerTimings = Collections.emptyMap();
+    private Map<String, List<IIssue>> fCheckerIssues = Collections.emptyMap();
+
+    private int fErrors, fWarnings, fAdvice;
+    private long fLoadTime, fValidateTime;
+    private Exception fException;
+
+    /**
+     * @param model A model that is already loaded
+     */
+    ModelValidation(IArchimateModel model) {
+        fModel = model;
+        fFile = model.getFile();
+    }
+
+    /**
+     * @param file A model file to load and validate
+     */
+    ModelValidation(File file) {
+        fFile = file;
+    }
+
+    @Override
+    public ModelValidation call() {
+        try {
+            if(fModel == null) {
+                long start = System.nanoTime();
+                fModel = loadModel(fFile);
+                fLoadTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+
+            long start = System.nanoTime();
+
+            Validator validator = new Validator(fModel);
+            validator.validate();
+
+            fValidateTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            fCheckerTimings = validator.getCheckerTimings();
+            fCheckerIssues = validator.getCheckerIssues();
+
+            for(List<IIssue> issues : fCheckerIssues.values()) {
+                for(IIssue issue : issues) {
+                    if(issue instanceof ErrorType) {
+                        fErrors++;
+                    }
+                    else if(issue instanceof WarningType) {
+                        fWarnings++;
+                    }
+                    else if(issue instanceof AdviceType) {
+                        fAdvice++;
+                    }
+                }
+            }
+        }
+        catch(Exception ex) {
+            fException = ex;
+        }
+
+        return this;
+    }
+
+    private IArchimateModel loadModel(File file) throws IOException {
+        if(!file.exists()) {
+            throw new IOException(NLS.bind(Messages.ValidatorProvider_5, file.getPath()));
+        }
+
+        Resource resource = ArchimateResourceFactory.createNewResource(IArchiveManager.FACTORY.isArchiveFile(file) ?
+                IArchiveManager.FACTORY.createArchiveModelURI(file) :
+                URI.createFileURI(file.getAbsolutePath()));
+
+        ModelCompatibility modelCompatibility = new ModelCompatibility(resource);
+
+        try {
+            resource.load(null);
+        }
+        catch(IOException ex) {
+            try {
+                modelCompatibility.checkErrors();
+            }
+            catch(IncompatibleModelException ex1) {
+                throw new IOException(NLS.bind(Messages.ValidatorProvider_6, file.getPath()) + " " + ex1.getMessage(), ex1); //$NON-NLS-1$
+            }
+        }
+
+        if(resource.getContents().isEmpty() || !(resource.getContents().get(0) instanceof IArchimateModel)) {
+            throw new IOException(NLS.bind(Messages.ValidatorProvider_6, file.getPath()));
+        }
+
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        // A model that could not be fixed might be reported as having issues that it does not have, so it is a failure
+        try {
+            modelCompatibility.fixCompatibility();
+        }
+        catch(CompatibilityHandlerException ex) {
+            throw new IOException(NLS.bind(Messages.ValidatorProvider_6, file.getPath()) + " " + ex.getMessage(), ex); //$NON-NLS-1$
+        }
+
+        model.setFile(file);
+        model.setDefaults();
+
+        return model;
+    }
+
+    /**
+     * @return The name of the model, or the file name if the model could not be loaded
+     */
+    String getName() {
+        if(fModel != null) {
+            return fModel.getName();
+        }
+        return fFile != null ? fFile.getName() : ""; //$NON-NLS-1$
+    }
+
+    File getFile() {
+        return fFile;
+    }
+
+    /**
+     * @return The exception thrown when loading or validating the model, or null
+     */
+    Exception getException() {
+        return fException;
+    }
+
+    boolean isFailed() {
+        return fException != null;
+    }
+
+    int getErrorCount() {
+        return fErrors;
+    }
+
+    int getWarningCount() {
+        return fWarnings;
+    }
+
+    int getAdviceCount() {
+        return fAdvice;
+    }
+
+    /**
+     * @return The time taken to load the model in milliseconds, zero if it was already loaded
+     */
+    long getLoadTime() {
+        return fLoadTime;
+    }
+
+    /**
+     * @return The time taken to validate the model in milliseconds
+     */
+    long getValidateTime() {
+        return fValidateTime;
+    }
+
+    Map<String, Long> getCheckerTimings() {
+        return fCheckerTimings;
+    }
+
+    Map<String, List<IIssue>> getCheckerIssues() {
+        return fCheckerIssues;
+    }
+
+    /**
+     * @return The severity of an issue as used in the results, "error", "warning" or "advice"
+     */
+    static String getSeverity(IIssue issue) {
+        if(issue instanceof ErrorType) {
+            return Severity.ERROR;
+        }
+        if(issue instanceof WarningType) {
+            return Severity.WARNING;
+        }
+        return Severity.ADVICE;
+    }
+
+    static interface Severity {
+        String ERROR = "error"; //$NON-NLS-1$
+        String WARNING = "warning"; //$NON-NLS-1$
+        String ADVICE = "advice"; //$NON-NLS-1$
+    }
+}
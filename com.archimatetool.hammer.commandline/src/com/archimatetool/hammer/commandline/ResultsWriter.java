@@ -0,0 +1,293 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.commandline;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+
+import com.archimatetool.editor.ui.ArchiLabelProvider;
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.jdom.JDOMUtils;
+import com.archimatetool.model.IIdentifier;
+
+/**
+ * Writes validation results as JSON and as JUnit XML
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+class ResultsWriter {
+
+    private List<ModelValidation> fResults;
+    private long fTotalTime;
+
+    /**
+     * @param results The validation results
+     * @param totalTime The total time taken in milliseconds
+     */
+    ResultsWriter(List<ModelValidation> results, long totalTime) {
+        fResults = results;
+        fTotalTime = totalTime;
+    }
+
+    /**
+     * Write the results as JSON. There is one entry per model and within that one entry per checker with its time and issues.
+     */
+    void writeJSON(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null) {
+            parent.mkdirs();
+        }
+
+        try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            int errors = 0, warnings = 0, advice = 0;
+            for(ModelValidation result : fResults) {
+                errors += result.getErrorCount();
+                warnings += result.getWarningCount();
+                advice += result.getAdviceCount();
+            }
+
+            writer.write("{\n");
+            writer.write("  \"time\": " + fTotalTime + ",\n");
+            writer.write("  \"errors\": " + errors + ",\n");
+            writer.write("  \"warnings\": " + warnings + ",\n");
+            writer.write("  \"advice\": " + advice + ",\n");
+            writer.write("  \"models\": [");
+
+            for(int i = 0; i < fResults.size(); i++) {
+                ModelValidation result = fResults.get(i);
+
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("    {\n");
+                writer.write("      \"name\": " + quote(result.getName()) + ",\n");
+                writer.write("      \"file\": " + (result.getFile() == null ? "null" : quote(result.getFile().getPath())) + ",\n");
+
+                if(result.isFailed()) {
+                    writer.write("      \"failure\": " + quote(getMessage(result.getException())) + "\n");
+                    writer.write("    }");
+                    continue;
+                }
+
+                writer.write("      \"loadTime\": " + result.getLoadTime() + ",\n");
+                writer.write("      \"validateTime\": " + result.getValidateTime() + ",\n");
+                writer.write("      \"errors\": " + result.getErrorCount() + ",\n");
+                writer.write("      \"warnings\": " + result.getWarningCount() + ",\n");
+                writer.write("      \"advice\": " + result.getAdviceCount() + ",\n");
+                writer.write("      \"checkers\": [");
+
+                boolean firstChecker = true;
+
+                for(Entry<String, List<IIssue>> entry : result.getCheckerIssues().entrySet()) {
+                    writer.write(firstChecker ? "\n" : ",\n");
+                    firstChecker = false;
+
+                    writer.write("        {\n");
+                    writer.write("          \"name\": " + quote(entry.getKey()) + ",\n");
+                    writer.write("          \"time\": " + result.getCheckerTimings().get(entry.getKey()) + ",\n");
+                    writer.write("          \"issues\": [");
+
+                    List<IIssue> issues = entry.getValue();
+
+                    for(int j = 0; j < issues.size(); j++) {
+                        IIssue issue = issues.get(j);
+                        Object object = issue.getObject();
+
+                        writer.write(j == 0 ? "\n" : ",\n");
+                        writer.write("            { ");
+                        writer.write("\"severity\": " + quote(ModelValidation.getSeverity(issue)));
+                        writer.write(", \"name\": " + quote(issue.getName()));
+                        writer.write(", \"description\": " + quote(issue.getDescription()));
+                        writer.write(", \"object\": " + (object == null ? "null" : quote(ArchiLabelProvider.INSTANCE.getLabel(object))));
+                        writer.write(", \"id\": " + (object instanceof IIdentifier ? quote(((IIdentifier)object).getId()) : "null"));
+                        writer.write(" }");
+                    }
+
+                    writer.write(issues.isEmpty() ? "]\n" : "\n          ]\n");
+                    writer.write("        }");
+                }
+
+                writer.write(firstChecker ? "]\n" : "\n      ]\n");
+                writer.write("    }");
+            }
+
+            writer.write(fResults.isEmpty() ? "]\n" : "\n  ]\n");
+            writer.write("}\n");
+        }
+    }
+
+    /**
+     * Write the results as JUnit XML. Each model is a test suite and each checker is a test case.
+     * A checker's test case fails if it found issues of one of the failing severities. Other issues are written to system-out.
+     * A model that could not be loaded or validated is reported as an error.
+     * @param failingSeverities The severities that cause a test case to fail
+     */
+    void writeJUnit(File file, Set<String> failingSeverities) throws IOException {
+        Element rootElement = new Element("testsuites");
+        rootElement.setAttribute("name", "Archi Validator");
+        rootElement.setAttribute("time", formatTime(fTotalTime));
+
+        int totalTests = 0, totalFailures = 0, totalErrors = 0;
+
+        for(ModelValidation result : fResults) {
+            Element suiteElement = new Element("testsuite");
+            rootElement.addContent(suiteElement);
+            suiteElement.setAttribute("name", result.getName());
+
+            if(result.getFile() != null) {
+                Element propertiesElement = new Element("properties");
+                suiteElement.addContent(propertiesElement);
+                Element propertyElement = new Element("property");
+                propertiesElement.addContent(propertyElement);
+                propertyElement.setAttribute("name", "file");
+                propertyElement.setAttribute("value", result.getFile().getPath());
+            }
+
+            int tests = 0, failures = 0, errors = 0;
+
+            if(result.isFailed()) {
+                Element caseElement = new Element("testcase");
+                suiteElement.addContent(caseElement);
+                caseElement.setAttribute("classname", result.getName());
+                caseElement.setAttribute("name", "load");
+                caseElement.setAttribute("time", formatTime(0));
+
+                Element errorElement = new Element("error");
+                caseElement.addContent(errorElement);
+                errorElement.setAttribute("message", getMessage(result.getException()));
+                errorElement.setAttribute("type", result.getException().getClass().getName());
+
+                tests++;
+                errors++;
+            }
+
+            for(Entry<String, List<IIssue>> entry : result.getCheckerIssues().entrySet()) {
+                Element caseElement = new Element("testcase");
+                suiteElement.addContent(caseElement);
+                caseElement.setAttribute("classname", result.getName());
+                caseElement.setAttribute("name", entry.getKey());
+                caseElement.setAttribute("time", formatTime(result.getCheckerTimings().get(entry.getKey())));
+
+                StringBuilder failed = new StringBuilder();
+                StringBuilder other = new StringBuilder();
+                int failedCount = 0;
+
+                for(IIssue issue : entry.getValue()) {
+                    String severity = ModelValidation.getSeverity(issue);
+                    String line = "[" + severity + "] " + issue.getName() + ": " + issue.getDescription();
+                    if(issue.getObject() instanceof IIdentifier) {
+                        line += " (" + ((IIdentifier)issue.getObject()).getId() + ")";
+                    }
+
+                    if(failingSeverities.contains(severity)) {
+                        failed.append(line).append('\n');
+                        failedCount++;
+                    }
+                    else {
+                        other.append(line).append('\n');
+                    }
+                }
+
+                if(failedCount > 0) {
+                    Element failureElement = new Element("failure");
+                    caseElement.addContent(failureElement);
+                    failureElement.setAttribute("message", failedCount + " issue(s)");
+                    failureElement.setAttribute("type", entry.getKey());
+                    failureElement.setText(failed.toString());
+                    failures++;
+                }
+
+                if(other.length() > 0) {
+                    Element outElement = new Element("system-out");
+                    caseElement.addContent(outElement);
+                    outElement.setText(other.toString());
+                }
+
+                tests++;
+            }
+
+            suiteElement.setAttribute("tests", String.valueOf(tests));
+            suiteElement.setAttribute("failures", String.valueOf(failures));
+            suiteElement.setAttribute("errors", String.valueOf(errors));
+            suiteElement.setAttribute("time", formatTime(result.getLoadTime() + result.getValidateTime()));
+
+            totalTests += tests;
+            totalFailures += failures;
+            totalErrors += errors;
+        }
+
+        rootElement.setAttribute("tests", String.valueOf(totalTests));
+        rootElement.setAttribute("failures", String.valueOf(totalFailures));
+        rootElement.setAttribute("errors", String.valueOf(totalErrors));
+
+        JDOMUtils.write2XMLFile(new Document(rootElement), file);
+    }
+
+    /**
+     * @return Milliseconds as seconds, which is what JUnit XML uses
+     */
+    private static String formatTime(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+
+    private static String getMessage(Exception ex) {
+        return ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName();
+    }
+
+    /**
+     * @return s as a quoted JSON string
+     */
+    static String quote(String s) {
+        if(s == null) {
+            return "null";
+        }
+
+        StringBuilder sb = new StringBuilder(s.length() + 2);
+        sb.append('"');
+
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch(c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int)c));
+                    }
+                    else {
+                        sb.append(c);
+                    }
+            }
+        }
+
+        sb.append('"');
+        return sb.toString();
+    }
+}
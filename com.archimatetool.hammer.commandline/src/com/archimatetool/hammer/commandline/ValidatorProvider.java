@@ -0,0 +1,313 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.commandline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.commandline.AbstractCommandLineProvider;
+import com.archimatetool.commandline.CommandLineState;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IArchimateModel;
+
+/**
+ * Command Line interface for the Validator
+ *
+ * Typical usage - (should be all on one line):
+ *
+ * Archi -consoleLog -nosplash -application com.archimatetool.commandline.app
+   --loadModel "/pathToModel/model.archimate"
+   --validate
+   --validate.models "/pathToModel/model2.archimate" "/pathToModel/model3.archimate"
+   --validate.json "/pathToResults/results.json"
+   --validate.junit "/pathToResults/results.xml"
+   --validate.maxErrors 0
+   --validate.maxWarnings 10
+ *
+ * Models given with --validate.models are loaded and validated in parallel.
+ * If the number of issues of a severity is more than its maximum the exit code is set to 2.
+ * If a model cannot be loaded or validated the exit code is set to 1.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ValidatorProvider extends AbstractCommandLineProvider {
+
+    static final String PREFIX = Messages.ValidatorProvider_0;
+
+    static final String OPTION_VALIDATE = "validate"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_MODELS = "validate.models"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_THREADS = "validate.threads"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_JSON = "validate.json"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_JUNIT = "validate.junit"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_MAX_ERRORS = "validate.maxErrors"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_MAX_WARNINGS = "validate.maxWarnings"; //$NON-NLS-1$
+    static final String OPTION_VALIDATE_MAX_ADVICE = "validate.maxAdvice"; //$NON-NLS-1$
+
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_THRESHOLD_EXCEEDED = 2;
+
+    /**
+     * No maximum
+     */
+    static final int UNLIMITED = -1;
+
+
+    public ValidatorProvider() {
+    }
+
+
+    @Override
+    public void run(CommandLine commandLine) throws Exception {
+        if(!hasCorrectOptions(commandLine)) {
+            return;
+        }
+
+        // Thresholds
+        int maxErrors = getIntOption(commandLine, OPTION_VALIDATE_MAX_ERRORS, 0);
+        int maxWarnings = getIntOption(commandLine, OPTION_VALIDATE_MAX_WARNINGS, UNLIMITED);
+        int maxAdvice = getIntOption(commandLine, OPTION_VALIDATE_MAX_ADVICE, UNLIMITED);
+
+        // Models to validate
+        List<ModelValidation> validations = new ArrayList<ModelValidation>();
+
+        if(commandLine.hasOption(OPTION_VALIDATE)) {
+            IArchimateModel model = CommandLineState.getModel();
+            if(model == null) {
+                throw new IOException(Messages.ValidatorProvider_1);
+            }
+            validations.add(new ModelValidation(model));
+        }
+
+        String[] paths = commandLine.getOptionValues(OPTION_VALIDATE_MODELS);
+        if(paths != null) {
+            for(String path : paths) {
+                if(StringUtils.isSet(path)) {
+                    validations.add(new ModelValidation(new File(path)));
+                }
+            }
+        }
+
+        if(validations.isEmpty()) {
+            logError(Messages.ValidatorProvider_2);
+            return;
+        }
+
+        int threads = getIntOption(commandLine, OPTION_VALIDATE_THREADS, Runtime.getRuntime().availableProcessors());
+        threads = Math.max(1, Math.min(threads, validations.size()));
+
+        logMessage(NLS.bind(Messages.ValidatorProvider_3, validations.size(), threads));
+
+        // Validate
+        long start = System.nanoTime();
+
+        List<ModelValidation> results = validate(validations, threads);
+
+        long totalTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Log results and count totals
+        int errors = 0, warnings = 0, advice = 0;
+        boolean failed = false;
+
+        for(ModelValidation result : results) {
+            if(result.isFailed()) {
+                failed = true;
+                logError(NLS.bind(Messages.ValidatorProvider_4, result.getName(), result.getException().getMessage()));
+                continue;
+            }
+
+            errors += result.getErrorCount();
+            warnings += result.getWarningCount();
+            advice += result.getAdviceCount();
+
+            logMessage(NLS.bind(Messages.ValidatorProvider_7, new Object[] { result.getName(), result.getErrorCount(),
+                    result.getWarningCount(), result.getAdviceCount(), result.getValidateTime() }));
+        }
+
+        // Write results
+        ResultsWriter writer = new ResultsWriter(results, totalTime);
+
+        String jsonPath = commandLine.getOptionValue(OPTION_VALIDATE_JSON);
+        if(StringUtils.isSet(jsonPath)) {
+            writer.writeJSON(new File(jsonPath));
+            logMessage(NLS.bind(Messages.ValidatorProvider_8, jsonPath));
+        }
+
+        String junitPath = commandLine.getOptionValue(OPTION_VALIDATE_JUNIT);
+        if(StringUtils.isSet(junitPath)) {
+            // Issues of a severity that has a maximum count as test failures
+            Set<String> failingSeverities = new HashSet<String>();
+            if(maxErrors != UNLIMITED) {
+                failingSeverities.add(ModelValidation.Severity.ERROR);
+            }
+            if(maxWarnings != UNLIMITED) {
+                failingSeverities.add(ModelValidation.Severity.WARNING);
+            }
+            if(maxAdvice != UNLIMITED) {
+                failingSeverities.add(ModelValidation.Severity.ADVICE);
+            }
+
+            writer.writeJUnit(new File(junitPath), failingSeverities);
+            logMessage(NLS.bind(Messages.ValidatorProvider_8, junitPath));
+        }
+
+        // Exit code
+        if(failed) {
+            CommandLineState.setExitCode(EXIT_FAILED);
+        }
+        else if(isExceeded(errors, maxErrors) || isExceeded(warnings, maxWarnings) || isExceeded(advice, maxAdvice)) {
+            logError(NLS.bind(Messages.ValidatorProvider_9, new Object[] { errors, warnings, advice }));
+            CommandLineState.setExitCode(EXIT_THRESHOLD_EXCEEDED);
+        }
+
+        logMessage(NLS.bind(Messages.ValidatorProvider_10, totalTime));
+    }
+
+    /**
+     * Load and validate the models, each on its own thread up to the number of threads.
+     * @return The results in the same order as the models were given
+     */
+    private List<ModelValidation> validate(List<ModelValidation> validations, int threads) throws InterruptedException {
+        if(threads == 1) {
+            for(ModelValidation validation : validations) {
+                validation.call();
+            }
+            return validations;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            List<ModelValidation> results = new ArrayList<ModelValidation>();
+
+            for(Future<ModelValidation> future : executor.invokeAll(validations)) {
+                try {
+                    results.add(future.get());
+                }
+                catch(ExecutionException ex) {
+                    // ModelValidation catches its own exceptions so this should not happen
+                    throw new RuntimeException(ex.getCause());
+                }
+            }
+
+            return results;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private boolean isExceeded(int count, int max) {
+        return max != UNLIMITED && count > max;
+    }
+
+    private int getIntOption(CommandLine commandLine, String option, int defaultValue) {
+        String value = commandLine.getOptionValue(option);
+        if(!StringUtils.isSet(value)) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        }
+        catch(NumberFormatException ex) {
+            logError(NLS.bind(Messages.ValidatorProvider_11, option, value));
+            return defaultValue;
+        }
+    }
+
+    @Override
+    protected String getLogPrefix() {
+        return PREFIX;
+    }
+
+    @Override
+    public Options getOptions() {
+        Options options = new Options();
+
+        Option option = Option.builder()
+                .longOpt(OPTION_VALIDATE)
+                .desc(Messages.ValidatorProvider_12)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_MODELS)
+                .hasArgs()
+                .argName(Messages.ValidatorProvider_13)
+                .desc(Messages.ValidatorProvider_14)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_THREADS)
+                .hasArg()
+                .argName(Messages.ValidatorProvider_15)
+                .desc(Messages.ValidatorProvider_16)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_JSON)
+                .hasArg()
+                .argName(Messages.ValidatorProvider_17)
+                .desc(Messages.ValidatorProvider_18)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_JUNIT)
+                .hasArg()
+                .argName(Messages.ValidatorProvider_17)
+                .desc(Messages.ValidatorProvider_19)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_MAX_ERRORS)
+                .hasArg()
+                .argName(Messages.ValidatorProvider_15)
+                .desc(Messages.ValidatorProvider_20)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_MAX_WARNINGS)
+                .hasArg()
+                .argName(Messages.ValidatorProvider_15)
+                .desc(Messages.ValidatorProvider_21)
+                .build();
+        options.addOption(option);
+
+        option = Option.builder()
+                .longOpt(OPTION_VALIDATE_MAX_ADVICE)
+                .hasArg()
+                .argName(Messages.ValidatorProvider_15)
+                .desc(Messages.ValidatorProvider_22)
+                .build();
+        options.addOption(option);
+
+        return options;
+    }
+
+    private boolean hasCorrectOptions(CommandLine commandLine) {
+        return commandLine.hasOption(OPTION_VALIDATE) || commandLine.hasOption(OPTION_VALIDATE_MODELS);
+    }
+
+}
@@ -23,5 +23,10 @@ public interface IPreferenceConstants {
     String PREFS_HAMMER_CHECK_VIEWPOINT = "checkViewpoint"; //$NON-NLS-1$
     String PREFS_HAMMER_CHECK_DUPLICATE_ELEMENTS = "checkDuplicateElements"; //$NON-NLS-1$
     String PREFS_HAMMER_CHECK_JUNCTIONS = "checkJunctions"; //$NON-NLS-1$
+    String PREFS_HAMMER_CHECK_SIMILAR_ELEMENTS = "checkSimilarElements"; //$NON-NLS-1$
+    String PREFS_HAMMER_SIMILARITY_THRESHOLD = "similarityThreshold"; //$NON-NLS-1$
+    
+    String PREFS_HAMMER_LIVE_VALIDATION = "liveValidation"; //$NON-NLS-1$
+    String PREFS_HAMMER_CACHE_RESULTS = "cacheResults"; //$NON-NLS-1$
     
 }
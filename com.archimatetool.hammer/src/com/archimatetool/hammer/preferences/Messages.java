@@ -23,6 +23,12 @@ public class Messages extends NLS {
     public static String ValidatorPreferencePage_7;
 
     public static String ValidatorPreferencePage_8;
+
+    public static String ValidatorPreferencePage_9;
+
+    public static String ValidatorPreferencePage_10;
+
+    public static String ValidatorPreferencePage_11;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
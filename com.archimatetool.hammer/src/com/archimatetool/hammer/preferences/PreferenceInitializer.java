@@ -32,5 +32,9 @@ implements IPreferenceConstants {
 		store.setDefault(PREFS_HAMMER_CHECK_VIEWPOINT, true);
         store.setDefault(PREFS_HAMMER_CHECK_DUPLICATE_ELEMENTS, true);
         store.setDefault(PREFS_HAMMER_CHECK_JUNCTIONS, true);
+        store.setDefault(PREFS_HAMMER_CHECK_SIMILAR_ELEMENTS, false);
+        store.setDefault(PREFS_HAMMER_SIMILARITY_THRESHOLD, 45);
+        store.setDefault(PREFS_HAMMER_LIVE_VALIDATION, false);
+        store.setDefault(PREFS_HAMMER_CACHE_RESULTS, false);
     }
 }
@@ -13,6 +13,8 @@ import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 import org.eclipse.ui.PlatformUI;
@@ -34,6 +36,10 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
     
     private Button[] fDoCheckButtons;
     
+    private Spinner fSimilaritySpinner;
+    
+    private Button fCacheResultsButton;
+    
     String[] fCheckers = {
             PREFS_HAMMER_CHECK_EMPTY_VIEWS, Messages.ValidatorPreferencePage_0,
             PREFS_HAMMER_CHECK_INVALID_RELATIONS, Messages.ValidatorPreferencePage_1,
@@ -42,6 +48,7 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
             PREFS_HAMMER_CHECK_UNUSED_RELATIONS, Messages.ValidatorPreferencePage_4,
             PREFS_HAMMER_CHECK_VIEWPOINT, Messages.ValidatorPreferencePage_5,
             PREFS_HAMMER_CHECK_DUPLICATE_ELEMENTS, Messages.ValidatorPreferencePage_7,
+            PREFS_HAMMER_CHECK_SIMILAR_ELEMENTS, Messages.ValidatorPreferencePage_9,
             PREFS_HAMMER_CHECK_JUNCTIONS, Messages.ValidatorPreferencePage_8
     };
     
@@ -74,6 +81,15 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
             fDoCheckButtons[i].setLayoutData(gd);
         }
         
+        Label label = new Label(checkerGroup, SWT.NULL);
+        label.setText(Messages.ValidatorPreferencePage_10);
+        fSimilaritySpinner = new Spinner(checkerGroup, SWT.BORDER);
+        fSimilaritySpinner.setMinimum(1);
+        fSimilaritySpinner.setMaximum(99);
+        
+        fCacheResultsButton = new Button(client, SWT.CHECK);
+        fCacheResultsButton.setText(Messages.ValidatorPreferencePage_11);
+        
         setValues();
         
         return client;
@@ -83,6 +99,8 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         for(int i = 0; i < fCheckers.length / 2; i++) {
             fDoCheckButtons[i].setSelection(getPreferenceStore().getBoolean(fCheckers[i * 2]));
         }
+        fSimilaritySpinner.setSelection(getPreferenceStore().getInt(PREFS_HAMMER_SIMILARITY_THRESHOLD));
+        fCacheResultsButton.setSelection(getPreferenceStore().getBoolean(PREFS_HAMMER_CACHE_RESULTS));
     }
     
     @Override
@@ -90,6 +108,8 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         for(int i = 0; i < fCheckers.length / 2; i++) {
             getPreferenceStore().setValue(fCheckers[i * 2], fDoCheckButtons[i].getSelection());
         }
+        getPreferenceStore().setValue(PREFS_HAMMER_SIMILARITY_THRESHOLD, fSimilaritySpinner.getSelection());
+        getPreferenceStore().setValue(PREFS_HAMMER_CACHE_RESULTS, fCacheResultsButton.getSelection());
         return true;
     }
     
@@ -98,6 +118,8 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         for(int i = 0; i < fCheckers.length / 2; i++) {
             fDoCheckButtons[i].setSelection(getPreferenceStore().getDefaultBoolean(fCheckers[i * 2]));
         }
+        fSimilaritySpinner.setSelection(getPreferenceStore().getDefaultInt(PREFS_HAMMER_SIMILARITY_THRESHOLD));
+        fCacheResultsButton.setSelection(getPreferenceStore().getDefaultBoolean(PREFS_HAMMER_CACHE_RESULTS));
         super.performDefaults();
     }
     
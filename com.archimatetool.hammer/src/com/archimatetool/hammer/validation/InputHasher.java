@@ -0,0 +1,166 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IIdentifier;
+
+
+/**
+ * Calculates a stable 64 bit hash (FNV-1a) of the parts of a model object that the checkers read.<p>
+ *
+ * If the hash of an object is the same as when it was last checked then the checkers will find the same issues.
+ * The hashes only use ids, names, types and viewpoints so they are the same from one session to the next.
+ *
+ * @author Phillip Beauvoir
+ */
+final class InputHasher {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private long hash = OFFSET_BASIS;
+
+    private InputHasher() {
+    }
+
+    /**
+     * Element name and type, its relations and the Views it is in
+     */
+    static long hash(IArchimateElement element) {
+        InputHasher hasher = new InputHasher();
+        hasher.addConcept(element);
+        hasher.addRelations(element.getSourceRelationships());
+        hasher.addRelations(element.getTargetRelationships());
+        hasher.addReferences(element);
+        return hasher.hash;
+    }
+
+    /**
+     * Relation name and type, its source and target and the Views it is in
+     */
+    static long hash(IArchimateRelationship relation) {
+        InputHasher hasher = new InputHasher();
+        hasher.addConcept(relation);
+        hasher.addConcept(relation.getSource());
+        hasher.addConcept(relation.getTarget());
+        hasher.addReferences(relation);
+        return hasher.hash;
+    }
+
+    /**
+     * View name and viewpoint and, for each diagram object in it, its parent, its concept and the relations of its concept
+     */
+    static long hash(IArchimateDiagramModel dm) {
+        InputHasher hasher = new InputHasher();
+        hasher.addIdentifier(dm);
+        hasher.add(dm.getName());
+        hasher.add(dm.getViewpoint());
+        hasher.add(dm.getChildren().size());
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+
+            hasher.add(eObject.eClass().getName());
+            hasher.addIdentifier(eObject);
+            hasher.addIdentifier(eObject.eContainer());
+
+            if(eObject instanceof IDiagramModelArchimateComponent) {
+                IArchimateConcept concept = ((IDiagramModelArchimateComponent)eObject).getArchimateConcept();
+                hasher.addConcept(concept);
+
+                // Nesting depends on the relations between parent and child
+                if(eObject instanceof IDiagramModelArchimateObject && concept != null) {
+                    hasher.addRelations(concept.getSourceRelationships());
+                }
+            }
+        }
+
+        return hasher.hash;
+    }
+
+    /**
+     * Type and the names of all elements of that type in order
+     */
+    static long hash(EClass type, Collection<? extends IArchimateElement> elements) {
+        InputHasher hasher = new InputHasher();
+        hasher.add(type.getName());
+        hasher.add(elements.size());
+
+        for(IArchimateElement element : elements) {
+            hasher.addIdentifier(element);
+            hasher.add(element.getName());
+        }
+
+        return hasher.hash;
+    }
+
+    private void addConcept(IArchimateConcept concept) {
+        if(concept == null) {
+            add(0);
+            return;
+        }
+
+        add(concept.eClass().getName());
+        addIdentifier(concept);
+        add(concept.getName());
+    }
+
+    private void addRelations(Collection<? extends IArchimateRelationship> relations) {
+        add(relations.size());
+
+        for(IArchimateRelationship relation : relations) {
+            add(relation.eClass().getName());
+            addIdentifier(relation);
+            addIdentifier(relation.getSource());
+            addIdentifier(relation.getTarget());
+        }
+    }
+
+    private void addReferences(IArchimateConcept concept) {
+        add(concept.getReferencingDiagramComponents().size());
+
+        for(IDiagramModelArchimateComponent dmc : concept.getReferencingDiagramComponents()) {
+            addIdentifier(dmc);
+        }
+    }
+
+    private void addIdentifier(Object object) {
+        add(object instanceof IIdentifier ? ((IIdentifier)object).getId() : null);
+    }
+
+    private void add(String s) {
+        if(s == null) {
+            add(-1);
+            return;
+        }
+
+        add(s.length());
+
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            hash = (hash ^ (c & 0xff)) * PRIME;
+            hash = (hash ^ (c >>> 8)) * PRIME;
+        }
+    }
+
+    private void add(int value) {
+        for(int i = 0; i < 4; i++) {
+            hash = (hash ^ ((value >>> (i * 8)) & 0xff)) * PRIME;
+        }
+    }
+}
@@ -0,0 +1,813 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+import com.archimatetool.hammer.ArchiHammerPlugin;
+import com.archimatetool.hammer.preferences.IPreferenceConstants;
+import com.archimatetool.hammer.validation.checkers.DuplicateElementChecker;
+import com.archimatetool.hammer.validation.checkers.EmptyViewsChecker;
+import com.archimatetool.hammer.validation.checkers.IChecker;
+import com.archimatetool.hammer.validation.checkers.InvalidRelationsChecker;
+import com.archimatetool.hammer.validation.checkers.JunctionsChecker;
+import com.archimatetool.hammer.validation.checkers.NestedElementsChecker;
+import com.archimatetool.hammer.validation.checkers.UnusedElementsChecker;
+import com.archimatetool.hammer.validation.checkers.UnusedRelationsChecker;
+import com.archimatetool.hammer.validation.checkers.ViewpointChecker;
+import com.archimatetool.hammer.validation.issues.AdviceCategory;
+import com.archimatetool.hammer.validation.issues.AdviceType;
+import com.archimatetool.hammer.validation.issues.ErrorType;
+import com.archimatetool.hammer.validation.issues.ErrorsCategory;
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.hammer.validation.issues.IIssueCategory;
+import com.archimatetool.hammer.validation.issues.OKType;
+import com.archimatetool.hammer.validation.issues.WarningType;
+import com.archimatetool.hammer.validation.issues.WarningsCategory;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
+import com.archimatetool.model.IIdentifier;
+
+
+/**
+ * Validator that keeps its results up to date as the model changes.<p>
+ *
+ * The same checkers as Validator are used, but each one is run on a single element, relation or View (or on all elements of one type
+ * when checking for duplicates) and the issues are stored against that object. Model notifications mark the objects they affect as dirty
+ * and update() runs the checkers again for just those objects, patching the issue lists of the categories in place.<p>
+ *
+ * If a ValidationCache is set then an object is only checked if a hash of what the checker reads from it has changed since the issues
+ * in the cache were found, otherwise the cached issues are used.<p>
+ *
+ * validate() runs the checkers of each Rule in parallel, as Validator does. update() only checks the dirty objects and runs them in the calling thread.
+ * notifyChanged() may be called while validate() runs in another thread. update() must not be called while the model is changing.
+ *
+ * @author Phillip Beauvoir
+ */
+public class LiveValidator {
+
+    /**
+     * The changes made to the issues by update()
+     */
+    public static class Delta {
+        private List<IIssue> fAdded;
+        private List<IIssue> fRemoved;
+        private boolean fStructureChanged;
+        private long fTime;
+
+        Delta(List<IIssue> added, List<IIssue> removed, boolean structureChanged, long time) {
+            fAdded = added;
+            fRemoved = removed;
+            fStructureChanged = structureChanged;
+            fTime = time;
+        }
+
+        /**
+         * @return Issues that were added to their category
+         */
+        public List<IIssue> getAddedIssues() {
+            return fAdded;
+        }
+
+        /**
+         * @return Issues that were removed from their category
+         */
+        public List<IIssue> getRemovedIssues() {
+            return fRemoved;
+        }
+
+        /**
+         * @return true if a category was added or removed from the result and so the whole result should be shown again
+         */
+        public boolean isStructureChanged() {
+            return fStructureChanged;
+        }
+
+        /**
+         * @return true if there were no changes
+         */
+        public boolean isEmpty() {
+            return fAdded.isEmpty() && fRemoved.isEmpty() && !fStructureChanged;
+        }
+
+        /**
+         * @return The time taken by the update in nanoseconds
+         */
+        public long getTime() {
+            return fTime;
+        }
+    }
+
+    /**
+     * A checker and the issues it found for each object
+     */
+    private static class Rule<T> {
+        String name;
+        Function<T, IChecker> checkerFactory;
+        ToLongFunction<T> hashFunction;
+        Map<T, List<IIssue>> issues = new LinkedHashMap<T, List<IIssue>>();
+
+        Rule(String name, Function<T, IChecker> checkerFactory, ToLongFunction<T> hashFunction) {
+            this.name = name;
+            this.checkerFactory = checkerFactory;
+            this.hashFunction = hashFunction;
+        }
+
+        List<IIssue> check(T object) {
+            return checkerFactory.apply(object).getIssues();
+        }
+
+        String getCacheKey(T object) {
+            return name + ':' + getKey(object);
+        }
+    }
+
+    private IArchimateModel fModel;
+
+    // All Rules in the same order as Validator
+    private List<Rule<?>> fRules;
+
+    private List<Rule<IArchimateElement>> fElementRules;
+    private List<Rule<IArchimateRelationship>> fRelationRules;
+    private List<Rule<IArchimateDiagramModel>> fViewRules;
+    private Rule<EClass> fTypeRule;
+
+    // Elements by type for the duplicate elements check
+    private Map<EClass, Set<IArchimateElement>> fElementsByType;
+
+    // Dirty objects
+    private Set<IArchimateConcept> fDirtyConcepts = new LinkedHashSet<IArchimateConcept>();
+    private Set<IArchimateDiagramModel> fDirtyViews = new LinkedHashSet<IArchimateDiagramModel>();
+    private Set<EClass> fDirtyTypes = new LinkedHashSet<EClass>();
+
+    private List<ErrorType> fErrorList;
+    private List<WarningType> fWarningList;
+    private List<AdviceType> fAdviceList;
+
+    private IIssueCategory fErrorsCategory;
+    private IIssueCategory fWarningsCategory;
+    private IIssueCategory fAdviceCategory;
+
+    private List<Object> fResult;
+
+    private ValidationCache fCache;
+    private String fConfiguration;
+
+    // Objects by id to find the objects of cached issues. Created when needed
+    private Map<String, EObject> fObjectsById;
+
+    public LiveValidator(IArchimateModel model) {
+        fModel = model;
+    }
+
+    /**
+     * @param cache The cache to use, or null to always run the checkers
+     */
+    public void setCache(ValidationCache cache) {
+        fCache = cache;
+    }
+
+    public ValidationCache getCache() {
+        return fCache;
+    }
+
+    public IArchimateModel getModel() {
+        return fModel;
+    }
+
+    /**
+     * Validate the whole model
+     * @return The list of Issue Categories and Issues
+     */
+    public List<Object> validate() {
+        return validate(new NullProgressMonitor());
+    }
+
+    /**
+     * Validate the whole model
+     * @param monitor Progress monitor which is checked for cancellation
+     * @return The list of Issue Categories and Issues
+     * @throws OperationCanceledException if the monitor is cancelled
+     */
+    public List<Object> validate(IProgressMonitor monitor) {
+        if(fModel == null) {
+            return null;
+        }
+
+        // Changes made from now on are applied by the next update()
+        synchronized(this) {
+            fDirtyConcepts.clear();
+            fDirtyViews.clear();
+            fDirtyTypes.clear();
+        }
+
+        createRules();
+
+        fObjectsById = null;
+
+        if(fCache != null) {
+            fCache.setConfiguration(fConfiguration);
+            fCache.startPass();
+        }
+
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        List<IArchimateRelationship> relations = new ArrayList<IArchimateRelationship>();
+        List<IArchimateDiagramModel> views = new ArrayList<IArchimateDiagramModel>();
+
+        fElementsByType = new HashMap<EClass, Set<IArchimateElement>>();
+
+        // The objects of cached issues are found by id, so find them all now rather than in the checkers' threads
+        Map<String, EObject> objectsById = fCache != null ? new HashMap<String, EObject>() : null;
+
+        for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+            if(monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+
+            EObject eObject = iter.next();
+
+            if(eObject instanceof IArchimateRelationship) {
+                relations.add((IArchimateRelationship)eObject);
+            }
+            else if(eObject instanceof IArchimateElement) {
+                IArchimateElement element = (IArchimateElement)eObject;
+                // Relationship lists are created lazily so create them here rather than in the checkers' threads
+                element.getSourceRelationships();
+                element.getTargetRelationships();
+                elements.add(element);
+                getElementsOfType(eObject.eClass()).add(element);
+            }
+            else if(eObject instanceof IArchimateDiagramModel) {
+                views.add((IArchimateDiagramModel)eObject);
+            }
+
+            if(objectsById != null && eObject instanceof IIdentifier) {
+                objectsById.put(((IIdentifier)eObject).getId(), eObject);
+            }
+        }
+
+        fObjectsById = objectsById;
+
+        // Each Rule has its own issues so the Rules are run in parallel in the same way as the checkers of Validator
+        List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+
+        for(Rule<IArchimateElement> rule : fElementRules) {
+            tasks.add(checkAllTask(rule, elements, monitor));
+        }
+
+        for(Rule<IArchimateRelationship> rule : fRelationRules) {
+            tasks.add(checkAllTask(rule, relations, monitor));
+        }
+
+        for(Rule<IArchimateDiagramModel> rule : fViewRules) {
+            tasks.add(checkAllTask(rule, views, monitor));
+        }
+
+        if(fTypeRule != null) {
+            tasks.add(checkAllTask(fTypeRule, fElementsByType.keySet(), monitor));
+        }
+
+        Validator.runTasks(tasks, monitor);
+
+        if(fCache != null) {
+            fCache.endPass();
+        }
+
+        fErrorList = new ArrayList<ErrorType>();
+        fWarningList = new ArrayList<WarningType>();
+        fAdviceList = new ArrayList<AdviceType>();
+
+        for(Rule<?> rule : fRules) {
+            for(List<IIssue> issues : rule.issues.values()) {
+                addToCategories(issues);
+            }
+        }
+
+        fErrorsCategory = new ErrorsCategory(fErrorList);
+        fWarningsCategory = new WarningsCategory(fWarningList);
+        fAdviceCategory = new AdviceCategory(fAdviceList);
+
+        fResult = createResult();
+        return fResult;
+    }
+
+    /**
+     * @return The list of Issue Categories and Issues from the last validate() or update()
+     */
+    public List<Object> getResult() {
+        return fResult;
+    }
+
+    /**
+     * Mark the objects affected by a model notification as dirty
+     * @param msg The notification
+     */
+    public synchronized void notifyChanged(Notification msg) {
+        if(msg.isTouch() || !(msg.getNotifier() instanceof EObject)) {
+            return;
+        }
+
+        EObject notifier = (EObject)msg.getNotifier();
+        if(EcoreUtil.getRootContainer(notifier) != fModel) {
+            return;
+        }
+
+        markDirty(notifier);
+
+        // A name change might add or remove a duplicate
+        if(notifier instanceof IArchimateElement && msg.getFeature() == IArchimatePackage.Literals.NAMEABLE__NAME) {
+            fDirtyTypes.add(notifier.eClass());
+        }
+
+        // Objects that were added, removed or referenced
+        boolean containment = msg.getFeature() instanceof EReference && ((EReference)msg.getFeature()).isContainment();
+
+        for(Object value : getValues(msg)) {
+            if(value instanceof EObject) {
+                if(containment) {
+                    markTreeDirty((EObject)value);
+                }
+                else {
+                    markDirty((EObject)value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if there are changes to be applied by update()
+     */
+    public synchronized boolean isDirty() {
+        return !fDirtyConcepts.isEmpty() || !fDirtyViews.isEmpty() || !fDirtyTypes.isEmpty();
+    }
+
+    /**
+     * Run the checkers again for the dirty objects and update the issue lists of the categories
+     * @return The changes made
+     */
+    public Delta update() {
+        long start = System.nanoTime();
+
+        List<IIssue> added = new ArrayList<IIssue>();
+        List<IIssue> removed = new ArrayList<IIssue>();
+
+        if(fResult == null) {
+            return new Delta(added, removed, false, 0);
+        }
+
+        List<IArchimateConcept> concepts;
+        List<IArchimateDiagramModel> views;
+        Set<EClass> types;
+
+        synchronized(this) {
+            concepts = new ArrayList<IArchimateConcept>(fDirtyConcepts);
+            views = new ArrayList<IArchimateDiagramModel>(fDirtyViews);
+            types = new LinkedHashSet<EClass>(fDirtyTypes);
+            fDirtyConcepts.clear();
+            fDirtyViews.clear();
+            fDirtyTypes.clear();
+        }
+
+        fObjectsById = null;
+
+        for(IArchimateConcept concept : concepts) {
+            boolean exists = isInModel(concept);
+
+            if(concept instanceof IArchimateElement) {
+                IArchimateElement element = (IArchimateElement)concept;
+
+                // Added or removed elements change the elements of their type
+                Set<IArchimateElement> elementsOfType = getElementsOfType(element.eClass());
+                if(exists ? elementsOfType.add(element) : elementsOfType.remove(element)) {
+                    types.add(element.eClass());
+                }
+
+                for(Rule<IArchimateElement> rule : fElementRules) {
+                    recheck(rule, element, exists, added, removed);
+                }
+            }
+            else if(concept instanceof IArchimateRelationship) {
+                for(Rule<IArchimateRelationship> rule : fRelationRules) {
+                    recheck(rule, (IArchimateRelationship)concept, exists, added, removed);
+                }
+            }
+        }
+
+        for(IArchimateDiagramModel view : views) {
+            boolean exists = isInModel(view);
+            for(Rule<IArchimateDiagramModel> rule : fViewRules) {
+                recheck(rule, view, exists, added, removed);
+            }
+        }
+
+        if(fTypeRule != null) {
+            for(EClass type : types) {
+                recheck(fTypeRule, type, !getElementsOfType(type).isEmpty(), added, removed);
+            }
+        }
+
+        // Patch the categories
+        if(!removed.isEmpty()) {
+            Set<IIssue> removedSet = new HashSet<IIssue>(removed);
+            fErrorList.removeAll(removedSet);
+            fWarningList.removeAll(removedSet);
+            fAdviceList.removeAll(removedSet);
+        }
+
+        addToCategories(added);
+
+        List<Object> result = createResult();
+        boolean structureChanged = !result.equals(fResult);
+        if(structureChanged) {
+            fResult = result;
+        }
+
+        return new Delta(added, removed, structureChanged, System.nanoTime() - start);
+    }
+
+    /**
+     * @return The category that an issue belongs to, or null
+     */
+    public IIssueCategory getCategory(IIssue issue) {
+        if(issue instanceof ErrorType) {
+            return fErrorsCategory;
+        }
+        if(issue instanceof WarningType) {
+            return fWarningsCategory;
+        }
+        if(issue instanceof AdviceType) {
+            return fAdviceCategory;
+        }
+        return null;
+    }
+
+    private void createRules() {
+        IPreferenceStore store = ArchiHammerPlugin.INSTANCE.getPreferenceStore();
+
+        fRules = new ArrayList<Rule<?>>();
+        fElementRules = new ArrayList<Rule<IArchimateElement>>();
+        fRelationRules = new ArrayList<Rule<IArchimateRelationship>>();
+        fViewRules = new ArrayList<Rule<IArchimateDiagramModel>>();
+        fTypeRule = null;
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_INVALID_RELATIONS)) {
+            addRule(fRelationRules, InvalidRelationsChecker.class, relation -> new InvalidRelationsChecker(Collections.singletonList(relation)),
+                    InputHasher::hash);
+        }
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_UNUSED_ELEMENTS)) {
+            addRule(fElementRules, UnusedElementsChecker.class, element -> new UnusedElementsChecker(Collections.singletonList(element)),
+                    InputHasher::hash);
+        }
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_UNUSED_RELATIONS)) {
+            addRule(fRelationRules, UnusedRelationsChecker.class, relation -> new UnusedRelationsChecker(Collections.singletonList(relation)),
+                    InputHasher::hash);
+        }
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_EMPTY_VIEWS)) {
+            addRule(fViewRules, EmptyViewsChecker.class, view -> new EmptyViewsChecker(Collections.singletonList(view)),
+                    InputHasher::hash);
+        }
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_VIEWPOINT)) {
+            addRule(fViewRules, ViewpointChecker.class, view -> new ViewpointChecker(Collections.singletonList(view)),
+                    InputHasher::hash);
+        }
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_NESTING)) {
+            addRule(fViewRules, NestedElementsChecker.class, view -> new NestedElementsChecker(Collections.singletonList(view)),
+                    InputHasher::hash);
+        }
+
+        StringBuilder configuration = new StringBuilder();
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_DUPLICATE_ELEMENTS)) {
+            boolean findSimilar = store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_SIMILAR_ELEMENTS);
+            float threshold = store.getInt(IPreferenceConstants.PREFS_HAMMER_SIMILARITY_THRESHOLD) / 100f;
+
+            // Duplicates can only be of the same type so check all elements of one type at a time
+            fTypeRule = new Rule<EClass>(DuplicateElementChecker.class.getSimpleName(),
+                    type -> new DuplicateElementChecker(new ArrayList<IArchimateElement>(getElementsOfType(type)), findSimilar, threshold),
+                    type -> InputHasher.hash(type, getElementsOfType(type)));
+            fRules.add(fTypeRule);
+
+            configuration.append(findSimilar).append(',').append(threshold).append(';');
+        }
+
+        if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_JUNCTIONS)) {
+            addRule(fElementRules, JunctionsChecker.class, element -> new JunctionsChecker(Collections.singletonList(element)),
+                    InputHasher::hash);
+        }
+
+        // Cached issues are only valid for the same checkers, settings, version and language
+        for(Rule<?> rule : fRules) {
+            configuration.append(rule.name).append(';');
+        }
+        configuration.append(ArchiHammerPlugin.INSTANCE.getBundle().getVersion()).append(';');
+        configuration.append(Locale.getDefault());
+
+        fConfiguration = configuration.toString();
+    }
+
+    private <T> void addRule(List<Rule<T>> rules, Class<? extends IChecker> checkerClass, Function<T, IChecker> checkerFactory,
+            ToLongFunction<T> hashFunction) {
+        Rule<T> rule = new Rule<T>(checkerClass.getSimpleName(), checkerFactory, hashFunction);
+        rules.add(rule);
+        fRules.add(rule);
+    }
+
+    private <T> ForkJoinTask<Void> checkAllTask(Rule<T> rule, Collection<T> objects, IProgressMonitor monitor) {
+        return ForkJoinTask.adapt(() -> checkAll(rule, objects, monitor), null);
+    }
+
+    private <T> void checkAll(Rule<T> rule, Collection<T> objects, IProgressMonitor monitor) {
+        for(T object : objects) {
+            if(monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+
+            List<IIssue> issues = check(rule, object);
+            if(!issues.isEmpty()) {
+                rule.issues.put(object, issues);
+            }
+        }
+    }
+
+    /**
+     * Run a Rule for an object, or use the cached issues if what the checker reads from the object has not changed
+     */
+    private <T> List<IIssue> check(Rule<T> rule, T object) {
+        if(fCache == null) {
+            return rule.check(object);
+        }
+
+        String key = rule.getCacheKey(object);
+        long hash = rule.hashFunction.applyAsLong(object);
+
+        // Most issues are for the object itself
+        String objectKey = getKey(object);
+        List<IIssue> issues = fCache.get(key, hash, id -> id.equals(objectKey) ? object : findObject(id));
+
+        if(issues == null) {
+            issues = rule.check(object);
+            fCache.put(key, hash, issues);
+        }
+
+        return issues;
+    }
+
+    /**
+     * @return The id of an object, or the name of a type
+     */
+    private static String getKey(Object object) {
+        return object instanceof EClass ? ((EClass)object).getName() : ((IIdentifier)object).getId();
+    }
+
+    /**
+     * @return The object in the model with the given id, or null
+     */
+    private Object findObject(String id) {
+        if(fObjectsById == null) {
+            fObjectsById = new HashMap<String, EObject>();
+            for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IIdentifier) {
+                    fObjectsById.put(((IIdentifier)eObject).getId(), eObject);
+                }
+            }
+        }
+
+        return fObjectsById.get(id);
+    }
+
+    /**
+     * Run a Rule again for an object. Issues that are the same as before are kept so that they stay selected in the View.
+     */
+    private <T> void recheck(Rule<T> rule, T object, boolean exists, List<IIssue> added, List<IIssue> removed) {
+        List<IIssue> oldIssues = rule.issues.remove(object);
+        if(oldIssues == null) {
+            oldIssues = Collections.emptyList();
+        }
+
+        List<IIssue> newIssues;
+
+        if(exists) {
+            newIssues = check(rule, object);
+        }
+        else {
+            newIssues = Collections.emptyList();
+            if(fCache != null) {
+                fCache.remove(rule.getCacheKey(object));
+            }
+        }
+
+        List<IIssue> keptIssues = new ArrayList<IIssue>(newIssues.size());
+        List<IIssue> unmatched = new ArrayList<IIssue>(oldIssues);
+
+        for(IIssue newIssue : newIssues) {
+            IIssue oldIssue = findSameIssue(unmatched, newIssue);
+            if(oldIssue != null) {
+                unmatched.remove(oldIssue);
+                keptIssues.add(oldIssue);
+            }
+            else {
+                keptIssues.add(newIssue);
+                added.add(newIssue);
+            }
+        }
+
+        removed.addAll(unmatched);
+
+        if(!keptIssues.isEmpty()) {
+            rule.issues.put(object, keptIssues);
+        }
+    }
+
+    private IIssue findSameIssue(List<IIssue> issues, IIssue issue) {
+        for(IIssue other : issues) {
+            if(other.getClass() == issue.getClass() && other.getObject() == issue.getObject()
+                    && other.getName().equals(issue.getName()) && other.getDescription().equals(issue.getDescription())) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    private void addToCategories(List<IIssue> issues) {
+        for(IIssue issue : issues) {
+            if(issue instanceof ErrorType) {
+                fErrorList.add((ErrorType)issue);
+            }
+            if(issue instanceof WarningType) {
+                fWarningList.add((WarningType)issue);
+            }
+            if(issue instanceof AdviceType) {
+                fAdviceList.add((AdviceType)issue);
+            }
+        }
+    }
+
+    private List<Object> createResult() {
+        List<Object> result = new ArrayList<Object>();
+
+        if(!fErrorList.isEmpty()) {
+            result.add(fErrorsCategory);
+        }
+
+        if(!fWarningList.isEmpty()) {
+            result.add(fWarningsCategory);
+        }
+
+        if(!fAdviceList.isEmpty()) {
+            result.add(fAdviceCategory);
+        }
+
+        if(result.isEmpty()) {
+            // Keep the same OK instance if there are still no issues
+            if(fResult != null && fResult.size() == 1 && fResult.get(0) instanceof OKType) {
+                return fResult;
+            }
+            result.add(new OKType());
+        }
+
+        return result;
+    }
+
+    private Set<IArchimateElement> getElementsOfType(EClass type) {
+        Set<IArchimateElement> elements = fElementsByType.get(type);
+        if(elements == null) {
+            elements = new LinkedHashSet<IArchimateElement>();
+            fElementsByType.put(type, elements);
+        }
+        return elements;
+    }
+
+    private boolean isInModel(EObject eObject) {
+        return eObject.eContainer() != null && EcoreUtil.getRootContainer(eObject) == fModel;
+    }
+
+    /**
+     * Mark the concept or View that an object belongs to as dirty
+     */
+    private void markDirty(EObject eObject) {
+        for(; eObject != null; eObject = eObject.eContainer()) {
+            if(eObject instanceof IArchimateConcept) {
+                markConceptDirty((IArchimateConcept)eObject);
+                return;
+            }
+
+            // A diagram component that is added, removed or reconnected changes whether its concept is used in a View
+            if(eObject instanceof IDiagramModelArchimateComponent) {
+                markConceptDirty(((IDiagramModelArchimateComponent)eObject).getArchimateConcept());
+            }
+
+            if(eObject instanceof IArchimateDiagramModel) {
+                fDirtyViews.add((IArchimateDiagramModel)eObject);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Mark an added or removed object and all of its contents as dirty
+     */
+    private void markTreeDirty(EObject eObject) {
+        markDirty(eObject);
+
+        if(eObject instanceof IArchimateElement) {
+            fDirtyTypes.add(eObject.eClass());
+        }
+
+        for(Iterator<EObject> iter = eObject.eAllContents(); iter.hasNext();) {
+            EObject child = iter.next();
+
+            if(child instanceof IArchimateConcept || child instanceof IDiagramModelArchimateComponent
+                    || child instanceof IArchimateDiagramModel) {
+                markDirty(child);
+            }
+
+            if(child instanceof IArchimateElement) {
+                fDirtyTypes.add(child.eClass());
+            }
+        }
+    }
+
+    private void markConceptDirty(IArchimateConcept concept) {
+        if(concept == null || !fDirtyConcepts.add(concept)) {
+            return;
+        }
+
+        // Views that show the concept. Issue descriptions contain names, and nesting depends on relations
+        markReferencingViewsDirty(concept);
+
+        // The source and target of a relation, as they might be Junctions and nesting in Views depends on their relations
+        if(concept instanceof IArchimateRelationship) {
+            IArchimateRelationship relation = (IArchimateRelationship)concept;
+
+            for(IArchimateConcept end : new IArchimateConcept[] { relation.getSource(), relation.getTarget() }) {
+                if(end != null) {
+                    fDirtyConcepts.add(end);
+                    markReferencingViewsDirty(end);
+                }
+            }
+        }
+    }
+
+    private void markReferencingViewsDirty(IArchimateConcept concept) {
+        for(IDiagramModelArchimateComponent dmc : concept.getReferencingDiagramComponents()) {
+            IDiagramModel dm = dmc.getDiagramModel();
+            if(dm instanceof IArchimateDiagramModel) {
+                fDirtyViews.add((IArchimateDiagramModel)dm);
+            }
+        }
+    }
+
+    private List<Object> getValues(Notification msg) {
+        List<Object> values = new ArrayList<Object>();
+
+        for(Object value : new Object[] { msg.getOldValue(), msg.getNewValue() }) {
+            if(value instanceof Collection<?>) {
+                values.addAll((Collection<?>)value);
+            }
+            else if(value != null) {
+                values.add(value);
+            }
+        }
+
+        return values;
+    }
+}
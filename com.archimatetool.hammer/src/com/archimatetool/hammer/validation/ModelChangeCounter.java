@@ -0,0 +1,69 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.archimatetool.model.IArchimateModel;
+
+
+/**
+ * Counts the changes made to a model.<p>
+ *
+ * Validation reads the model in a background thread while the user can still edit it. Nothing stops an edit from happening
+ * while the checkers read the model, so a validation that ran while the count changed might have failed or found the wrong issues,
+ * and should be run again.<p>
+ *
+ * notifyChanged() is called in the UI thread, the count can be read in any thread.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ModelChangeCounter {
+
+    private IArchimateModel fModel;
+    private AtomicLong fCount = new AtomicLong();
+
+    public ModelChangeCounter(IArchimateModel model) {
+        fModel = model;
+    }
+
+    public IArchimateModel getModel() {
+        return fModel;
+    }
+
+    /**
+     * Count a model notification. Notifications for other models are ignored.
+     * @param msg The notification
+     */
+    public void notifyChanged(Notification msg) {
+        if(msg.isTouch() || !(msg.getNotifier() instanceof EObject)) {
+            return;
+        }
+
+        if(EcoreUtil.getRootContainer((EObject)msg.getNotifier()) == fModel) {
+            fCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return The number of changes made to the model so far
+     */
+    public long getCount() {
+        return fCount.get();
+    }
+
+    /**
+     * @param count A count returned by getCount()
+     * @return true if the model has changed since getCount() returned count
+     */
+    public boolean hasChangedSince(long count) {
+        return fCount.get() != count;
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.archimatetool.editor.ArchiPlugin;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.hammer.validation.issues.AdviceType;
+import com.archimatetool.hammer.validation.issues.ErrorType;
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.hammer.validation.issues.WarningType;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IIdentifier;
+
+
+/**
+ * Cache of the issues found by each checker for each model object, keyed by a hash of what the checker reads from the object.<p>
+ *
+ * Used by LiveValidator so that only objects that have changed since the last validation are checked again.
+ * The cache is saved to a file in the user data folder for each model, so that it can be used from one session to the next.
+ * If the checkers or their settings change then the cache is cleared.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ValidationCache {
+
+    private static final int FILE_VERSION = 1;
+
+    private static final byte ERROR = 0;
+    private static final byte WARNING = 1;
+    private static final byte ADVICE = 2;
+
+    /**
+     * An issue as stored in the cache
+     */
+    private static class CachedIssue {
+        byte type;
+        String name;
+        String description;
+        String explanation;
+        String objectId;
+    }
+
+    private static class Entry {
+        long hash;
+        CachedIssue[] issues;
+    }
+
+    private File fFile;
+    private String fConfiguration = ""; //$NON-NLS-1$
+    private Map<String, Entry> fEntries = new HashMap<String, Entry>();
+
+    // Keys used since startPass()
+    private Set<String> fUsedKeys;
+
+    private int fHits, fMisses;
+
+    /**
+     * @return The file that the cache of a model is saved to.
+     *         This is named after the model's id and file, as copies of a model file have the same id but can be different.
+     */
+    public static File getCacheFile(IArchimateModel model) {
+        String name = model.getId();
+
+        if(model.getFile() != null) {
+            String path = model.getFile().getAbsolutePath();
+            name += "-" + UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+        }
+
+        return new File(ArchiPlugin.INSTANCE.getUserDataFolder(), "validation/" + name + ".cache"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * Create an empty cache for a model and load it from its file if there is one
+     */
+    public static ValidationCache load(IArchimateModel model) {
+        return load(getCacheFile(model));
+    }
+
+    /**
+     * Create an empty cache and load it from file if there is one. If the file can't be read the cache is empty.
+     */
+    public static ValidationCache load(File file) {
+        ValidationCache cache = new ValidationCache(file);
+
+        if(file != null && file.exists()) {
+            try {
+                cache.read();
+            }
+            catch(IOException ex) {
+                cache.fEntries.clear();
+                cache.fConfiguration = ""; //$NON-NLS-1$
+            }
+        }
+
+        return cache;
+    }
+
+    /**
+     * @param file The file to save to, or null to keep the cache in memory only
+     */
+    public ValidationCache(File file) {
+        fFile = file;
+    }
+
+    /**
+     * Set the checkers and settings that the cached issues are for. If they are different from those of the cached issues the cache is cleared.
+     */
+    synchronized void setConfiguration(String configuration) {
+        if(!configuration.equals(fConfiguration)) {
+            fEntries.clear();
+            fConfiguration = configuration;
+        }
+    }
+
+    /**
+     * Start a validation of the whole model. Entries that are not used before endPass() are removed.
+     */
+    synchronized void startPass() {
+        fUsedKeys = new HashSet<String>();
+        fHits = 0;
+        fMisses = 0;
+    }
+
+    /**
+     * End a validation of the whole model and remove the entries of objects that no longer exist
+     */
+    synchronized void endPass() {
+        if(fUsedKeys != null) {
+            fEntries.keySet().retainAll(fUsedKeys);
+            fUsedKeys = null;
+        }
+    }
+
+    /**
+     * Get the cached issues for an object
+     * @param key The checker and object key
+     * @param hash The hash of the object's inputs
+     * @param resolver Finds the object of a cached issue from its id
+     * @return The issues, or null if there are none cached for this hash or the objects of the issues can't be found
+     */
+    synchronized List<IIssue> get(String key, long hash, Function<String, Object> resolver) {
+        if(fUsedKeys != null) {
+            fUsedKeys.add(key);
+        }
+
+        Entry entry = fEntries.get(key);
+        if(entry == null || entry.hash != hash) {
+            fMisses++;
+            return null;
+        }
+
+        List<IIssue> issues = new ArrayList<IIssue>(entry.issues.length);
+
+        for(CachedIssue cachedIssue : entry.issues) {
+            Object object = resolver.apply(cachedIssue.objectId);
+            if(object == null) {
+                fMisses++;
+                return null;
+            }
+            issues.add(createIssue(cachedIssue, object));
+        }
+
+        fHits++;
+        return issues;
+    }
+
+    /**
+     * Store the issues for an object. Issues whose object does not have an id are not cached, and nor is the object.
+     * @param key The checker and object key
+     * @param hash The hash of the object's inputs
+     * @param issues The issues found for the object
+     */
+    synchronized void put(String key, long hash, List<IIssue> issues) {
+        if(fUsedKeys != null) {
+            fUsedKeys.add(key);
+        }
+
+        CachedIssue[] cachedIssues = new CachedIssue[issues.size()];
+
+        for(int i = 0; i < cachedIssues.length; i++) {
+            IIssue issue = issues.get(i);
+            String objectId = issue.getObject() instanceof IIdentifier ? ((IIdentifier)issue.getObject()).getId() : null;
+            if(objectId == null) {
+                fEntries.remove(key);
+                return;
+            }
+
+            CachedIssue cachedIssue = new CachedIssue();
+            cachedIssue.type = issue instanceof ErrorType ? ERROR : issue instanceof WarningType ? WARNING : ADVICE;
+            cachedIssue.name = StringUtils.safeString(issue.getName());
+            cachedIssue.description = StringUtils.safeString(issue.getDescription());
+            cachedIssue.explanation = StringUtils.safeString(issue.getExplanation());
+            cachedIssue.objectId = objectId;
+            cachedIssues[i] = cachedIssue;
+        }
+
+        Entry entry = new Entry();
+        entry.hash = hash;
+        entry.issues = cachedIssues;
+        fEntries.put(key, entry);
+    }
+
+    /**
+     * Remove the issues for an object
+     */
+    synchronized void remove(String key) {
+        fEntries.remove(key);
+    }
+
+    /**
+     * @return The number of entries
+     */
+    public synchronized int size() {
+        return fEntries.size();
+    }
+
+    /**
+     * @return The number of objects whose issues were taken from the cache since the last validation of the whole model started
+     */
+    public synchronized int getHitCount() {
+        return fHits;
+    }
+
+    /**
+     * @return The number of objects that were checked since the last validation of the whole model started
+     */
+    public synchronized int getMissCount() {
+        return fMisses;
+    }
+
+    /**
+     * Save the cache to its file
+     */
+    public synchronized void save() throws IOException {
+        if(fFile == null) {
+            return;
+        }
+
+        fFile.getParentFile().mkdirs();
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(fFile))))) {
+            out.writeInt(FILE_VERSION);
+            out.writeUTF(fConfiguration);
+            out.writeInt(fEntries.size());
+
+            for(Map.Entry<String, Entry> mapEntry : fEntries.entrySet()) {
+                Entry entry = mapEntry.getValue();
+                out.writeUTF(mapEntry.getKey());
+                out.writeLong(entry.hash);
+                out.writeInt(entry.issues.length);
+
+                for(CachedIssue issue : entry.issues) {
+                    out.writeByte(issue.type);
+                    out.writeUTF(issue.name);
+                    out.writeUTF(issue.description);
+                    out.writeUTF(issue.explanation);
+                    out.writeUTF(issue.objectId);
+                }
+            }
+        }
+    }
+
+    private void read() throws IOException {
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(fFile))))) {
+            if(in.readInt() != FILE_VERSION) {
+                return;
+            }
+
+            fConfiguration = in.readUTF();
+
+            // Names and explanations are shared by many issues
+            Map<String, String> strings = new HashMap<String, String>();
+
+            int size = in.readInt();
+            for(int i = 0; i < size; i++) {
+                String key = in.readUTF();
+
+                Entry entry = new Entry();
+                entry.hash = in.readLong();
+                entry.issues = new CachedIssue[in.readInt()];
+
+                for(int j = 0; j < entry.issues.length; j++) {
+                    CachedIssue issue = new CachedIssue();
+                    issue.type = in.readByte();
+                    issue.name = share(strings, in.readUTF());
+                    issue.description = in.readUTF();
+                    issue.explanation = share(strings, in.readUTF());
+                    issue.objectId = in.readUTF();
+                    entry.issues[j] = issue;
+                }
+
+                fEntries.put(key, entry);
+            }
+        }
+    }
+
+    private String share(Map<String, String> strings, String s) {
+        String shared = strings.putIfAbsent(s, s);
+        return shared != null ? shared : s;
+    }
+
+    private IIssue createIssue(CachedIssue cachedIssue, Object object) {
+        switch(cachedIssue.type) {
+            case ERROR:
+                return new ErrorType(cachedIssue.name, cachedIssue.description, cachedIssue.explanation, object);
+            case WARNING:
+                return new WarningType(cachedIssue.name, cachedIssue.description, cachedIssue.explanation, object);
+            default:
+                return new AdviceType(cachedIssue.name, cachedIssue.description, cachedIssue.explanation, object);
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    public synchronized void clear() {
+        fEntries.clear();
+    }
+}
@@ -6,9 +6,21 @@
 package com.archimatetool.hammer.validation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.jface.preference.IPreferenceStore;
 
@@ -41,6 +53,9 @@ import com.archimatetool.model.IArchimateRelationship;
 /**
  * Validator
  * 
+ * The model is read once to collect its elements, relations and views into unmodifiable lists that are shared by all checkers.
+ * The checkers are independent and only read the model so they are run in parallel on the common Fork/Join pool.
+ * 
  * @author Phillip Beauvoir
  */
 public class Validator {
@@ -54,6 +69,9 @@ public class Validator {
     private List<ErrorType> fErrorList;
     private List<WarningType> fWarningList;
     private List<AdviceType> fAdviceList;
+    
+    private Map<String, Long> fCheckerTimings;
+    private Map<String, List<IIssue>> fCheckerIssues;
 
     
     public Validator(IArchimateModel model) {
@@ -64,29 +82,46 @@ public class Validator {
      * @return The list of Issue Categories and Issues
      */
     public List<Object> validate() {
+        return validate(new NullProgressMonitor());
+    }
+    
+    /**
+     * @param monitor Progress monitor which is checked for cancellation while the checkers run
+     * @return The list of Issue Categories and Issues
+     * @throws OperationCanceledException if the monitor is cancelled
+     */
+    public List<Object> validate(IProgressMonitor monitor) {
         if(fModel == null) {
             return null;
         }
         
         // Collect interesting objects
-        fElements = new ArrayList<IArchimateElement>();
-        fRelations = new ArrayList<IArchimateRelationship>();
-        fViews = new ArrayList<IArchimateDiagramModel>();
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        List<IArchimateRelationship> relations = new ArrayList<IArchimateRelationship>();
+        List<IArchimateDiagramModel> views = new ArrayList<IArchimateDiagramModel>();
         
         for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
             EObject eObject = iter.next();
             
             if(eObject instanceof IArchimateRelationship) {
-                fRelations.add((IArchimateRelationship)eObject);
+                relations.add((IArchimateRelationship)eObject);
             }
             else if(eObject instanceof IArchimateElement) {
-                fElements.add((IArchimateElement)eObject);
+                IArchimateElement element = (IArchimateElement)eObject;
+                // Relationship lists are created lazily so create them here rather than in the checkers' threads
+                element.getSourceRelationships();
+                element.getTargetRelationships();
+                elements.add(element);
             }
             else if(eObject instanceof IArchimateDiagramModel) {
-                fViews.add((IArchimateDiagramModel)eObject);
+                views.add((IArchimateDiagramModel)eObject);
             }
         }
         
+        fElements = Collections.unmodifiableList(elements);
+        fRelations = Collections.unmodifiableList(relations);
+        fViews = Collections.unmodifiableList(views);
+        
         // Analyse
         List<Object> result = new ArrayList<Object>();
         
@@ -98,47 +133,53 @@ public class Validator {
         
         IPreferenceStore store = ArchiHammerPlugin.INSTANCE.getPreferenceStore();
         
+        List<IChecker> checkers = new ArrayList<IChecker>();
+        
         // Invalid Relations
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_INVALID_RELATIONS)) {
-            collectIssues(new InvalidRelationsChecker(getArchimateRelationships()));
+            checkers.add(new InvalidRelationsChecker(getArchimateRelationships()));
         }
         
         // Unused Elements
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_UNUSED_ELEMENTS)) {
-            collectIssues(new UnusedElementsChecker(getArchimateElements()));
+            checkers.add(new UnusedElementsChecker(getArchimateElements()));
         }
         
         // Unused Relations
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_UNUSED_RELATIONS)) {
-            collectIssues(new UnusedRelationsChecker(getArchimateRelationships()));
+            checkers.add(new UnusedRelationsChecker(getArchimateRelationships()));
         }
         
         // Empty Views
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_EMPTY_VIEWS)) {
-            collectIssues(new EmptyViewsChecker(getArchimateViews()));
+            checkers.add(new EmptyViewsChecker(getArchimateViews()));
         }
         
         // Components in wrong Viewpoints
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_VIEWPOINT)) {
-            collectIssues(new ViewpointChecker(getArchimateViews()));
+            checkers.add(new ViewpointChecker(getArchimateViews()));
         }
         
         // Nested elements
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_NESTING)) {
-            collectIssues(new NestedElementsChecker(getArchimateViews()));
+            checkers.add(new NestedElementsChecker(getArchimateViews()));
         }
 
         // Possible Duplicates
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_DUPLICATE_ELEMENTS)) {
-            collectIssues(new DuplicateElementChecker(getArchimateElements()));
+            checkers.add(new DuplicateElementChecker(getArchimateElements(),
+                    store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_SIMILAR_ELEMENTS),
+                    store.getInt(IPreferenceConstants.PREFS_HAMMER_SIMILARITY_THRESHOLD) / 100f));
         }
         
         // Junctions
         if(store.getBoolean(IPreferenceConstants.PREFS_HAMMER_CHECK_JUNCTIONS)) {
-            collectIssues(new JunctionsChecker(getArchimateElements()));
+            checkers.add(new JunctionsChecker(getArchimateElements()));
         }
 
         // ----------------------------------------------------------
+        
+        runCheckers(checkers, monitor);
 
         if(!fErrorList.isEmpty()) {
             IIssueCategory category = new ErrorsCategory(fErrorList);
@@ -162,8 +203,91 @@ public class Validator {
         return result;
     }
     
-    void collectIssues(IChecker checker) {
-        for(IIssue issue : checker.getIssues()) {
+    /**
+     * Run the checkers in parallel and collect their issues in the order of the checkers
+     */
+    void runCheckers(List<IChecker> checkers, IProgressMonitor monitor) {
+        List<CheckerTask> tasks = new ArrayList<CheckerTask>();
+        
+        for(IChecker checker : checkers) {
+            tasks.add(new CheckerTask(checker));
+        }
+        
+        List<List<IIssue>> results = runTasks(tasks, monitor);
+        
+        fCheckerTimings = new LinkedHashMap<String, Long>();
+        fCheckerIssues = new LinkedHashMap<String, List<IIssue>>();
+        
+        for(int i = 0; i < tasks.size(); i++) {
+            CheckerTask task = tasks.get(i);
+            List<IIssue> issues = results.get(i);
+            collectIssues(issues);
+            
+            String name = task.checker.getClass().getSimpleName();
+            fCheckerTimings.put(name, TimeUnit.NANOSECONDS.toMillis(task.time));
+            fCheckerIssues.put(name, Collections.unmodifiableList(issues));
+        }
+    }
+    
+    /**
+     * Run tasks in parallel on the common Fork/Join pool and wait for all of them, checking the monitor for cancellation
+     * @return The results of the tasks in the same order as the tasks
+     * @throws OperationCanceledException if the monitor is cancelled
+     */
+    static <T> List<T> runTasks(List<? extends ForkJoinTask<T>> tasks, IProgressMonitor monitor) {
+        for(ForkJoinTask<T> task : tasks) {
+            ForkJoinPool.commonPool().execute(task);
+        }
+        
+        List<T> results = new ArrayList<T>();
+        
+        for(ForkJoinTask<T> task : tasks) {
+            results.add(waitFor(task, tasks, monitor));
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Wait for a task to complete, checking the monitor for cancellation
+     */
+    private static <T> T waitFor(ForkJoinTask<T> task, List<? extends ForkJoinTask<?>> tasks, IProgressMonitor monitor) {
+        for(;;) {
+            if(monitor.isCanceled()) {
+                cancel(tasks);
+                throw new OperationCanceledException();
+            }
+            
+            try {
+                return task.get(100, TimeUnit.MILLISECONDS);
+            }
+            catch(TimeoutException ex) {
+                // Check the monitor again
+            }
+            catch(InterruptedException ex) {
+                cancel(tasks);
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            }
+            catch(ExecutionException ex) {
+                cancel(tasks);
+                if(ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException)ex.getCause();
+                }
+                throw new RuntimeException(ex.getCause());
+            }
+        }
+    }
+    
+    private static void cancel(List<? extends ForkJoinTask<?>> tasks) {
+        // Tasks that have not yet started will not run. Those that have will finish and their results are discarded.
+        for(ForkJoinTask<?> task : tasks) {
+            task.cancel(false);
+        }
+    }
+    
+    void collectIssues(List<IIssue> issues) {
+        for(IIssue issue : issues) {
             if(issue instanceof ErrorType) {
                 fErrorList.add((ErrorType)issue);
             }
@@ -180,15 +304,60 @@ public class Validator {
         return fModel;
     }
     
+    /**
+     * @return The elements of the model as an unmodifiable list
+     */
     public List<IArchimateElement> getArchimateElements() {
-        return new ArrayList<IArchimateElement>(fElements); // copy
+        return fElements;
     }
     
+    /**
+     * @return The relations of the model as an unmodifiable list
+     */
     public List<IArchimateRelationship> getArchimateRelationships() {
-        return new ArrayList<IArchimateRelationship>(fRelations); // copy
+        return fRelations;
     }
     
+    /**
+     * @return The views of the model as an unmodifiable list
+     */
     public List<IArchimateDiagramModel> getArchimateViews() {
-        return new ArrayList<IArchimateDiagramModel>(fViews); // copy
+        return fViews;
+    }
+    
+    /**
+     * @return The time taken in milliseconds by each checker in the last validation, keyed by checker class name
+     */
+    public Map<String, Long> getCheckerTimings() {
+        return fCheckerTimings == null ? Collections.<String, Long>emptyMap() : Collections.unmodifiableMap(fCheckerTimings);
+    }
+    
+    /**
+     * @return The issues found by each checker in the last validation, keyed by checker class name in the order the checkers were run
+     */
+    public Map<String, List<IIssue>> getCheckerIssues() {
+        return fCheckerIssues == null ? Collections.<String, List<IIssue>>emptyMap() : Collections.unmodifiableMap(fCheckerIssues);
+    }
+    
+    /**
+     * Runs a checker and records the time taken
+     */
+    private static class CheckerTask extends RecursiveTask<List<IIssue>> {
+        private static final long serialVersionUID = 1L;
+        
+        private final IChecker checker;
+        private long time;
+        
+        CheckerTask(IChecker checker) {
+            this.checker = checker;
+        }
+
+        @Override
+        protected List<IIssue> compute() {
+            long start = System.nanoTime();
+            List<IIssue> issues = checker.getIssues();
+            time = System.nanoTime() - start;
+            return issues;
+        }
     }
 }
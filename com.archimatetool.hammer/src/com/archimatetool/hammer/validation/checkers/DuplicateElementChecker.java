@@ -6,10 +6,16 @@
 package com.archimatetool.hammer.validation.checkers;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import org.eclipse.emf.ecore.EClass;
 import org.eclipse.osgi.util.NLS;
 
 import com.archimatetool.editor.ui.ArchiLabelProvider;
@@ -21,64 +27,334 @@ import com.archimatetool.model.IArchimatePackage;
 
 
 /**
- * Checks for possible duplicates of elements of the same type
- * 
+ * Checks for possible duplicates of elements of the same type<p>
+ *
+ * Elements are grouped on their type and normalised name so that exact duplicates are found in one pass.
+ * Optionally, elements with similar names are also found. Names are split into character trigrams and a MinHash
+ * signature is calculated for each name. Signatures are banded (Locality Sensitive Hashing) so that only names that
+ * share a band are compared, and the candidates are then checked against the similarity threshold.
+ *
  * @author Phillip Beauvoir
  */
 public class DuplicateElementChecker implements IChecker {
-    
+
     final String NAME = Messages.DuplicateElementChecker_0;
     final String DESCRIPTION = Messages.DuplicateElementChecker_1;
     final String EXPLANATION = Messages.DuplicateElementChecker_2;
-    
+    final String SIMILAR_DESCRIPTION = Messages.DuplicateElementChecker_3;
+
+    /**
+     * Default similarity threshold (Jaccard index of name trigrams) for similar names
+     */
+    public static final float DEFAULT_SIMILARITY_THRESHOLD = 0.45f;
+
+    static final int SHINGLE_SIZE = 3;
+    static final int NUM_HASHES = 64;
+
+    /**
+     * With fewer rows per band nearly every name shares a bucket with every other name and the comparison becomes quadratic
+     */
+    static final int MIN_ROWS_PER_BAND = 2;
+
+    private static final long SEED = 0x5DEECE66DL;
+
     private List<IArchimateElement> fArchimateElements;
-    
+    private boolean fFindSimilar;
+    private float fSimilarityThreshold = DEFAULT_SIMILARITY_THRESHOLD;
+
     public DuplicateElementChecker(List<IArchimateElement> archimateElements) {
         fArchimateElements = archimateElements;
     }
 
+    /**
+     * @param archimateElements The elements to check
+     * @param findSimilar If true also find elements of the same type that have similar names
+     * @param similarityThreshold The similarity of two names, from 0 to 1, at or above which they are considered similar
+     */
+    public DuplicateElementChecker(List<IArchimateElement> archimateElements, boolean findSimilar, float similarityThreshold) {
+        fArchimateElements = archimateElements;
+        fFindSimilar = findSimilar;
+        fSimilarityThreshold = similarityThreshold;
+    }
+
     @Override
     public List<IIssue> getIssues() {
-        return findDuplicateNamesElements();
+        List<IIssue> issues = findDuplicateNamesElements();
+
+        if(fFindSimilar) {
+            issues.addAll(findSimilarNamesElements());
+        }
+
+        return issues;
     }
-    
+
     List<IIssue> findDuplicateNamesElements() {
         List<IIssue> issues = new ArrayList<IIssue>();
-        
-        Set<IArchimateElement> dupes = new LinkedHashSet<IArchimateElement>();
-        
-        for(int i = 0; i < fArchimateElements.size(); i++) {
-            for(int j = i + 1; j < fArchimateElements.size(); j++) {
-                IArchimateElement element1 = fArchimateElements.get(i);
-                IArchimateElement element2 = fArchimateElements.get(j);
-                if(isDuplicate(element1, element2)) {
-                    dupes.add(element1);
-                    dupes.add(element2);
+
+        // Group elements on type and normalised name, keeping the order in which they were first found
+        Map<DuplicateKey, List<IArchimateElement>> groups = new LinkedHashMap<DuplicateKey, List<IArchimateElement>>();
+
+        for(IArchimateElement element : fArchimateElements) {
+            if(isIgnored(element)) {
+                continue;
+            }
+
+            DuplicateKey key = new DuplicateKey(element.eClass(), normalise(element.getName()));
+            List<IArchimateElement> group = groups.get(key);
+            if(group == null) {
+                group = new ArrayList<IArchimateElement>(1);
+                groups.put(key, group);
+            }
+            group.add(element);
+        }
+
+        for(List<IArchimateElement> group : groups.values()) {
+            if(group.size() > 1) {
+                for(IArchimateElement element : group) {
+                    String description = NLS.bind(DESCRIPTION, new Object[] { element.getName(),
+                            ArchiLabelProvider.INSTANCE.getDefaultName(element.eClass()) });
+
+                    IIssue issue = new WarningType(NAME, description, EXPLANATION, element);
+                    issues.add(issue);
+                }
+            }
+        }
+
+        return issues;
+    }
+
+    List<IIssue> findSimilarNamesElements() {
+        List<IIssue> issues = new ArrayList<IIssue>();
+
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        List<String> names = new ArrayList<String>();
+        List<Set<String>> shingles = new ArrayList<Set<String>>();
+
+        for(IArchimateElement element : fArchimateElements) {
+            String name = normalise(element.getName());
+            if(!isIgnored(element) && name.length() > 0) {
+                elements.add(element);
+                names.add(name);
+                shingles.add(getShingles(name));
+            }
+        }
+
+        int size = elements.size();
+
+        // The best match for each element
+        IArchimateElement[] bestMatches = new IArchimateElement[size];
+        float[] bestSimilarities = new float[size];
+
+        // Candidate pairs are elements of the same type that share at least one band of their signatures
+        int rows = getRowsPerBand(fSimilarityThreshold);
+        int bands = NUM_HASHES / rows;
+        long[][] hashFunctions = createHashFunctions();
+
+        Map<Long, List<Integer>> buckets = new HashMap<Long, List<Integer>>();
+
+        for(int i = 0; i < size; i++) {
+            int[] signature = getSignature(shingles.get(i), hashFunctions);
+            int typeHash = elements.get(i).eClass().hashCode();
+
+            for(int band = 0; band < bands; band++) {
+                long bandHash = typeHash * 31L + band;
+                for(int row = 0; row < rows; row++) {
+                    bandHash = bandHash * 31L + signature[band * rows + row];
+                }
+
+                List<Integer> bucket = buckets.get(bandHash);
+                if(bucket == null) {
+                    bucket = new ArrayList<Integer>(1);
+                    buckets.put(bandHash, bucket);
+                }
+                bucket.add(i);
+            }
+        }
+
+        Set<Long> compared = new HashSet<Long>();
+
+        for(List<Integer> bucket : buckets.values()) {
+            for(int i = 0; i < bucket.size(); i++) {
+                for(int j = i + 1; j < bucket.size(); j++) {
+                    int index1 = bucket.get(i);
+                    int index2 = bucket.get(j);
+
+                    if(!compared.add((long)index1 * size + index2)) {
+                        continue;
+                    }
+
+                    IArchimateElement element1 = elements.get(index1);
+                    IArchimateElement element2 = elements.get(index2);
+
+                    // Different types sharing a bucket hash, or exact duplicates which are already reported
+                    if(element1.eClass() != element2.eClass() || names.get(index1).equals(names.get(index2))) {
+                        continue;
+                    }
+
+                    float similarity = getSimilarity(shingles.get(index1), shingles.get(index2));
+                    if(similarity >= fSimilarityThreshold) {
+                        if(similarity > bestSimilarities[index1]) {
+                            bestSimilarities[index1] = similarity;
+                            bestMatches[index1] = element2;
+                        }
+                        if(similarity > bestSimilarities[index2]) {
+                            bestSimilarities[index2] = similarity;
+                            bestMatches[index2] = element1;
+                        }
+                    }
                 }
             }
         }
-        
-        for(IArchimateElement element : dupes) {
-            String description = NLS.bind(DESCRIPTION, new Object[] { element.getName(),
-                    ArchiLabelProvider.INSTANCE.getDefaultName(element.eClass()) });
 
-            IIssue issue = new WarningType(NAME, description, EXPLANATION, element);
-            issues.add(issue);
+        for(int i = 0; i < size; i++) {
+            if(bestMatches[i] != null) {
+                IArchimateElement element = elements.get(i);
+                String description = NLS.bind(SIMILAR_DESCRIPTION, new Object[] { element.getName(), bestMatches[i].getName(),
+                        ArchiLabelProvider.INSTANCE.getDefaultName(element.eClass()) });
+
+                IIssue issue = new WarningType(NAME, description, EXPLANATION, element);
+                issues.add(issue);
+            }
         }
-        
+
         return issues;
     }
-    
-    private boolean isDuplicate(IArchimateElement element1, IArchimateElement element2) {
+
+    private boolean isIgnored(IArchimateElement element) {
         // Ignore Junctions as these tend to just be called "Junction" or may well have a common name like "Or" or "And"
-        if(element1.eClass() == IArchimatePackage.eINSTANCE.getJunction() &&
-                element2.eClass() == IArchimatePackage.eINSTANCE.getJunction()) {
-            return false;
-        }
-        
-        String name1 = StringUtils.safeString(element1.getName());
-        String name2 = StringUtils.safeString(element2.getName());
-        
-        return name1.equals(name2) && (element1.eClass() == element2.eClass());
+        return element.eClass() == IArchimatePackage.eINSTANCE.getJunction();
+    }
+
+    /**
+     * @return The name trimmed, in lower case, and with runs of white space replaced by one space
+     */
+    static String normalise(String name) {
+        name = StringUtils.safeString(name).trim();
+
+        StringBuilder sb = new StringBuilder(name.length());
+        boolean space = false;
+
+        for(int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(Character.isWhitespace(c)) {
+                space = true;
+            }
+            else {
+                if(space) {
+                    sb.append(' ');
+                    space = false;
+                }
+                sb.append(c);
+            }
+        }
+
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return The set of character trigrams in name, padded with a space at either end so that short names have at least one
+     */
+    static Set<String> getShingles(String name) {
+        String padded = " " + name + " "; //$NON-NLS-1$ //$NON-NLS-2$
+        Set<String> shingles = new HashSet<String>();
+
+        for(int i = 0; i + SHINGLE_SIZE <= padded.length(); i++) {
+            shingles.add(padded.substring(i, i + SHINGLE_SIZE));
+        }
+
+        return shingles;
+    }
+
+    /**
+     * @return The Jaccard index of two sets of shingles
+     */
+    static float getSimilarity(Set<String> shingles1, Set<String> shingles2) {
+        if(shingles1.size() > shingles2.size()) {
+            Set<String> tmp = shingles1;
+            shingles1 = shingles2;
+            shingles2 = tmp;
+        }
+
+        int intersection = 0;
+        for(String s : shingles1) {
+            if(shingles2.contains(s)) {
+                intersection++;
+            }
+        }
+
+        int union = shingles1.size() + shingles2.size() - intersection;
+        return union == 0 ? 0 : (float)intersection / union;
+    }
+
+    /**
+     * The number of signature rows per band determines the similarity at which names are likely to become candidates,
+     * approximately (1 / bands) ^ (1 / rows). Use the most rows that still give good recall below the threshold.
+     * This is never less than MIN_ROWS_PER_BAND, so at very low thresholds some similar names might not be found.
+     */
+    static int getRowsPerBand(float threshold) {
+        for(int rows = 8; rows > MIN_ROWS_PER_BAND; rows--) {
+            int bands = NUM_HASHES / rows;
+            if(Math.pow(1.0 / bands, 1.0 / rows) <= threshold - 0.1) {
+                return rows;
+            }
+        }
+        return MIN_ROWS_PER_BAND;
+    }
+
+    private static long[][] createHashFunctions() {
+        Random random = new Random(SEED);
+        long[][] functions = new long[NUM_HASHES][2];
+        for(int i = 0; i < NUM_HASHES; i++) {
+            functions[i][0] = random.nextLong() | 1;
+            functions[i][1] = random.nextLong();
+        }
+        return functions;
+    }
+
+    private static int[] getSignature(Set<String> shingles, long[][] hashFunctions) {
+        int[] signature = new int[NUM_HASHES];
+
+        for(int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = Integer.MAX_VALUE;
+        }
+
+        for(String shingle : shingles) {
+            long hash = shingle.hashCode();
+            for(int i = 0; i < NUM_HASHES; i++) {
+                int value = (int)((hash * hashFunctions[i][0] + hashFunctions[i][1]) >>> 33);
+                if(value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+
+        return signature;
+    }
+
+    /**
+     * Key to group elements by type and name
+     */
+    private static class DuplicateKey {
+        EClass eClass;
+        String name;
+
+        DuplicateKey(EClass eClass, String name) {
+            this.eClass = eClass;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return eClass.hashCode() * 31 + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(!(obj instanceof DuplicateKey)) {
+                return false;
+            }
+            DuplicateKey other = (DuplicateKey)obj;
+            return eClass == other.eClass && name.equals(other.name);
+        }
     }
 }
@@ -12,6 +12,8 @@ public class Messages extends NLS {
 
     public static String DuplicateElementChecker_2;
 
+    public static String DuplicateElementChecker_3;
+
     public static String EmptyViewsChecker_0;
 
     public static String EmptyViewsChecker_1;
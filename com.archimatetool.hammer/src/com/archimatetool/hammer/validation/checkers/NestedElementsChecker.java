@@ -5,7 +5,6 @@
  */
 package com.archimatetool.hammer.validation.checkers;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -53,35 +52,34 @@ public class NestedElementsChecker implements IChecker {
     
     // Nested diagram elements without correct relationships
     List<IIssue> findWrongNestedElements() {
-        List<IIssue> issues = new ArrayList<IIssue>();
-        
-        for(IArchimateDiagramModel dm : fViews) {
-            for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
-                EObject eObject = iter.next();
+        // Views are checked in parallel chunks
+        return ViewsCheckTask.check(fViews, this::findWrongNestedElements);
+    }
+    
+    void findWrongNestedElements(IArchimateDiagramModel dm, List<IIssue> issues) {
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            
+            if(eObject instanceof IDiagramModelArchimateObject) {
+                IDiagramModelArchimateObject parent = (IDiagramModelArchimateObject)eObject;
                 
-                if(eObject instanceof IDiagramModelArchimateObject) {
-                    IDiagramModelArchimateObject parent = (IDiagramModelArchimateObject)eObject;
-                    
-                    for(IDiagramModelObject dmoChild : parent.getChildren()) {
-                        if(dmoChild instanceof IDiagramModelArchimateObject) {
-                            IDiagramModelArchimateObject child = (IDiagramModelArchimateObject)dmoChild;
+                for(IDiagramModelObject dmoChild : parent.getChildren()) {
+                    if(dmoChild instanceof IDiagramModelArchimateObject) {
+                        IDiagramModelArchimateObject child = (IDiagramModelArchimateObject)dmoChild;
+                        
+                        if(isNestedWithoutValidRelation(parent, child)) {
+                            String description =  NLS.bind(fDescription, new Object[] {
+                                    child.getName(),
+                                    parent.getName()
+                            });
                             
-                            if(isNestedWithoutValidRelation(parent, child)) {
-                                String description =  NLS.bind(fDescription, new Object[] {
-                                        child.getName(),
-                                        parent.getName()
-                                });
-                                
-                                IIssue issue = new AdviceType(fName, description, fExplanation, child);
-                                issues.add(issue);
-                            }
+                            IIssue issue = new AdviceType(fName, description, fExplanation, child);
+                            issues.add(issue);
                         }
                     }
                 }
             }
         }
-        
-        return issues;
     }
 
     boolean isNestedWithoutValidRelation(IDiagramModelArchimateObject parent, IDiagramModelArchimateObject child) {
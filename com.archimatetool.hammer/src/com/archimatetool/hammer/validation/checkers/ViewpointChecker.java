@@ -5,7 +5,6 @@
  */
 package com.archimatetool.hammer.validation.checkers;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -47,27 +46,26 @@ public class ViewpointChecker implements IChecker {
     }
 
     List<IIssue> findComponentsInWrongViewpoints() {
-        List<IIssue> issues = new ArrayList<IIssue>();
+        // Views are checked in parallel chunks
+        return ViewsCheckTask.check(fViews, this::findComponentsInWrongViewpoint);
+    }
+    
+    void findComponentsInWrongViewpoint(IArchimateDiagramModel dm, List<IIssue> issues) {
+        String id = dm.getViewpoint();
+        IViewpoint viewPoint = ViewpointManager.INSTANCE.getViewpoint(id);
         
-        for(IArchimateDiagramModel dm : fViews) {
-            String id = dm.getViewpoint();
-            IViewpoint viewPoint = ViewpointManager.INSTANCE.getViewpoint(id);
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
             
-            for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
-                EObject eObject = iter.next();
-                
-                if(eObject instanceof IDiagramModelArchimateObject) {
-                    IDiagramModelArchimateObject dmo = (IDiagramModelArchimateObject)eObject;
-                    IArchimateElement element = dmo.getArchimateElement();
-                    if(!viewPoint.isAllowedConcept(element.eClass())) {
-                        IIssue issue = createIssue(dmo, dm.getName(), viewPoint.getName());
-                        issues.add(issue);
-                    }
+            if(eObject instanceof IDiagramModelArchimateObject) {
+                IDiagramModelArchimateObject dmo = (IDiagramModelArchimateObject)eObject;
+                IArchimateElement element = dmo.getArchimateElement();
+                if(!viewPoint.isAllowedConcept(element.eClass())) {
+                    IIssue issue = createIssue(dmo, dm.getName(), viewPoint.getName());
+                    issues.add(issue);
                 }
             }
         }
-        
-        return issues;
     }
     
     IIssue createIssue(Object object, String viewName, String viewpointName) {
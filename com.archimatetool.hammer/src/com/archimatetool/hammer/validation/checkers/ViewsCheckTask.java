@@ -0,0 +1,79 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation.checkers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.model.IArchimateDiagramModel;
+
+
+/**
+ * Checks a list of Views by splitting it into chunks that are checked in parallel.
+ * Issues are returned in the same order as if the Views had been checked one after another.
+ *
+ * @author Phillip Beauvoir
+ */
+class ViewsCheckTask extends RecursiveTask<List<IIssue>> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Check one View and add any issues to the list
+     */
+    interface IViewCheck {
+        void check(IArchimateDiagramModel dm, List<IIssue> issues);
+    }
+
+    /**
+     * Lists of Views this size or smaller are checked in the current thread
+     */
+    static final int CHUNK_SIZE = 8;
+
+    /**
+     * @param views The Views to check
+     * @param viewCheck The check to perform on each View
+     * @return All issues found
+     */
+    static List<IIssue> check(List<IArchimateDiagramModel> views, IViewCheck viewCheck) {
+        return new ViewsCheckTask(views, 0, views.size(), viewCheck).invoke();
+    }
+
+    private final List<IArchimateDiagramModel> views;
+    private final int from, to;
+    private final IViewCheck viewCheck;
+
+    private ViewsCheckTask(List<IArchimateDiagramModel> views, int from, int to, IViewCheck viewCheck) {
+        this.views = views;
+        this.from = from;
+        this.to = to;
+        this.viewCheck = viewCheck;
+    }
+
+    @Override
+    protected List<IIssue> compute() {
+        if(to - from <= CHUNK_SIZE) {
+            List<IIssue> issues = new ArrayList<IIssue>();
+            for(int i = from; i < to; i++) {
+                viewCheck.check(views.get(i), issues);
+            }
+            return issues;
+        }
+
+        int middle = (from + to) >>> 1;
+        ViewsCheckTask left = new ViewsCheckTask(views, from, middle, viewCheck);
+        ViewsCheckTask right = new ViewsCheckTask(views, middle, to, viewCheck);
+
+        left.fork();
+        List<IIssue> issues = right.compute();
+        List<IIssue> leftIssues = left.join();
+
+        leftIssues.addAll(issues);
+        return leftIssues;
+    }
+}
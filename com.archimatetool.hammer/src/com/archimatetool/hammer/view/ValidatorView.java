@@ -7,9 +7,20 @@ package com.archimatetool.hammer.view;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.help.HelpSystem;
 import org.eclipse.help.IContext;
 import org.eclipse.help.IContextProvider;
@@ -31,24 +42,27 @@ import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.StructuredSelection;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.custom.BusyIndicator;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.ISelectionListener;
+import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.IWorkbenchActionConstants;
 import org.eclipse.ui.IWorkbenchPart;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.dialogs.PreferencesUtil;
 import org.eclipse.ui.part.ViewPart;
+import org.eclipse.ui.progress.IWorkbenchSiteProgressService;
 import org.eclipse.ui.views.properties.IPropertySheetPage;
 import org.eclipse.ui.views.properties.tabbed.ITabbedPropertySheetPageContributor;
 import org.eclipse.ui.views.properties.tabbed.TabbedPropertySheetPage;
 
 import com.archimatetool.editor.ArchiPlugin;
+import com.archimatetool.editor.Logger;
 import com.archimatetool.editor.diagram.IDiagramModelEditor;
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.ui.ArchiLabelProvider;
@@ -56,7 +70,12 @@ import com.archimatetool.editor.ui.services.EditorManager;
 import com.archimatetool.editor.ui.services.ViewManager;
 import com.archimatetool.editor.utils.PlatformUtils;
 import com.archimatetool.editor.views.tree.ITreeModelView;
+import com.archimatetool.hammer.ArchiHammerPlugin;
 import com.archimatetool.hammer.IHammerImages;
+import com.archimatetool.hammer.preferences.IPreferenceConstants;
+import com.archimatetool.hammer.validation.LiveValidator;
+import com.archimatetool.hammer.validation.ModelChangeCounter;
+import com.archimatetool.hammer.validation.ValidationCache;
 import com.archimatetool.hammer.validation.Validator;
 import com.archimatetool.hammer.validation.issues.IIssue;
 import com.archimatetool.help.hints.IHintsView;
@@ -77,12 +96,37 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
     private ValidatorViewer fViewer;
     
     private IAction fActionValidate;
+    private IAction fActionCancel;
+    private IAction fActionLiveValidation;
     private IAction fActionExplain;
     private IAction fActionSelectObjects;
     private IAction fActionShowPreferences;
     
     private IArchimateModel fModel;
     
+    private Job fValidateJob;
+    
+    /*
+     * If the model is edited while the Job reads it the validation is run again after this delay in ms
+     */
+    static final int RETRY_DELAY = 200;
+    
+    private ModelChangeCounter fChangeCounter;
+    
+    /*
+     * Live validation. Model changes are applied after this delay in ms, restarting the delay each time the model changes.
+     */
+    static final int LIVE_UPDATE_DELAY = 250;
+    
+    private LiveValidator fLiveValidator;
+    
+    private Runnable fLiveUpdateRunnable = this::runLiveUpdate;
+    
+    /**
+     * Cached validation results of each model, if results are cached
+     */
+    private Map<IArchimateModel, ValidationCache> fCaches = new ConcurrentHashMap<IArchimateModel, ValidationCache>();
+    
     public ValidatorView() {
     }
 
@@ -165,6 +209,39 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
         };
         fActionValidate.setEnabled(false);
         
+        fActionCancel = new Action(Messages.ValidatorView_5) {
+            @Override
+            public void run() {
+                cancelValidation();
+            }
+            
+            @Override
+            public String getToolTipText() {
+                return getText();
+            }
+            
+            @Override
+            public ImageDescriptor getImageDescriptor() {
+                return PlatformUI.getWorkbench().getSharedImages().getImageDescriptor(ISharedImages.IMG_ELCL_STOP);
+            }
+        };
+        fActionCancel.setEnabled(false);
+        
+        fActionLiveValidation = new Action(Messages.ValidatorView_7, IAction.AS_CHECK_BOX) {
+            @Override
+            public void run() {
+                ArchiHammerPlugin.INSTANCE.getPreferenceStore().setValue(IPreferenceConstants.PREFS_HAMMER_LIVE_VALIDATION, isChecked());
+                
+                if(isChecked()) {
+                    validateModel();
+                }
+                else {
+                    stopLiveValidation();
+                }
+            }
+        };
+        fActionLiveValidation.setChecked(isLiveValidation());
+        
         fActionExplain = new Action(Messages.ValidatorView_1) {
             @Override
             public void run() {
@@ -224,10 +301,13 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
         IActionBars bars = getViewSite().getActionBars();
         IToolBarManager manager = bars.getToolBarManager();
         manager.add(fActionValidate);
+        manager.add(fActionCancel);
         manager.add(new Separator());
         manager.add(fActionExplain);
         
         final IMenuManager menuManager = bars.getMenuManager();
+        menuManager.add(fActionLiveValidation);
+        menuManager.add(new Separator());
         menuManager.add(fActionShowPreferences); 
     }
     
@@ -299,7 +379,7 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
             fModel = model;
         }
         
-        fActionValidate.setEnabled(fModel != null);
+        updateActions();
     }
     
     void selectObjects(IStructuredSelection selection) {
@@ -347,22 +427,246 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
     
     @Override
     public void validateModel() {
-        BusyIndicator.showWhile(null, new Runnable() {
+        cancelValidation();
+        stopLiveValidation();
+        updateStatusBar();
+        
+        if(fModel == null) {
+            fViewer.setInput(null);
+            return;
+        }
+        
+        // Validate in a background Job so that the UI stays responsive and the validation can be cancelled
+        final IArchimateModel model = fModel;
+        
+        // In live mode the Live Validator is created now so that it is notified of changes made while the Job runs
+        // If results are cached the Live Validator is used as it checks each object on its own
+        final boolean live = isLiveValidation();
+        final boolean useCache = isCacheResults();
+        final LiveValidator liveValidator = live || useCache ? new LiveValidator(model) : null;
+        fLiveValidator = live ? liveValidator : null;
+        
+        // Counts edits made while the Job runs, as the checkers might then fail or find the wrong issues
+        final ModelChangeCounter changeCounter = new ModelChangeCounter(model);
+        fChangeCounter = changeCounter;
+        
+        fValidateJob = new Job(Messages.ValidatorView_6) {
             @Override
-            public void run() {
-                updateStatusBar();
-                Validator validator = new Validator(fModel);
-                List<Object> result = validator.validate();
-                fViewer.setInput(result);
-                fViewer.expandAll();
+            protected IStatus run(IProgressMonitor monitor) {
+                monitor.beginTask(Messages.ValidatorView_6, IProgressMonitor.UNKNOWN);
+                
+                final long changeCount = changeCounter.getCount();
+                
+                try {
+                    long start = System.currentTimeMillis();
+                    
+                    List<Object> result;
+                    ValidationCache cache = null;
+                    
+                    if(liveValidator != null) {
+                        if(useCache) {
+                            cache = fCaches.computeIfAbsent(model, ValidationCache::load);
+                            liveValidator.setCache(cache);
+                        }
+                        result = liveValidator.validate(monitor);
+                    }
+                    else {
+                        result = new Validator(model).validate(monitor);
+                    }
+                    
+                    long time = System.currentTimeMillis() - start;
+                    
+                    final String info = cache != null ? NLS.bind(Messages.ValidatorView_9, new Object[] { time,
+                            cache.getHitCount(), cache.getHitCount() + cache.getMissCount() }) : null;
+                    
+                    saveCache(cache);
+                    
+                    Display.getDefault().asyncExec(() -> {
+                        if(fValidateJob == this && fModel == model && !fViewer.getControl().isDisposed()) {
+                            // The model was edited while it was being read so validate again.
+                            // In live mode the edited objects are marked as dirty and checked again by the live update.
+                            if(!live && changeCounter.hasChangedSince(changeCount)) {
+                                schedule(RETRY_DELAY);
+                                updateActions();
+                                return;
+                            }
+                            
+                            fViewer.setInput(result);
+                            fViewer.expandAll();
+                            
+                            if(info != null) {
+                                updateStatusBar(info);
+                            }
+                            
+                            // Apply changes made while the Job ran
+                            if(live && liveValidator.isDirty()) {
+                                scheduleLiveUpdate();
+                            }
+                        }
+                    });
+                    
+                    return Status.OK_STATUS;
+                }
+                catch(OperationCanceledException ex) {
+                    return Status.CANCEL_STATUS;
+                }
+                catch(RuntimeException ex) {
+                    // If the model was edited while it was being read try again.
+                    // This is checked in the UI thread so that an edit that was being made has finished.
+                    Display.getDefault().asyncExec(() -> {
+                        if(fValidateJob == this) {
+                            if(changeCounter.hasChangedSince(changeCount)) {
+                                schedule(RETRY_DELAY);
+                                updateActions();
+                            }
+                            else {
+                                Logger.logError("Error validating model", ex); //$NON-NLS-1$
+                            }
+                        }
+                    });
+                    return Status.OK_STATUS;
+                }
+                finally {
+                    monitor.done();
+                }
+            }
+        };
+        
+        fValidateJob.addJobChangeListener(new JobChangeAdapter() {
+            @Override
+            public void done(IJobChangeEvent event) {
+                Display.getDefault().asyncExec(() -> {
+                    if(!fViewer.getControl().isDisposed()) {
+                        updateActions();
+                    }
+                });
             }
         });
+        
+        IWorkbenchSiteProgressService service = getSite().getService(IWorkbenchSiteProgressService.class);
+        if(service != null) {
+            service.schedule(fValidateJob);
+        }
+        else {
+            fValidateJob.schedule();
+        }
+        
+        updateActions();
+    }
+    
+    /**
+     * Cancel any validation in progress
+     */
+    public void cancelValidation() {
+        if(fValidateJob != null) {
+            fValidateJob.cancel();
+            fValidateJob = null;
+        }
+        updateActions();
+    }
+    
+    private boolean isLiveValidation() {
+        return ArchiHammerPlugin.INSTANCE.getPreferenceStore().getBoolean(IPreferenceConstants.PREFS_HAMMER_LIVE_VALIDATION);
+    }
+    
+    private boolean isCacheResults() {
+        return ArchiHammerPlugin.INSTANCE.getPreferenceStore().getBoolean(IPreferenceConstants.PREFS_HAMMER_CACHE_RESULTS);
+    }
+    
+    private void saveCache(ValidationCache cache) {
+        if(cache != null) {
+            try {
+                cache.save();
+            }
+            catch(IOException ex) {
+                Logger.logError("Could not save validation cache", ex); //$NON-NLS-1$
+            }
+        }
+    }
+    
+    private void stopLiveValidation() {
+        fLiveValidator = null;
+        
+        if(!fViewer.getControl().isDisposed()) {
+            fViewer.getControl().getDisplay().timerExec(-1, fLiveUpdateRunnable);
+        }
+    }
+    
+    /**
+     * Schedule a live update, restarting the delay if one is already scheduled
+     */
+    private void scheduleLiveUpdate() {
+        Display display = fViewer.getControl().getDisplay();
+        display.timerExec(-1, fLiveUpdateRunnable);
+        display.timerExec(LIVE_UPDATE_DELAY, fLiveUpdateRunnable);
+    }
+    
+    /**
+     * Run the checks again for what has changed and patch the issues shown in the tree
+     */
+    private void runLiveUpdate() {
+        // If the Job is running it will schedule another update when it has finished
+        if(fLiveValidator == null || isValidating() || fViewer.getControl().isDisposed()
+                || fViewer.getInput() != fLiveValidator.getResult()) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        
+        LiveValidator.Delta delta = fLiveValidator.update();
+        
+        if(delta.isStructureChanged()) {
+            fViewer.setInput(fLiveValidator.getResult());
+            fViewer.expandAll();
+        }
+        else if(!delta.isEmpty()) {
+            fViewer.getControl().setRedraw(false);
+            
+            try {
+                fViewer.remove(delta.getRemovedIssues().toArray());
+                
+                for(IIssue issue : delta.getAddedIssues()) {
+                    fViewer.add(fLiveValidator.getCategory(issue), issue);
+                }
+                
+                // Update the number of issues shown for each category
+                for(Object category : fLiveValidator.getResult()) {
+                    fViewer.update(category, null);
+                }
+            }
+            finally {
+                fViewer.getControl().setRedraw(true);
+            }
+        }
+        
+        // Show the time taken to apply the change
+        double time = (System.nanoTime() - start) / 1000000.0;
+        updateStatusBar(NLS.bind(Messages.ValidatorView_8, String.format("%.1f", time))); //$NON-NLS-1$
+    }
+    
+    private boolean isValidating() {
+        return fValidateJob != null && fValidateJob.getState() != Job.NONE;
+    }
+    
+    private void updateActions() {
+        fActionValidate.setEnabled(fModel != null && !isValidating());
+        fActionCancel.setEnabled(isValidating());
     }
     
     private void updateStatusBar() {
+        updateStatusBar(null);
+    }
+    
+    /**
+     * @param info Information shown after the model's name, or null
+     */
+    private void updateStatusBar(String info) {
         if(fModel != null) {
-            getViewSite().getActionBars().getStatusLineManager().setMessage(ArchiLabelProvider.INSTANCE.getImage(fModel),
-                    ArchiLabelProvider.INSTANCE.getLabel(fModel));
+            String label = ArchiLabelProvider.INSTANCE.getLabel(fModel);
+            if(info != null) {
+                label += "  -  " + info; //$NON-NLS-1$
+            }
+            getViewSite().getActionBars().getStatusLineManager().setMessage(ArchiLabelProvider.INSTANCE.getImage(fModel), label);
         }
         else {
             getViewSite().getActionBars().getStatusLineManager().setMessage(null, ""); //$NON-NLS-1$
@@ -422,10 +726,32 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
         
         // Model Closed
         if(propertyName == IEditorModelManager.PROPERTY_MODEL_REMOVED) {
+            if(fLiveValidator != null && fLiveValidator.getModel() == newValue) {
+                stopLiveValidation();
+            }
+            
+            // Save changes made to the cache by live validation
+            saveCache(fCaches.remove(newValue));
+            
             if(fModel == newValue) {
+                cancelValidation();
                 fModel = null;
                 fViewer.setInput(null);
-                fActionValidate.setEnabled(false);
+                updateActions();
+            }
+        }
+        
+        // Model changed. Notifications for other models are ignored by the Live Validator
+        else if(propertyName == IEditorModelManager.PROPERTY_ECORE_EVENT) {
+            if(fChangeCounter != null) {
+                fChangeCounter.notifyChanged((Notification)newValue);
+            }
+            
+            if(fLiveValidator != null) {
+                fLiveValidator.notifyChanged((Notification)newValue);
+                if(fLiveValidator.isDirty()) {
+                    scheduleLiveUpdate();
+                }
             }
         }
     }
@@ -434,6 +760,14 @@ implements IValidatorView, ISelectionListener, IContextProvider, ITabbedProperty
     public void dispose() {
         super.dispose();
         
+        cancelValidation();
+        stopLiveValidation();
+        
+        for(ValidationCache cache : fCaches.values()) {
+            saveCache(cache);
+        }
+        fCaches.clear();
+        
         // Unregister selection listener
         getSite().getWorkbenchWindow().getSelectionService().removeSelectionListener(this);
         
@@ -19,6 +19,7 @@ import com.archimatetool.commandline.AbstractCommandLineProvider;
 import com.archimatetool.commandline.CommandLineState;
 import com.archimatetool.editor.utils.StringUtils;
 import com.archimatetool.jasperreports.JasperReportsExporter;
+import com.archimatetool.jasperreports.JasperReportsExporter.Result;
 import com.archimatetool.jasperreports.JasperReportsPlugin;
 import com.archimatetool.model.IArchimateModel;
 
@@ -46,6 +47,8 @@ public class JasperReportsProvider extends AbstractCommandLineProvider {
     static final String OPTION_JASPER_TEMPLATE = "jasper.template"; //$NON-NLS-1$
     static final String OPTION_JASPER_LOCALE = "jasper.locale"; //$NON-NLS-1$
     static final String OPTION_JASPER_FORMAT = "jasper.format"; //$NON-NLS-1$
+    static final String OPTION_JASPER_MAX_PAGES = "jasper.maxPages"; //$NON-NLS-1$
+    static final String OPTION_JASPER_SWAP_FOLDER = "jasper.swapFolder"; //$NON-NLS-1$
 
     
     public JasperReportsProvider() {
@@ -129,17 +132,42 @@ public class JasperReportsProvider extends AbstractCommandLineProvider {
             exportOptions = JasperReportsExporter.EXPORT_PDF;
         }
         
+        // Pages in memory and swap folder
+        int maxPages = getIntOption(commandLine, OPTION_JASPER_MAX_PAGES, JasperReportsPlugin.INSTANCE.getVirtualizerMaxPages());
+        
+        File swapFolder = JasperReportsPlugin.INSTANCE.getSwapFolder();
+        String swapPath = commandLine.getOptionValue(OPTION_JASPER_SWAP_FOLDER);
+        if(StringUtils.isSet(swapPath)) {
+            swapFolder = new File(swapPath);
+        }
+        
         logMessage(NLS.bind(Messages.JasperReportsProvider_7, model.getName(), folderOutput.getPath()));
         
         JasperReportsExporter exporter = new JasperReportsExporter(model, folderOutput, filename, templateFile, title, locale, exportOptions);
+        exporter.setVirtualizer(maxPages, swapFolder);
         
-        exporter.export(new NullProgressMonitor() {
+        Result result = exporter.export(new NullProgressMonitor() {
             @Override
             public void subTask(String name) {
                 logMessage(name);
             }
         });
         
+        logMessage(NLS.bind(Messages.JasperReportsProvider_20, result.getFillTime()));
+        
+        int[] formats = { JasperReportsExporter.EXPORT_HTML, JasperReportsExporter.EXPORT_PDF, JasperReportsExporter.EXPORT_DOCX,
+                JasperReportsExporter.EXPORT_PPT, JasperReportsExporter.EXPORT_RTF, JasperReportsExporter.EXPORT_ODT };
+        String[] formatNames = { "HTML", "PDF", "DOCX", "PPT", "RTF", "ODT" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+        
+        for(int i = 0; i < formats.length; i++) {
+            long time = result.getExportTime(formats[i]);
+            if(time >= 0) {
+                logMessage(NLS.bind(Messages.JasperReportsProvider_21, formatNames[i], time));
+            }
+        }
+        
+        logMessage(NLS.bind(Messages.JasperReportsProvider_22, result.getTotalTime()));
+        
         logMessage(Messages.JasperReportsProvider_8);
     }
     
@@ -200,9 +228,40 @@ public class JasperReportsProvider extends AbstractCommandLineProvider {
                 .build();
         options.addOption(option);
         
+        option = Option.builder()
+                .longOpt(OPTION_JASPER_MAX_PAGES)
+                .hasArg()
+                .argName(Messages.JasperReportsProvider_23)
+                .desc(Messages.JasperReportsProvider_24)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_JASPER_SWAP_FOLDER)
+                .hasArg()
+                .argName(Messages.JasperReportsProvider_9)
+                .desc(Messages.JasperReportsProvider_25)
+                .build();
+        options.addOption(option);
+        
         return options;
     }
     
+    private int getIntOption(CommandLine commandLine, String option, int defaultValue) {
+        String value = commandLine.getOptionValue(option);
+        if(!StringUtils.isSet(value)) {
+            return defaultValue;
+        }
+        
+        try {
+            return Integer.parseInt(value.trim());
+        }
+        catch(NumberFormatException ex) {
+            logError(NLS.bind(Messages.JasperReportsProvider_26, option, value));
+            return defaultValue;
+        }
+    }
+    
     private boolean hasCorrectOptions(CommandLine commandLine) {
         return commandLine.hasOption(OPTION_JASPER_CREATE_REPORT);
     }
@@ -32,6 +32,20 @@ public class Messages extends NLS {
 
     public static String JasperReportsProvider_2;
 
+    public static String JasperReportsProvider_20;
+
+    public static String JasperReportsProvider_21;
+
+    public static String JasperReportsProvider_22;
+
+    public static String JasperReportsProvider_23;
+
+    public static String JasperReportsProvider_24;
+
+    public static String JasperReportsProvider_25;
+
+    public static String JasperReportsProvider_26;
+
     public static String JasperReportsProvider_3;
 
     public static String JasperReportsProvider_4;
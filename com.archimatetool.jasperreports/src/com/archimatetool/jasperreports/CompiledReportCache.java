@@ -0,0 +1,184 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.jasperreports.engine.JRConstants;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+
+
+/**
+ * Cache of compiled Jasper report templates so that a .jrxml file is only compiled when it changes.<p>
+ *
+ * A compiled report is saved in the cache folder as a .jasper file named by the hash of the .jrxml file's content
+ * and the Jasper version, so it is shared by every template file with the same content and survives restarts.
+ * Compiled reports are also kept in memory by the template's path, modification time and length so that
+ * a template that has not changed is not read again.<p>
+ *
+ * This is safe to use from more than one thread, and more than one process can share the cache folder.
+ * A template is compiled by only one thread at a time, and .jasper files are written to a temporary file and then moved into place.
+ *
+ * @author Phillip Beauvoir
+ */
+class CompiledReportCache {
+
+    private static final String EXTENSION = ".jasper"; //$NON-NLS-1$
+
+    private static class Entry {
+        final long lastModified;
+        final long length;
+        final JasperReport report;
+
+        Entry(long lastModified, long length, JasperReport report) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.report = report;
+        }
+    }
+
+    private static CompiledReportCache instance;
+
+    /**
+     * @return The cache in the Jasper Reports plug-in's workspace folder
+     */
+    static synchronized CompiledReportCache getDefault() {
+        if(instance == null) {
+            instance = new CompiledReportCache(JasperReportsPlugin.INSTANCE.getCompiledReportsFolder());
+        }
+        return instance;
+    }
+
+    private File cacheFolder;
+
+    // Compiled reports by canonical path of their template
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // Compiled reports by cache file name
+    private Map<String, JasperReport> reports = new ConcurrentHashMap<>();
+
+    // Locks by cache file name so that a template is compiled once
+    private Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    CompiledReportCache(File cacheFolder) {
+        this.cacheFolder = cacheFolder;
+    }
+
+    /**
+     * @param templateFile A .jrxml template file
+     * @return The compiled report, compiling it if it is not in the cache or has changed
+     */
+    JasperReport getReport(File templateFile) throws JRException, IOException {
+        String path = templateFile.getCanonicalPath();
+        long lastModified = templateFile.lastModified();
+        long length = templateFile.length();
+
+        Entry entry = entries.get(path);
+        if(entry != null && entry.lastModified == lastModified && entry.length == length) {
+            return entry.report;
+        }
+
+        byte[] content = Files.readAllBytes(templateFile.toPath());
+        String name = hash(content) + EXTENSION;
+
+        JasperReport report;
+
+        synchronized(locks.computeIfAbsent(name, n -> new Object())) {
+            report = reports.get(name);
+
+            if(report == null) {
+                File cacheFile = new File(cacheFolder, name);
+                report = load(cacheFile);
+
+                if(report == null) {
+                    report = JasperCompileManager.compileReport(new ByteArrayInputStream(content));
+                    save(report, cacheFile);
+                }
+
+                reports.put(name, report);
+            }
+        }
+
+        entries.put(path, new Entry(lastModified, length, report));
+
+        return report;
+    }
+
+    /**
+     * @return The report in cacheFile, or null if there isn't one or it can't be read
+     */
+    private JasperReport load(File cacheFile) {
+        if(!cacheFile.exists()) {
+            return null;
+        }
+
+        try {
+            return (JasperReport)JRLoader.loadObject(cacheFile);
+        }
+        // Saved by a different version, or damaged, so compile again
+        catch(JRException | ClassCastException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Save report to cacheFile. It is written to a temporary file first so that another thread or process never reads part of it.
+     */
+    private void save(JasperReport report, File cacheFile) throws JRException, IOException {
+        cacheFolder.mkdirs();
+
+        Path tmpFile = Files.createTempFile(cacheFolder.toPath(), cacheFile.getName(), ".tmp"); //$NON-NLS-1$
+
+        try {
+            JRSaver.saveObject(report, tmpFile.toFile());
+
+            try {
+                Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch(AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    /**
+     * @return The SHA-256 hash in hex of content and the Jasper version that compiles it
+     */
+    static String hash(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+            digest.update(Long.toString(JRConstants.SERIAL_VERSION_UID).getBytes());
+            digest.update(content);
+
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest.digest()) {
+                sb.append(String.format("%02x", b)); //$NON-NLS-1$
+            }
+            return sb.toString();
+        }
+        catch(NoSuchAlgorithmException ex) {
+            // Every Java platform has SHA-256
+            throw new RuntimeException(ex);
+        }
+    }
+}
@@ -91,6 +91,7 @@ public class ExportJasperReportsWizard extends Wizard {
             try {
                 JasperReportsExporter exporter = new JasperReportsExporter(fModel, exportFolder, exportFileName, mainTemplateFile,
                         reportTitle, locale, exportOptions);
+                exporter.setVirtualizer(JasperReportsPlugin.INSTANCE.getVirtualizerMaxPages(), JasperReportsPlugin.INSTANCE.getSwapFolder());
                 exporter.export(monitor);
             }
             catch(Exception ex) {
@@ -9,11 +9,21 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.osgi.util.NLS;
@@ -28,13 +38,13 @@ import com.archimatetool.editor.diagram.util.DiagramUtils;
 import com.archimatetool.editor.ui.ImageFactory;
 import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.jasperreports.data.ArchimateModelDataSource;
+import com.archimatetool.jasperreports.data.DiagramImages;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IDiagramModel;
 
 import net.sf.jasperreports.engine.DefaultJasperReportsContext;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRParameter;
-import net.sf.jasperreports.engine.JasperCompileManager;
 import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperFillManager;
 import net.sf.jasperreports.engine.JasperPrint;
@@ -43,6 +53,8 @@ import net.sf.jasperreports.engine.export.JRRtfExporter;
 import net.sf.jasperreports.engine.export.oasis.JROdtExporter;
 import net.sf.jasperreports.engine.export.ooxml.JRDocxExporter;
 import net.sf.jasperreports.engine.export.ooxml.JRPptxExporter;
+import net.sf.jasperreports.engine.fill.JRSwapFileVirtualizer;
+import net.sf.jasperreports.engine.util.JRSwapFile;
 import net.sf.jasperreports.export.SimpleExporterInput;
 import net.sf.jasperreports.export.SimpleOutputStreamExporterOutput;
 import net.sf.jasperreports.export.SimpleWriterExporterOutput;
@@ -61,6 +73,43 @@ public class JasperReportsExporter {
         }
     }
     
+    /**
+     * An export of one format
+     */
+    private interface ExportTask {
+        void export() throws JRException;
+    }
+    
+    /**
+     * The time taken to fill the report and to export each format
+     */
+    public static class Result {
+        private long fFillTime, fTotalTime;
+        private Map<Integer, Long> fExportTimes = new ConcurrentHashMap<>();
+        
+        /**
+         * @return The time taken to fill the report in milliseconds
+         */
+        public long getFillTime() {
+            return fFillTime;
+        }
+        
+        /**
+         * @param format One of the EXPORT_* options
+         * @return The time taken to export format in milliseconds, or -1 if it was not exported
+         */
+        public long getExportTime(int format) {
+            return fExportTimes.getOrDefault(format, -1L);
+        }
+        
+        /**
+         * @return The time taken for the whole export in milliseconds
+         */
+        public long getTotalTime() {
+            return fTotalTime;
+        }
+    }
+    
     public static final int EXPORT_HTML = 1;
     public static final int EXPORT_PDF = 1 << 1;
     public static final int EXPORT_DOCX = 1 << 2;
@@ -70,6 +119,10 @@ public class JasperReportsExporter {
     
     private boolean DELETE_TEMP_FILES = true;
     
+    // Swap file block size in bytes and the number of blocks it grows by
+    private static final int SWAP_BLOCK_SIZE = 4096;
+    private static final int SWAP_MIN_GROW_COUNT = 100;
+    
     private IArchimateModel fModel;
     private File fExportFolder;
     private String fExportFileName;
@@ -79,6 +132,10 @@ public class JasperReportsExporter {
     
     private Locale fLocale;
     
+    private int fVirtualizerMaxPages;
+    private File fSwapFolder;
+    private JRSwapFileVirtualizer fVirtualizer;
+    
     private IProgressMonitor progressMonitor;
 
     /**
@@ -105,13 +162,30 @@ public class JasperReportsExporter {
         System.setProperty("org.apache.commons.logging.Log", "org.apache.commons.logging.impl.NoOpLog");  //$NON-NLS-1$//$NON-NLS-2$
     }
     
+    /**
+     * Keep at most maxPages pages of the filled report in memory and swap the others to a file, so that large reports can be filled
+     * in a limited heap. The output is the same.
+     * If the report has more than maxPages pages the virtualizer swaps pages in and out as they are read, so the formats are exported one at a time.
+     * @param maxPages      The number of pages to keep in memory, or 0 to keep all pages in memory
+     * @param swapFolder    The folder of the swap file, or null for the temp folder in the export folder
+     */
+    public void setVirtualizer(int maxPages, File swapFolder) {
+        fVirtualizerMaxPages = maxPages;
+        fSwapFolder = swapFolder;
+    }
+    
     /** 
-     * Export the model to Jasper Reports
+     * Export the model to Jasper Reports.<p>
+     * The report is filled on a worker thread while the diagram images are written on this thread, and then
+     * each format is exported from the same JasperPrint at the same time, or one at a time if pages of the report were swapped out.
      * @param monitor       Progress Monitor. Can be null
+     * @return The time taken to fill the report and to export each format
      * @throws IOException
      * @throws JRException
      */
-    public void export(IProgressMonitor monitor) throws IOException, JRException {
+    public Result export(IProgressMonitor monitor) throws IOException, JRException {
+        long start = System.currentTimeMillis();
+        
         progressMonitor = monitor;
         
         if(progressMonitor != null) {
@@ -122,54 +196,188 @@ public class JasperReportsExporter {
         File tmpFolder = new File(fExportFolder, "tmp"); //$NON-NLS-1$
         tmpFolder.mkdirs();
         
+        Result result = new Result();
+        
+        // One thread for each format, the first one fills the report
+        int threadCount = Math.max(1, Math.min(Integer.bitCount(fExportOptions), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        
+        // Executor for the exports
+        ExecutorService exportExecutor = executor;
+        
+        List<IDiagramModel> diagramModels = getDiagramModels();
+        
         try {
+            setProgressSubTask(Messages.JasperReportsExporter_2);
+            Map<String, Object> params = createParameters(tmpFolder);
+            JasperReport mainReport = compileReports(params);
+            
+            // Fill the report while the images are written. The fill waits for an image if it gets to it first.
+            for(IDiagramModel dm : diagramModels) {
+                DiagramImages.add(getImageFile(tmpFolder, dm));
+            }
+            
+            Future<JasperPrint> fill = executor.submit(() -> {
+                long time = System.currentTimeMillis();
+                JasperPrint jasperPrint = fillReport(mainReport, params);
+                result.fFillTime = System.currentTimeMillis() - time;
+                return jasperPrint;
+            });
+            
             writeDiagrams(tmpFolder);
             
-            JasperPrint jasperPrint = createJasperPrint(tmpFolder);
+            setProgressSubTask(Messages.JasperReportsExporter_11);
+            JasperPrint jasperPrint = waitFor(fill);
+            
+            // Export all formats at the same time.
+            // Pages that were swapped out are swapped in and out of shared state as they are read, so then export them one at a time.
+            if(isSwapped(jasperPrint)) {
+                exportExecutor = Executors.newSingleThreadExecutor();
+            }
+            
+            Map<Integer, Future<?>> exports = new LinkedHashMap<>();
             
             if((fExportOptions & EXPORT_HTML) != 0) {
-                setProgressSubTask(Messages.JasperReportsExporter_3);
-                exportHTML(jasperPrint, new File(fExportFolder, fExportFileName + ".html")); //$NON-NLS-1$
+                exports.put(EXPORT_HTML, submitExport(exportExecutor, result, EXPORT_HTML,
+                        () -> exportHTML(jasperPrint, new File(fExportFolder, fExportFileName + ".html")))); //$NON-NLS-1$
             }
 
             if((fExportOptions & EXPORT_PDF) != 0) {
-                setProgressSubTask(Messages.JasperReportsExporter_4);
-                exportPDF(jasperPrint, new File(fExportFolder, fExportFileName + ".pdf")); //$NON-NLS-1$
+                exports.put(EXPORT_PDF, submitExport(exportExecutor, result, EXPORT_PDF,
+                        () -> exportPDF(jasperPrint, new File(fExportFolder, fExportFileName + ".pdf")))); //$NON-NLS-1$
             }
 
             if((fExportOptions & EXPORT_DOCX) != 0) {
-                setProgressSubTask(Messages.JasperReportsExporter_5);
-                exportDOCX(jasperPrint, new File(fExportFolder, fExportFileName + ".docx")); //$NON-NLS-1$
+                exports.put(EXPORT_DOCX, submitExport(exportExecutor, result, EXPORT_DOCX,
+                        () -> exportDOCX(jasperPrint, new File(fExportFolder, fExportFileName + ".docx")))); //$NON-NLS-1$
             }
             
             if((fExportOptions & EXPORT_PPT) != 0) {
-                setProgressSubTask(Messages.JasperReportsExporter_6);
-                exportPPT(jasperPrint, new File(fExportFolder, fExportFileName + ".pptx")); //$NON-NLS-1$
+                exports.put(EXPORT_PPT, submitExport(exportExecutor, result, EXPORT_PPT,
+                        () -> exportPPT(jasperPrint, new File(fExportFolder, fExportFileName + ".pptx")))); //$NON-NLS-1$
             }
             
             if((fExportOptions & EXPORT_RTF) != 0) {
-                setProgressSubTask(Messages.JasperReportsExporter_7);
-                exportRTF(jasperPrint, new File(fExportFolder, fExportFileName + ".rtf")); //$NON-NLS-1$
+                exports.put(EXPORT_RTF, submitExport(exportExecutor, result, EXPORT_RTF,
+                        () -> exportRTF(jasperPrint, new File(fExportFolder, fExportFileName + ".rtf")))); //$NON-NLS-1$
             }
             
             if((fExportOptions & EXPORT_ODT) != 0) {
-                setProgressSubTask(Messages.JasperReportsExporter_8);
-                exportODT(jasperPrint, new File(fExportFolder, fExportFileName + ".odt")); //$NON-NLS-1$
+                exports.put(EXPORT_ODT, submitExport(exportExecutor, result, EXPORT_ODT,
+                        () -> exportODT(jasperPrint, new File(fExportFolder, fExportFileName + ".odt")))); //$NON-NLS-1$
+            }
+            
+            for(Entry<Integer, Future<?>> entry : exports.entrySet()) {
+                setProgressSubTask(getExportMessage(entry.getKey()));
+                waitFor(entry.getValue());
             }
         }
         finally {
+            // Nothing waits for images that were not written
+            for(IDiagramModel dm : diagramModels) {
+                DiagramImages.done(getImageFile(tmpFolder, dm));
+            }
+            
+            // Interrupt the fill or exports if they didn't finish. Jasper stops filling when its thread is interrupted.
+            executor.shutdownNow();
+            exportExecutor.shutdownNow();
+            
+            disposeVirtualizer();
+            
             if(DELETE_TEMP_FILES) {
                 setProgressSubTask(Messages.JasperReportsExporter_9);
                 FileUtils.deleteFolder(tmpFolder);
             }
         }
+        
+        result.fTotalTime = System.currentTimeMillis() - start;
+        
+        return result;
+    }
+    
+    /**
+     * Run an export on the executor and set the time it takes in result
+     */
+    private Future<?> submitExport(ExecutorService executor, Result result, int format, ExportTask task) {
+        return executor.submit(() -> {
+            long time = System.currentTimeMillis();
+            task.export();
+            result.fExportTimes.put(format, System.currentTimeMillis() - time);
+            return null;
+        });
+    }
+    
+    private String getExportMessage(int format) {
+        switch(format) {
+            case EXPORT_HTML:
+                return Messages.JasperReportsExporter_3;
+            case EXPORT_PDF:
+                return Messages.JasperReportsExporter_4;
+            case EXPORT_DOCX:
+                return Messages.JasperReportsExporter_5;
+            case EXPORT_PPT:
+                return Messages.JasperReportsExporter_6;
+            case EXPORT_RTF:
+                return Messages.JasperReportsExporter_7;
+            default:
+                return Messages.JasperReportsExporter_8;
+        }
+    }
+    
+    /**
+     * Wait for a task to finish, keeping the UI responsive and checking for cancel
+     */
+    private <T> T waitFor(Future<T> future) throws IOException, JRException {
+        try {
+            while(true) {
+                try {
+                    return future.get(100, TimeUnit.MILLISECONDS);
+                }
+                catch(TimeoutException ex) {
+                    updateProgress();
+                }
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        catch(ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if(cause instanceof JRException) {
+                throw (JRException)cause;
+            }
+            if(cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new JRException(cause);
+        }
+    }
+    
+    /**
+     * @return The diagram models in the order that the report shows them, so that images are written in the order the fill needs them
+     */
+    private List<IDiagramModel> getDiagramModels() {
+        List<IDiagramModel> diagramModels = new ArrayList<>(fModel.getDiagramModels());
+        ArchimateModelDataSource.sort(diagramModels);
+        return diagramModels;
+    }
+    
+    private File getImageFile(File tmpFolder, IDiagramModel dm) {
+        return new File(tmpFolder, dm.getId() + ".png"); //$NON-NLS-1$
     }
     
     /**
      * Write the diagrams to temp files
      */
     void writeDiagrams(File tmpFolder) throws IOException {
-        List<IDiagramModel> diagramModels = fModel.getDiagramModels();
+        List<IDiagramModel> diagramModels = getDiagramModels();
         int total = diagramModels.size();
         int i = 1;
 
@@ -177,15 +385,15 @@ public class JasperReportsExporter {
             setProgressSubTask(NLS.bind(Messages.JasperReportsExporter_1, i++, total));
             
             Image image = DiagramUtils.createImage(dm, 1, 10);
-            String diagramName = dm.getId() + ".png"; //$NON-NLS-1$
+            File file = getImageFile(tmpFolder, dm);
             try {
                 ImageLoader loader = new ImageLoader();
                 loader.data = new ImageData[] { image.getImageData(ImageFactory.getImageDeviceZoom()) };
-                File file = new File(tmpFolder, diagramName);
                 loader.save(file.getAbsolutePath(), SWT.IMAGE_PNG);
             }
             finally {
                 image.dispose();
+                DiagramImages.done(file);
             }
         }
     }
@@ -193,6 +401,18 @@ public class JasperReportsExporter {
     JasperPrint createJasperPrint(File tmpFolder) throws JRException, IOException {
         setProgressSubTask(Messages.JasperReportsExporter_2);
         
+        Map<String, Object> params = createParameters(tmpFolder);
+        JasperReport mainReport = compileReports(params);
+        
+        setProgressSubTask(Messages.JasperReportsExporter_11);
+        
+        return fillReport(mainReport, params);
+    }
+    
+    /**
+     * @return The parameters passed to JasperFillManager
+     */
+    private Map<String, Object> createParameters(File tmpFolder) throws IOException {
         // Set the location of the default Jasper Properties File
         File propsFile = new File(JasperReportsPlugin.INSTANCE.getPluginFolder(), "jasperreports.properties"); //$NON-NLS-1$
         System.setProperty(DefaultJasperReportsContext.PROPERTIES_FILE, propsFile.getAbsolutePath());
@@ -220,6 +440,16 @@ public class JasperReportsExporter {
         // Set locale
         params.put(JRParameter.REPORT_LOCALE, fLocale);
         
+        // Swap pages to a file if there are more than the maximum
+        disposeVirtualizer();
+        
+        if(fVirtualizerMaxPages > 0) {
+            File swapFolder = fSwapFolder != null ? fSwapFolder : tmpFolder;
+            swapFolder.mkdirs();
+            fVirtualizer = new JRSwapFileVirtualizer(fVirtualizerMaxPages, new JRSwapFile(swapFolder.getPath(), SWAP_BLOCK_SIZE, SWAP_MIN_GROW_COUNT), true);
+            params.put(JRParameter.REPORT_VIRTUALIZER, fVirtualizer);
+        }
+        
         // Path to report
         params.put("REPORT_PATH", reportFolder.toString() + File.separator); //$NON-NLS-1$
         
@@ -231,24 +461,64 @@ public class JasperReportsExporter {
             params.put("MODEL_DIRECTORY", fModel.getFile().getParent() + File.separator); //$NON-NLS-1$
         }
 
-        // Compile Main Report
+        return params;
+    }
+    
+    /**
+     * Compile the main report and add the sub-reports to params
+     * @return The main report
+     */
+    private JasperReport compileReports(Map<String, Object> params) throws JRException, IOException {
+        File reportFolder = fMainTemplateFile.getParentFile();
+        
+        // Compile Main Report, or get it from the cache if it hasn't changed
         setProgressSubTask(Messages.JasperReportsExporter_10);
         
-        JasperReport mainReport = JasperCompileManager.compileReport(fMainTemplateFile.getPath());
+        CompiledReportCache compiledReports = CompiledReportCache.getDefault();
+        
+        JasperReport mainReport = compiledReports.getReport(fMainTemplateFile);
         
         // Compile sub-reports
         for(File file : reportFolder.listFiles()) {
             if(!file.equals(fMainTemplateFile) && file.getName().endsWith(".jrxml")) { //$NON-NLS-1$
-                //System.out.println("Compiling Sub-Report: " + file);
-                JasperReport jr = JasperCompileManager.compileReport(file.getPath());
+                JasperReport jr = compiledReports.getReport(file);
                 params.put(jr.getName(), jr);
             }
         }
         
-        // Fill Report
-        setProgressSubTask(Messages.JasperReportsExporter_11);
+        return mainReport;
+    }
+    
+    /**
+     * Fill the report. This doesn't update the progress monitor so it can be run on any thread.
+     */
+    private JasperPrint fillReport(JasperReport mainReport, Map<String, Object> params) throws JRException {
+        JasperPrint jasperPrint = JasperFillManager.fillReport(mainReport, params, new ArchimateModelDataSource(fModel));
+        
+        // The pages don't change now, so swapped out pages are not written again
+        if(fVirtualizer != null) {
+            fVirtualizer.setReadOnly(true);
+        }
         
-        return JasperFillManager.fillReport(mainReport, params, new ArchimateModelDataSource(fModel));
+        return jasperPrint;
+    }
+    
+    /**
+     * @return true if the virtualizer had to swap out pages of jasperPrint because it has more than the maximum in memory.
+     *         Pages of a smaller report all stay in memory and are never swapped.
+     */
+    boolean isSwapped(JasperPrint jasperPrint) {
+        return fVirtualizer != null && jasperPrint.getPages().size() > fVirtualizerMaxPages;
+    }
+    
+    /**
+     * Delete the swap file when the JasperPrint is not needed any more
+     */
+    void disposeVirtualizer() {
+        if(fVirtualizer != null) {
+            fVirtualizer.cleanup();
+            fVirtualizer = null;
+        }
     }
     
     void exportHTML(JasperPrint jasperPrint, File file) throws JRException {
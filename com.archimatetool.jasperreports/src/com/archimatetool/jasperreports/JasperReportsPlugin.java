@@ -75,6 +75,30 @@ public class JasperReportsPlugin extends AbstractUIPlugin {
         return folder;
     }
 
+    /**
+     * @return User-set maximum number of pages of a report to keep in memory, or 0 for no limit
+     */
+    public int getVirtualizerMaxPages() {
+        return getPreferenceStore().getInt(IJasperPreferenceConstants.JASPER_VIRTUALIZER_MAX_PAGES);
+    }
+
+    /**
+     * @return User-set folder for the swap files of large reports, or null if not set
+     */
+    public File getSwapFolder() {
+        String s = getPreferenceStore().getString(IJasperPreferenceConstants.JASPER_SWAP_FOLDER);
+        return StringUtils.isSetAfterTrim(s) ? new File(s.trim()) : null;
+    }
+
+    /**
+     * @return The folder of compiled report templates in the workspace
+     */
+    public File getCompiledReportsFolder() {
+        File folder = new File(getStateLocation().toFile(), "compiled"); //$NON-NLS-1$
+        folder.mkdirs();
+        return folder;
+    }
+
     /**
      * @return The Jasper Reports folder
      */
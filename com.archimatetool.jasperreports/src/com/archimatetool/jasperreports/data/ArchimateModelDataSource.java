@@ -38,10 +38,16 @@ import net.sf.jasperreports.engine.JRField;
 public class ArchimateModelDataSource implements JRDataSource, IPropertiesDataSource {
     
     private IArchimateModel fModel;
+    private ModelIndex fIndex;
     private boolean done;
     
     public ArchimateModelDataSource(IArchimateModel model) {
+        this(model, new ModelIndex(model));
+    }
+    
+    private ArchimateModelDataSource(IArchimateModel model, ModelIndex index) {
         fModel = model;
+        fIndex = index;
     }
     
     public IArchimateModel getModel() {
@@ -58,7 +64,7 @@ public class ArchimateModelDataSource implements JRDataSource, IPropertiesDataSo
     }
     
     public ElementsDataSource getElementsDataSource(String types) {
-        return new ElementsDataSource(fModel, types);
+        return new ElementsDataSource(fIndex, types, false);
     }
     
     /**
@@ -66,7 +72,7 @@ public class ArchimateModelDataSource implements JRDataSource, IPropertiesDataSo
      * @return true if there are elements of types to print
      */
     public boolean hasElements(String types) {
-        return !new ElementsDataSource(fModel, types).fConcepts.isEmpty(); 
+        return !fIndex.getConcepts(types).isEmpty(); 
     }
 
     @Override
@@ -80,7 +86,7 @@ public class ArchimateModelDataSource implements JRDataSource, IPropertiesDataSo
      * @return The element, or null if not found
      */
     public Object getElementByID(String id) {
-        return ArchimateModelUtils.getObjectByID(fModel, id);
+        return fIndex.getObjectByID(id);
     }
 
     @Override
@@ -102,7 +108,7 @@ public class ArchimateModelDataSource implements JRDataSource, IPropertiesDataSo
      */
     @Override
     public ArchimateModelDataSource clone() {
-    	return new ArchimateModelDataSource(fModel);
+    	return new ArchimateModelDataSource(fModel, fIndex);
     }
     
     @Override
@@ -0,0 +1,61 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports.data;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.jasperreports.engine.JRException;
+
+
+/**
+ * Diagram image files that are still being written while the report is filled.<p>
+ *
+ * The exporter adds each image file before it starts filling and sets it as done when it has been written.
+ * A data source that gives the path of an image waits for it first, so filling doesn't have to wait for all the images.
+ *
+ * @author Phillip Beauvoir
+ */
+public class DiagramImages {
+
+    // Image files that have not been written yet by absolute path
+    private static Map<String, CountDownLatch> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Add an image file that will be written
+     */
+    public static void add(File file) {
+        pending.put(file.getAbsolutePath(), new CountDownLatch(1));
+    }
+
+    /**
+     * Set an image file as written, or as not going to be written, so that nothing waits for it
+     */
+    public static void done(File file) {
+        CountDownLatch latch = pending.remove(file.getAbsolutePath());
+        if(latch != null) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Wait for an image file if it is still being written
+     */
+    public static void waitFor(File file) throws JRException {
+        CountDownLatch latch = pending.get(file.getAbsolutePath());
+        if(latch != null) {
+            try {
+                latch.await();
+            }
+            catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JRException(ex);
+            }
+        }
+    }
+}
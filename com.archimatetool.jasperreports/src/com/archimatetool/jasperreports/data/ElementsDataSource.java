@@ -7,16 +7,11 @@ package com.archimatetool.jasperreports.data;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-
-import org.eclipse.emf.ecore.EClass;
-import org.eclipse.emf.ecore.EObject;
 
 import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.model.IArchimateConcept;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IDiagramModel;
-import com.archimatetool.model.IFolder;
 
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRField;
@@ -44,8 +39,14 @@ public class ElementsDataSource implements JRRewindableDataSource, IPropertiesDa
     }
 
     public ElementsDataSource(IArchimateModel model, String types, boolean sortFirstByType) {
-        Set<EClass> desiredEClasses = ArchimateModelDataSource.getClasses(types);
-        getConcepts(model, desiredEClasses);
+        this(new ModelIndex(model), types, sortFirstByType);
+    }
+
+    /**
+     * @param index - The index of the model, shared by the data sources of a report
+     **/
+    ElementsDataSource(ModelIndex index, String types, boolean sortFirstByType) {
+        fConcepts.addAll(index.getConcepts(types));
 
         if(sortFirstByType) {
             ArchimateModelDataSource.sortByTypeThenName(fConcepts);
@@ -156,24 +157,4 @@ public class ElementsDataSource implements JRRewindableDataSource, IPropertiesDa
         List<IDiagramModel> views = DiagramModelUtils.findReferencedDiagramsForArchimateConcept(fCurrentConcept);
         return new ViewModelDataSource(views);
     }
-
-    private void getConcepts(IArchimateModel model, Set<EClass> desiredEClasses) {
-        for(IFolder folder : model.getFolders()) {
-            getConcepts(folder, desiredEClasses);
-        }
-    }
-
-    private void getConcepts(IFolder folder, Set<EClass> desiredEClasses) {
-        for(EObject object : folder.getElements()) {
-            if(object instanceof IArchimateConcept) {
-                if(desiredEClasses.contains(object.eClass()) && !fConcepts.contains(object)) {
-                	fConcepts.add((IArchimateConcept)object);
-                }
-            }
-        }
-        
-        for(IFolder f : folder.getFolders()) {
-            getConcepts(f, desiredEClasses);
-        }
-    }
 }
@@ -0,0 +1,123 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IIdentifier;
+
+
+/**
+ * Index of a model's concepts that is built once for a report and shared by its data sources,
+ * so that each data source doesn't search the whole model again.<p>
+ *
+ * Each part of the index is built the first time it is used. The model must not change while the report is filled.
+ *
+ * @author Phillip Beauvoir
+ */
+class ModelIndex {
+
+    private IArchimateModel fModel;
+
+    // All concepts in folder order
+    private List<IArchimateConcept> fConcepts;
+
+    // Concepts in folder order by the types string that selects them
+    private Map<String, List<IArchimateConcept>> fConceptsByTypes = new HashMap<>();
+
+    // All objects by identifier
+    private Map<String, EObject> fObjectsById;
+
+    ModelIndex(IArchimateModel model) {
+        fModel = model;
+    }
+
+    /**
+     * @param types The types of concepts as in ArchimateModelDataSource.getClasses()
+     * @return The concepts of types in folder order. This list must not be changed.
+     */
+    synchronized List<IArchimateConcept> getConcepts(String types) {
+        List<IArchimateConcept> concepts = fConceptsByTypes.get(types);
+
+        if(concepts == null) {
+            Set<EClass> desiredEClasses = ArchimateModelDataSource.getClasses(types);
+            concepts = new ArrayList<>();
+
+            for(IArchimateConcept concept : getAllConcepts()) {
+                if(desiredEClasses.contains(concept.eClass())) {
+                    concepts.add(concept);
+                }
+            }
+
+            concepts = Collections.unmodifiableList(concepts);
+            fConceptsByTypes.put(types, concepts);
+        }
+
+        return concepts;
+    }
+
+    /**
+     * @return The object in the model with id, or null if there isn't one
+     */
+    synchronized EObject getObjectByID(String id) {
+        if(id == null) {
+            return null;
+        }
+
+        if(id.equals(fModel.getId())) {
+            return fModel;
+        }
+
+        if(fObjectsById == null) {
+            fObjectsById = new HashMap<>();
+
+            for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IIdentifier) {
+                    // The first one found, as a search of the model would find
+                    fObjectsById.putIfAbsent(((IIdentifier)eObject).getId(), eObject);
+                }
+            }
+        }
+
+        return fObjectsById.get(id);
+    }
+
+    private List<IArchimateConcept> getAllConcepts() {
+        if(fConcepts == null) {
+            fConcepts = new ArrayList<>();
+            for(IFolder folder : fModel.getFolders()) {
+                addConcepts(folder);
+            }
+        }
+
+        return fConcepts;
+    }
+
+    private void addConcepts(IFolder folder) {
+        for(EObject object : folder.getElements()) {
+            if(object instanceof IArchimateConcept) {
+                fConcepts.add((IArchimateConcept)object);
+            }
+        }
+
+        for(IFolder f : folder.getFolders()) {
+            addConcepts(f);
+        }
+    }
+}
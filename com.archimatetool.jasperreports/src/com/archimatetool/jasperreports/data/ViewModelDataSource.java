@@ -5,6 +5,7 @@
  */
 package com.archimatetool.jasperreports.data;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -113,11 +114,13 @@ public class ViewModelDataSource implements JRRewindableDataSource, IPropertiesD
     }
 
     /**
-     * Return the path to the diagram image
+     * Return the path to the diagram image, waiting for it if it is still being written
      */
-    private String getImagePath() {
+    private String getImagePath() throws JRException {
         String diagramName = fCurrentView.getId() + ".png";
-        return System.getProperty("JASPER_IMAGE_PATH") + "/" + diagramName;
+        String path = System.getProperty("JASPER_IMAGE_PATH") + "/" + diagramName;
+        DiagramImages.waitFor(new File(path));
+        return path;
     }
 
     @Override
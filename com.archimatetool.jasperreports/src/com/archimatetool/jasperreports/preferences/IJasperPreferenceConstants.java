@@ -17,4 +17,7 @@ public interface IJasperPreferenceConstants {
     
     String JASPER_USER_REPORTS_FOLDER = "JRUserReportsFolder"; //$NON-NLS-1$
     
+    String JASPER_VIRTUALIZER_MAX_PAGES = "JRVirtualizerMaxPages"; //$NON-NLS-1$
+    String JASPER_SWAP_FOLDER = "JRSwapFolder"; //$NON-NLS-1$
+    
 }
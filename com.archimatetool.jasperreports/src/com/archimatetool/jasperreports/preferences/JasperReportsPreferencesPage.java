@@ -20,6 +20,7 @@ import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
@@ -42,6 +43,9 @@ implements IWorkbenchPreferencePage, IJasperPreferenceConstants {
     
     private Text fUserReportsFolderTextField;
     
+    private Spinner fVirtualizerMaxPagesSpinner;
+    private Text fSwapFolderTextField;
+    
 	public JasperReportsPreferencesPage() {
 		setPreferenceStore(JasperReportsPlugin.INSTANCE.getPreferenceStore());
 	}
@@ -72,42 +76,83 @@ implements IWorkbenchPreferencePage, IJasperPreferenceConstants {
         folderButton.addSelectionListener(new SelectionAdapter() {
             @Override
             public void widgetSelected(SelectionEvent e) {
-                String folderPath = chooseFolderPath();
+                String folderPath = chooseFolderPath(fUserReportsFolderTextField, Messages.JasperReportsPreferencesPage_3, Messages.JasperReportsPreferencesPage_4);
                 if(folderPath != null) {
                     fUserReportsFolderTextField.setText(folderPath);
                 }
             }
         });
         
+        // Large reports
+        Group largeReportsGroup = new Group(client, SWT.NULL);
+        largeReportsGroup.setText(Messages.JasperReportsPreferencesPage_5);
+        largeReportsGroup.setLayout(new GridLayout(3, false));
+        largeReportsGroup.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        
+        label = new Label(largeReportsGroup, SWT.NULL);
+        label.setText(Messages.JasperReportsPreferencesPage_6);
+        
+        fVirtualizerMaxPagesSpinner = new Spinner(largeReportsGroup, SWT.BORDER);
+        fVirtualizerMaxPagesSpinner.setMinimum(0);
+        fVirtualizerMaxPagesSpinner.setMaximum(100000);
+        fVirtualizerMaxPagesSpinner.setIncrement(10);
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        fVirtualizerMaxPagesSpinner.setLayoutData(gd);
+        
+        label = new Label(largeReportsGroup, SWT.NULL);
+        label.setText(Messages.JasperReportsPreferencesPage_7);
+        
+        fSwapFolderTextField = UIUtils.createSingleTextControl(largeReportsGroup, SWT.BORDER, false);
+        fSwapFolderTextField.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
+        
+        Button swapFolderButton = new Button(largeReportsGroup, SWT.PUSH);
+        swapFolderButton.setText(Messages.JasperReportsPreferencesPage_2);
+        swapFolderButton.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent e) {
+                String folderPath = chooseFolderPath(fSwapFolderTextField, Messages.JasperReportsPreferencesPage_8, Messages.JasperReportsPreferencesPage_9);
+                if(folderPath != null) {
+                    fSwapFolderTextField.setText(folderPath);
+                }
+            }
+        });
+        
         setValues();
         
         return client;
     }
 
-    private String chooseFolderPath() {
+    private String chooseFolderPath(Text textField, String title, String message) {
         DirectoryDialog dialog = new DirectoryDialog(Display.getCurrent().getActiveShell());
-        dialog.setText(Messages.JasperReportsPreferencesPage_3);
-        dialog.setMessage(Messages.JasperReportsPreferencesPage_4);
-        File file = new File(fUserReportsFolderTextField.getText());
+        dialog.setText(title);
+        dialog.setMessage(message);
+        File file = new File(textField.getText());
         if(file.exists()) {
-            dialog.setFilterPath(fUserReportsFolderTextField.getText());
+            dialog.setFilterPath(textField.getText());
         }
         return dialog.open();
     }
 
     private void setValues() {
         fUserReportsFolderTextField.setText(JasperReportsPlugin.INSTANCE.getUserTemplatesFolder().getAbsolutePath());
+        fVirtualizerMaxPagesSpinner.setSelection(getPreferenceStore().getInt(JASPER_VIRTUALIZER_MAX_PAGES));
+        fSwapFolderTextField.setText(getPreferenceStore().getString(JASPER_SWAP_FOLDER));
     }
     
     @Override
     public boolean performOk() {
         getPreferenceStore().setValue(JASPER_USER_REPORTS_FOLDER, fUserReportsFolderTextField.getText());
+        getPreferenceStore().setValue(JASPER_VIRTUALIZER_MAX_PAGES, fVirtualizerMaxPagesSpinner.getSelection());
+        getPreferenceStore().setValue(JASPER_SWAP_FOLDER, fSwapFolderTextField.getText().trim());
         return true;
     }
     
     @Override
     protected void performDefaults() {
         fUserReportsFolderTextField.setText(JasperReportsPlugin.INSTANCE.getDefaultUserTemplatesFolder().getAbsolutePath());
+        fVirtualizerMaxPagesSpinner.setSelection(getPreferenceStore().getDefaultInt(JASPER_VIRTUALIZER_MAX_PAGES));
+        fSwapFolderTextField.setText(getPreferenceStore().getDefaultString(JASPER_SWAP_FOLDER));
         super.performDefaults();
     }
     
@@ -15,6 +15,16 @@ public class Messages extends NLS {
     public static String JasperReportsPreferencesPage_3;
 
     public static String JasperReportsPreferencesPage_4;
+
+    public static String JasperReportsPreferencesPage_5;
+
+    public static String JasperReportsPreferencesPage_6;
+
+    public static String JasperReportsPreferencesPage_7;
+
+    public static String JasperReportsPreferencesPage_8;
+
+    public static String JasperReportsPreferencesPage_9;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
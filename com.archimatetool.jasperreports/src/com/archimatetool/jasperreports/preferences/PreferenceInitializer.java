@@ -26,5 +26,8 @@ implements IPreferenceConstants, IJasperPreferenceConstants {
 		IPreferenceStore store = JasperReportsPlugin.INSTANCE.getPreferenceStore();
         
 		store.setDefault(JASPER_USER_REPORTS_FOLDER, JasperReportsPlugin.INSTANCE.getDefaultUserTemplatesFolder().getAbsolutePath());
+		
+		store.setDefault(JASPER_VIRTUALIZER_MAX_PAGES, 500);
+		store.setDefault(JASPER_SWAP_FOLDER, ""); //$NON-NLS-1$
     }
 }
@@ -29,6 +29,14 @@ import com.archimatetool.reports.html.HTMLReportExporter;
    --loadModel "/pathToModel/model.archimate"
    --html.createReport "/pathToOutputFolder"
  * 
+ * Or to create the report in a single zip file:
+ * 
+   --html.createArchive "/pathToOutputFolder/report.zip"
+ * 
+ * Add --html.dataModel to show concepts in the browser from data instead of writing a page for each one.
+ * 
+ * Add --html.incremental to only write the files that have changed since the last report in the same folder.
+ * 
  * @author Phillip Beauvoir
  */
 public class HTMLReportProvider extends AbstractCommandLineProvider {
@@ -36,6 +44,9 @@ public class HTMLReportProvider extends AbstractCommandLineProvider {
     static final String PREFIX = Messages.HTMLReportProvider_0;
     
     static final String OPTION_CREATE_HTML_REPORT = "html.createReport"; //$NON-NLS-1$
+    static final String OPTION_CREATE_HTML_ARCHIVE = "html.createArchive"; //$NON-NLS-1$
+    static final String OPTION_DATA_MODEL = "html.dataModel"; //$NON-NLS-1$
+    static final String OPTION_INCREMENTAL = "html.incremental"; //$NON-NLS-1$
     
     public HTMLReportProvider() {
     }
@@ -47,16 +58,19 @@ public class HTMLReportProvider extends AbstractCommandLineProvider {
             return;
         }
         
-        String sOutput = commandLine.getOptionValue(OPTION_CREATE_HTML_REPORT);
+        boolean createArchive = commandLine.hasOption(OPTION_CREATE_HTML_ARCHIVE);
+        
+        String sOutput = commandLine.getOptionValue(createArchive ? OPTION_CREATE_HTML_ARCHIVE : OPTION_CREATE_HTML_REPORT);
         if(!StringUtils.isSet(sOutput)) {
             logError(Messages.HTMLReportProvider_1);
             return;
         }
 
-        File folderOutput = new File(sOutput);
+        File fileOutput = new File(sOutput);
+        File folderOutput = createArchive ? fileOutput.getAbsoluteFile().getParentFile() : fileOutput;
         folderOutput.mkdirs();
         if(!folderOutput.exists()) {
-            logError(NLS.bind(Messages.HTMLReportProvider_2, sOutput));
+            logError(NLS.bind(Messages.HTMLReportProvider_2, folderOutput));
             return;
         }
 
@@ -68,13 +82,23 @@ public class HTMLReportProvider extends AbstractCommandLineProvider {
         
         logMessage(NLS.bind(Messages.HTMLReportProvider_4, model.getName(), sOutput));
 
-        HTMLReportExporter ex = new HTMLReportExporter(model);
-        ex.createReport(folderOutput, "index.html", new NullProgressMonitor() { //$NON-NLS-1$
+        NullProgressMonitor monitor = new NullProgressMonitor() {
             @Override
             public void subTask(String name) {
                 logMessage(name);
             }
-        });
+        };
+        
+        HTMLReportExporter ex = new HTMLReportExporter(model);
+        ex.setDataModel(commandLine.hasOption(OPTION_DATA_MODEL));
+        ex.setIncremental(commandLine.hasOption(OPTION_INCREMENTAL));
+        
+        if(createArchive) {
+            ex.createArchive(fileOutput, "index.html", monitor); //$NON-NLS-1$
+        }
+        else {
+            ex.createReport(folderOutput, "index.html", monitor); //$NON-NLS-1$
+        }
 
         logMessage(Messages.HTMLReportProvider_5);
     }
@@ -95,10 +119,29 @@ public class HTMLReportProvider extends AbstractCommandLineProvider {
                 .build();
         options.addOption(option);
         
+        option = Option.builder()
+                .longOpt(OPTION_CREATE_HTML_ARCHIVE)
+                .hasArg().argName(Messages.HTMLReportProvider_6)
+                .desc(Messages.HTMLReportProvider_8)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_DATA_MODEL)
+                .desc(Messages.HTMLReportProvider_9)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_INCREMENTAL)
+                .desc(Messages.HTMLReportProvider_10)
+                .build();
+        options.addOption(option);
+        
         return options;
     }
     
     private boolean hasCorrectOptions(CommandLine commandLine) {
-        return commandLine.hasOption(OPTION_CREATE_HTML_REPORT);
+        return commandLine.hasOption(OPTION_CREATE_HTML_REPORT) || commandLine.hasOption(OPTION_CREATE_HTML_ARCHIVE);
     }
 }
@@ -10,6 +10,8 @@ public class Messages extends NLS {
 
     public static String HTMLReportProvider_1;
 
+    public static String HTMLReportProvider_10;
+
     public static String HTMLReportProvider_2;
 
     public static String HTMLReportProvider_3;
@@ -21,6 +23,10 @@ public class Messages extends NLS {
     public static String HTMLReportProvider_6;
 
     public static String HTMLReportProvider_7;
+
+    public static String HTMLReportProvider_8;
+
+    public static String HTMLReportProvider_9;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
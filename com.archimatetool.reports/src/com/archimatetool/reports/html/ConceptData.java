@@ -0,0 +1,216 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.reports.html;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IProperty;
+
+
+/**
+ * The concepts of a model as JSON data, for HTML reports that show concepts in the browser instead of writing a page for each one.<p>
+ *
+ * The concepts are split into data files of about CONCEPTS_PER_FILE concepts each. The data file of a concept is chosen
+ * by the hash of its identifier so that the concept page can find it without an index. Each data file is a script
+ * that calls <code>conceptData()</code> with an object of the concepts in it by identifier:
+ *
+ * <pre>
+ * conceptData({"id":{"type":"BusinessActor","name":"...","documentation":"...",
+ *     "properties":[["key","value"]],
+ *     "source":["id","name"],"target":["id","name"],
+ *     "relationships":[["id","type","name","source id","source name","target id","target name"]],
+ *     "views":[["id","name"]]}});
+ * </pre>
+ *
+ * Empty arrays are left out, and "source" and "target" are only there for relationships.
+ * A script is used rather than a plain JSON file so that the report can be opened from the file system.
+ *
+ * @author Phillip Beauvoir
+ */
+class ConceptData {
+
+    /**
+     * The average number of concepts in each data file
+     */
+    static final int CONCEPTS_PER_FILE = 250;
+
+    // Concepts in each data file
+    private List<List<IArchimateConcept>> files = new ArrayList<>();
+
+    /**
+     * @param concepts The concepts, in the order they are written to their data files
+     */
+    ConceptData(List<IArchimateConcept> concepts) {
+        int fileCount = Math.max(1, (concepts.size() + CONCEPTS_PER_FILE - 1) / CONCEPTS_PER_FILE);
+
+        for(int i = 0; i < fileCount; i++) {
+            files.add(new ArrayList<>());
+        }
+
+        for(IArchimateConcept concept : concepts) {
+            files.get(getFileIndex(concept.getId(), fileCount)).add(concept);
+        }
+    }
+
+    /**
+     * @return The number of data files
+     */
+    int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * @return The name of a data file
+     */
+    static String getFileName(int index) {
+        return "concepts-" + index + ".js"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * @return The index of the data file of a concept. This must be the same as dataFile() in the concept page.
+     */
+    static int getFileIndex(String id, int fileCount) {
+        return Math.floorMod(id.hashCode(), fileCount);
+    }
+
+    /**
+     * @return The content of a data file
+     */
+    String createFile(int index) {
+        StringBuilder sb = new StringBuilder("conceptData({"); //$NON-NLS-1$
+
+        boolean first = true;
+        for(IArchimateConcept concept : files.get(index)) {
+            if(!first) {
+                sb.append(',');
+            }
+            first = false;
+
+            appendString(sb, concept.getId());
+            sb.append(':');
+            appendConcept(sb, concept);
+        }
+
+        sb.append("});\n"); //$NON-NLS-1$
+
+        return sb.toString();
+    }
+
+    private void appendConcept(StringBuilder sb, IArchimateConcept concept) {
+        sb.append("{\"type\":"); //$NON-NLS-1$
+        appendString(sb, concept.eClass().getName());
+        sb.append(",\"name\":"); //$NON-NLS-1$
+        appendString(sb, concept.getName());
+        sb.append(",\"documentation\":"); //$NON-NLS-1$
+        appendString(sb, concept.getDocumentation());
+
+        if(!concept.getProperties().isEmpty()) {
+            sb.append(",\"properties\":["); //$NON-NLS-1$
+            for(int i = 0; i < concept.getProperties().size(); i++) {
+                IProperty property = concept.getProperties().get(i);
+                appendArray(sb, i, property.getKey(), property.getValue());
+            }
+            sb.append(']');
+        }
+
+        if(concept instanceof IArchimateRelationship) {
+            IArchimateRelationship relationship = (IArchimateRelationship)concept;
+            sb.append(",\"source\":"); //$NON-NLS-1$
+            appendArray(sb, 0, relationship.getSource().getId(), relationship.getSource().getName());
+            sb.append(",\"target\":"); //$NON-NLS-1$
+            appendArray(sb, 0, relationship.getTarget().getId(), relationship.getTarget().getName());
+        }
+
+        List<IArchimateRelationship> relationships = new ArrayList<>(concept.getSourceRelationships());
+        relationships.addAll(concept.getTargetRelationships());
+
+        if(!relationships.isEmpty()) {
+            sb.append(",\"relationships\":["); //$NON-NLS-1$
+            for(int i = 0; i < relationships.size(); i++) {
+                IArchimateRelationship relationship = relationships.get(i);
+                appendArray(sb, i, relationship.getId(), relationship.eClass().getName(), relationship.getName(),
+                        relationship.getSource().getId(), relationship.getSource().getName(),
+                        relationship.getTarget().getId(), relationship.getTarget().getName());
+            }
+            sb.append(']');
+        }
+
+        List<IDiagramModel> views = DiagramModelUtils.findReferencedDiagramsForArchimateConcept(concept);
+
+        if(!views.isEmpty()) {
+            sb.append(",\"views\":["); //$NON-NLS-1$
+            for(int i = 0; i < views.size(); i++) {
+                appendArray(sb, i, views.get(i).getId(), views.get(i).getName());
+            }
+            sb.append(']');
+        }
+
+        sb.append('}');
+    }
+
+    /**
+     * Append an array of strings, preceded by a comma if it is not the first in its list
+     */
+    private void appendArray(StringBuilder sb, int indexInList, String... values) {
+        if(indexInList > 0) {
+            sb.append(',');
+        }
+
+        sb.append('[');
+        for(int i = 0; i < values.length; i++) {
+            if(i > 0) {
+                sb.append(',');
+            }
+            appendString(sb, values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Append a string as a JSON string. Line and paragraph separators are escaped as well since they can't be in a script's strings.
+     */
+    static void appendString(StringBuilder sb, String s) {
+        sb.append('"');
+
+        if(s != null) {
+            for(int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                switch(c) {
+                    case '"':
+                        sb.append("\\\""); //$NON-NLS-1$
+                        break;
+                    case '\\':
+                        sb.append("\\\\"); //$NON-NLS-1$
+                        break;
+                    case '\n':
+                        sb.append("\\n"); //$NON-NLS-1$
+                        break;
+                    case '\r':
+                        sb.append("\\r"); //$NON-NLS-1$
+                        break;
+                    case '\t':
+                        sb.append("\\t"); //$NON-NLS-1$
+                        break;
+                    default:
+                        if(c < 0x20 || c == '\u2028' || c == '\u2029') {
+                            sb.append(String.format("\\u%04x", (int)c)); //$NON-NLS-1$
+                        }
+                        else {
+                            sb.append(c);
+                        }
+                        break;
+                }
+            }
+        }
+
+        sb.append('"');
+    }
+}
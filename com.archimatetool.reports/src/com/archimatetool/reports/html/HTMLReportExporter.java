@@ -5,25 +5,38 @@
  */
 package com.archimatetool.reports.html;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.core.runtime.FileLocator;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.dialogs.MessageDialogWithToggle;
 import org.eclipse.jface.dialogs.ProgressMonitorDialog;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.preference.IPreferenceStore;
@@ -79,6 +92,12 @@ public class HTMLReportExporter {
     public static File PREVIEW_FOLDER = new File(ArchiPlugin.INSTANCE.getUserDataFolder(), "html-report-preview"); //$NON-NLS-1$
     
     static final String PREFS_LAST_FOLDER = "Reports_LastFolder"; //$NON-NLS-1$
+    static final String PREFS_INCREMENTAL = "Reports_Incremental"; //$NON-NLS-1$
+    
+    /**
+     * Name of the manifest file in the model's folder when updating a report incrementally
+     */
+    static final String MANIFEST_FILE = "report-manifest.txt"; //$NON-NLS-1$
     
     private IArchimateModel fModel;
     
@@ -87,12 +106,57 @@ public class HTMLReportExporter {
      */
     private Map<IDiagramModel, Rectangle> diagramBoundsMap = new HashMap<IDiagramModel, Rectangle>();
     
+    private IProgressMonitor progressMonitor;
+    
     /**
-     * Map of new bounds for child objects in images for hit areas
+     * Number of threads that write pages and encode images. If this is 1 everything is done on the calling thread.
      */
-    private Map<String, BoundsWithAbsolutePosition> childBoundsMap = new HashMap<String, BoundsWithAbsolutePosition>();
+    private int threadCount = Runtime.getRuntime().availableProcessors();
     
-    private IProgressMonitor progressMonitor;
+    /**
+     * Worker pool, or null if writing on the calling thread
+     */
+    private ExecutorService executor;
+    
+    /**
+     * Tasks submitted to the worker pool, in the order they were submitted
+     */
+    private List<Future<?>> tasks;
+    
+    /**
+     * Image encoding tasks that have not finished. These hold the image data so the number of them is limited.
+     */
+    private Deque<Future<?>> imageTasks;
+    
+    /**
+     * Template group for each thread since templates are not thread safe
+     */
+    private ThreadLocal<STGroupFile> groupFiles;
+    
+    /**
+     * Whether to update the report incrementally
+     */
+    private boolean incremental;
+    
+    /**
+     * Manifest of the files in the report if updating incrementally, otherwise null
+     */
+    private ReportManifest manifest;
+    
+    /**
+     * Whether to write concepts as data that is shown in the browser
+     */
+    private boolean dataModel;
+    
+    /**
+     * Archive that the report is written to, or null if writing to a folder
+     */
+    private ReportArchive archive;
+    
+    /**
+     * Tasks in the worker pool whose content has not been added to the archive, in the order they were submitted
+     */
+    private Deque<ArchiveTask> archiveTasks;
     
     static class CancelledException extends IOException {
         public CancelledException(String message) {
@@ -100,6 +164,29 @@ public class HTMLReportExporter {
         }
     }
     
+    /**
+     * Creates the content of a page or image to write
+     */
+    private interface ReportTask {
+        /**
+         * @return The content, or null if the file does not need to be written
+         */
+        byte[] run() throws IOException;
+    }
+    
+    /**
+     * A task whose content is added to the archive when it has finished
+     */
+    private static class ArchiveTask {
+        File file;
+        Future<byte[]> content;
+        
+        ArchiveTask(File file, Future<byte[]> content) {
+            this.file = file;
+            this.content = content;
+        }
+    }
+    
     /**
      * Clean up preview files
      * @throws IOException
@@ -112,6 +199,35 @@ public class HTMLReportExporter {
         fModel = model;
     }
     
+    /**
+     * Set the number of threads that write pages and encode images. The default is the number of processors.
+     * The report is the same whatever the number of threads.
+     * @param threadCount The number of threads. If this is 1 everything is done on the calling thread.
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+    
+    /**
+     * Set whether to update the report incrementally. The default is false.<p>
+     * If true a manifest of the report's files and their hashes is kept in the model's folder.
+     * Pages are only written if their content has changed, View images are only created again if the View or
+     * anything drawn in it has changed, and files of the last report that are no longer needed are deleted.
+     * Changes to preferences that affect how Views are drawn are not detected, so create a full report after changing them.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+    
+    /**
+     * Set whether to write the model's concepts as data that is shown in the browser. The default is false.<p>
+     * If true there is no page for each concept. Instead the concepts are written as JSON data in a few files
+     * and one page shows any concept from this data. This makes a much smaller report with far fewer files for large models.
+     */
+    public void setDataModel(boolean dataModel) {
+        this.dataModel = dataModel;
+    }
+    
     public void export() throws IOException {
         File targetFolder = askSaveFolder();
         if(targetFolder == null) {
@@ -206,6 +322,31 @@ public class HTMLReportExporter {
         return createReport(targetFolder, indexFileName, null);
     }
     
+    /**
+     * Create the report in a single zip file instead of a folder. Nothing else is written to disk.<p>
+     * Pages and images are added as they are created, in the same order each time, so the same model makes the same zip file.
+     * Incremental updates do not apply to an archive.
+     * @param zipFile The zip file to create
+     * @param indexFileName The name of the index file in the zip file
+     * @param monitor Progress Monitor, can be null
+     */
+    public void createArchive(File zipFile, String indexFileName, IProgressMonitor monitor) throws IOException {
+        // Entry names are relative to this folder, nothing is written to it
+        File reportFolder = zipFile.getAbsoluteFile().getParentFile();
+        
+        try(ReportArchive reportArchive = new ReportArchive(zipFile, reportFolder)) {
+            archive = reportArchive;
+            createReport(reportFolder, indexFileName, monitor);
+        }
+        catch(IOException ex) {
+            zipFile.delete();
+            throw ex;
+        }
+        finally {
+            archive = null;
+        }
+    }
+    
     public File createReport(File targetFolder, String indexFileName, IProgressMonitor monitor) throws IOException {
         progressMonitor = monitor;
         
@@ -213,50 +354,102 @@ public class HTMLReportExporter {
             progressMonitor.beginTask(Messages.HTMLReportExporter_6, -1);
         }
         
+        // If updating incrementally read the manifest of the last report
+        manifest = null;
+        if(incremental && archive == null) {
+            File modelFolder = new File(targetFolder, fModel.getId());
+            modelFolder.mkdirs();
+            manifest = new ReportManifest(new File(modelFolder, MANIFEST_FILE), targetFolder);
+            manifest.load();
+        }
+        
         // Copy HTML skeleton to target
         copyHTMLSkeleton(targetFolder);
         
         // Copy hints files from the help plug-in
         copyHintsFiles(targetFolder);
         
+        if(archive != null) {
+            archive.addCopiedFiles();
+        }
+        
         setProgressSubTask(Messages.HTMLReportExporter_11, true);
         
         // Create sub-folders
         File elementsFolder = new File(targetFolder, fModel.getId() + "/elements"); //$NON-NLS-1$
-        elementsFolder.mkdirs(); // Make dir
-        
         File viewsFolder = new File(targetFolder, fModel.getId() + "/views"); //$NON-NLS-1$
-        viewsFolder.mkdirs(); // Make dir
-        
         File imagesFolder = new File(targetFolder, fModel.getId() + "/images"); //$NON-NLS-1$
-        imagesFolder.mkdirs(); // Make dir
-             
         File objectsFolder = new File(targetFolder, fModel.getId() + "/objects"); //$NON-NLS-1$
-        objectsFolder.mkdirs(); // Make dir
+        File dataFolder = new File(targetFolder, fModel.getId() + "/data"); //$NON-NLS-1$
+        File searchFolder = new File(targetFolder, fModel.getId() + "/search"); //$NON-NLS-1$
+        
+        if(archive == null) {
+            elementsFolder.mkdirs(); // Make dir
+            viewsFolder.mkdirs(); // Make dir
+            imagesFolder.mkdirs(); // Make dir
+            objectsFolder.mkdirs(); // Make dir
+            searchFolder.mkdirs(); // Make dir
+            if(dataModel) {
+                dataFolder.mkdirs(); // Make dir
+            }
+        }
 
-        // Instantiate templates files
-        File mainFile = new File(ArchiReportsPlugin.INSTANCE.getTemplatesFolder(), "st/main.stg"); //$NON-NLS-1$
-        STGroupFile groupFile = new STGroupFile(mainFile.getAbsolutePath(), '^', '^');
-        ST stFrame = groupFile.getInstanceOf("frame"); //$NON-NLS-1$
-        
-        groupFile.registerRenderer(String.class, new StringRenderer());
-        
-        // Write model purpose and properties html
-        writeElement(new File(elementsFolder, "model.html"), stFrame, fModel); //$NON-NLS-1$
+        // Instantiate templates files, one template group for each thread
+        File mainFile = new File(ArchiReportsPlugin.INSTANCE.getTemplatesFolder(), dataModel ? "st/datamodel.stg" : "st/main.stg"); //$NON-NLS-1$ //$NON-NLS-2$
+        groupFiles = ThreadLocal.withInitial(() -> {
+            STGroupFile groupFile = new STGroupFile(mainFile.getAbsolutePath(), '^', '^');
+            groupFile.registerRenderer(String.class, new StringRenderer());
+            return groupFile;
+        });
+        
+        // Pages and images are written by the worker pool. Diagram images are created on this thread.
+        executor = threadCount > 1 ? Executors.newFixedThreadPool(threadCount) : null;
+        tasks = new ArrayList<>();
+        imageTasks = new ArrayDeque<>();
+        archiveTasks = new ArrayDeque<>();
+        
+        List<IArchimateConcept> concepts = getConcepts();
+        int searchShardCount;
         
-        // Write all folders
-        writeFolders(elementsFolder, stFrame, fModel.getFolders());
-        
-        // Write other graphical objects
-        writeGraphicalObjects(objectsFolder, stFrame);
-        
-        // Write Diagrams and images
-        writeDiagrams(imagesFolder, viewsFolder, stFrame);
+        try {
+            // Write model purpose and properties html
+            writeElement(new File(elementsFolder, "model.html"), fModel); //$NON-NLS-1$
+            
+            // Write concepts as data and the page that shows them
+            if(dataModel) {
+                writeConceptData(dataFolder, elementsFolder, concepts);
+            }
+            // Write all folders
+            else {
+                writeFolders(elementsFolder, fModel.getFolders());
+            }
+            
+            // Write the search index while the worker pool writes the pages
+            searchShardCount = writeSearchIndex(searchFolder, concepts);
+            
+            // Write other graphical objects
+            writeGraphicalObjects(objectsFolder);
+            
+            // Write Diagrams and images
+            writeDiagrams(imagesFolder, viewsFolder);
+            
+            // Wait for the worker pool to finish
+            waitForTasks();
+        }
+        finally {
+            if(executor != null) {
+                executor.shutdownNow();
+            }
+            executor = null;
+            tasks = null;
+            imageTasks = null;
+            archiveTasks = null;
+        }
         
         setProgressSubTask(Messages.HTMLReportExporter_13, true);
         
         // Write root model.html frame
-        ST stModel = groupFile.getInstanceOf("modelreport"); //$NON-NLS-1$
+        ST stModel = groupFiles.get().getInstanceOf("modelreport"); //$NON-NLS-1$
         stModel.add("model", fModel); //$NON-NLS-1$
         stModel.add("strategyFolder", fModel.getFolder(FolderType.STRATEGY)); //$NON-NLS-1$
         stModel.add("businessFolder", fModel.getFolder(FolderType.BUSINESS)); //$NON-NLS-1$
@@ -267,10 +460,19 @@ public class HTMLReportExporter {
         stModel.add("otherFolder", fModel.getFolder(FolderType.OTHER)); //$NON-NLS-1$
         stModel.add("relationsFolder", fModel.getFolder(FolderType.RELATIONS)); //$NON-NLS-1$
         stModel.add("viewsFolder", fModel.getFolder(FolderType.DIAGRAMS)); //$NON-NLS-1$
+        stModel.add("searchShardCount", searchShardCount); //$NON-NLS-1$
         
         File indexFile = new File(targetFolder, indexFileName);
-        try(OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(indexFile), "UTF8")) { //$NON-NLS-1$
-            writer.write(stModel.render());
+        write(indexFile, render(indexFile, stModel));
+        
+        groupFiles.remove();
+        groupFiles = null;
+        
+        // Delete files of the last report that are not in this one and save the manifest for next time
+        if(manifest != null) {
+            manifest.deleteOrphanedFiles();
+            manifest.save();
+            manifest = null;
         }
         
         return indexFile;
@@ -284,7 +486,7 @@ public class HTMLReportExporter {
         setProgressSubTask(Messages.HTMLReportExporter_9, true);
         
         File srcDir = new File(ArchiReportsPlugin.INSTANCE.getTemplatesFolder(), "html"); //$NON-NLS-1$
-        FileUtils.copyFolder(srcDir, targetFolder);
+        copyFolder(srcDir, targetFolder);
     }
     
     /**
@@ -297,38 +499,50 @@ public class HTMLReportExporter {
         // Main hints
         Bundle bundle = Platform.getBundle("com.archimatetool.help"); //$NON-NLS-1$
         URL url = FileLocator.resolve(bundle.getEntry("hints")); //$NON-NLS-1$
-        FileUtils.copyFolder(new File(url.getPath()), new File(targetFolder, "hints")); //$NON-NLS-1$
+        copyFolder(new File(url.getPath()), new File(targetFolder, "hints")); //$NON-NLS-1$
         
         // Canvas hints
         bundle = Platform.getBundle("com.archimatetool.canvas"); //$NON-NLS-1$
         url = FileLocator.resolve(bundle.getEntry("help/hints")); //$NON-NLS-1$
-        FileUtils.copyFolder(new File(url.getPath()), new File(targetFolder, "hints")); //$NON-NLS-1$
+        copyFolder(new File(url.getPath()), new File(targetFolder, "hints")); //$NON-NLS-1$
+    }
+    
+    /**
+     * Copy a folder to the report folder or to the archive
+     */
+    private void copyFolder(File srcFolder, File destFolder) throws IOException {
+        if(archive != null) {
+            archive.copyFolder(srcFolder, destFolder);
+        }
+        else {
+            FileUtils.copyFolder(srcFolder, destFolder);
+        }
     }
 
     /**
      * Write all folders
      */
-    private void writeFolders(File elementsFolder, ST stFrame, List<IFolder> folders) throws IOException {
+    private void writeFolders(File elementsFolder, List<IFolder> folders) throws IOException {
     	for(IFolder folder : folders) {
-    		writeFolder(elementsFolder, stFrame, folder);
+    		writeFolder(elementsFolder, folder);
     	}
     }
     
     /**
      * Write a single folder
      */
-    private void writeFolder(File elementsFolder, ST stFrame, IFolder folder) throws IOException {
-    	writeElements(elementsFolder, stFrame, folder.getElements());
-    	writeFolders(elementsFolder, stFrame, folder.getFolders());
+    private void writeFolder(File elementsFolder, IFolder folder) throws IOException {
+    	writeElements(elementsFolder, folder.getElements());
+    	writeFolders(elementsFolder, folder.getFolders());
     }
     
     /**
      * Write all elements
      */
-    private void writeElements(File elementsFolder, ST stFrame, List<EObject> list) throws IOException {
+    private void writeElements(File elementsFolder, List<EObject> list) throws IOException {
         for(EObject object : list) {
             if(object instanceof IArchimateConcept) {
-                writeElement(new File(elementsFolder, ((IIdentifier) object).getId() + ".html"), stFrame, object); //$NON-NLS-1$
+                writeElement(new File(elementsFolder, ((IIdentifier) object).getId() + ".html"), object); //$NON-NLS-1$
             }
         }
     }
@@ -336,28 +550,84 @@ public class HTMLReportExporter {
     /**
      * Write a single element
      */
-    private void writeElement(File elementFile, ST stFrame, EObject component) throws IOException {
-        stFrame.remove("element"); //$NON-NLS-1$
-        //frame.remove("children");
-        stFrame.add("element", component); //$NON-NLS-1$
+    private void writeElement(File elementFile, EObject component) throws IOException {
+        submit(elementFile, () -> {
+            ST stFrame = groupFiles.get().getInstanceOf("frame"); //$NON-NLS-1$
+            stFrame.add("element", component); //$NON-NLS-1$
+            return render(elementFile, stFrame);
+        });
+    }
+    
+    /**
+     * @return All the concepts in the model, in folder order
+     */
+    private List<IArchimateConcept> getConcepts() {
+        List<IArchimateConcept> concepts = new ArrayList<>();
         
-        try(OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(elementFile), "UTF8")) { //$NON-NLS-1$
-            writer.write(stFrame.render());
+        for(TreeIterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IArchimateConcept) {
+                concepts.add((IArchimateConcept)eObject);
+            }
+            // Concepts are not in Views
+            else if(eObject instanceof IDiagramModel) {
+                iter.prune();
+            }
         }
-
-        updateProgress();
+        
+        return concepts;
+    }
+    
+    /**
+     * Write the search index of the concepts
+     * @return The number of shard files
+     */
+    private int writeSearchIndex(File searchFolder, List<IArchimateConcept> concepts) throws IOException {
+        SearchIndex searchIndex = new SearchIndex(concepts);
+        
+        File conceptsFile = new File(searchFolder, SearchIndex.CONCEPTS_FILE);
+        submit(conceptsFile, () -> render(conceptsFile, searchIndex.createConceptsFile()));
+        
+        for(int i = 0; i < searchIndex.getShardCount(); i++) {
+            int index = i;
+            File shardFile = new File(searchFolder, SearchIndex.getShardFileName(index));
+            submit(shardFile, () -> render(shardFile, searchIndex.createShardFile(index)));
+        }
+        
+        return searchIndex.getShardCount();
+    }
+    
+    /**
+     * Write the concepts as data files and the page that shows a concept from them
+     */
+    private void writeConceptData(File dataFolder, File elementsFolder, List<IArchimateConcept> concepts) throws IOException {
+        ConceptData conceptData = new ConceptData(concepts);
+        
+        for(int i = 0; i < conceptData.getFileCount(); i++) {
+            int index = i;
+            File dataFile = new File(dataFolder, ConceptData.getFileName(index));
+            submit(dataFile, () -> render(dataFile, conceptData.createFile(index)));
+        }
+        
+        File conceptFile = new File(elementsFolder, "concept.html"); //$NON-NLS-1$
+        
+        submit(conceptFile, () -> {
+            ST stConcept = groupFiles.get().getInstanceOf("concept"); //$NON-NLS-1$
+            stConcept.add("fileCount", conceptData.getFileCount()); //$NON-NLS-1$
+            return render(conceptFile, stConcept);
+        });
     }
     
     /**
      * Write graphical objects
      */
-    private void writeGraphicalObjects(File objectsFolder, ST stFrame) throws IOException {
+    private void writeGraphicalObjects(File objectsFolder) throws IOException {
         for(IDiagramModel dm : fModel.getDiagramModels()) {
             for(Iterator<EObject> iter =  dm.eAllContents(); iter.hasNext();) {
                 EObject eObject = iter.next();
                 if(eObject instanceof IDiagramModelObject && !(eObject instanceof IDiagramModelArchimateObject) 
                         && !(eObject instanceof IDiagramModelReference)) {
-                    writeElement(new File(objectsFolder, ((IIdentifier) eObject).getId() + ".html"), stFrame, eObject); //$NON-NLS-1$
+                    writeElement(new File(objectsFolder, ((IIdentifier) eObject).getId() + ".html"), eObject); //$NON-NLS-1$
                 }
             }
         }
@@ -366,7 +636,7 @@ public class HTMLReportExporter {
     /**
      * Write diagrams
      */
-    private void writeDiagrams(File imagesFolder, File viewsFolder, ST stFrame) throws IOException {
+    private void writeDiagrams(File imagesFolder, File viewsFolder) throws IOException {
         List<IDiagramModel> diagramModels = fModel.getDiagramModels();
         
         if(diagramModels.isEmpty()) {
@@ -383,23 +653,65 @@ public class HTMLReportExporter {
             // Add the necessary bounds in order to get correct absolute coordinates for the elements in the generated image
             Rectangle bounds = diagramBoundsMap.get(dm);
             
+            // Map of new bounds for child objects in the image for hit areas
+            Map<String, BoundsWithAbsolutePosition> childBoundsMap = new HashMap<String, BoundsWithAbsolutePosition>();
+            
             // process the children
             for(IDiagramModelObject dmo: dm.getChildren() ) {
-                addNewBounds(dmo, bounds.x * -1, bounds.y * -1);
+                addNewBounds(childBoundsMap, dmo, bounds.x * -1, bounds.y * -1);
             }
-
-            stFrame.remove("element"); //$NON-NLS-1$
-            stFrame.add("element", dm); //$NON-NLS-1$
-            
-            stFrame.remove("map"); //$NON-NLS-1$
-            stFrame.add("map", childBoundsMap); //$NON-NLS-1$
             
             File viewFile = new File(viewsFolder, dm.getId() + ".html"); //$NON-NLS-1$
-            try(OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(viewFile), "UTF8")) { //$NON-NLS-1$
-                writer.write(stFrame.render());
-            }
             
-            updateProgress();
+            submit(viewFile, () -> {
+                ST stFrame = groupFiles.get().getInstanceOf("frame"); //$NON-NLS-1$
+                stFrame.add("element", dm); //$NON-NLS-1$
+                stFrame.add("map", childBoundsMap); //$NON-NLS-1$
+                return render(viewFile, stFrame);
+            });
+        }
+    }
+    
+    /**
+     * Render a template for a file
+     * @return The rendered bytes, or null if updating incrementally and the file has not changed
+     */
+    private byte[] render(File file, ST st) {
+        return render(file, st.render());
+    }
+    
+    /**
+     * @return The bytes of content for a file, or null if updating incrementally and the file has not changed
+     */
+    private byte[] render(File file, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        
+        // If updating incrementally don't write the file if it has not changed
+        if(manifest != null) {
+            long hash = ReportManifest.hash(bytes);
+            manifest.put(file, hash, null);
+            if(manifest.getUnchangedEntry(file, hash) != null) {
+                return null;
+            }
+        }
+        
+        return bytes;
+    }
+    
+    /**
+     * Write a file to the report folder or add it to the archive
+     * @param bytes The content, or null to not write the file
+     */
+    private void write(File file, byte[] bytes) throws IOException {
+        if(bytes == null) {
+            return;
+        }
+        
+        if(archive != null) {
+            archive.add(file, bytes);
+        }
+        else {
+            Files.write(file.toPath(), bytes);
         }
     }
     
@@ -419,9 +731,6 @@ public class HTMLReportExporter {
         for(IDiagramModel dm : diagramModels) {
             setProgressSubTask(NLS.bind(Messages.HTMLReportExporter_4, i++, total), true);
 
-            ModelReferencedImage geoImage = DiagramUtils.createModelReferencedImage(dm, 1, 10);
-            Image image = geoImage.getImage();
-            
             // Generate file name
             String diagramName = dm.getId();
             if(StringUtils.isSet(diagramName)) {
@@ -441,21 +750,159 @@ public class HTMLReportExporter {
             }
 
             nameTable.put(dm, diagramName);
+            
+            File file = new File(imagesFolder, diagramName);
+            
+            // If updating incrementally and the View has not changed keep the image and its bounds from the last report
+            long hash = 0;
+            if(manifest != null) {
+                hash = ReportManifest.hashDiagramModel(dm, ImageFactory.getImageDeviceZoom());
+                ReportManifest.Entry entry = manifest.getUnchangedEntry(file, hash);
+                Rectangle bounds = entry != null ? stringToBounds(entry.data) : null;
+                if(bounds != null) {
+                    diagramBoundsMap.put(dm, bounds);
+                    manifest.put(file, hash, entry.data);
+                    continue;
+                }
+            }
 
+            ModelReferencedImage geoImage = DiagramUtils.createModelReferencedImage(dm, 1, 10);
+            Image image = geoImage.getImage();
+            
             // Get and store the bounds of the top-left element in the figure to act as overall x,y offset
             Rectangle bounds = geoImage.getBounds();
             bounds.performScale(ImageFactory.getImageDeviceZoom() / 100); // Account for device zoom level
             diagramBoundsMap.put(dm, bounds);
+            
+            if(manifest != null) {
+                manifest.put(file, hash, boundsToString(bounds));
+            }
 
+            // Get the image data on this thread and encode it in the worker pool
+            ImageData imageData;
             try {
-                ImageLoader loader = new ImageLoader();
-                loader.data = new ImageData[] { image.getImageData(ImageFactory.getImageDeviceZoom()) };
-                File file = new File(imagesFolder, diagramName);
-                loader.save(file.getAbsolutePath(), SWT.IMAGE_PNG);
+                imageData = image.getImageData(ImageFactory.getImageDeviceZoom());
             }
             finally {
                 image.dispose();
             }
+            
+            Future<?> task = submit(file, () -> {
+                ImageLoader loader = new ImageLoader();
+                loader.data = new ImageData[] { imageData };
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                loader.save(out, SWT.IMAGE_PNG);
+                return out.toByteArray();
+            });
+            
+            // Limit the image data waiting to be encoded
+            if(task != null) {
+                imageTasks.add(task);
+                while(imageTasks.size() > threadCount * 2) {
+                    waitForTask(imageTasks.remove());
+                }
+            }
+        }
+    }
+    
+    private String boundsToString(Rectangle bounds) {
+        return bounds.x + "," + bounds.y + "," + bounds.width + "," + bounds.height; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+    
+    /**
+     * @return The bounds stored by boundsToString(), or null if s is not valid
+     */
+    private Rectangle stringToBounds(String s) {
+        String[] values = s.split(","); //$NON-NLS-1$
+        if(values.length != 4) {
+            return null;
+        }
+        
+        try {
+            return new Rectangle(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]), Integer.parseInt(values[3]));
+        }
+        catch(NumberFormatException ex) {
+            return null;
+        }
+    }
+    
+    /**
+     * Run a task in the worker pool, or on this thread if there is no worker pool
+     * @return The task's Future, or null if it was run on this thread
+     */
+    private Future<?> submit(File file, ReportTask task) throws IOException {
+        if(executor == null) {
+            write(file, task.run());
+            updateProgress();
+            return null;
+        }
+        
+        // Content for the archive is added on this thread in the order it was submitted so that the archive is always the same.
+        // The number of tasks waiting is limited since they hold their content until it is added.
+        if(archive != null) {
+            Future<byte[]> future = executor.submit(task::run);
+            archiveTasks.add(new ArchiveTask(file, future));
+            while(archiveTasks.size() > threadCount * 2) {
+                addToArchive(archiveTasks.remove());
+            }
+            return future;
+        }
+        
+        Future<?> future = executor.submit(() -> {
+            write(file, task.run());
+            return null;
+        });
+        
+        tasks.add(future);
+        
+        return future;
+    }
+    
+    /**
+     * Wait for a task to finish and add its content to the archive
+     */
+    private void addToArchive(ArchiveTask task) throws IOException {
+        write(task.file, waitForTask(task.content));
+    }
+    
+    /**
+     * Wait for all tasks in the worker pool to finish, updating progress as they do
+     */
+    private void waitForTasks() throws IOException {
+        while(!archiveTasks.isEmpty()) {
+            addToArchive(archiveTasks.remove());
+        }
+        
+        int total = tasks.size();
+        int done = 0;
+        
+        for(Future<?> task : tasks) {
+            waitForTask(task);
+            setProgressSubTask(NLS.bind(Messages.HTMLReportExporter_7, ++done, total), true);
+        }
+    }
+    
+    /**
+     * Wait for a task in the worker pool to finish while keeping the UI responsive and checking for cancellation
+     * @return The task's result
+     */
+    private <T> T waitForTask(Future<T> task) throws IOException {
+        while(true) {
+            try {
+                return task.get(100, TimeUnit.MILLISECONDS);
+            }
+            catch(TimeoutException ex) {
+                updateProgress();
+            }
+            catch(InterruptedException ex) {
+                throw new CancelledException(Messages.HTMLReportExporter_14);
+            }
+            catch(ExecutionException ex) {
+                if(ex.getCause() instanceof IOException) {
+                    throw (IOException)ex.getCause();
+                }
+                throw new IOException(ex.getCause());
+            }
         }
     }
     
@@ -494,16 +941,24 @@ public class HTMLReportExporter {
             return null;
         }
         
+        // Update the report incrementally if this was chosen last time
+        incremental = store.getBoolean(PREFS_INCREMENTAL);
+        
         File folder = new File(path);
         if(folder.exists()) {
             String[] children = folder.list();
             if(children != null && children.length > 0) {
-                boolean result = MessageDialog.openQuestion(Display.getCurrent().getActiveShell(),
+                MessageDialogWithToggle dialog = MessageDialogWithToggle.openYesNoQuestion(Display.getCurrent().getActiveShell(),
                         Messages.HTMLReportExporter_2,
-                        NLS.bind(Messages.HTMLReportExporter_5, folder));
-                if(!result) {
+                        NLS.bind(Messages.HTMLReportExporter_5, folder),
+                        Messages.HTMLReportExporter_8,
+                        incremental,
+                        null,
+                        null);
+                if(dialog.getReturnCode() != IDialogConstants.YES_ID) {
                     return null;
                 }
+                incremental = dialog.getToggleState();
             }
         }
         else {
@@ -511,6 +966,7 @@ public class HTMLReportExporter {
         }
         
         store.setValue(PREFS_LAST_FOLDER, folder.getAbsolutePath());
+        store.setValue(PREFS_INCREMENTAL, incremental);
         
         // TODO: Bug on Mac 10.12 and newer - Open dialog does not close straight away
         // See https://bugs.eclipse.org/bugs/show_bug.cgi?id=527306
@@ -535,7 +991,7 @@ public class HTMLReportExporter {
     /**
      * Add new bounds for each diagram object in relation to its parent offset x,y
      */
-    private void addNewBounds(IDiagramModelObject dmo, int offsetX, int offsetY) {
+    private void addNewBounds(Map<String, BoundsWithAbsolutePosition> childBoundsMap, IDiagramModelObject dmo, int offsetX, int offsetY) {
         // Add new bounds caled to device zoom
         BoundsWithAbsolutePosition newBounds = new BoundsWithAbsolutePosition(dmo.getBounds(), ImageFactory.getImageDeviceZoom() / 100);
         newBounds.setOffset(offsetX, offsetY); // Add offset
@@ -544,7 +1000,7 @@ public class HTMLReportExporter {
         // Children
         if(dmo instanceof IDiagramModelContainer) {
             for(IDiagramModelObject child: ((IDiagramModelContainer)dmo).getChildren() ) {
-                addNewBounds(child, newBounds.getX1(), newBounds.getY1());
+                addNewBounds(childBoundsMap, child, newBounds.getX1(), newBounds.getY1());
             }
         }
     }
@@ -35,6 +35,10 @@ public class Messages extends NLS {
 
     public static String HTMLReportExporter_6;
 
+    public static String HTMLReportExporter_7;
+
+    public static String HTMLReportExporter_8;
+
     public static String HTMLReportExporter_9;
 
     static {
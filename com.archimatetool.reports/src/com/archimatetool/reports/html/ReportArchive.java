@@ -0,0 +1,107 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.reports.html;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+
+/**
+ * Writes the files of an HTML report to a single zip file instead of a folder.<p>
+ *
+ * Files are addressed as if they were written to the report folder and are added as entries relative to it.
+ * Every entry has the same time stamp so that the same files added in the same order make the same zip file.
+ *
+ * @author Phillip Beauvoir
+ */
+class ReportArchive implements Closeable {
+
+    /**
+     * Time stamp of all entries
+     */
+    private static final long ENTRY_TIME = new GregorianCalendar(1980, Calendar.FEBRUARY, 1).getTimeInMillis();
+
+    private ZipOutputStream zOut;
+    private File reportFolder;
+
+    // Entry name -> source file of copied folders, sorted by entry name
+    private Map<String, File> copiedFiles = new TreeMap<>();
+
+    /**
+     * @param zipFile The zip file to write
+     * @param reportFolder The report folder that entry names are relative to. Nothing is written to it.
+     */
+    ReportArchive(File zipFile, File reportFolder) throws IOException {
+        this.reportFolder = reportFolder;
+        zOut = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(zipFile)));
+    }
+
+    /**
+     * Add a file's content
+     */
+    void add(File file, byte[] bytes) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(getEntryName(file));
+        zipEntry.setTime(ENTRY_TIME);
+        zOut.putNextEntry(zipEntry);
+        zOut.write(bytes);
+        zOut.closeEntry();
+    }
+
+    /**
+     * Copy the files of a folder and its sub-folders to destFolder.
+     * As with FileUtils.copyFolder() a file replaces one that was copied to the same place before.
+     * The files are not added until addCopiedFiles() is called.
+     */
+    void copyFolder(File srcFolder, File destFolder) throws IOException {
+        File[] files = srcFolder.listFiles();
+        if(files == null) {
+            throw new IOException("Source folder does not exist"); //$NON-NLS-1$
+        }
+
+        for(File file : files) {
+            if(file.isDirectory()) {
+                copyFolder(file, new File(destFolder, file.getName()));
+            }
+            else {
+                copiedFiles.put(getEntryName(new File(destFolder, file.getName())), file);
+            }
+        }
+    }
+
+    /**
+     * Add the files copied by copyFolder(), sorted by entry name
+     */
+    void addCopiedFiles() throws IOException {
+        for(Map.Entry<String, File> entry : copiedFiles.entrySet()) {
+            ZipEntry zipEntry = new ZipEntry(entry.getKey());
+            zipEntry.setTime(ENTRY_TIME);
+            zOut.putNextEntry(zipEntry);
+            Files.copy(entry.getValue().toPath(), zOut);
+            zOut.closeEntry();
+        }
+
+        copiedFiles.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        zOut.close();
+    }
+
+    private String getEntryName(File file) {
+        return reportFolder.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.reports.html;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.archimatetool.editor.model.IArchiveManager;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelImageProvider;
+import com.archimatetool.model.IIdentifier;
+
+
+/**
+ * Manifest of the files in an HTML report and the hash of each one, used to update a report incrementally.<p>
+ *
+ * Each line of the manifest file is "hash&lt;TAB&gt;data&lt;TAB&gt;path" where the hash is a 64 bit FNV-1a hash in hex,
+ * data is any extra data stored with the file (or empty) and path is the path of the file relative to the report folder.
+ * For pages the hash is the hash of the page's content. For View images it is the hash of the View's content
+ * since creating the image is what takes the time, and the data is the image's bounds.
+ *
+ * @author Phillip Beauvoir
+ */
+class ReportManifest {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static class Entry {
+        final long hash;
+        final String data;
+
+        Entry(long hash, String data) {
+            this.hash = hash;
+            this.data = data == null ? "" : data; //$NON-NLS-1$
+        }
+    }
+
+    private File manifestFile;
+    private File reportFolder;
+
+    // Path -> Entry from the last report
+    private Map<String, Entry> previousEntries = new HashMap<>();
+
+    // Path -> Entry for this report. Pages are written by more than one thread.
+    private Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param manifestFile The manifest file
+     * @param reportFolder The report folder that paths are relative to
+     */
+    ReportManifest(File manifestFile, File reportFolder) {
+        this.manifestFile = manifestFile;
+        this.reportFolder = reportFolder;
+    }
+
+    /**
+     * Read the manifest of the last report. If there is no manifest file there are no entries.
+     */
+    void load() throws IOException {
+        previousEntries.clear();
+
+        if(!manifestFile.exists()) {
+            return;
+        }
+
+        try(BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 3); //$NON-NLS-1$
+                if(parts.length == 3) {
+                    try {
+                        previousEntries.put(parts[2], new Entry(Long.parseUnsignedLong(parts[0], 16), parts[1]));
+                    }
+                    catch(NumberFormatException ex) {
+                        // Ignore the line. The file will be written again.
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the manifest of this report, sorted by path
+     */
+    void save() throws IOException {
+        try(Writer writer = Files.newBufferedWriter(manifestFile.toPath(), StandardCharsets.UTF_8)) {
+            for(Map.Entry<String, Entry> mapEntry : new TreeMap<>(entries).entrySet()) {
+                writer.write(Long.toHexString(mapEntry.getValue().hash));
+                writer.write('\t');
+                writer.write(mapEntry.getValue().data);
+                writer.write('\t');
+                writer.write(mapEntry.getKey());
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * @return The entry for file from the last report if the file still exists and its hash is the same, otherwise null
+     */
+    Entry getUnchangedEntry(File file, long hash) {
+        Entry entry = previousEntries.get(getPath(file));
+        return entry != null && entry.hash == hash && file.exists() ? entry : null;
+    }
+
+    /**
+     * Add a file written to, or kept in, this report
+     */
+    void put(File file, long hash, String data) {
+        entries.put(getPath(file), new Entry(hash, data));
+    }
+
+    /**
+     * Delete the files that were in the last report and are not in this one
+     * @return The number of files deleted
+     */
+    int deleteOrphanedFiles() {
+        int count = 0;
+
+        for(String path : previousEntries.keySet()) {
+            if(!entries.containsKey(path)) {
+                File file = new File(reportFolder, path);
+                if(file.isFile() && file.delete()) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    private String getPath(File file) {
+        return reportFolder.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    // ========================================= Hashes ======================================
+
+    /**
+     * @return A 64 bit FNV-1a hash of bytes
+     */
+    static long hash(byte[] bytes) {
+        long hash = FNV_OFFSET_BASIS;
+
+        for(byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return hash with a String added to it
+     */
+    static long hash(long hash, String value) {
+        if(value == null) {
+            return hash * FNV_PRIME;
+        }
+
+        // Length first so that ("ab", "c") and ("a", "bc") are different
+        hash = (hash ^ value.length()) * FNV_PRIME;
+
+        for(int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return A 64 bit FNV-1a hash of everything that is drawn in the image of a View:
+     *         the View, all of its diagram objects and connections, the concepts and Views that they reference
+     *         and the content of the images that they show.
+     */
+    static long hashDiagramModel(IDiagramModel dm, int deviceZoom) {
+        long hash = hash(FNV_OFFSET_BASIS, Integer.toString(deviceZoom));
+
+        hash = hashObject(hash, dm);
+
+        IArchiveManager archiveManager = dm.getArchimateModel() != null ? (IArchiveManager)dm.getArchimateModel().getAdapter(IArchiveManager.class) : null;
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            hash = hashObject(hash, eObject);
+
+            // The image path does not change if the image is loaded or replaced
+            if(eObject instanceof IDiagramModelImageProvider) {
+                hash = hashImage(hash, ((IDiagramModelImageProvider)eObject).getImagePath(), archiveManager);
+            }
+        }
+
+        return hash;
+    }
+
+    private static long hashImage(long hash, String imagePath, IArchiveManager archiveManager) {
+        byte[] bytes = imagePath != null && archiveManager != null ? archiveManager.getBytesFromEntry(imagePath) : null;
+
+        if(bytes == null) {
+            return hash * FNV_PRIME;
+        }
+
+        hash = (hash ^ bytes.length) * FNV_PRIME;
+
+        for(byte b : bytes) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return hash with an object's type, attributes and non-containment references added to it
+     */
+    private static long hashObject(long hash, EObject eObject) {
+        hash = hashAttributes(hash, eObject);
+
+        for(EReference reference : eObject.eClass().getEAllReferences()) {
+            if(reference.isContainment() || reference.isContainer() || reference.isTransient() || reference.isDerived()) {
+                continue;
+            }
+
+            Object value = eObject.eGet(reference);
+            if(value instanceof List<?>) {
+                for(Object o : (List<?>)value) {
+                    hash = hashReference(hash, o);
+                }
+            }
+            else {
+                hash = hashReference(hash, value);
+            }
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return hash with a referenced object added to it. Concepts and Views are drawn with their names and so on,
+     *         other objects are in the same View and are added by their identifier.
+     */
+    private static long hashReference(long hash, Object value) {
+        if(value instanceof IArchimateConcept) {
+            hash = hashAttributes(hash, (EObject)value);
+            for(EObject child : ((EObject)value).eContents()) {
+                hash = hashAttributes(hash, child);
+            }
+        }
+        else if(value instanceof IDiagramModel) {
+            hash = hashAttributes(hash, (EObject)value);
+        }
+        else if(value instanceof IIdentifier) {
+            hash = hash(hash, ((IIdentifier)value).getId());
+        }
+        else {
+            hash = hash(hash, value == null ? null : value.toString());
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return hash with an object's type and attributes added to it
+     */
+    private static long hashAttributes(long hash, EObject eObject) {
+        hash = hash(hash, eObject.eClass().getName());
+
+        for(EAttribute attribute : eObject.eClass().getEAllAttributes()) {
+            if(attribute.isTransient() || attribute.isDerived()) {
+                continue;
+            }
+
+            Object value = eObject.eGet(attribute);
+            if(value instanceof List<?>) {
+                for(Object o : (List<?>)value) {
+                    hash = hash(hash, String.valueOf(o));
+                }
+            }
+            else {
+                hash = hash(hash, value == null ? null : value.toString());
+            }
+        }
+
+        return hash;
+    }
+}
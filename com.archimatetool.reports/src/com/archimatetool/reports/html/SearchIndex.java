@@ -0,0 +1,235 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.reports.html;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IProperty;
+
+
+/**
+ * Inverted index of the words in the names, documentation and property values of a model's concepts, for the report's search.<p>
+ *
+ * The index is written as static files that the search in the report's index page loads when it needs them:
+ *
+ * <ul>
+ * <li>CONCEPTS_FILE lists the concepts so that a concept is referred to by its position in the list:
+ *     <code>searchConcepts([["id","name","type"],...]);</code></li>
+ * <li>Each shard file has the tokens whose first two characters hash to that shard, sorted, with the positions of the
+ *     concepts they are in as differences from the previous position:
+ *     <code>searchShard(0,[["token",[1,4,10]],...]);</code></li>
+ * </ul>
+ *
+ * Since all tokens with the same first two characters are in the same shard a search for the start of a word needs only one shard.
+ * Tokenizing and choosing a shard must be the same as in search.js.
+ *
+ * @author Phillip Beauvoir
+ */
+class SearchIndex {
+
+    static final String CONCEPTS_FILE = "concepts.js"; //$NON-NLS-1$
+
+    /**
+     * The average number of tokens in each shard
+     */
+    static final int TOKENS_PER_SHARD = 2000;
+
+    /**
+     * Shorter tokens are not indexed
+     */
+    static final int MIN_TOKEN_LENGTH = 2;
+
+    /**
+     * Longer tokens are cut to this length
+     */
+    static final int MAX_TOKEN_LENGTH = 40;
+
+    /**
+     * Positions of the concepts that a token is in
+     */
+    private static class Postings {
+        int[] positions = new int[4];
+        int size;
+
+        void add(int position) {
+            // Concepts are added in order so a token that is in a concept more than once is the last one added
+            if(size > 0 && positions[size - 1] == position) {
+                return;
+            }
+            if(size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    private List<IArchimateConcept> concepts;
+
+    // Tokens in each shard, sorted
+    private List<TreeMap<String, Postings>> shards = new ArrayList<>();
+
+    /**
+     * @param concepts The concepts to index. A concept's position in this list is how the index refers to it.
+     */
+    SearchIndex(List<IArchimateConcept> concepts) {
+        this.concepts = concepts;
+
+        Map<String, Postings> tokens = new HashMap<>();
+
+        for(int i = 0; i < concepts.size(); i++) {
+            IArchimateConcept concept = concepts.get(i);
+
+            addTokens(tokens, concept.getName(), i);
+            addTokens(tokens, concept.getDocumentation(), i);
+
+            for(IProperty property : concept.getProperties()) {
+                addTokens(tokens, property.getValue(), i);
+            }
+        }
+
+        int shardCount = Math.max(1, (tokens.size() + TOKENS_PER_SHARD - 1) / TOKENS_PER_SHARD);
+
+        for(int i = 0; i < shardCount; i++) {
+            shards.add(new TreeMap<>());
+        }
+
+        for(Map.Entry<String, Postings> entry : tokens.entrySet()) {
+            shards.get(getShardIndex(entry.getKey(), shardCount)).put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void addTokens(Map<String, Postings> tokens, String text, int position) {
+        for(String token : tokenize(text)) {
+            tokens.computeIfAbsent(token, t -> new Postings()).add(position);
+        }
+    }
+
+    /**
+     * @return The number of shard files
+     */
+    int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @return The name of a shard file
+     */
+    static String getShardFileName(int index) {
+        return "index-" + index + ".js"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    /**
+     * @return The index of the shard of a token, from the hash of its first two characters
+     */
+    static int getShardIndex(String token, int shardCount) {
+        return Math.floorMod(token.substring(0, 2).hashCode(), shardCount);
+    }
+
+    /**
+     * @return The lower case tokens in text that are at least MIN_TOKEN_LENGTH characters long, cut to MAX_TOKEN_LENGTH
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+
+        if(text == null) {
+            return tokens;
+        }
+
+        text = text.toLowerCase(Locale.ROOT);
+
+        int start = 0;
+
+        for(int i = 0; i <= text.length(); i++) {
+            if(i == text.length() || isSeparator(text.charAt(i))) {
+                if(i - start >= MIN_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)));
+                }
+                start = i + 1;
+            }
+        }
+
+        return tokens;
+    }
+
+    /**
+     * @return true if c separates tokens. That is white space and any ASCII character that is not a letter or a digit.
+     */
+    private static boolean isSeparator(char c) {
+        if(c < 0x80) {
+            return !((c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z'));
+        }
+
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\ufeff';
+    }
+
+    /**
+     * @return The content of the concepts file
+     */
+    String createConceptsFile() {
+        StringBuilder sb = new StringBuilder("searchConcepts(["); //$NON-NLS-1$
+
+        for(int i = 0; i < concepts.size(); i++) {
+            IArchimateConcept concept = concepts.get(i);
+
+            if(i > 0) {
+                sb.append(',');
+            }
+
+            sb.append('[');
+            ConceptData.appendString(sb, concept.getId());
+            sb.append(',');
+            ConceptData.appendString(sb, concept.getName());
+            sb.append(',');
+            ConceptData.appendString(sb, concept.eClass().getName());
+            sb.append(']');
+        }
+
+        sb.append("]);\n"); //$NON-NLS-1$
+
+        return sb.toString();
+    }
+
+    /**
+     * @return The content of a shard file
+     */
+    String createShardFile(int index) {
+        StringBuilder sb = new StringBuilder("searchShard(").append(index).append(",["); //$NON-NLS-1$ //$NON-NLS-2$
+
+        boolean first = true;
+
+        for(Map.Entry<String, Postings> entry : shards.get(index).entrySet()) {
+            if(!first) {
+                sb.append(',');
+            }
+            first = false;
+
+            sb.append('[');
+            ConceptData.appendString(sb, entry.getKey());
+            sb.append(",["); //$NON-NLS-1$
+
+            Postings postings = entry.getValue();
+            for(int i = 0; i < postings.size; i++) {
+                if(i > 0) {
+                    sb.append(',');
+                }
+                sb.append(i == 0 ? postings.positions[i] : postings.positions[i] - postings.positions[i - 1]);
+            }
+
+            sb.append("]]"); //$NON-NLS-1$
+        }
+
+        sb.append("]);\n"); //$NON-NLS-1$
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Search of the report's prebuilt index in the model's "search" folder.
+ *
+ * concepts.js lists the concepts as [id, name, type] and each index-N.js has the sorted tokens whose first two characters
+ * hash to N, with the positions of the concepts they are in as differences from the previous position.
+ * These are scripts that call searchConcepts() and searchShard() so that the report works from the file system,
+ * and they are only loaded when a search needs them.
+ *
+ * Tokenizing and choosing a shard must be the same as in SearchIndex.java.
+ */
+var search = {
+	folder: "",
+	shardCount: 1,
+	link: "",
+	query: "",
+	concepts: null,
+	shards: {},
+	loading: {}
+};
+
+// Called by concepts.js
+function searchConcepts(concepts) {
+	search.concepts = concepts;
+	runSearch();
+}
+
+// Called by index-N.js
+function searchShard(index, tokens) {
+	search.shards[index] = tokens;
+	runSearch();
+}
+
+// Lower case tokens of at least 2 characters, cut to 40, separated by white space and ASCII characters that are not letters or digits
+function searchTokens(text) {
+	var tokens = [];
+	var parts = text.toLowerCase().split(/[\s\x00-\x2f\x3a-\x40\x5b-\x60\x7b-\x7f]+/);
+	for(var i = 0; i < parts.length; i++) {
+		if(parts[i].length >= 2) {
+			tokens.push(parts[i].substr(0, 40));
+		}
+	}
+	return tokens;
+}
+
+// The shard of a token from the hash of its first two characters, the same as Java's String.hashCode()
+function searchShardIndex(token) {
+	var hash = 0;
+	for(var i = 0; i < 2; i++) {
+		hash = ((hash << 5) - hash + token.charCodeAt(i)) | 0;
+	}
+	return ((hash % search.shardCount) + search.shardCount) % search.shardCount;
+}
+
+function loadSearchFile(name) {
+	if(!search.loading[name]) {
+		search.loading[name] = true;
+		var script = document.createElement('script');
+		script.type = 'text/javascript';
+		script.src = search.folder + name;
+		document.getElementsByTagName('head')[0].appendChild(script);
+	}
+}
+
+// Positions of the concepts with a token that starts with prefix
+function searchPrefix(shard, prefix, found) {
+	// Binary search for the first token that is not less than prefix
+	var low = 0, high = shard.length;
+	while(low < high) {
+		var mid = (low + high) >> 1;
+		if(shard[mid][0] < prefix) {
+			low = mid + 1;
+		}
+		else {
+			high = mid;
+		}
+	}
+
+	for(var i = low; i < shard.length && shard[i][0].indexOf(prefix) === 0; i++) {
+		var postings = shard[i][1];
+		var position = 0;
+		for(var j = 0; j < postings.length; j++) {
+			position += postings[j];
+			found[position] = true;
+		}
+	}
+}
+
+function runSearch() {
+	var tokens = searchTokens(search.query);
+	var results = $('#search-results');
+
+	if(tokens.length == 0) {
+		results.hide().empty();
+		$('#model-tree').show();
+		return;
+	}
+
+	// Load the files that are needed. This is called again when each one has loaded.
+	var loaded = true;
+	if(search.concepts == null) {
+		loadSearchFile('concepts.js');
+		loaded = false;
+	}
+	for(var i = 0; i < tokens.length; i++) {
+		var index = searchShardIndex(tokens[i]);
+		if(!search.shards[index]) {
+			loadSearchFile('index-' + index + '.js');
+			loaded = false;
+		}
+	}
+	if(!loaded) {
+		return;
+	}
+
+	// Concepts with a word that starts with each token
+	var matches = null;
+	for(var i = 0; i < tokens.length; i++) {
+		var found = {};
+		searchPrefix(search.shards[searchShardIndex(tokens[i])], tokens[i], found);
+		if(matches == null) {
+			matches = found;
+		}
+		else {
+			for(var position in matches) {
+				if(!found[position]) {
+					delete matches[position];
+				}
+			}
+		}
+	}
+
+	var positions = [];
+	for(var position in matches) {
+		positions.push(parseInt(position, 10));
+	}
+	positions.sort(function(a, b) { return a - b; });
+
+	results.empty();
+	for(var i = 0; i < positions.length && i < 200; i++) {
+		var concept = search.concepts[positions[i]];
+		var link = $('<a target="element">').attr('href', search.link.replace('CONCEPT_ID', concept[0]));
+		if(concept[1]) {
+			link.text(concept[1]);
+		}
+		else {
+			link.addClass('i18n-elementtype-' + concept[2]);
+		}
+		results.append($('<li class="tree-element">').append(link));
+	}
+
+	$('#model-tree').hide();
+	results.show();
+}
+
+function initSearch(folder, shardCount, link) {
+	search.folder = folder;
+	search.shardCount = shardCount;
+	search.link = link;
+
+	var timer = null;
+	$('#search').on('keyup input', function() {
+		var query = $(this).val();
+		clearTimeout(timer);
+		timer = setTimeout(function() {
+			if(query != search.query) {
+				search.query = query;
+				runSearch();
+			}
+		}, 200);
+	});
+}
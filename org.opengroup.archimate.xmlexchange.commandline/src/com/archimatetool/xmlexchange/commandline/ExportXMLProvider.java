@@ -12,7 +12,7 @@ import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.eclipse.osgi.util.NLS;
-import org.opengroup.archimate.xmlexchange.XMLModelExporter;
+import org.opengroup.archimate.xmlexchange.XMLModelStreamExporter;
 import org.opengroup.archimate.xmlexchange.XMLValidator;
 
 import com.archimatetool.commandline.AbstractCommandLineProvider;
@@ -63,7 +63,7 @@ public class ExportXMLProvider extends AbstractCommandLineProvider {
         }
         File outputFile = new File(value);
         
-        XMLModelExporter exporter = new XMLModelExporter();
+        XMLModelStreamExporter exporter = new XMLModelStreamExporter();
 
         // Folders
         exporter.setSaveOrganisation(commandLine.hasOption(OPTION_EXPORT_XML_FOLDERS));
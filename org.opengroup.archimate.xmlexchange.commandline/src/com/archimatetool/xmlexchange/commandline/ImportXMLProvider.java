@@ -13,8 +13,7 @@ import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
 import org.eclipse.gef.commands.CommandStack;
 import org.eclipse.osgi.util.NLS;
-import org.opengroup.archimate.xmlexchange.XMLModelImporter;
-import org.opengroup.archimate.xmlexchange.XMLValidator;
+import org.opengroup.archimate.xmlexchange.XMLModelStreamImporter;
 
 import com.archimatetool.commandline.AbstractCommandLineProvider;
 import com.archimatetool.commandline.CommandLineState;
@@ -60,17 +59,10 @@ public class ImportXMLProvider extends AbstractCommandLineProvider {
             return;
         }
         
-        // Validate file
-        logMessage(Messages.ImportXMLProvider_3);
-        
-        XMLValidator validator = new XMLValidator();
-        validator.validateXML(importFile);
-
-        logMessage(Messages.ImportXMLProvider_4);
-        
+        // Validate and import file in one pass
         logMessage(NLS.bind(Messages.ImportXMLProvider_5, importFile.getPath()));
         
-        XMLModelImporter importer = new XMLModelImporter();
+        XMLModelStreamImporter importer = new XMLModelStreamImporter();
         IArchimateModel model = importer.createArchiMateModel(importFile);
 
         if(model == null) {
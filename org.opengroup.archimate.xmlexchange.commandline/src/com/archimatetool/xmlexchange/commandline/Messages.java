@@ -36,10 +36,6 @@ public class Messages extends NLS {
 
     public static String ImportXMLProvider_2;
 
-    public static String ImportXMLProvider_3;
-
-    public static String ImportXMLProvider_4;
-
     public static String ImportXMLProvider_5;
 
     public static String ImportXMLProvider_6;
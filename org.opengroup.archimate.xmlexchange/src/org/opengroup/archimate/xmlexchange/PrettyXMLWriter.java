@@ -0,0 +1,252 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+
+
+/**
+ * Streaming XML writer that writes elements as they are started and ended.<p>
+ *
+ * The output is the same as JDOM's XMLOutputter with Format.getPrettyFormat() so that
+ * XMLModelStreamExporter writes the same bytes as XMLModelExporter:
+ * two space indents, CRLF line separators, "&lt;name /&gt;" for empty elements, text trimmed at both ends,
+ * and characters escaped the same way as JDOM does for UTF-8.<p>
+ *
+ * Only the names of the open elements are kept, so memory use does not grow with the size of the document.
+ * An element may contain either child elements or text, but not both.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+final class PrettyXMLWriter implements Closeable {
+
+    static final String LINE_SEPARATOR = "\r\n";
+    static final String INDENT = "  ";
+
+    private Writer fWriter;
+
+    // Names of the open elements
+    private Deque<String> fElementNames = new ArrayDeque<String>();
+
+    // The start tag of the current element has not been closed with ">" yet
+    private boolean fStartTagOpen;
+
+    // The current element has text content
+    private boolean fHasText;
+
+    PrettyXMLWriter(Writer writer) {
+        fWriter = writer;
+    }
+
+    /**
+     * Write the XML declaration
+     */
+    void writeStartDocument() throws IOException {
+        fWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        fWriter.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * End any open elements and write the final line separator
+     */
+    void writeEndDocument() throws IOException {
+        while(!fElementNames.isEmpty()) {
+            writeEndElement();
+        }
+        fWriter.write(LINE_SEPARATOR);
+        fWriter.flush();
+    }
+
+    /**
+     * Start a child element of the current element
+     * @param name The qualified name of the element
+     */
+    void writeStartElement(String name) throws IOException {
+        if(fHasText) {
+            throw new IllegalStateException("Element has text content: " + fElementNames.peek());
+        }
+
+        if(fStartTagOpen) {
+            fWriter.write('>');
+            fStartTagOpen = false;
+        }
+
+        // The root element follows the declaration's line separator
+        if(!fElementNames.isEmpty()) {
+            writeNewLine(fElementNames.size());
+        }
+
+        fWriter.write('<');
+        fWriter.write(name);
+
+        fElementNames.push(name);
+        fStartTagOpen = true;
+    }
+
+    /**
+     * End the current element
+     */
+    void writeEndElement() throws IOException {
+        String name = fElementNames.pop();
+
+        if(fStartTagOpen) {
+            fWriter.write(" />");
+            fStartTagOpen = false;
+            return;
+        }
+
+        if(fHasText) {
+            fHasText = false;
+        }
+        else {
+            writeNewLine(fElementNames.size());
+        }
+
+        fWriter.write("</");
+        fWriter.write(name);
+        fWriter.write('>');
+    }
+
+    /**
+     * Write a namespace declaration on the current element
+     * @param prefix The prefix, or null or empty for the default namespace
+     */
+    void writeNamespace(String prefix, String uri) throws IOException {
+        writeAttribute(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, uri);
+    }
+
+    /**
+     * Write an attribute of the current element. This must be called before any content is written to the element.
+     * @param name The qualified name of the attribute
+     */
+    void writeAttribute(String name, String value) throws IOException {
+        if(!fStartTagOpen) {
+            throw new IllegalStateException("Attribute written after content: " + name);
+        }
+
+        fWriter.write(' ');
+        fWriter.write(name);
+        fWriter.write("=\"");
+        writeEscaped(value, true);
+        fWriter.write('"');
+    }
+
+    /**
+     * Write the text of the current element. The text is trimmed and if there is nothing left the element stays empty.
+     */
+    void writeText(String text) throws IOException {
+        if(!fStartTagOpen) {
+            throw new IllegalStateException("Text written after content: " + fElementNames.peek());
+        }
+
+        text = trim(text);
+        if(text.isEmpty()) {
+            return;
+        }
+
+        fWriter.write('>');
+        fStartTagOpen = false;
+        fHasText = true;
+
+        writeEscaped(text, false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fWriter.close();
+    }
+
+    private void writeNewLine(int depth) throws IOException {
+        fWriter.write(LINE_SEPARATOR);
+        for(int i = 0; i < depth; i++) {
+            fWriter.write(INDENT);
+        }
+    }
+
+    /**
+     * Escape text or an attribute value in the same way as JDOM's Format.escapeText() and Format.escapeAttribute()
+     */
+    private void writeEscaped(String s, boolean isAttribute) throws IOException {
+        int length = s.length();
+
+        for(int i = 0; i < length; i++) {
+            char ch = s.charAt(i);
+
+            switch(ch) {
+                case '<':
+                    fWriter.write("&lt;");
+                    break;
+
+                case '>':
+                    fWriter.write("&gt;");
+                    break;
+
+                case '&':
+                    fWriter.write("&amp;");
+                    break;
+
+                case '\r':
+                    fWriter.write("&#xD;");
+                    break;
+
+                case '\n':
+                    fWriter.write(isAttribute ? "&#xA;" : LINE_SEPARATOR);
+                    break;
+
+                case '"':
+                    fWriter.write(isAttribute ? "&quot;" : "\"");
+                    break;
+
+                case '\t':
+                    fWriter.write(isAttribute ? "&#x9;" : "\t");
+                    break;
+
+                default:
+                    // Characters outside the Basic Multilingual Plane are written as character references
+                    if(Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                        fWriter.write("&#x");
+                        fWriter.write(Integer.toHexString(Character.toCodePoint(ch, s.charAt(++i))));
+                        fWriter.write(';');
+                    }
+                    else {
+                        fWriter.write(ch);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Trim XML whitespace from both ends of a string
+     */
+    private String trim(String s) {
+        if(s == null) {
+            return "";
+        }
+
+        int start = 0;
+        int end = s.length();
+
+        while(start < end && isXMLWhitespace(s.charAt(start))) {
+            start++;
+        }
+        while(end > start && isXMLWhitespace(s.charAt(end - 1))) {
+            end--;
+        }
+
+        return s.substring(start, end);
+    }
+
+    private boolean isXMLWhitespace(char ch) {
+        return ch == ' ' || ch == '\n' || ch == '\t' || ch == '\r';
+    }
+}
@@ -74,7 +74,7 @@ public class XMLExchangeExportProvider implements IModelExporter, IXMLExchangeGl
                     @Override
                     public void run() {
                         try {
-                            XMLModelExporter xmlModelExporter = new XMLModelExporter();
+                            XMLModelStreamExporter xmlModelExporter = new XMLModelStreamExporter();
                             
                             xmlModelExporter.setMetadata(wizard.getMetadata());
                             xmlModelExporter.setSaveOrganisation(wizard.doSaveOrganisation());
@@ -8,11 +8,12 @@ package org.opengroup.archimate.xmlexchange;
 import java.io.File;
 import java.io.IOException;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.BusyIndicator;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
-import org.jdom2.JDOMException;
 import org.xml.sax.SAXException;
 
 import com.archimatetool.editor.model.IEditorModelManager;
@@ -41,19 +42,16 @@ public class XMLExchangeImportProvider implements IModelImporter, IXMLExchangeGl
         BusyIndicator.showWhile(Display.getCurrent(), new Runnable() {
             @Override
             public void run() {
-                // Validate file
+                // Validate and import file in one pass
                 try {
-                    XMLValidator validator = new XMLValidator();
-                    validator.validateXML(file);
-                    
-                    XMLModelImporter xmlModelImporter = new XMLModelImporter();
+                    XMLModelStreamImporter xmlModelImporter = new XMLModelStreamImporter();
                     IArchimateModel model = xmlModelImporter.createArchiMateModel(file);
                     
                     if(model != null) {
                         IEditorModelManager.INSTANCE.openModel(model);
                     }
                 }
-                catch(SAXException | IOException | JDOMException | XMLModelParserException ex) {
+                catch(SAXException | IOException | XMLStreamException | XMLModelParserException ex) {
                     ex1[0] = ex;
                     ex.printStackTrace();
                 }
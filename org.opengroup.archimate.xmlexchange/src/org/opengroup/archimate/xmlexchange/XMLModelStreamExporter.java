@@ -0,0 +1,1136 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.RGB;
+import org.jdom2.Namespace;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.editor.ui.ColorFactory;
+import com.archimatetool.editor.ui.FontFactory;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.jdom.JDOMUtils;
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IAccessRelationship;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IAssociationRelationship;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelGroup;
+import com.archimatetool.model.IDiagramModelNote;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.model.IDiagramModelReference;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IFontAttribute;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.IInfluenceRelationship;
+import com.archimatetool.model.ILineObject;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+
+
+
+/**
+ * Export Archi Model to Open Exchange XML Format by streaming elements to file.<p>
+ *
+ * Elements are written in the same order as XMLModelExporter and the output is byte for byte the same,
+ * but no JDOM Document is built so memory use does not grow with the size of the model.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class XMLModelStreamExporter implements IXMLExchangeGlobals {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String XSI_TYPE = qualifiedName(XSI_NAMESPACE, ATTRIBUTE_TYPE);
+    private static final String XSI_SCHEMA_LOCATION = qualifiedName(JDOMUtils.XSI_Namespace, JDOMUtils.XSI_SchemaLocation);
+    private static final String XML_LANG = qualifiedName(Namespace.XML_NAMESPACE, ATTRIBUTE_LANG);
+
+    // ArchiMate model
+    private IArchimateModel fModel;
+
+    // Writer
+    private PrettyXMLWriter fWriter;
+
+    // Properties
+    private Map<String, String> fPropertyDefsList;
+
+    /**
+     * A map of DC metadata element tags mapped to values
+     */
+    private Map<String, String> fMetadata;
+
+    /**
+     * Whether to save organisation of folders
+     */
+    private boolean fDoSaveOrganisation;
+
+    /**
+     * Whether to copy XSD files
+     */
+    private boolean fIncludeXSD;
+
+    /**
+     * The language code
+     */
+    private String fLanguageCode;
+
+    public void exportModel(IArchimateModel model, File outputFile) throws IOException {
+        fModel = model;
+
+        // Create parent folder if it doesn't exist
+        File parent = outputFile.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+
+        // Write to a temporary file in the same folder first so that a failed export doesn't leave part of a file
+        Path tmpFile = Files.createTempFile(parent.toPath(), outputFile.getName(), ".tmp"); //$NON-NLS-1$
+
+        try {
+            try(PrettyXMLWriter writer = new PrettyXMLWriter(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(tmpFile), StandardCharsets.UTF_8), BUFFER_SIZE))) {
+                fWriter = writer;
+
+                fWriter.writeStartDocument();
+
+                // Root Element
+                writeRootElement();
+
+                // Persist model
+                writeModel();
+
+                fWriter.writeEndDocument();
+            }
+            finally {
+                fWriter = null;
+                fPropertyDefsList = null;
+            }
+
+            try {
+                Files.move(tmpFile, outputFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch(AtomicMoveNotSupportedException ex) {
+                Files.move(tmpFile, outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(tmpFile);
+        }
+
+        // XSD
+        if(fIncludeXSD) {
+            File file1 = new File(outputFile.getParentFile(), XMLExchangePlugin.ARCHIMATE3_MODEL_XSD);
+            XMLExchangePlugin.INSTANCE.copyXSDFile(XMLExchangePlugin.ARCHIMATE3_MODEL_XSD, file1);
+
+            File file2 = new File(outputFile.getParentFile(), XMLExchangePlugin.ARCHIMATE3_VIEW_XSD);
+            XMLExchangePlugin.INSTANCE.copyXSDFile(XMLExchangePlugin.ARCHIMATE3_VIEW_XSD, file2);
+
+            File file3 = new File(outputFile.getParentFile(), XMLExchangePlugin.ARCHIMATE3_DIAGRAM_XSD);
+            XMLExchangePlugin.INSTANCE.copyXSDFile(XMLExchangePlugin.ARCHIMATE3_DIAGRAM_XSD, file3);
+        }
+    }
+
+    /**
+     * Set DC Metadata
+     * @param metadata A map of DC metadata element tags mapped to values
+     */
+    public void setMetadata(Map<String, String> metadata) {
+        fMetadata = metadata;
+    }
+
+    boolean hasMetadata() {
+        if(fMetadata != null) {
+            for(String value : fMetadata.values()) {
+                if(StringUtils.isSet(value)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Set whether to save organisation of folders
+     * @param set
+     */
+    public void setSaveOrganisation(boolean set) {
+        fDoSaveOrganisation = set;
+    }
+
+    /**
+     * Set whether to copy XSD files to target
+     * @param set
+     */
+    public void setIncludeXSD(boolean set) {
+        fIncludeXSD = set;
+    }
+
+    /**
+     * Set the language code to use
+     * @param languageCode
+     */
+    public void setLanguageCode(String languageCode) {
+        fLanguageCode = languageCode;
+    }
+
+    /**
+     * Start the Root Element and write its namespaces and schema location
+     */
+    private void writeRootElement() throws IOException {
+        fWriter.writeStartElement(ELEMENT_MODEL);
+
+        // JDOM writes the element's namespace first and then the other namespaces sorted by prefix
+        fWriter.writeNamespace(ARCHIMATE3_NAMESPACE.getPrefix(), ARCHIMATE3_NAMESPACE.getURI());
+
+        // DC Namespace
+        if(hasMetadata()) {
+            fWriter.writeNamespace(DC_NAMESPACE.getPrefix(), DC_NAMESPACE.getURI());
+        }
+
+        fWriter.writeNamespace(JDOMUtils.XSI_Namespace.getPrefix(), JDOMUtils.XSI_Namespace.getURI());
+
+        /*
+         * Add Schema Location Attribute which is constructed from Target Namespaces and file names of Schemas
+         */
+        StringBuffer schemaLocationURI = new StringBuffer();
+
+        // Archimate Schema Location
+        schemaLocationURI.append(ARCHIMATE3_NAMESPACE.getURI());
+        schemaLocationURI.append(" ");
+        schemaLocationURI.append(ARCHIMATE3_SCHEMA_LOCATION);
+
+        // DC Schema Location
+        if(hasMetadata()) {
+            schemaLocationURI.append(" ");
+            schemaLocationURI.append(DC_NAMESPACE.getURI());
+            schemaLocationURI.append(" ");
+            schemaLocationURI.append(DC_SCHEMA_LOCATION);
+        }
+
+        fWriter.writeAttribute(XSI_SCHEMA_LOCATION, schemaLocationURI.toString());
+    }
+
+    /**
+     * Write the model
+     */
+    private void writeModel() throws IOException {
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(fModel));
+
+        // Gather all properties now
+        fPropertyDefsList = getAllUniquePropertyKeysForModel();
+
+        // Name
+        writeTextToElement(fModel.getName(), ELEMENT_NAME, true);
+
+        // Documentation (Purpose) - optional
+        writeTextToElement(fModel.getPurpose(), ELEMENT_DOCUMENTATION, false);
+
+        // Model Properties
+        writeProperties(fModel);
+
+        // Metadata
+        writeMetadata();
+
+        // Model Elements
+        writeModelElements();
+
+        // Relationships
+        writeModelRelationships();
+
+        // Organizations
+        if(fDoSaveOrganisation) {
+            writeOrganizations();
+        }
+
+        // Properties Definitions
+        writeModelPropertiesDefinitions();
+
+        // Views
+        writeViews();
+    }
+
+    // ========================================= Metadata ======================================
+
+    /**
+     * Write any DC Metadata
+     */
+    private void writeMetadata() throws IOException {
+        if(!hasMetadata()) {
+            return;
+        }
+
+        fWriter.writeStartElement(ELEMENT_METADATA);
+
+        fWriter.writeStartElement(ELEMENT_SCHEMA);
+        fWriter.writeText("Dublin Core");
+        fWriter.writeEndElement();
+
+        fWriter.writeStartElement(ELEMENT_SCHEMAVERSION);
+        fWriter.writeText("1.1");
+        fWriter.writeEndElement();
+
+        for(Entry<String, String> entry : fMetadata.entrySet()) {
+            if(StringUtils.isSet(entry.getKey()) && StringUtils.isSet(entry.getValue())) {
+                fWriter.writeStartElement(qualifiedName(DC_NAMESPACE, entry.getKey()));
+                fWriter.writeText(entry.getValue());
+                fWriter.writeEndElement();
+            }
+        }
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Model Elements ======================================
+
+    /**
+     * Write the elements from the layers and extensions
+     */
+    private void writeModelElements() throws IOException {
+        // The "elements" element is started when the first element is written
+        boolean started = false;
+
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.STRATEGY), started);
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.BUSINESS), started);
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.APPLICATION), started);
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.TECHNOLOGY), started);
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.MOTIVATION), started);
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.IMPLEMENTATION_MIGRATION), started);
+        started = writeModelElementsFolder(fModel.getFolder(FolderType.OTHER), started);
+
+        // If there are elements
+        if(started) {
+            fWriter.writeEndElement();
+        }
+    }
+
+    /**
+     * Write the elements from an Archi folder and its sub-folders
+     * @return true if the "elements" element has been started
+     */
+    private boolean writeModelElementsFolder(IFolder folder, boolean started) throws IOException {
+        if(folder == null) {
+            return started;
+        }
+
+        for(EObject eObject : folder.getElements()) {
+            if(eObject instanceof IArchimateElement) {
+                if(!started) {
+                    fWriter.writeStartElement(ELEMENT_ELEMENTS);
+                    started = true;
+                }
+                writeModelElement((IArchimateElement)eObject);
+            }
+        }
+
+        for(IFolder f : folder.getFolders()) {
+            started = writeModelElementsFolder(f, started);
+        }
+
+        return started;
+    }
+
+    /**
+     * Write an element
+     */
+    private void writeModelElement(IArchimateElement element) throws IOException {
+        fWriter.writeStartElement(ELEMENT_ELEMENT);
+
+        // Identifier
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(element));
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, XMLTypeMapper.getArchimateConceptName(element));
+
+        // Name
+        writeTextToElement(element.getName(), ELEMENT_NAME, true);
+
+        // Documentation - optional
+        writeTextToElement(element.getDocumentation(), ELEMENT_DOCUMENTATION, false);
+
+        // Properties
+        writeProperties(element);
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Model Relationships ======================================
+
+    /**
+     * Write the relationships
+     */
+    private void writeModelRelationships() throws IOException {
+        // If there are relationships
+        if(writeModelRelationshipsFolder(fModel.getFolder(FolderType.RELATIONS), false)) {
+            fWriter.writeEndElement();
+        }
+    }
+
+    /**
+     * Write the relationships from an Archi folder and its sub-folders
+     * @return true if the "relationships" element has been started
+     */
+    private boolean writeModelRelationshipsFolder(IFolder folder, boolean started) throws IOException {
+        if(folder == null) {
+            return started;
+        }
+
+        for(EObject eObject : folder.getElements()) {
+            if(eObject instanceof IArchimateRelationship) {
+                if(!started) {
+                    fWriter.writeStartElement(ELEMENT_RELATIONSHIPS);
+                    started = true;
+                }
+                writeModelRelationship((IArchimateRelationship)eObject);
+            }
+        }
+
+        for(IFolder f : folder.getFolders()) {
+            started = writeModelRelationshipsFolder(f, started);
+        }
+
+        return started;
+    }
+
+    /**
+     * Write a relationship
+     */
+    private void writeModelRelationship(IArchimateRelationship relationship) throws IOException {
+        fWriter.writeStartElement(ELEMENT_RELATIONSHIP);
+
+        // Identifier
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(relationship));
+
+        // Source ID
+        fWriter.writeAttribute(ATTRIBUTE_SOURCE, createID(relationship.getSource()));
+
+        // Target ID
+        fWriter.writeAttribute(ATTRIBUTE_TARGET, createID(relationship.getTarget()));
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, XMLTypeMapper.getArchimateConceptName(relationship));
+
+        // Influence Modifier/Strength
+        if(relationship.eClass() == IArchimatePackage.eINSTANCE.getInfluenceRelationship()) {
+            String strength = ((IInfluenceRelationship)relationship).getStrength();
+            if(hasSomeText(strength)) {
+                fWriter.writeAttribute(ATTRIBUTE_INFLUENCE_MODIFIER, strength);
+            }
+        }
+        // Access direction
+        else if(relationship.eClass() == IArchimatePackage.eINSTANCE.getAccessRelationship()) {
+            int accessType = ((IAccessRelationship)relationship).getAccessType();
+            switch(accessType) {
+                case IAccessRelationship.READ_ACCESS:
+                    fWriter.writeAttribute(ATTRIBUTE_ACCESS_TYPE, ACCESS_TYPE_READ);
+                    break;
+
+                case IAccessRelationship.READ_WRITE_ACCESS:
+                    fWriter.writeAttribute(ATTRIBUTE_ACCESS_TYPE, ACCESS_TYPE_READ_WRITE);
+                    break;
+
+                case IAccessRelationship.UNSPECIFIED_ACCESS:
+                    fWriter.writeAttribute(ATTRIBUTE_ACCESS_TYPE, ACCESS_TYPE_ACCESS);
+                    break;
+
+                default:
+                    fWriter.writeAttribute(ATTRIBUTE_ACCESS_TYPE, ACCESS_TYPE_WRITE);
+                    break;
+            }
+        }
+        // Association Directed
+        else if(relationship.eClass() == IArchimatePackage.eINSTANCE.getAssociationRelationship()) {
+            if(((IAssociationRelationship)relationship).isDirected()) {
+                fWriter.writeAttribute(ATTRIBUTE_ASSOCIATION_DIRECTED, "true");
+            }
+        }
+
+        // Name - optional
+        writeTextToElement(relationship.getName(), ELEMENT_NAME, false);
+
+        // Documentation - optional
+        writeTextToElement(relationship.getDocumentation(), ELEMENT_DOCUMENTATION, false);
+
+        // Properties
+        writeProperties(relationship);
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Organizations ======================================
+
+    private void writeOrganizations() throws IOException {
+        boolean started = false;
+
+        for(IFolder folder : fModel.getFolders()) {
+            // If the top level folder is not empty
+            if(!(folder.getElements().isEmpty() && folder.getFolders().isEmpty())) {
+                if(!started) {
+                    fWriter.writeStartElement(ELEMENT_ORGANIZATIONS);
+                    started = true;
+                }
+                writeFolder(folder);
+            }
+        }
+
+        // If there are children
+        if(started) {
+            fWriter.writeEndElement();
+        }
+    }
+
+    private void writeFolder(IFolder folder) throws IOException {
+        fWriter.writeStartElement(ELEMENT_ITEM);
+
+        // Name
+        writeTextToElement(folder.getName(), ELEMENT_LABEL, false);
+
+        // Documentation
+        writeTextToElement(folder.getDocumentation(), ELEMENT_DOCUMENTATION, false);
+
+        // Sub-folders
+        for(IFolder subFolder : folder.getFolders()) {
+            writeFolder(subFolder);
+        }
+
+        // Sub-elements
+        for(EObject eObject : folder.getElements()) {
+            if(eObject instanceof IIdentifier) {
+                // Don't write Sketch or Canvas Views
+                if(eObject instanceof IDiagramModel && !(eObject instanceof IArchimateDiagramModel)) {
+                    continue;
+                }
+
+                fWriter.writeStartElement(ELEMENT_ITEM);
+                fWriter.writeAttribute(ATTRIBUTE_IDENTIFIERREF, createID((IIdentifier)eObject));
+                fWriter.writeEndElement();
+            }
+        }
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Properties ======================================
+
+    private void writeModelPropertiesDefinitions() throws IOException {
+        if(fPropertyDefsList.isEmpty()) {
+            return;
+        }
+
+        fWriter.writeStartElement(ELEMENT_PROPERTYDEFINITIONS);
+
+        for(Entry<String, String> entry : fPropertyDefsList.entrySet()) {
+            fWriter.writeStartElement(ELEMENT_PROPERTYDEFINITION);
+            fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, entry.getValue());
+            fWriter.writeAttribute(ATTRIBUTE_TYPE, "string");
+
+            fWriter.writeStartElement(ELEMENT_NAME);
+            fWriter.writeText(entry.getKey());
+            fWriter.writeEndElement();
+
+            fWriter.writeEndElement();
+        }
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * @return All unique property types in the model
+     */
+    Map<String, String> getAllUniquePropertyKeysForModel() {
+        Map<String, String> list = new TreeMap<String, String>();
+
+        String id = "propid-";
+        int idCount = 1;
+
+        for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
+            EObject element = iter.next();
+            if(element instanceof IProperty) {
+                String name = ((IProperty)element).getKey();
+                if(name != null && !list.containsKey(name)) {
+                    list.put(name, id + (idCount++));
+                }
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Write all property values for a given element
+     */
+    private void writeProperties(IProperties properties) throws IOException {
+        boolean started = false;
+
+        for(IProperty property : properties.getProperties()) {
+            String name = property.getKey();
+            if(hasSomeText(name)) {
+                String propertyRefID = fPropertyDefsList.get(name);
+                if(propertyRefID != null) {
+                    if(!started) {
+                        fWriter.writeStartElement(ELEMENT_PROPERTIES);
+                        started = true;
+                    }
+                    writePropertyValue(propertyRefID, property.getValue());
+                }
+            }
+        }
+
+        if(started) {
+            fWriter.writeEndElement();
+        }
+    }
+
+    /**
+     * Write a Property value referencing a property ref id
+     */
+    private void writePropertyValue(String propertyRefID, String propertyValue) throws IOException {
+        fWriter.writeStartElement(ELEMENT_PROPERTY);
+        fWriter.writeAttribute(ATTRIBUTE_PROPERTY_IDENTIFIERREF, propertyRefID);
+
+        fWriter.writeStartElement(ELEMENT_VALUE);
+        writeElementTextWithLanguageCode(propertyValue);
+        fWriter.writeEndElement();
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Views ======================================
+
+    /**
+     * The negative offset for the current diagram.
+     * The exchange format diagram starts at origin 0,0 with no negative coordinates allowed.
+     * Archi diagram nodes can have negative coordinates, so this is the offset to apply to nodes and bendpoints.
+     * We calculate it once for each diagram.
+     */
+    private Point fCurrentDiagramNegativeOffset;
+
+    private void writeViews() throws IOException {
+        // Do we have any views?
+        EList<IDiagramModel> views = fModel.getDiagramModels();
+        if(views.isEmpty()) {
+            return;
+        }
+
+        fWriter.writeStartElement(ELEMENT_VIEWS);
+        fWriter.writeStartElement(ELEMENT_DIAGRAMS);
+
+        for(IDiagramModel dm : views) {
+            if(dm instanceof IArchimateDiagramModel) {
+                // Calculate negative offset for this diagram
+                fCurrentDiagramNegativeOffset = XMLExchangeUtils.getNegativeOffsetForDiagram(dm);
+
+                writeView((IArchimateDiagramModel)dm);
+            }
+        }
+
+        fWriter.writeEndElement();
+        fWriter.writeEndElement();
+    }
+
+    private void writeView(IArchimateDiagramModel dm) throws IOException {
+        fWriter.writeStartElement(ELEMENT_VIEW);
+
+        // Identifier
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(dm));
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_DIAGRAM_TYPE);
+
+        // Viewpoint
+        String viewPointName = XMLTypeMapper.getViewpointName(dm.getViewpoint());
+        if(StringUtils.isSet(viewPointName)) {
+            fWriter.writeAttribute(ATTRIBUTE_VIEWPOINT, viewPointName);
+        }
+
+        // Name
+        writeTextToElement(dm.getName(), ELEMENT_NAME, true);
+
+        // Documentation
+        writeTextToElement(dm.getDocumentation(), ELEMENT_DOCUMENTATION, false);
+
+        // Properties
+        writeProperties(dm);
+
+        // Nodes
+        for(IDiagramModelObject child : dm.getChildren()) {
+            writeNode(child);
+        }
+
+        // Connections
+        writeConnections(dm);
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Nodes ======================================
+
+    /**
+     * Write a diagram node
+     */
+    private void writeNode(IDiagramModelObject dmo) throws IOException {
+        if(dmo instanceof IDiagramModelArchimateObject) {
+            writeArchimateNode((IDiagramModelArchimateObject)dmo);
+        }
+        // Group
+        else if(dmo instanceof IDiagramModelGroup) {
+            writeGroupNode((IDiagramModelGroup)dmo);
+        }
+        // Note
+        else if(dmo instanceof IDiagramModelNote) {
+            writeNoteNode((IDiagramModelNote)dmo);
+        }
+        // View Reference type
+        else if(dmo instanceof IDiagramModelReference) {
+            writeViewReferenceNode((IDiagramModelReference)dmo);
+        }
+    }
+
+    /**
+     * Write an ArchiMate node
+     */
+    private void writeArchimateNode(IDiagramModelArchimateObject dmo) throws IOException {
+        fWriter.writeStartElement(ELEMENT_NODE);
+
+        // ID
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(dmo));
+
+        // Element Ref
+        fWriter.writeAttribute(ATTRIBUTE_ELEMENTREF, createID(dmo.getArchimateElement()));
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_ELEMENT_TYPE);
+
+        // Bounds
+        writeAbsoluteBounds(dmo);
+
+        // Style
+        writeNodeStyle(dmo);
+
+        // Children
+        for(IDiagramModelObject child : dmo.getChildren()) {
+            writeNode(child);
+        }
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write a Group node
+     */
+    private void writeGroupNode(IDiagramModelGroup group) throws IOException {
+        fWriter.writeStartElement(ELEMENT_NODE);
+
+        // ID
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(group));
+
+        // Bounds
+        writeAbsoluteBounds(group);
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_CONTAINER_TYPE);
+
+        // Label
+        writeTextToElement(group.getName(), ELEMENT_LABEL, false);
+
+        // Documentation
+        writeTextToElement(group.getDocumentation(), ELEMENT_DOCUMENTATION, false);
+
+        // Style
+        writeNodeStyle(group);
+
+        // Children
+        for(IDiagramModelObject child : group.getChildren()) {
+            writeNode(child);
+        }
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write a Note node
+     */
+    private void writeNoteNode(IDiagramModelNote note) throws IOException {
+        fWriter.writeStartElement(ELEMENT_NODE);
+
+        // ID
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(note));
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_LABEL_TYPE);
+
+        // Bounds
+        writeAbsoluteBounds(note);
+
+        // Text
+        writeTextToElement(note.getContent(), ELEMENT_LABEL, false);
+
+        // Style
+        writeNodeStyle(note);
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write a View Reference node
+     */
+    private void writeViewReferenceNode(IDiagramModelReference ref) throws IOException {
+        fWriter.writeStartElement(ELEMENT_NODE);
+
+        // ID
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(ref));
+
+        // Type
+        fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_LABEL_TYPE);
+
+        // Bounds
+        writeAbsoluteBounds(ref);
+
+        // Text
+        writeTextToElement(ref.getName(), ELEMENT_LABEL, false);
+
+        // Style
+        writeNodeStyle(ref);
+
+        // View Ref
+        // Only write view references to ArchiMate diagrams
+        // If the view ref is sketch or canvas this will instead appear as a note
+        if(ref.getReferencedModel() instanceof IArchimateDiagramModel) {
+            fWriter.writeStartElement(ELEMENT_VIEWREF);
+            fWriter.writeAttribute(ATTRIBUTE_REF, createID(ref.getReferencedModel()));
+            fWriter.writeEndElement();
+        }
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write a node style
+     */
+    private void writeNodeStyle(IDiagramModelObject dmo) throws IOException {
+        fWriter.writeStartElement(ELEMENT_STYLE);
+
+        // Fill Color
+        writeFillColor(dmo);
+
+        // Line color
+        writeLineColor(dmo);
+
+        // Font
+        writeFont(dmo);
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write fill colour of a diagram object
+     */
+    private void writeFillColor(IDiagramModelObject dmo) throws IOException {
+        RGB rgb = ColorFactory.convertStringToRGB(dmo.getFillColor());
+        if(rgb == null) {
+            Color color = ColorFactory.getDefaultFillColor(dmo);
+            if(color != null) {
+                rgb = color.getRGB();
+            }
+        }
+
+        if(rgb != null) {
+            fWriter.writeStartElement(ELEMENT_FILLCOLOR);
+            writeRGBAttributes(rgb, dmo.getAlpha());
+            fWriter.writeEndElement();
+        }
+    }
+
+    // ========================================= Connections ======================================
+
+    /**
+     * Write all connections
+     */
+    private void writeConnections(IDiagramModel dm) throws IOException {
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            // ArchiMate connection
+            if(eObject instanceof IDiagramModelArchimateConnection) {
+                // If it's nested don't write a connection
+                if(!isNestedConnection((IDiagramModelArchimateConnection)eObject)) {
+                    writeConnection((IDiagramModelConnection)eObject);
+                }
+            }
+            // Other connection
+            else if(eObject instanceof IDiagramModelConnection) {
+                writeConnection((IDiagramModelConnection)eObject);
+            }
+        }
+    }
+
+    /**
+     * Check whether this is a nested connection - assume all nested connections should be hidden
+     */
+    private boolean isNestedConnection(IDiagramModelArchimateConnection connection) {
+        if(connection.getSource() instanceof IDiagramModelArchimateObject && connection.getTarget() instanceof IDiagramModelArchimateObject) {
+            IDiagramModelArchimateObject src = (IDiagramModelArchimateObject)connection.getSource();
+            IDiagramModelArchimateObject tgt = (IDiagramModelArchimateObject)connection.getTarget();
+            return src.getChildren().contains(tgt) || tgt.getChildren().contains(src);
+        }
+        return false;
+    }
+
+    /**
+     * Write a connection
+     */
+    private void writeConnection(IDiagramModelConnection connection) throws IOException {
+        fWriter.writeStartElement(ELEMENT_CONNECTION);
+
+        // ID
+        fWriter.writeAttribute(ATTRIBUTE_IDENTIFIER, createID(connection));
+
+        // ArchiMate connection has a Relationship ref
+        if(connection instanceof IDiagramModelArchimateConnection) {
+            fWriter.writeAttribute(ATTRIBUTE_RELATIONSHIPREF, createID(((IDiagramModelArchimateConnection)connection).getArchimateRelationship()));
+            // Type
+            fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_RELATIONSHIP_TYPE);
+        }
+        else {
+            // Type
+            fWriter.writeAttribute(XSI_TYPE, ATTRIBUTE_LINE_TYPE);
+        }
+
+        // Source
+        fWriter.writeAttribute(ATTRIBUTE_SOURCE, createID(connection.getSource()));
+
+        // Target
+        fWriter.writeAttribute(ATTRIBUTE_TARGET, createID(connection.getTarget()));
+
+        // Style
+        writeConnectionStyle(connection);
+
+        // Bendpoints
+        writeConnectionBendpoints(connection);
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write connection bendpoints
+     */
+    private void writeConnectionBendpoints(IDiagramModelConnection connection) throws IOException {
+        // TODO: Doesn't work for connection->connection
+        if(connection.getSource() instanceof IDiagramModelConnection || connection.getTarget() instanceof IDiagramModelConnection) {
+            return;
+        }
+
+        List<Point> points = DiagramModelUtils.getAbsoluteBendpointPositions(connection);
+
+        for(Point pt : points) {
+            fWriter.writeStartElement(ELEMENT_BENDPOINT);
+            fWriter.writeAttribute(ATTRIBUTE_X, Integer.toString(pt.x - fCurrentDiagramNegativeOffset.x)); // compensate for negative space
+            fWriter.writeAttribute(ATTRIBUTE_Y, Integer.toString(pt.y - fCurrentDiagramNegativeOffset.y)); // compensate for negative space
+            fWriter.writeEndElement();
+        }
+    }
+
+    /**
+     * Write a connection style
+     */
+    private void writeConnectionStyle(IDiagramModelConnection connection) throws IOException {
+        fWriter.writeStartElement(ELEMENT_STYLE);
+
+        // Line Width
+        int lineWidth = connection.getLineWidth();
+        if(lineWidth != 1) {
+            fWriter.writeAttribute(ATTRIBUTE_LINEWIDTH, Integer.toString(lineWidth));
+        }
+
+        // Line color
+        writeLineColor(connection);
+
+        // Font
+        writeFont(connection);
+
+        fWriter.writeEndElement();
+    }
+
+    // ========================================= Helpers ======================================
+
+    /**
+     * Write line colour of a diagram object
+     */
+    private void writeLineColor(ILineObject lineObject) throws IOException {
+        RGB rgb = ColorFactory.convertStringToRGB(lineObject.getLineColor());
+        if(rgb == null) {
+            Color color = ColorFactory.getDefaultLineColor(lineObject);
+            if(color != null) {
+                rgb = color.getRGB();
+            }
+        }
+
+        if(rgb != null) {
+            fWriter.writeStartElement(ELEMENT_LINECOLOR);
+            // Use outline alpha if a diagram model object
+            if(lineObject instanceof IDiagramModelObject) {
+                writeRGBAttributes(rgb, ((IDiagramModelObject)lineObject).getLineAlpha());
+            }
+            else {
+                writeRGBAttributes(rgb, -1);
+            }
+            fWriter.writeEndElement();
+        }
+    }
+
+    /**
+     * Write font of a diagram component
+     */
+    private void writeFont(IFontAttribute fontObject) throws IOException {
+        FontData fontData = null;
+
+        try {
+            String fontString = fontObject.getFont();
+            if(fontString != null) {
+                fontData = new FontData(fontString);
+            }
+            else {
+                fontData = FontFactory.getDefaultUserViewFontData();
+            }
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+        }
+
+        // The font element always has a color child element so it is always written
+        fWriter.writeStartElement(ELEMENT_FONT);
+
+        if(fontData != null) {
+            fWriter.writeAttribute(ATTRIBUTE_FONTNAME, fontData.getName());
+            fWriter.writeAttribute(ATTRIBUTE_FONTSIZE, Integer.toString(fontData.getHeight()));
+
+            int style = fontData.getStyle();
+            String styleString = "";
+
+            if((style & SWT.BOLD) == SWT.BOLD) {
+                styleString += "bold";
+            }
+            if((style & SWT.ITALIC) == SWT.ITALIC) {
+                if(StringUtils.isSet(styleString)) {
+                    styleString += " ";
+                }
+                styleString += "italic";
+            }
+
+            if(hasSomeText(styleString)) {
+                fWriter.writeAttribute(ATTRIBUTE_FONTSTYLE, styleString);
+            }
+        }
+
+        // Font color
+        RGB rgb = ColorFactory.convertStringToRGB(fontObject.getFontColor());
+        fWriter.writeStartElement(ELEMENT_FONTCOLOR);
+        writeRGBAttributes(rgb, -1);
+        fWriter.writeEndElement();
+
+        fWriter.writeEndElement();
+    }
+
+    /**
+     * Write RGB attributes on the current element
+     */
+    private void writeRGBAttributes(RGB rgb, int alpha) throws IOException {
+        if(rgb == null) {
+            rgb = new RGB(0, 0, 0);
+        }
+
+        fWriter.writeAttribute(ATTRIBUTE_R, Integer.toString(rgb.red));
+        fWriter.writeAttribute(ATTRIBUTE_G, Integer.toString(rgb.green));
+        fWriter.writeAttribute(ATTRIBUTE_B, Integer.toString(rgb.blue));
+
+        if(alpha != -1) {
+            int newValue = Math.round(((float)alpha / 255) * 100);
+            fWriter.writeAttribute(ATTRIBUTE_A, Integer.toString(newValue));
+        }
+    }
+
+    /**
+     * Write absolute bounds of a diagram object
+     */
+    private void writeAbsoluteBounds(IDiagramModelObject dmo) throws IOException {
+        IBounds bounds = DiagramModelUtils.getAbsoluteBounds(dmo);
+
+        int x = bounds.getX() - fCurrentDiagramNegativeOffset.x; // compensate for negative space
+        int y = bounds.getY() - fCurrentDiagramNegativeOffset.y; // compensate for negative space
+
+        fWriter.writeAttribute(ATTRIBUTE_X, Integer.toString(x));
+        fWriter.writeAttribute(ATTRIBUTE_Y, Integer.toString(y));
+        fWriter.writeAttribute(ATTRIBUTE_WIDTH, Integer.toString(bounds.getWidth()));
+        fWriter.writeAttribute(ATTRIBUTE_HEIGHT, Integer.toString(bounds.getHeight()));
+    }
+
+    /**
+     * Write some text to a child element.
+     * If mandatory write at least an empty tag
+     */
+    private void writeTextToElement(String text, String childElementName, boolean mandatory) throws IOException {
+        if(mandatory || hasSomeText(text)) {
+            fWriter.writeStartElement(childElementName);
+            writeElementTextWithLanguageCode(text);
+            fWriter.writeEndElement();
+        }
+    }
+
+    private void writeElementTextWithLanguageCode(String text) throws IOException {
+        if(fLanguageCode != null) {
+            fWriter.writeAttribute(XML_LANG, fLanguageCode);
+        }
+
+        fWriter.writeText(text);
+    }
+
+    /**
+     * Return true if string has at least some text
+     */
+    private boolean hasSomeText(String string) {
+        return string != null && !string.isEmpty();
+    }
+
+    /**
+     * Create a uniform id
+     */
+    private String createID(IIdentifier identifier) {
+        if(identifier.getId() != null && identifier.getId().startsWith("id-")) {
+            return identifier.getId();
+        }
+        return "id-" + identifier.getId();
+    }
+
+    private static String qualifiedName(Namespace namespace, String name) {
+        return StringUtils.isSet(namespace.getPrefix()) ? namespace.getPrefix() + ":" + name : name;
+    }
+}
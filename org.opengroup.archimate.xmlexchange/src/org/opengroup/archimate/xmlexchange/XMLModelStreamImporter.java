@@ -0,0 +1,1588 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.RGB;
+import org.jdom2.Namespace;
+import org.xml.sax.SAXException;
+
+import com.archimatetool.editor.diagram.ArchimateDiagramModelFactory;
+import com.archimatetool.editor.diagram.ICreationFactory;
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.editor.ui.ColorFactory;
+import com.archimatetool.editor.ui.FontFactory;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IAccessRelationship;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateModelObject;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IAssociationRelationship;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IConnectable;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelBendpoint;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelContainer;
+import com.archimatetool.model.IDiagramModelGroup;
+import com.archimatetool.model.IDiagramModelNote;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.model.IDiagramModelReference;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IFontAttribute;
+import com.archimatetool.model.IInfluenceRelationship;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+
+
+
+
+/**
+ * XML Model Importer that reads the file in one streaming pass with StAX.<p>
+ *
+ * Concepts, views and diagram objects are created as they are read, and the file is validated against the Schema
+ * while it is read. References to things that come later in the file, such as property definitions, relationship
+ * source and targets, organization items, connection ends and view references, are kept in fix-up tables and
+ * resolved when the things they refer to have been read.
+ * No JDOM Document is built, so memory use is proportional to the model rather than to the model and the document.<p>
+ *
+ * The model created is the same as the one created by XMLModelImporter.
+ *
+ * @author Phillip Beauvoir
+ */
+public class XMLModelStreamImporter implements IXMLExchangeGlobals, XMLStreamConstants {
+
+    private static final String ARCHIMATE3_URI = ARCHIMATE3_NAMESPACE.getURI();
+
+    private IArchimateModel fModel;
+
+    // Reader
+    private XMLStreamReader fReader;
+
+    // Validator, or null if not validating
+    private XMLStreamValidator fValidator;
+
+    // Whether to validate
+    private boolean fValidate = true;
+
+    // The language code of the system's locale
+    private String fLanguageCode;
+
+    // Whether there was an "elements" element
+    private boolean fHasElements;
+
+    // Properties
+    private Map<String, String> fPropertyDefinitionsList;
+
+    // Concepts lookup
+    private Map<String, IArchimateConcept> fConceptsLookup;
+
+    // Connection/Node lookup
+    private Map<String, IConnectable> fConnectionsNodesLookup;
+
+    // Diagrams lookup
+    private Map<String, IArchimateDiagramModel> fDiagramsLookup;
+
+    // ======================================= Fix-up tables ====================================
+
+    // Properties read before the property definitions
+    private List<PropertyInfo> fPropertyFixups;
+
+    // Relations to connect to their source and target when all relations have been read
+    private List<RelationInfo> fRelationFixups;
+
+    // Top level organization items to add to folders when the views have been read
+    private List<ItemInfo> fOrganizationItems;
+
+    // Diagram Model references to set when all views have been read
+    private Map<IDiagramModelReference, String> fDiagramRefsLookup;
+
+    private static class PropertyInfo {
+        IProperties owner;
+        IProperty property;
+        String propertyRefID;
+    }
+
+    private static class RelationInfo {
+        IArchimateRelationship relation;
+        String sourceID;
+        String targetID;
+    }
+
+    private static class ItemInfo {
+        ItemInfo parent;
+        String idref;
+        String label;
+        String documentation;
+        List<ItemInfo> children = new ArrayList<>();
+    }
+
+    private static class ConnectionInfo {
+        IDiagramModelConnection connection;
+        String sourceRef;
+        String targetRef;
+        List<String[]> bendpoints = new ArrayList<>();
+        StyleInfo style;
+    }
+
+    private class NodeInfo {
+        String identifier;
+        String elementRef;
+        String type;
+        String xString, yString, wString, hString;
+        LocalizedText label = new LocalizedText();
+        LocalizedText documentation = new LocalizedText();
+        boolean hasViewRef;
+        String viewRefID;
+        StyleInfo style;
+        IDiagramModelObject dmo;
+    }
+
+    private static class StyleInfo {
+        String lineWidth;
+        boolean hasFillColor;
+        String fillColor;
+        int fillAlpha = 255;
+        boolean hasLineColor;
+        String lineColor;
+        int lineAlpha = 255;
+        FontInfo font;
+    }
+
+    private static class FontInfo {
+        String name;
+        String size;
+        String style;
+        boolean hasColor;
+        String color;
+    }
+
+    /**
+     * Text of child elements that may be repeated for different languages
+     */
+    private class LocalizedText {
+        String first;
+        String localized;
+
+        void add(String lang, String text) {
+            if(first == null) {
+                first = text;
+            }
+            if(localized == null && fLanguageCode.equals(lang)) {
+                localized = text;
+            }
+        }
+
+        /**
+         * @return The text for the system's language or else the first text, or null if there is no text
+         */
+        String get(boolean normalise) {
+            String text = localized != null ? localized : first;
+            return text == null ? null : normalise ? normalise(text) : text;
+        }
+    }
+
+    /**
+     * Set whether to validate the file against the Schema while reading it. The default is true.
+     */
+    public void setValidate(boolean validate) {
+        fValidate = validate;
+    }
+
+    public IArchimateModel createArchiMateModel(File instanceFile) throws IOException, XMLStreamException, SAXException, XMLModelParserException {
+        // New lookup tables
+        fPropertyDefinitionsList = new HashMap<>();
+        fConceptsLookup = new HashMap<>();
+        fConnectionsNodesLookup = new HashMap<>();
+        fDiagramsLookup = new HashMap<>();
+        fDiagramRefsLookup = new HashMap<>();
+        fPropertyFixups = new ArrayList<>();
+        fRelationFixups = new ArrayList<>();
+        fOrganizationItems = new ArrayList<>();
+        fHasElements = false;
+
+        //Check for localised elements according to the system's locale
+        fLanguageCode = Locale.getDefault().getLanguage();
+        if(fLanguageCode == null) {
+            fLanguageCode = "en"; //$NON-NLS-1$
+        }
+
+        // Create a new Archimate Model and set its defaults
+        fModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        fModel.setDefaults();
+
+        try(InputStream in = new BufferedInputStream(new FileInputStream(instanceFile))) {
+            fReader = createInputFactory().createXMLStreamReader(in);
+
+            try {
+                if(fValidate) {
+                    fValidator = new XMLStreamValidator(XMLValidator.getSchema(), fReader);
+                    fValidator.validate(); // START_DOCUMENT
+                }
+
+                // Root Element
+                if(nextChildElement()) {
+                    parseRootElement();
+                }
+
+                // Read to the end so that the whole document is validated
+                while(fReader.hasNext()) {
+                    next();
+                }
+            }
+            finally {
+                fReader.close();
+                fReader = null;
+                fValidator = null;
+            }
+        }
+
+        // Properties that were read before the property definitions
+        addDeferredProperties();
+
+        // Organizations
+        for(ItemInfo item : fOrganizationItems) {
+            parseItem(item);
+        }
+
+        return fModel;
+    }
+
+    private XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        // Don't allow DTD loading in case of XSS exploits
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        return factory;
+    }
+
+    // ========================================= Root Element ======================================
+
+    private void parseRootElement() throws IOException, XMLStreamException, SAXException, XMLModelParserException {
+        // Identifier
+        String id = getAttribute(ATTRIBUTE_IDENTIFIER);
+        if(id != null) {
+            fModel.setId(id);
+        }
+
+        LocalizedText name = new LocalizedText();
+        LocalizedText documentation = new LocalizedText();
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_NAME)) {
+                name.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_DOCUMENTATION)) {
+                documentation.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_PROPERTIES)) {
+                parseProperties(fModel);
+            }
+            else if(isElement(ELEMENT_ELEMENTS)) {
+                parseArchiMateElements();
+            }
+            else if(isElement(ELEMENT_RELATIONSHIPS)) {
+                parseArchiMateRelations();
+            }
+            else if(isElement(ELEMENT_ORGANIZATIONS)) {
+                parseOrganizations();
+            }
+            else if(isElement(ELEMENT_PROPERTYDEFINITIONS)) {
+                parsePropertyDefinitions();
+            }
+            else if(isElement(ELEMENT_VIEWS)) {
+                parseViews();
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        checkHasElements();
+
+        // Name
+        if(name.get(true) != null) {
+            fModel.setName(name.get(true));
+        }
+
+        // Documentation
+        if(documentation.get(false) != null) {
+            fModel.setPurpose(documentation.get(false));
+        }
+    }
+
+    // ========================================= Property Definitions ======================================
+
+    private void parsePropertyDefinitions() throws XMLStreamException, SAXException {
+        while(nextChildElement()) {
+            if(!isElement(ELEMENT_PROPERTYDEFINITION)) {
+                skipElement();
+                continue;
+            }
+
+            // Archi only supports String types so we can ignore the data type
+            String identifier = getAttribute(ATTRIBUTE_IDENTIFIER);
+            LocalizedText name = new LocalizedText();
+
+            while(nextChildElement()) {
+                if(isElement(ELEMENT_NAME)) {
+                    name.add(getLanguage(), readText());
+                }
+                else {
+                    skipElement();
+                }
+            }
+
+            if(identifier != null && name.get(false) != null) {
+                fPropertyDefinitionsList.put(identifier, name.get(false));
+            }
+        }
+    }
+
+    // ========================================= Properties ======================================
+
+    private void parseProperties(IProperties propertiesModel) throws XMLStreamException, SAXException {
+        while(nextChildElement()) {
+            if(!isElement(ELEMENT_PROPERTY)) {
+                skipElement();
+                continue;
+            }
+
+            String idref = getAttribute(ATTRIBUTE_PROPERTY_IDENTIFIERREF);
+            LocalizedText value = new LocalizedText();
+
+            while(nextChildElement()) {
+                if(isElement(ELEMENT_VALUE)) {
+                    value.add(getLanguage(), readText());
+                }
+                else {
+                    skipElement();
+                }
+            }
+
+            if(idref != null) {
+                IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+                property.setValue(value.get(true));
+
+                String propertyName = fPropertyDefinitionsList.get(idref);
+
+                // Property definitions already read
+                if(propertyName != null) {
+                    property.setKey(propertyName);
+                    propertiesModel.getProperties().add(property);
+                }
+                // Property definitions come later in the file
+                else {
+                    PropertyInfo pInfo = new PropertyInfo();
+                    pInfo.owner = propertiesModel;
+                    pInfo.property = property;
+                    pInfo.propertyRefID = idref;
+                    fPropertyFixups.add(pInfo);
+                }
+            }
+        }
+    }
+
+    private void addDeferredProperties() {
+        for(PropertyInfo pInfo : fPropertyFixups) {
+            String propertyName = fPropertyDefinitionsList.get(pInfo.propertyRefID);
+            if(propertyName != null) {
+                pInfo.property.setKey(propertyName);
+                pInfo.owner.getProperties().add(pInfo.property);
+            }
+        }
+
+        fPropertyFixups.clear();
+    }
+
+    // ========================================= Elements ======================================
+
+    private void parseArchiMateElements() throws XMLStreamException, SAXException, XMLModelParserException {
+        fHasElements = true;
+
+        while(nextChildElement()) {
+            if(!isElement(ELEMENT_ELEMENT)) {
+                skipElement();
+                continue;
+            }
+
+            String type = getAttribute(XSI_NAMESPACE.getURI(), ATTRIBUTE_TYPE);
+            // If type is bogus ignore
+            if(type == null) {
+                skipElement();
+                continue;
+            }
+
+            IArchimateElement element = (IArchimateElement)XMLTypeMapper.createArchimateConcept(type);
+            // If element is null throw exception
+            if(element == null) {
+                throw new XMLModelParserException(NLS.bind(Messages.XMLModelImporter_1, type));
+            }
+
+            // Identifier first
+            String id = getAttribute(ATTRIBUTE_IDENTIFIER);
+            if(id != null) {
+                element.setId(id);
+            }
+
+            // Add to model
+            fModel.getDefaultFolderForObject(element).getElements().add(element);
+
+            LocalizedText name = new LocalizedText();
+            LocalizedText documentation = new LocalizedText();
+
+            while(nextChildElement()) {
+                if(isElement(ELEMENT_NAME)) {
+                    name.add(getLanguage(), readText());
+                }
+                else if(isElement(ELEMENT_DOCUMENTATION)) {
+                    documentation.add(getLanguage(), readText());
+                }
+                else if(isElement(ELEMENT_PROPERTIES)) {
+                    parseProperties(element);
+                }
+                else {
+                    skipElement();
+                }
+            }
+
+            if(name.get(true) != null) {
+                element.setName(name.get(true));
+            }
+
+            if(documentation.get(false) != null) {
+                element.setDocumentation(documentation.get(false));
+            }
+
+            // Add to lookup
+            fConceptsLookup.put(element.getId(), element);
+        }
+    }
+
+    private void checkHasElements() throws XMLModelParserException {
+        if(!fHasElements) {
+            throw new XMLModelParserException(Messages.XMLModelImporter_0);
+        }
+    }
+
+    // ========================================= Relations ======================================
+
+    private void parseArchiMateRelations() throws IOException, XMLStreamException, SAXException, XMLModelParserException {
+        checkHasElements();
+
+        IFolder relationshipFolder = fModel.getFolder(FolderType.RELATIONS);
+
+        while(nextChildElement()) {
+            if(!isElement(ELEMENT_RELATIONSHIP)) {
+                skipElement();
+                continue;
+            }
+
+            String type = getAttribute(XSI_NAMESPACE.getURI(), ATTRIBUTE_TYPE);
+            // If type is bogus ignore
+            if(type == null) {
+                skipElement();
+                continue;
+            }
+
+            IArchimateRelationship relation = (IArchimateRelationship)XMLTypeMapper.createArchimateConcept(type);
+            // If relation is null throw exception
+            if(relation == null) {
+                throw new IOException(NLS.bind(Messages.XMLModelImporter_2, type));
+            }
+
+            // Identifier first
+            String id = getAttribute(ATTRIBUTE_IDENTIFIER);
+            if(id != null) {
+                relation.setId(id);
+            }
+
+            // Add to model
+            relationshipFolder.getElements().add(relation);
+
+            // Source and target
+            String sourceID = getAttribute(ATTRIBUTE_SOURCE);
+            String targetID = getAttribute(ATTRIBUTE_TARGET);
+
+            // Access type
+            if(relation instanceof IAccessRelationship) {
+                String accessType = getAttribute(ATTRIBUTE_ACCESS_TYPE);
+                if(accessType != null) {
+                    IAccessRelationship accessRelationship = (IAccessRelationship)relation;
+
+                    switch(accessType) {
+                        case ACCESS_TYPE_ACCESS:
+                            accessRelationship.setAccessType(IAccessRelationship.UNSPECIFIED_ACCESS);
+                            break;
+
+                        case ACCESS_TYPE_READ:
+                            accessRelationship.setAccessType(IAccessRelationship.READ_ACCESS);
+                            break;
+
+                        case ACCESS_TYPE_READ_WRITE:
+                            accessRelationship.setAccessType(IAccessRelationship.READ_WRITE_ACCESS);
+                            break;
+
+                        default:
+                            accessRelationship.setAccessType(IAccessRelationship.WRITE_ACCESS);
+                            break;
+                    }
+                }
+            }
+            // Influence type
+            else if(relation instanceof IInfluenceRelationship) {
+                String influenceStrength = getAttribute(ATTRIBUTE_INFLUENCE_MODIFIER);
+                if(influenceStrength != null) {
+                    ((IInfluenceRelationship)relation).setStrength(influenceStrength);
+                }
+            }
+            // Association type
+            else if(relation instanceof IAssociationRelationship) {
+                String isDirected = getAttribute(ATTRIBUTE_ASSOCIATION_DIRECTED);
+                if("true".equalsIgnoreCase(isDirected)) { //$NON-NLS-1$
+                    ((IAssociationRelationship)relation).setDirected(true);
+                }
+            }
+
+            LocalizedText name = new LocalizedText();
+            LocalizedText documentation = new LocalizedText();
+
+            while(nextChildElement()) {
+                if(isElement(ELEMENT_NAME)) {
+                    name.add(getLanguage(), readText());
+                }
+                else if(isElement(ELEMENT_DOCUMENTATION)) {
+                    documentation.add(getLanguage(), readText());
+                }
+                else if(isElement(ELEMENT_PROPERTIES)) {
+                    parseProperties(relation);
+                }
+                else {
+                    skipElement();
+                }
+            }
+
+            // Name
+            if(name.get(true) != null) {
+                relation.setName(name.get(true));
+            }
+
+            // Documentation
+            if(documentation.get(false) != null) {
+                relation.setDocumentation(documentation.get(false));
+            }
+
+            // Add to lookup table
+            fConceptsLookup.put(relation.getId(), relation);
+
+            // Add to relations fix-up table, the source or target may be a relation that comes later
+            RelationInfo rInfo = new RelationInfo();
+            rInfo.relation = relation;
+            rInfo.sourceID = sourceID;
+            rInfo.targetID = targetID;
+            fRelationFixups.add(rInfo);
+        }
+
+        // Add source and target concepts
+        for(RelationInfo rInfo : fRelationFixups) {
+            IArchimateConcept source = fConceptsLookup.get(rInfo.sourceID);
+            if(source == null) {
+                throw new IOException(Messages.XMLModelImporter_3 + rInfo.sourceID);
+            }
+
+            IArchimateConcept target = fConceptsLookup.get(rInfo.targetID);
+            if(target == null) {
+                throw new IOException(Messages.XMLModelImporter_4 + rInfo.targetID);
+            }
+
+            rInfo.relation.setSource(source);
+            rInfo.relation.setTarget(target);
+        }
+
+        fRelationFixups.clear();
+    }
+
+    // ========================================= Organizations ======================================
+
+    /**
+     * Read the organization items. They are added to folders when the views have been read because they can reference views.
+     */
+    private void parseOrganizations() throws XMLStreamException, SAXException {
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_ITEM)) {
+                fOrganizationItems.add(readItem(null));
+            }
+            else {
+                skipElement();
+            }
+        }
+    }
+
+    private ItemInfo readItem(ItemInfo parent) throws XMLStreamException, SAXException {
+        ItemInfo item = new ItemInfo();
+        item.parent = parent;
+        item.idref = getAttribute(ATTRIBUTE_IDENTIFIERREF);
+
+        LocalizedText label = new LocalizedText();
+        LocalizedText documentation = new LocalizedText();
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_LABEL)) {
+                label.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_DOCUMENTATION)) {
+                documentation.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_ITEM)) {
+                item.children.add(readItem(item));
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        item.label = label.get(true);
+        item.documentation = documentation.get(true);
+
+        return item;
+    }
+
+    private void parseItem(ItemInfo item) {
+        // Is it a Concept or View added to a folder?
+        boolean result = addObjectItemToFolder(item);
+
+        // No, then a sub-folder?
+        if(!result) {
+            getSubFolder(item, getTopLevelArchiFolderInHierarchy(item));
+        }
+
+        // Child Items
+        for(ItemInfo child : item.children) {
+            parseItem(child);
+        }
+    }
+
+    /**
+     * Add the object referenced by item (if any) to a folder or sub-folder
+     * @return true if successful
+     */
+    private boolean addObjectItemToFolder(ItemInfo item) {
+        IArchimateModelObject object = getItemObject(item);
+
+        if(object == null) {
+            return false;
+        }
+
+        // Create/get a sub-folder
+        IFolder folder = getSubFolder(item.parent, fModel.getDefaultFolderForObject(object));
+
+        // Add it
+        if(folder != null) {
+            folder.getElements().add(object);
+        }
+
+        return folder != null;
+    }
+
+    /**
+     * @return a matching concept or View that item references
+     *         or null if it doesn't reference one or has child items (which makes it a folder)
+     */
+    private IArchimateModelObject getItemObject(ItemInfo item) {
+        // Must have idref
+        if(!hasValue(item.idref)) {
+            return null;
+        }
+
+        // Must not have child items
+        if(!item.children.isEmpty()) {
+            return null;
+        }
+
+        IArchimateModelObject concept = fConceptsLookup.get(item.idref);
+        return concept != null ? concept : fDiagramsLookup.get(item.idref);
+    }
+
+    /**
+     * Get a sub-folder for item. If it does not exist, it is created.
+     */
+    private IFolder getSubFolder(ItemInfo item, IFolder folder) {
+        if(folder == null) {
+            return null;
+        }
+
+        // Work through the item hierarchy from top to bottom
+        for(ItemInfo element : getItemHierarchy(item)) {
+            String name = StringUtils.safeString(element.label);
+            String documentation = StringUtils.safeString(element.documentation);
+
+            // Is this a top-level Archi folder?
+            IFolder toplevelFolder = getTopLevelArchiFolder(element);
+
+            // Yes it is, so just update the documentation
+            if(toplevelFolder != null) {
+                toplevelFolder.setDocumentation(documentation);
+            }
+            // Not a top-level Archi folder so get/create the next sub-folder
+            else {
+                folder = createSubFolder(folder, name, documentation);
+            }
+        }
+
+        return folder;
+    }
+
+    /**
+     * Get or create a sub-folder. If it does not exist, it is created and its name and documentation set.
+     */
+    private IFolder createSubFolder(IFolder parent, String name, String documentation) {
+        for(IFolder f : parent.getFolders()) {
+            if(f.getName().equals(name)) {
+                return f;
+            }
+        }
+
+        IFolder folder = IArchimateFactory.eINSTANCE.createFolder();
+        folder.setName(name);
+        folder.setDocumentation(documentation);
+        parent.getFolders().add(folder);
+
+        return folder;
+    }
+
+    /**
+     * @return a hierarchy of sub-folder items (reverses the items from bottom-top to top-bottom)
+     */
+    private List<ItemInfo> getItemHierarchy(ItemInfo item) {
+        List<ItemInfo> items = new ArrayList<>();
+
+        while(item != null) {
+            items.add(0, item); // reverse order
+            item = item.parent;
+        }
+
+        return items;
+    }
+
+    /**
+     * @return the topmost Archi folder that corresponds to item's hierarchy
+     *         otherwise return null
+     */
+    private IFolder getTopLevelArchiFolderInHierarchy(ItemInfo item) {
+        while(item != null) {
+            IFolder folder = getTopLevelArchiFolder(item);
+            if(folder != null) {
+                return folder;
+            }
+            item = item.parent;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return an Archi top level folder if item is a top level item and its name matches one of Archi's top-level folder names
+     *         otherwise return null
+     */
+    private IFolder getTopLevelArchiFolder(ItemInfo item) {
+        // A top level item is a direct child of the "organizations" element
+        if(item != null && item.parent == null) {
+            for(IFolder folder : fModel.getFolders()) {
+                if(folder.getName().equals(item.label)) {
+                    return folder;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // ========================================= Views ======================================
+
+    private void parseViews() throws XMLStreamException, SAXException, XMLModelParserException {
+        boolean hasDiagrams = false;
+
+        while(nextChildElement()) {
+            // Only the first "diagrams" element
+            if(isElement(ELEMENT_DIAGRAMS) && !hasDiagrams) {
+                hasDiagrams = true;
+
+                while(nextChildElement()) {
+                    if(isElement(ELEMENT_VIEW)) {
+                        parseView();
+                    }
+                    else {
+                        skipElement();
+                    }
+                }
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        // Now add any view diagram references
+        for(Entry<IDiagramModelReference, String> element : fDiagramRefsLookup.entrySet()) {
+            IDiagramModelReference dmRef = element.getKey();
+            String refID = element.getValue();
+            IArchimateDiagramModel dm = fDiagramsLookup.get(refID);
+            if(dm != null) {
+                dmRef.setReferencedModel(dm);
+            }
+            else {
+                throw new XMLModelParserException(Messages.XMLModelImporter_15 + refID);
+            }
+        }
+
+        fDiagramRefsLookup.clear();
+    }
+
+    private void parseView() throws XMLStreamException, SAXException, XMLModelParserException {
+        IArchimateDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        fModel.getDefaultFolderForObject(dm).getElements().add(dm);
+
+        // Identifier first
+        String id = getAttribute(ATTRIBUTE_IDENTIFIER);
+        if(id != null) {
+            dm.setId(id);
+
+            // Store it
+            fDiagramsLookup.put(id, dm);
+        }
+
+        // Viewpoint
+        String viewPointName = getAttribute(ATTRIBUTE_VIEWPOINT);
+        if(viewPointName != null) {
+            String viewPointID = XMLTypeMapper.getViewpointID(viewPointName);
+            dm.setViewpoint(viewPointID);
+        }
+
+        LocalizedText name = new LocalizedText();
+        LocalizedText documentation = new LocalizedText();
+        List<ConnectionInfo> connectionInfoList = new ArrayList<>();
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_NAME)) {
+                name.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_DOCUMENTATION)) {
+                documentation.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_PROPERTIES)) {
+                parseProperties(dm);
+            }
+            // Nodes
+            else if(isElement(ELEMENT_NODE)) {
+                parseNode(dm);
+            }
+            // Connections
+            else if(isElement(ELEMENT_CONNECTION)) {
+                connectionInfoList.add(readConnection());
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        // Name
+        if(name.get(true) != null) {
+            dm.setName(name.get(true));
+        }
+
+        // Documentation
+        if(documentation.get(false) != null) {
+            dm.setDocumentation(documentation.get(false));
+        }
+
+        // Connections can reference connections that come later so connect them now
+        addConnections(connectionInfoList);
+
+        // Add implicit nested connections
+        addNestedConnections(dm);
+    }
+
+    // ========================================= Nodes ======================================
+
+    /**
+     * Read a node. Whether a node without an element ref is a Group, a View Reference or a Note depends on its child elements
+     * so the diagram object is created when the first child node is read or at the end of the node.
+     */
+    private void parseNode(IDiagramModelContainer parentContainer) throws XMLStreamException, SAXException, XMLModelParserException {
+        NodeInfo info = new NodeInfo();
+
+        info.identifier = getAttribute(ATTRIBUTE_IDENTIFIER);
+        info.elementRef = getAttribute(ATTRIBUTE_ELEMENTREF);
+        info.type = getAttribute(XSI_NAMESPACE.getURI(), ATTRIBUTE_TYPE);
+        info.xString = getAttribute(ATTRIBUTE_X);
+        info.yString = getAttribute(ATTRIBUTE_Y);
+        info.wString = getAttribute(ATTRIBUTE_WIDTH);
+        info.hString = getAttribute(ATTRIBUTE_HEIGHT);
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_LABEL)) {
+                info.label.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_DOCUMENTATION)) {
+                info.documentation.add(getLanguage(), readText());
+            }
+            else if(isElement(ELEMENT_STYLE) && info.style == null) {
+                info.style = readStyle();
+
+                // Style came after the child nodes
+                if(info.dmo != null) {
+                    addNodeStyle(info.dmo, info.style);
+                }
+            }
+            else if(isElement(ELEMENT_VIEWREF) && !info.hasViewRef) {
+                info.hasViewRef = true;
+                info.viewRefID = getAttribute(ATTRIBUTE_REF);
+                skipElement();
+            }
+            // Child nodes
+            else if(isElement(ELEMENT_NODE)) {
+                if(info.dmo == null) {
+                    createNode(info, parentContainer, true);
+                }
+
+                if(info.dmo instanceof IDiagramModelContainer) {
+                    parseNode((IDiagramModelContainer)info.dmo);
+                }
+                else {
+                    skipElement();
+                }
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        if(info.dmo == null) {
+            createNode(info, parentContainer, false);
+        }
+    }
+
+    /**
+     * Create the diagram object for a node and add it to its parent
+     */
+    private void createNode(NodeInfo info, IDiagramModelContainer parentContainer, boolean hasChildren) throws XMLModelParserException {
+        IDiagramModelObject dmo = null;
+
+        // This has an element ref so it's an ArchiMate element node
+        if(hasValue(info.elementRef)) {
+            IArchimateConcept concept = fConceptsLookup.get(info.elementRef);
+
+            if(!(concept instanceof IArchimateElement)) {
+                throw new XMLModelParserException(Messages.XMLModelImporter_5 + info.elementRef);
+            }
+
+            // Create new diagram node object
+            dmo = ArchimateDiagramModelFactory.createDiagramModelArchimateObject((IArchimateElement)concept);
+        }
+
+        // No element ref so this is another type of node, but what is it?
+        else {
+            boolean isGroup = ATTRIBUTE_CONTAINER_TYPE.equals(info.type);
+            boolean isLabel = ATTRIBUTE_LABEL_TYPE.equals(info.type);
+
+            // Our notes cannot contain children, so if it does contain children it has to be a Group.
+            // Is it a label with view ref?
+            boolean isViewRef = isLabel && info.hasViewRef;
+
+            if(isGroup || hasChildren) {
+                ICreationFactory factory = new ArchimateDiagramModelFactory(IArchimatePackage.eINSTANCE.getDiagramModelGroup());
+                IDiagramModelGroup group = (IDiagramModelGroup)factory.getNewObject();
+                dmo = group;
+
+                // Label
+                String name = info.label.get(true);
+                if(name != null) {
+                    dmo.setName(name);
+                }
+
+                // Documentation
+                String documentation = info.documentation.get(false);
+                if(documentation != null) {
+                    group.setDocumentation(documentation);
+                }
+            }
+            // View Ref
+            else if(isViewRef) {
+                IDiagramModelReference ref = IArchimateFactory.eINSTANCE.createDiagramModelReference();
+                dmo = ref;
+
+                // The referenced diagram model will have to be set afterwards since we may not have created it yet
+                fDiagramRefsLookup.put(ref, info.viewRefID);
+            }
+            // A Note is our only other option
+            else {
+                ICreationFactory factory = new ArchimateDiagramModelFactory(IArchimatePackage.eINSTANCE.getDiagramModelNote());
+                IDiagramModelNote note = (IDiagramModelNote)factory.getNewObject();
+
+                dmo = note;
+
+                // Text
+                String text = info.label.get(false);
+                if(text != null) {
+                    note.setContent(text);
+                }
+            }
+        }
+
+        // Add Identifier before adding to model
+        dmo.setId(info.identifier);
+
+        // Add the child first
+        parentContainer.getChildren().add(dmo);
+
+        // Get the absolute bounds as declared in the XML file
+        IBounds bounds = getNodeBounds(info);
+
+        // Convert the given absolute bounds into relative bounds if this is in a child object
+        if(parentContainer instanceof IDiagramModelObject) {
+            bounds = DiagramModelUtils.getRelativeBounds(bounds, (IDiagramModelObject)parentContainer);
+        }
+
+        dmo.setBounds(bounds);
+
+        // Style
+        if(info.style != null) {
+            addNodeStyle(dmo, info.style);
+        }
+
+        // Add to lookup
+        fConnectionsNodesLookup.put(dmo.getId(), dmo);
+
+        info.dmo = dmo;
+    }
+
+    /**
+     * Get the object bounds as declared in XML. The x, y will be absolute values.
+     */
+    private IBounds getNodeBounds(NodeInfo info) throws XMLModelParserException {
+        // Check for x, y, width and height
+        if(!hasValue(info.xString) || !hasValue(info.yString) || !hasValue(info.wString) || !hasValue(info.hString)) {
+            throw new XMLModelParserException(Messages.XMLModelImporter_6);
+        }
+
+        int x = Integer.valueOf(info.xString);
+        int y = Integer.valueOf(info.yString);
+        int width = Integer.valueOf(info.wString);
+        int height = Integer.valueOf(info.hString);
+
+        return IArchimateFactory.eINSTANCE.createBounds(x, y, width, height);
+    }
+
+    /**
+     * Node Style
+     */
+    private void addNodeStyle(IDiagramModelObject dmo, StyleInfo style) {
+        // Fill Color
+        dmo.setFillColor(style.fillColor);
+
+        // Fill Alpha
+        dmo.setAlpha(style.fillAlpha);
+
+        // Line Color
+        dmo.setLineColor(style.lineColor);
+
+        // Line Alpha
+        dmo.setLineAlpha(style.lineAlpha);
+
+        // Font
+        addFont(dmo, style.font);
+    }
+
+    // ======================================= Connections ====================================
+
+    private ConnectionInfo readConnection() throws XMLStreamException, SAXException, XMLModelParserException {
+        IDiagramModelConnection connection = null;
+
+        // An ArchiMate relationship connection
+        String relationshipRef = getAttribute(ATTRIBUTE_RELATIONSHIPREF);
+        if(hasValue(relationshipRef)) {
+            // Get relationship
+            IArchimateConcept concept = fConceptsLookup.get(relationshipRef);
+            if(!(concept instanceof IArchimateRelationship)) {
+                throw new XMLModelParserException(Messages.XMLModelImporter_7 + relationshipRef);
+            }
+
+            // Create new ArchiMate connection with relationship
+            connection = ArchimateDiagramModelFactory.createDiagramModelArchimateConnection((IArchimateRelationship)concept);
+        }
+        // Create new ordinary connection
+        else {
+            connection = IArchimateFactory.eINSTANCE.createDiagramModelConnection();
+        }
+
+        // Add Identifier before adding to model
+        connection.setId(getAttribute(ATTRIBUTE_IDENTIFIER));
+
+        // Add to connection list to connect at the end of the view
+        ConnectionInfo cInfo = new ConnectionInfo();
+        cInfo.connection = connection;
+        cInfo.sourceRef = getAttribute(ATTRIBUTE_SOURCE);
+        cInfo.targetRef = getAttribute(ATTRIBUTE_TARGET);
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_STYLE) && cInfo.style == null) {
+                cInfo.style = readStyle();
+            }
+            else if(isElement(ELEMENT_BENDPOINT)) {
+                cInfo.bendpoints.add(new String[] { getAttribute(ATTRIBUTE_X), getAttribute(ATTRIBUTE_Y) });
+                skipElement();
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        // Add to lookup
+        fConnectionsNodesLookup.put(connection.getId(), connection);
+
+        return cInfo;
+    }
+
+    private void addConnections(List<ConnectionInfo> connectionInfoList) throws XMLModelParserException {
+        for(ConnectionInfo cInfo : connectionInfoList) {
+            // Get connection source node/connection
+            IConnectable connectableSource = fConnectionsNodesLookup.get(cInfo.sourceRef);
+            if(connectableSource == null) {
+                throw new XMLModelParserException(Messages.XMLModelImporter_9 + cInfo.sourceRef);
+            }
+
+            // Get connection target node/connection
+            IConnectable connectableTarget = fConnectionsNodesLookup.get(cInfo.targetRef);
+            if(connectableTarget == null) {
+                throw new XMLModelParserException(Messages.XMLModelImporter_10 + cInfo.targetRef);
+            }
+
+            // If an ArchiMate connection, source and target must be also
+            if(cInfo.connection instanceof IDiagramModelArchimateConnection) {
+                // Must be ArchiMate type source
+                if(!(connectableSource instanceof IDiagramModelArchimateComponent)) {
+                    throw new XMLModelParserException(Messages.XMLModelImporter_11 + cInfo.sourceRef);
+                }
+
+                // Must be ArchiMate type target
+                if(!(connectableTarget instanceof IDiagramModelArchimateComponent)) {
+                    throw new XMLModelParserException(Messages.XMLModelImporter_12 + cInfo.targetRef);
+                }
+            }
+            // Another connection type
+            else {
+                // Only connect between notes and groups
+                if(connectableSource instanceof IDiagramModelArchimateComponent && connectableTarget instanceof IDiagramModelArchimateComponent) {
+                    continue;
+                }
+                // Don't connect to other connections
+                if(connectableSource instanceof IDiagramModelConnection || connectableTarget instanceof IDiagramModelConnection) {
+                    continue;
+                }
+            }
+
+            // Connect
+            cInfo.connection.connect(connectableSource, connectableTarget);
+
+            // Bendpoints
+            addBendpoints(cInfo.connection, cInfo.bendpoints);
+
+            // Style
+            if(cInfo.style != null) {
+                addConnectionStyle(cInfo.connection, cInfo.style);
+            }
+        }
+    }
+
+    /**
+     * Add implicit nested connections
+     * 1. Iterate through all diagram ArchiMate nodes and look for nested nodes
+     * 2. If there is a relationship between the ArchiMate elements of the nodes and no existing connection, add one
+     */
+    private void addNestedConnections(IArchimateDiagramModel dm) {
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) { // Contents of a diagram
+            EObject eObject = iter.next();
+
+            if(eObject instanceof IDiagramModelArchimateObject) { // ArchiMate node
+                IDiagramModelArchimateObject parent = (IDiagramModelArchimateObject)eObject;
+
+                for(IDiagramModelObject dmo : parent.getChildren()) {
+                    if(dmo instanceof IDiagramModelArchimateObject) { // ArchiMate child node
+                        IDiagramModelArchimateObject child = (IDiagramModelArchimateObject)dmo;
+                        IArchimateElement parentElement = parent.getArchimateElement();
+                        IArchimateElement childElement = child.getArchimateElement();
+
+                        // Parent -> Child
+                        for(IArchimateRelationship relation : parentElement.getSourceRelationships()) {
+                            if(relation.getTarget() == childElement && !DiagramModelUtils.hasDiagramModelArchimateConnection(parent, child, relation)) {
+                                IDiagramModelArchimateConnection connection = ArchimateDiagramModelFactory.createDiagramModelArchimateConnection(relation);
+                                connection.connect(parent, child);
+                            }
+                        }
+
+                        // Child -> Parent
+                        for(IArchimateRelationship relation : childElement.getSourceRelationships()) {
+                            if(relation.getTarget() == parentElement && !DiagramModelUtils.hasDiagramModelArchimateConnection(child, parent, relation)) {
+                                IDiagramModelArchimateConnection connection = ArchimateDiagramModelFactory.createDiagramModelArchimateConnection(relation);
+                                connection.connect(child, parent);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add bendpoints
+     */
+    private void addBendpoints(IDiagramModelConnection connection, List<String[]> bendpoints) throws XMLModelParserException {
+        // Doesn't work for connection->connection
+        if(connection.getSource() instanceof IDiagramModelConnection || connection.getTarget() instanceof IDiagramModelConnection) {
+            return;
+        }
+
+        for(String[] bendpointValues : bendpoints) {
+            String xString = bendpointValues[0];
+            String yString = bendpointValues[1];
+            if(!hasValue(xString) || !hasValue(yString)) {
+                throw new XMLModelParserException(Messages.XMLModelImporter_13);
+            }
+
+            int x = Integer.valueOf(xString);
+            int y = Integer.valueOf(yString);
+
+            IDiagramModelBendpoint bendpoint = DiagramModelUtils.createBendPointFromAbsolutePosition(connection, x, y);
+            if(bendpoint != null) {
+                connection.getBendpoints().add(bendpoint);
+            }
+        }
+    }
+
+    /**
+     * Connection Style
+     */
+    private void addConnectionStyle(IDiagramModelConnection connection, StyleInfo style) {
+        // Line width
+        if(hasValue(style.lineWidth)) {
+            int width = Integer.valueOf(style.lineWidth);
+            if(width < 0) {
+                width = 1;
+            }
+            if(width > 3) {
+                width = 3;
+            }
+            connection.setLineWidth(width);
+        }
+
+        // Line Color
+        connection.setLineColor(style.lineColor);
+
+        // Font
+        addFont(connection, style.font);
+    }
+
+    // ========================================= Style ======================================
+
+    /**
+     * Read a style element. Only the first of each child element is used.
+     */
+    private StyleInfo readStyle() throws XMLStreamException, SAXException, XMLModelParserException {
+        StyleInfo style = new StyleInfo();
+
+        style.lineWidth = getAttribute(ATTRIBUTE_LINEWIDTH);
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_FILLCOLOR) && !style.hasFillColor) {
+                style.hasFillColor = true;
+                style.fillColor = getRGBColorString();
+                style.fillAlpha = getRGBAlphaValue();
+                skipElement();
+            }
+            else if(isElement(ELEMENT_LINECOLOR) && !style.hasLineColor) {
+                style.hasLineColor = true;
+                style.lineColor = getRGBColorString();
+                style.lineAlpha = getRGBAlphaValue();
+                skipElement();
+            }
+            else if(isElement(ELEMENT_FONT) && style.font == null) {
+                style.font = readFont();
+            }
+            else {
+                skipElement();
+            }
+        }
+
+        return style;
+    }
+
+    private FontInfo readFont() throws XMLStreamException, SAXException, XMLModelParserException {
+        FontInfo font = new FontInfo();
+
+        font.name = getAttribute(ATTRIBUTE_FONTNAME);
+        font.size = getAttribute(ATTRIBUTE_FONTSIZE);
+        font.style = getAttribute(ATTRIBUTE_FONTSTYLE);
+
+        while(nextChildElement()) {
+            if(isElement(ELEMENT_FONTCOLOR) && !font.hasColor) {
+                font.hasColor = true;
+                font.color = getRGBColorString();
+            }
+            skipElement();
+        }
+
+        return font;
+    }
+
+    private void addFont(IFontAttribute fontObject, FontInfo font) {
+        if(font == null) {
+            return;
+        }
+
+        FontData newFontData = new FontData(FontFactory.getDefaultUserViewFontData().toString());
+
+        if(hasValue(font.name)) {
+            newFontData.setName(font.name);
+        }
+
+        if(hasValue(font.size)) {
+            int val = Double.valueOf(font.size).intValue();
+            newFontData.setHeight(val);
+        }
+
+        if(hasValue(font.style)) {
+            int styleValue = SWT.NORMAL;
+            if(font.style.contains("bold")) { //$NON-NLS-1$
+                styleValue |= SWT.BOLD;
+            }
+            if(font.style.contains("italic")) { //$NON-NLS-1$
+                styleValue |= SWT.ITALIC;
+            }
+            newFontData.setStyle(styleValue);
+        }
+
+        fontObject.setFont(newFontData.toString());
+
+        // Font color
+        fontObject.setFontColor(font.color);
+    }
+
+    /**
+     * Get the RGB String for the current element
+     */
+    private String getRGBColorString() throws XMLModelParserException {
+        String rString = getAttribute(ATTRIBUTE_R);
+        String gString = getAttribute(ATTRIBUTE_G);
+        String bString = getAttribute(ATTRIBUTE_B);
+
+        if(!hasValue(rString) || !hasValue(gString) || !hasValue(bString)) {
+            throw new XMLModelParserException(Messages.XMLModelImporter_14);
+        }
+
+        int red = Integer.valueOf(rString);
+        int green = Integer.valueOf(gString);
+        int blue = Integer.valueOf(bString);
+
+        return ColorFactory.convertRGBToString(new RGB(red, green, blue));
+    }
+
+    /**
+     * @return The Alpha value for the current element, converted to 0-255
+     */
+    private int getRGBAlphaValue() {
+        String alphaString = getAttribute(ATTRIBUTE_A);
+        if(hasValue(alphaString)) {
+            int alpha = Integer.valueOf(alphaString);
+            return Math.round(((float)alpha * 255) / 100);
+        }
+
+        return 255;
+    }
+
+    // ========================================= Reader ======================================
+
+    /**
+     * Move to the next event and validate it
+     */
+    private int next() throws XMLStreamException, SAXException {
+        int event = fReader.next();
+
+        if(fValidator != null) {
+            fValidator.validate();
+        }
+
+        return event;
+    }
+
+    /**
+     * Move to the next child element of the current element
+     * @return true if at the start of a child element, or false if at the end of the current element
+     */
+    private boolean nextChildElement() throws XMLStreamException, SAXException {
+        while(fReader.hasNext()) {
+            int event = next();
+
+            if(event == START_ELEMENT) {
+                return true;
+            }
+            if(event == END_ELEMENT) {
+                return false;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Move to the end of the current element
+     */
+    private void skipElement() throws XMLStreamException, SAXException {
+        int depth = 1;
+
+        while(depth > 0 && fReader.hasNext()) {
+            int event = next();
+
+            if(event == START_ELEMENT) {
+                depth++;
+            }
+            else if(event == END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Read the text of the current element and move to its end
+     * @return The text of the element, not including the text of any child elements
+     */
+    private String readText() throws XMLStreamException, SAXException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+
+        while(depth > 0 && fReader.hasNext()) {
+            int event = next();
+
+            switch(event) {
+                case START_ELEMENT:
+                    depth++;
+                    break;
+
+                case END_ELEMENT:
+                    depth--;
+                    break;
+
+                case CHARACTERS:
+                case CDATA:
+                case SPACE:
+                    if(depth == 1) {
+                        sb.append(fReader.getTextCharacters(), fReader.getTextStart(), fReader.getTextLength());
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return true if the current element has the given name in the ArchiMate namespace
+     */
+    private boolean isElement(String name) {
+        return name.equals(fReader.getLocalName()) && ARCHIMATE3_URI.equals(fReader.getNamespaceURI());
+    }
+
+    /**
+     * @return The value of an attribute without a namespace on the current element, or null
+     */
+    private String getAttribute(String name) {
+        return getAttribute(null, name);
+    }
+
+    /**
+     * @return The value of an attribute on the current element, or null
+     */
+    private String getAttribute(String namespaceURI, String name) {
+        for(int i = 0; i < fReader.getAttributeCount(); i++) {
+            if(name.equals(fReader.getAttributeLocalName(i))) {
+                String uri = fReader.getAttributeNamespace(i);
+                if(namespaceURI == null ? !hasValue(uri) : namespaceURI.equals(uri)) {
+                    return fReader.getAttributeValue(i);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The xml:lang attribute of the current element, or null
+     */
+    private String getLanguage() {
+        return getAttribute(Namespace.XML_NAMESPACE.getURI(), ATTRIBUTE_LANG);
+    }
+
+    /**
+     * Trim the text and replace each run of whitespace with a single space, in the same way as JDOM's Element.getTextNormalize()
+     */
+    static String normalise(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean whitespace = false;
+
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            if(c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                whitespace = true;
+            }
+            else {
+                if(whitespace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                sb.append(c);
+                whitespace = false;
+            }
+        }
+
+        return sb.toString();
+    }
+
+    boolean hasValue(String val) {
+        return StringUtils.isSet(val);
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.validation.Schema;
+import javax.xml.validation.ValidatorHandler;
+
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+
+/**
+ * Validates the events of an XMLStreamReader against a Schema as they are read.<p>
+ *
+ * Each event is passed on to the Schema's ValidatorHandler so that a file can be validated
+ * in the same pass that it is parsed, without reading it twice.
+ *
+ * @author Phillip Beauvoir
+ */
+final class XMLStreamValidator implements XMLStreamConstants {
+
+    private XMLStreamReader fReader;
+    private ValidatorHandler fHandler;
+    private AttributesImpl fAttributes = new AttributesImpl();
+
+    /**
+     * @param schema The Schema to validate against
+     * @param reader The reader whose events are validated. The reader must be namespace aware.
+     */
+    XMLStreamValidator(Schema schema, XMLStreamReader reader) {
+        fReader = reader;
+
+        fHandler = schema.newValidatorHandler();
+        fHandler.setErrorHandler(new XMLValidator.ErrorHandler());
+        fHandler.setDocumentLocator(new StreamLocator());
+    }
+
+    /**
+     * Validate the reader's current event
+     * @throws SAXException if the event is not valid
+     */
+    void validate() throws SAXException {
+        switch(fReader.getEventType()) {
+            case START_DOCUMENT:
+                fHandler.startDocument();
+                break;
+
+            case END_DOCUMENT:
+                fHandler.endDocument();
+                break;
+
+            case START_ELEMENT:
+                for(int i = 0; i < fReader.getNamespaceCount(); i++) {
+                    fHandler.startPrefixMapping(safe(fReader.getNamespacePrefix(i)), safe(fReader.getNamespaceURI(i)));
+                }
+
+                fAttributes.clear();
+                for(int i = 0; i < fReader.getAttributeCount(); i++) {
+                    fAttributes.addAttribute(safe(fReader.getAttributeNamespace(i)), fReader.getAttributeLocalName(i),
+                            qualifiedName(fReader.getAttributePrefix(i), fReader.getAttributeLocalName(i)),
+                            fReader.getAttributeType(i), fReader.getAttributeValue(i));
+                }
+
+                fHandler.startElement(safe(fReader.getNamespaceURI()), fReader.getLocalName(),
+                        qualifiedName(fReader.getPrefix(), fReader.getLocalName()), fAttributes);
+                break;
+
+            case END_ELEMENT:
+                fHandler.endElement(safe(fReader.getNamespaceURI()), fReader.getLocalName(),
+                        qualifiedName(fReader.getPrefix(), fReader.getLocalName()));
+
+                for(int i = 0; i < fReader.getNamespaceCount(); i++) {
+                    fHandler.endPrefixMapping(safe(fReader.getNamespacePrefix(i)));
+                }
+                break;
+
+            case CHARACTERS:
+            case CDATA:
+            case SPACE:
+                fHandler.characters(fReader.getTextCharacters(), fReader.getTextStart(), fReader.getTextLength());
+                break;
+
+            case PROCESSING_INSTRUCTION:
+                fHandler.processingInstruction(fReader.getPITarget(), fReader.getPIData());
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private String qualifiedName(String prefix, String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName; //$NON-NLS-1$
+    }
+
+    private String safe(String s) {
+        return s == null ? "" : s; //$NON-NLS-1$
+    }
+
+    /**
+     * Reports the reader's location in validation errors
+     */
+    private class StreamLocator implements Locator {
+        @Override
+        public String getPublicId() {
+            Location location = fReader.getLocation();
+            return location != null ? location.getPublicId() : null;
+        }
+
+        @Override
+        public String getSystemId() {
+            Location location = fReader.getLocation();
+            return location != null ? location.getSystemId() : null;
+        }
+
+        @Override
+        public int getLineNumber() {
+            Location location = fReader.getLocation();
+            return location != null ? location.getLineNumber() : -1;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            Location location = fReader.getLocation();
+            return location != null ? location.getColumnNumber() : -1;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import javax.xml.validation.Validator;
 import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 
 
 /**
@@ -31,19 +32,18 @@ import org.xml.sax.SAXException;
  */
 public final class XMLValidator {
     
+    /**
+     * Error where an XSD declaration is one that we do not have locally (for example for additional metadata)
+     */
+    static final String UNDECLARED_WILDCARD_ERROR = "The matching wildcard is strict, but no declaration can be found"; //$NON-NLS-1$
+    
+    /**
+     * The compiled Schema. A Schema is immutable and thread-safe so it is compiled once and shared.
+     */
+    private static Schema schema;
+    
     public void validateXML(File xmlInstance) throws SAXException, IOException {
-        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-        
-        // Resolver for xsd import
-        factory.setResourceResolver(new ResourceResolver());
-        
-        // Local XSDs
-        Schema schema = factory.newSchema(new Source[]{
-                new StreamSource(XMLExchangePlugin.INSTANCE.getBundleInputStream(XMLExchangePlugin.XSD_FOLDER + XMLExchangePlugin.ARCHIMATE3_DIAGRAM_XSD)),
-                new StreamSource(XMLExchangePlugin.INSTANCE.getBundleInputStream(XMLExchangePlugin.XSD_FOLDER + XMLExchangePlugin.DUBLINCORE_XSD))
-        });
-
-        Validator validator = schema.newValidator();
+        Validator validator = getSchema().newValidator();
         
         // Don't allow DTD loading in case of XSS exploits
         validator.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, ""); //$NON-NLS-1$
@@ -57,7 +57,7 @@ public final class XMLValidator {
         }
         catch(SAXException ex) {
             // Ignore error where an XSD declaration is one that we do not have locally (for example for additional metadata)
-            if(!ex.getMessage().contains("The matching wildcard is strict, but no declaration can be found")) { //$NON-NLS-1$
+            if(!isIgnoredError(ex)) {
                 throw ex;
             }
         }
@@ -65,6 +65,62 @@ public final class XMLValidator {
             in.close();
         }
     }
+    
+    /**
+     * @return The Schema compiled from the local XSDs. It is compiled the first time it is asked for and kept for the life of the process.
+     */
+    static synchronized Schema getSchema() throws SAXException, IOException {
+        if(schema == null) {
+            schema = createSchema();
+        }
+        
+        return schema;
+    }
+    
+    /**
+     * @return A new Schema compiled from the local XSDs
+     */
+    private static Schema createSchema() throws SAXException, IOException {
+        SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+        
+        // Resolver for xsd import
+        factory.setResourceResolver(new ResourceResolver());
+        
+        // Local XSDs
+        return factory.newSchema(new Source[]{
+                new StreamSource(XMLExchangePlugin.INSTANCE.getBundleInputStream(XMLExchangePlugin.XSD_FOLDER + XMLExchangePlugin.ARCHIMATE3_DIAGRAM_XSD)),
+                new StreamSource(XMLExchangePlugin.INSTANCE.getBundleInputStream(XMLExchangePlugin.XSD_FOLDER + XMLExchangePlugin.DUBLINCORE_XSD))
+        });
+    }
+    
+    /**
+     * @return true if the validation error can be ignored
+     */
+    static boolean isIgnoredError(SAXException ex) {
+        return ex.getMessage() != null && ex.getMessage().contains(UNDECLARED_WILDCARD_ERROR);
+    }
+    
+    /**
+     * Error Handler for validation while parsing.
+     * Ignores warnings and errors that can be ignored, and throws on any other error.
+     */
+    static class ErrorHandler implements org.xml.sax.ErrorHandler {
+        @Override
+        public void warning(SAXParseException exception) throws SAXException {
+        }
+
+        @Override
+        public void error(SAXParseException exception) throws SAXException {
+            if(!isIgnoredError(exception)) {
+                throw exception;
+            }
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+    }
 
     static class ResourceResolver implements LSResourceResolver {
         @Override
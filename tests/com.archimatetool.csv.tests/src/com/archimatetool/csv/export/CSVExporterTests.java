@@ -9,8 +9,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -21,6 +27,7 @@ import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IProperty;
+import com.archimatetool.tests.TestUtils;
 
 import junit.framework.JUnit4TestAdapter;
 
@@ -32,11 +39,12 @@ public class CSVExporterTests {
         return new JUnit4TestAdapter(CSVExporterTests.class);
     }
     
+    private IArchimateModel model;
     private CSVExporter exporter;
     
     @Before
     public void runOnceBeforeEachTest() {
-        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
         model.setId("0a9d34ab");
         model.setName("The Main Model");
         model.setPurpose("This is the Documentation");
@@ -238,4 +246,79 @@ public class CSVExporterTests {
         assertEquals("12345-properties.csv", exporter.createPropertiesFileName());
     }
 
+    @Test
+    public void testCreateFileNamesCompressed() {
+        exporter.setCompress(true);
+        assertEquals("elements.csv.gz", exporter.createElementsFileName());
+        assertEquals("relations.csv.gz", exporter.createRelationsFileName());
+        assertEquals("properties.csv.gz", exporter.createPropertiesFileName());
+    }
+    
+    @Test
+    public void testExport() throws Exception {
+        createTestConcepts();
+        
+        File folder = TestUtils.createTempFolder("csvexport");
+        CSVExporter.Result result = exporter.export(folder);
+        
+        assertEquals(2, result.getElementsCount());
+        assertEquals(1, result.getRelationsCount());
+        assertEquals(2, result.getPropertiesCount()); // One property and the access type
+        
+        assertEquals(4, readLines(new File(folder, "elements.csv"), false).size());
+        assertEquals(2, readLines(new File(folder, "relations.csv"), false).size());
+        assertEquals(3, readLines(new File(folder, "properties.csv"), false).size());
+    }
+    
+    @Test
+    public void testExportCompressed() throws Exception {
+        createTestConcepts();
+        
+        File folder = TestUtils.createTempFolder("csvexportgz");
+        exporter.setCompress(true);
+        exporter.export(folder);
+        
+        List<String> lines = readLines(new File(folder, "elements.csv.gz"), true);
+        assertEquals(4, lines.size());
+        assertEquals(exporter.createHeader(CSVExporter.MODEL_ELEMENTS_HEADER), lines.get(0));
+        
+        assertEquals(2, readLines(new File(folder, "relations.csv.gz"), true).size());
+        assertEquals(3, readLines(new File(folder, "properties.csv.gz"), true).size());
+    }
+    
+    private void createTestConcepts() {
+        model.setDefaults();
+        
+        IArchimateElement element1 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element1.setName("Actor");
+        model.getDefaultFolderForObject(element1).getElements().add(element1);
+        
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("key");
+        property.setValue("value");
+        element1.getProperties().add(property);
+        
+        IArchimateElement element2 = IArchimateFactory.eINSTANCE.createBusinessObject();
+        element2.setName("Object");
+        model.getDefaultFolderForObject(element2).getElements().add(element2);
+        
+        IArchimateRelationship relation = IArchimateFactory.eINSTANCE.createAccessRelationship();
+        relation.connect(element1, element2);
+        model.getDefaultFolderForObject(relation).getElements().add(relation);
+    }
+    
+    private List<String> readLines(File file, boolean compressed) throws Exception {
+        List<String> lines = new ArrayList<String>();
+        
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(compressed ?
+                new GZIPInputStream(new FileInputStream(file)) : new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        
+        return lines;
+    }
+
 }
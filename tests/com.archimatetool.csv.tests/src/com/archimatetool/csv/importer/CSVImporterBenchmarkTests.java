@@ -0,0 +1,132 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.csv.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.eclipse.gef.commands.CommandStack;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.Logger;
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.tests.TestUtils;
+
+
+/**
+ * Imports a large set of CSV rows and logs the time taken and the heap used.<p>
+ *
+ * This is not part of AllTests because it takes a while. It only runs if the number of rows
+ * is set with the system property "csv.benchmark.rows", for example -Dcsv.benchmark.rows=1000000
+ */
+@SuppressWarnings("nls")
+public class CSVImporterBenchmarkTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(CSVImporterBenchmarkTests.class);
+    }
+
+    private static final int ROWS = Integer.getInteger("csv.benchmark.rows", 0);
+
+    // Half the rows are elements, a quarter relations and a quarter properties
+    private static final int ELEMENTS = ROWS / 2;
+    private static final int RELATIONS = ROWS / 4;
+    private static final int PROPERTIES = ROWS - ELEMENTS - RELATIONS;
+
+    private IArchimateModel model;
+    private File elementsFile;
+
+    @Before
+    public void runOnceBeforeEachTest() throws IOException {
+        assumeTrue("Set csv.benchmark.rows to run this benchmark", ROWS > 0);
+
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        model.setAdapter(CommandStack.class, new CommandStack());
+
+        File folder = TestUtils.createTempFolder("csvbenchmark");
+        elementsFile = new File(folder, "benchmark-elements.csv");
+
+        writeFiles(folder);
+    }
+
+    @Test
+    public void testImport() throws Exception {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long memoryBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        long start = System.nanoTime();
+
+        CSVImporter importer = new CSVImporter(model);
+        importer.doImport(elementsFile);
+
+        long time = (System.nanoTime() - start) / 1_000_000;
+
+        // Heap still used by the model and the command stack after the import
+        System.gc();
+        long memoryAfter = runtime.totalMemory() - runtime.freeMemory();
+
+        Logger.logInfo("CSV import of " + ROWS + " rows took " + time + " ms, heap used "
+                + ((memoryAfter - memoryBefore) / (1024 * 1024)) + " MB");
+
+        assertEquals(ELEMENTS, model.getFolder(FolderType.BUSINESS).getElements().size());
+        assertEquals(RELATIONS, model.getFolder(FolderType.RELATIONS).getElements().size());
+        assertEquals(PROPERTIES, countProperties());
+    }
+
+    private int countProperties() {
+        int count = 0;
+        for(Object o : model.getFolder(FolderType.BUSINESS).getElements()) {
+            count += ((IProperties)o).getProperties().size();
+        }
+        return count;
+    }
+
+    /**
+     * Write the elements, relations and properties files.
+     * The properties file uses a semicolon as delimiter.
+     */
+    private void writeFiles(File folder) throws IOException {
+        try(Writer writer = newWriter(elementsFile)) {
+            writer.write("\"ID\",\"Type\",\"Name\",\"Documentation\"\r\n");
+            for(int i = 0; i < ELEMENTS; i++) {
+                writer.write("\"e" + i + "\",\"BusinessActor\",\"Actor " + i + "\",\"Documentation for\r\nactor " + i + "\"\r\n");
+            }
+        }
+
+        try(Writer writer = newWriter(new File(folder, "benchmark-relations.csv"))) {
+            writer.write("\"ID\",\"Type\",\"Name\",\"Documentation\",\"Source\",\"Target\"\r\n");
+            for(int i = 0; i < RELATIONS; i++) {
+                writer.write("\"r" + i + "\",\"AssociationRelationship\",\"\",\"\",\"e" + (i % ELEMENTS) + "\",\"e" + ((i + 1) % ELEMENTS) + "\"\r\n");
+            }
+        }
+
+        try(Writer writer = newWriter(new File(folder, "benchmark-properties.csv"))) {
+            writer.write("\"ID\";\"Key\";\"Value\"\r\n");
+            for(int i = 0; i < PROPERTIES; i++) {
+                writer.write("\"e" + (i % ELEMENTS) + "\";\"Key " + (i / ELEMENTS) + "\";\"Value " + i + "\"\r\n");
+            }
+        }
+    }
+
+    private Writer newWriter(File file) throws IOException {
+        file.deleteOnExit();
+        return Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
@@ -7,15 +7,25 @@ package com.archimatetool.csv.importer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import junit.framework.JUnit4TestAdapter;
 
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
 import org.eclipse.gef.commands.CommandStack;
 import org.junit.Before;
 import org.junit.Rule;
@@ -32,6 +42,7 @@ import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IFolder;
 import com.archimatetool.model.IProperty;
 import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.tests.TestUtils;
@@ -57,6 +68,8 @@ public class CSVImporterTests {
     File elements3File = new File(testFolder, "test3-elements.csv");
     File relations3File = new File(testFolder, "test3-relations.csv");
     
+    File syncFolder = TestUtils.createTempFolder("csvsync");
+    
     private IArchimateModel model;
     private CSVImporter importer;
     
@@ -326,6 +339,265 @@ public class CSVImporterTests {
         assertEquals("line feed", importer.normalise("line\r\nfeed"));
     }
     
+    @Test
+    public void testSyncSkipsUnchangedRows() throws Exception {
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        CSVImporter.ChangeSet changeSet = importer.getChangeSet();
+        assertFalse(changeSet.getAddedIDs().isEmpty());
+        assertEquals(0, changeSet.getUnchangedCount());
+        assertTrue(model.getFeatures().has(CSVImporter.SYNC_FEATURE));
+        
+        // Same again
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        changeSet = importer.getChangeSet();
+        assertTrue(changeSet.getAddedIDs().isEmpty());
+        assertTrue(changeSet.getUpdatedIDs().isEmpty());
+        assertTrue(changeSet.getUnchangedCount() > 0);
+        assertTrue(importer.newProperties.isEmpty());
+        assertTrue(importer.updatedConcepts.isEmpty());
+        
+        testDoImportPart1();
+    }
+    
+    @Test
+    public void testSyncImportsChangedRows() throws Exception {
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements2File);
+        
+        CSVImporter.ChangeSet changeSet = importer.getChangeSet();
+        assertTrue(changeSet.getUpdatedIDs().contains("f00aa5b4"));
+        
+        IArchimateElement element = (IArchimateElement)ArchimateModelUtils.getObjectByID(model, "f00aa5b4");
+        assertEquals("Name changed", element.getName());
+    }
+    
+    @Test
+    public void testSyncImportsRowIfConceptNotInModel() throws Exception {
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        // Remove a concept without undoing the import
+        IArchimateRelationship relation = (IArchimateRelationship)ArchimateModelUtils.getObjectByID(model, "cdbfc933");
+        relation.disconnect();
+        ((IFolder)relation.eContainer()).getElements().remove(relation);
+        
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        assertEquals(1, importer.getChangeSet().getAddedIDs().size());
+        assertTrue(importer.getChangeSet().getAddedIDs().contains("cdbfc933"));
+        testDoImportPart1();
+    }
+    
+    @Test
+    public void testSyncHashesAreUndoneWithImport() throws Exception {
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        // Undo the import and the row hashes that it set
+        CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
+        stack.undo();
+        assertFalse(model.getFeatures().has(CSVImporter.SYNC_FEATURE));
+        
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        assertEquals(0, importer.getChangeSet().getUnchangedCount());
+        testDoImportPart1();
+        
+        // Undo and redo the second import
+        stack.undo();
+        stack.redo();
+        assertTrue(model.getFeatures().has(CSVImporter.SYNC_FEATURE));
+    }
+    
+    @Test
+    public void testSyncUndoneImportIsImportedAgain() throws Exception {
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements2File);
+        
+        // Undo the second import. Its row hashes are in the sync file but its token is not in the model.
+        CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
+        stack.undo();
+        
+        IArchimateElement element = (IArchimateElement)ArchimateModelUtils.getObjectByID(model, "f00aa5b4");
+        assertNotEquals("Name changed", element.getName());
+        
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements2File);
+        
+        assertEquals(0, importer.getChangeSet().getUnchangedCount());
+        assertTrue(importer.getChangeSet().getUpdatedIDs().contains("f00aa5b4"));
+        assertEquals("Name changed", element.getName());
+    }
+    
+    @Test
+    public void testSyncFileIsSameIfNothingChanged() throws Exception {
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        File syncFile = importer.getSyncFile();
+        assertTrue(syncFile.exists());
+        byte[] bytes = Files.readAllBytes(syncFile.toPath());
+        
+        // The model only has the token of the row hashes
+        String token = model.getFeatures().getString(CSVImporter.SYNC_FEATURE, null);
+        assertEquals(importer.getSyncToken(), token);
+        assertTrue(token.length() < 40);
+        
+        CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
+        int commandCount = stack.getCommands().length;
+        
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elements1File);
+        
+        // Nothing changed so there is no new command and the file has the same contents
+        assertEquals(commandCount, stack.getCommands().length);
+        assertEquals(token, model.getFeatures().getString(CSVImporter.SYNC_FEATURE, null));
+        assertTrue(Arrays.equals(bytes, Files.readAllBytes(syncFile.toPath())));
+        
+        // The row hashes are sorted by key
+        List<String> keys = new ArrayList<>(importer.getSyncHashes().keySet());
+        List<String> sortedKeys = new ArrayList<>(keys);
+        Collections.sort(sortedKeys);
+        assertEquals(sortedKeys, keys);
+    }
+    
+    @Test
+    public void testSyncDuplicateElementIDFails() throws Exception {
+        File file = TestUtils.createTempFile("-elements.csv");
+        Files.write(file.toPath(), ("\"ID\",\"Type\",\"Name\",\"Documentation\"\r\n"
+                + "\"id1\",\"BusinessActor\",\"Actor\",\"\"\r\n"
+                + "\"id1\",\"BusinessActor\",\"Actor\",\"\"\r\n").getBytes(StandardCharsets.UTF_8));
+        
+        expectedEx.expect(CSVParseException.class);
+        expectedEx.expectMessage("id1");
+        
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(file);
+    }
+    
+    @Test
+    public void testSyncPropertiesWithSameKey() throws Exception {
+        File elementsFile = TestUtils.createTempFile("-elements.csv");
+        Files.write(elementsFile.toPath(), ("\"ID\",\"Type\",\"Name\",\"Documentation\"\r\n"
+                + "\"id1\",\"BusinessActor\",\"Actor\",\"\"\r\n").getBytes(StandardCharsets.UTF_8));
+        
+        File propertiesFile = importer.getMatchingFile(elementsFile, CSVImporter.PROPERTIES_FILENAME);
+        Files.write(propertiesFile.toPath(), ("\"ID\",\"Key\",\"Value\"\r\n"
+                + "\"id1\",\"Key\",\"Value 1\"\r\n"
+                + "\"id1\",\"Key\",\"Value 2\"\r\n").getBytes(StandardCharsets.UTF_8));
+        
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elementsFile);
+        
+        IArchimateElement element = (IArchimateElement)ArchimateModelUtils.getObjectByID(model, "id1");
+        assertEquals(2, element.getProperties().size());
+        
+        // Both rows are unchanged
+        importer = new CSVImporter(model);
+        importer.setSyncFolder(syncFolder);
+        importer.doImport(elementsFile);
+        
+        assertEquals(3, importer.getChangeSet().getUnchangedCount());
+        assertEquals(2, element.getProperties().size());
+    }
+    
+    @Test
+    public void testDeleteMissing() throws Exception {
+        importer.doImport(elements1File);
+        
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessRole();
+        element.setId("missing");
+        model.getDefaultFolderForObject(element).getElements().add(element);
+        
+        IArchimateElement actor = (IArchimateElement)ArchimateModelUtils.getObjectByID(model, "f00aa5b4");
+        IArchimateRelationship relation = IArchimateFactory.eINSTANCE.createAssignmentRelationship();
+        relation.setId("missingRelation");
+        relation.connect(actor, element);
+        model.getDefaultFolderForObject(relation).getElements().add(relation);
+        
+        importer = new CSVImporter(model);
+        importer.setDeleteMissing(true);
+        importer.doImport(elements1File);
+        
+        CSVImporter.ChangeSet changeSet = importer.getChangeSet();
+        assertEquals(2, changeSet.getDeletedIDs().size());
+        assertTrue(changeSet.getDeletedIDs().contains("missing"));
+        assertTrue(changeSet.getDeletedIDs().contains("missingRelation"));
+        
+        assertNull(ArchimateModelUtils.getObjectByID(model, "missing"));
+        assertNull(ArchimateModelUtils.getObjectByID(model, "missingRelation"));
+        assertFalse(actor.getSourceRelationships().contains(relation));
+        assertEquals(3, model.getFolder(FolderType.BUSINESS).getElements().size());
+        assertEquals(2, model.getFolder(FolderType.RELATIONS).getElements().size());
+        
+        // Undo
+        CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
+        stack.undo();
+        assertNotNull(ArchimateModelUtils.getObjectByID(model, "missing"));
+        assertTrue(actor.getSourceRelationships().contains(relation));
+    }
+    
+    @Test
+    public void testHashRecord() throws Exception {
+        File file = TestUtils.createTempFile("-elements.csv");
+        Files.write(file.toPath(), "\"ab\",\"c\"\r\n\"a\",\"bc\"\r\n\"ab\",\"c\"\r\n".getBytes(StandardCharsets.UTF_8));
+        
+        try(CSVParser parser = importer.getParser(file)) {
+            List<CSVRecord> records = parser.getRecords();
+            assertEquals(importer.hashRecord(records.get(0)), importer.hashRecord(records.get(2)));
+            assertNotEquals(importer.hashRecord(records.get(0)), importer.hashRecord(records.get(1)));
+        }
+    }
+    
+    @Test
+    public void testDetectDelimiter() throws Exception {
+        assertEquals(',', importer.detectDelimiter(new StringReader("\"ID\",\"Type\",\"Name\",\"Documentation\"\r\n")));
+        assertEquals(';', importer.detectDelimiter(new StringReader("\"ID\";\"Type\";\"Name\";\"Documentation\"\r\n")));
+        assertEquals('\t', importer.detectDelimiter(new StringReader("ID\tType\tName\tDocumentation\r\n")));
+        
+        // Delimiters in quotes and after the first record are ignored
+        assertEquals(';', importer.detectDelimiter(new StringReader("\"I,D\";\"Ty,pe\"\r\na,b,c,d,e\r\n")));
+        
+        // Default
+        assertEquals(',', importer.detectDelimiter(new StringReader("ID")));
+        assertEquals(',', importer.detectDelimiter(new StringReader("")));
+        
+        // Reader is reset
+        StringReader reader = new StringReader("ID;Type");
+        importer.detectDelimiter(reader);
+        assertEquals('I', reader.read());
+    }
+    
+    @Test
+    public void testDoImportWithSemicolonDelimiter() throws Exception {
+        File file = TestUtils.createTempFile("-elements.csv");
+        Files.write(file.toPath(), "\"ID\";\"Type\";\"Name\";\"Documentation\"\r\n\"id1\";\"BusinessActor\";\"Actor, One\";\"\"\r\n".getBytes(StandardCharsets.UTF_8));
+        
+        importer.doImport(file);
+        
+        IArchimateElement element = (IArchimateElement)ArchimateModelUtils.getObjectByID(model, "id1");
+        assertEquals("Actor, One", element.getName());
+    }
+    
     @Test
     public void testCheckIDForInvalidCharacters_Fail() {
         String[] testStrings = {
@@ -16,6 +16,7 @@ import com.archimatetool.editor.diagram.policies.AllPoliciesTests;
 import com.archimatetool.editor.diagram.sketch.AllSketchTests;
 import com.archimatetool.editor.diagram.tools.FormatPainterInfoTests;
 import com.archimatetool.editor.diagram.tools.FormatPainterToolTests;
+import com.archimatetool.editor.diagram.tools.PanningSelectionExtendedToolTests;
 import com.archimatetool.editor.diagram.util.DiagramUtilsTests;
 
 @SuppressWarnings("nls")
@@ -52,6 +53,7 @@ public class AllDiagramTests {
         // diagram.tools
         suite.addTest(FormatPainterInfoTests.suite());
 		suite.addTest(FormatPainterToolTests.suite());
+        suite.addTest(PanningSelectionExtendedToolTests.suite());
 
         // diagram.util
         suite.addTest(DiagramUtilsTests.suite());
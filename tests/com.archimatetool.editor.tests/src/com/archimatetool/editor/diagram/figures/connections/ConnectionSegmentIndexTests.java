@@ -0,0 +1,142 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures.connections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.draw2d.Figure;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.PointList;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+public class ConnectionSegmentIndexTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ConnectionSegmentIndexTests.class);
+    }
+    
+    private IndexedConnectionLayer layer;
+    private ConnectionSegmentIndex index;
+    
+    @Before
+    public void runOnceBeforeEachTest() {
+        layer = new IndexedConnectionLayer();
+        layer.addNotify(); // Realize the layer so that connections added to it are notified
+        index = layer.getSegmentIndex();
+    }
+    
+    @Test
+    public void getSegmentIndex_SameForLayer() {
+        assertSame(index, layer.getSegmentIndex());
+        assertNotSame(index, new IndexedConnectionLayer().getSegmentIndex());
+    }
+    
+    @Test
+    public void getSegments_ConnectionOnOtherLayerNotIndexed() {
+        RoundedPolylineConnection conn1 = addConnection(0, 50, 200, 50);
+        
+        Figure otherLayer = new Figure();
+        otherLayer.addNotify();
+        RoundedPolylineConnection conn2 = new RoundedPolylineConnection();
+        otherLayer.add(conn2);
+        conn2.setPoints(createPoints(100, 0, 100, 150));
+        
+        assertTrue(index.getSegments(new Point(0, 50), new Point(200, 50), conn1).isEmpty());
+        assertEquals(-1, index.getVersion(conn2));
+    }
+    
+    @Test
+    public void getSegments_OnlyNearbySegmentsOfOtherConnections() {
+        RoundedPolylineConnection conn1 = addConnection(0, 50, 200, 50);
+        RoundedPolylineConnection conn2 = addConnection(100, 0, 100, 150);
+        addConnection(5000, 5000, 5200, 5000);
+        
+        List<ConnectionSegmentIndex.Segment> segments = index.getSegments(new Point(0, 50), new Point(200, 50), conn1);
+        assertEquals(1, segments.size());
+        assertSame(conn2, segments.get(0).connection);
+        assertEquals(new Point(100, 0), segments.get(0).start);
+        assertEquals(new Point(100, 150), segments.get(0).end);
+    }
+    
+    @Test
+    public void getSegments_SegmentInManyCellsFoundOnce() {
+        RoundedPolylineConnection conn1 = addConnection(0, 0, 1000, 1000);
+        addConnection(0, 1000, 1000, 0);
+        
+        assertEquals(1, index.getSegments(new Point(0, 0), new Point(1000, 1000), conn1).size());
+    }
+    
+    @Test
+    public void setPoints_UpdatesSegments() {
+        RoundedPolylineConnection conn1 = addConnection(0, 50, 200, 50);
+        RoundedPolylineConnection conn2 = addConnection(100, 0, 100, 150);
+        
+        conn2.setPoints(createPoints(3000, 0, 3000, 150));
+        assertTrue(index.getSegments(new Point(0, 50), new Point(200, 50), conn1).isEmpty());
+        
+        conn2.setPoints(createPoints(150, 0, 150, 150));
+        assertEquals(new Point(150, 0), index.getSegments(new Point(0, 50), new Point(200, 50), conn1).get(0).start);
+    }
+    
+    @Test
+    public void remove_RemovesSegments() {
+        RoundedPolylineConnection conn1 = addConnection(0, 50, 200, 50);
+        RoundedPolylineConnection conn2 = addConnection(100, 0, 100, 150);
+        
+        layer.remove(conn2);
+        assertTrue(index.getSegments(new Point(0, 50), new Point(200, 50), conn1).isEmpty());
+        assertEquals(-1, index.getVersion(conn2));
+    }
+    
+    @Test
+    public void getVersion_ChangesOnlyWhenNearbySegmentChanges() {
+        RoundedPolylineConnection conn1 = addConnection(0, 50, 200, 50);
+        RoundedPolylineConnection conn2 = addConnection(100, 0, 100, 150);
+        RoundedPolylineConnection conn3 = addConnection(5000, 5000, 5200, 5000);
+        
+        long version = index.getVersion(conn1);
+        
+        // Far away
+        conn3.setPoints(createPoints(5000, 5100, 5200, 5100));
+        assertEquals(version, index.getVersion(conn1));
+        
+        // Same points
+        conn2.setPoints(createPoints(100, 0, 100, 150));
+        assertEquals(version, index.getVersion(conn1));
+        
+        // Nearby
+        conn2.setPoints(createPoints(120, 0, 120, 150));
+        assertNotEquals(version, index.getVersion(conn1));
+        
+        version = index.getVersion(conn1);
+        layer.remove(conn2);
+        assertNotEquals(version, index.getVersion(conn1));
+    }
+    
+    private RoundedPolylineConnection addConnection(int x1, int y1, int x2, int y2) {
+        RoundedPolylineConnection connection = new RoundedPolylineConnection();
+        layer.add(connection);
+        connection.setPoints(createPoints(x1, y1, x2, y2));
+        return connection;
+    }
+    
+    private PointList createPoints(int x1, int y1, int x2, int y2) {
+        PointList points = new PointList();
+        points.addPoint(x1, y1);
+        points.addPoint(x2, y2);
+        return points;
+    }
+}
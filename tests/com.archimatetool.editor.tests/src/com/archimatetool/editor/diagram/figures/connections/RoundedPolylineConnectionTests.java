@@ -0,0 +1,144 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures.connections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.geometry.PointList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.archimatetool.editor.preferences.IPreferenceConstants;
+import com.archimatetool.editor.preferences.Preferences;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+public class RoundedPolylineConnectionTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(RoundedPolylineConnectionTests.class);
+    }
+    
+    private IndexedConnectionLayer layer;
+    
+    private RoundedPolylineConnection horizontal;
+    private RoundedPolylineConnection vertical;
+    private RoundedPolylineConnection farAway;
+    
+    @Before
+    public void runOnceBeforeEachTest() {
+        Preferences.STORE.setValue(IPreferenceConstants.USE_LINE_CURVES, true);
+        Preferences.STORE.setValue(IPreferenceConstants.USE_LINE_JUMPS, true);
+        
+        layer = new IndexedConnectionLayer();
+        layer.addNotify(); // Realize the layer so that connections added to it are notified
+        horizontal = addConnection(0, 50, 200, 50);
+        vertical = addConnection(100, 0, 100, 150);
+        farAway = addConnection(5000, 5000, 5200, 5000);
+    }
+    
+    @After
+    public void runOnceAfterEachTest() {
+        Preferences.STORE.setToDefault(IPreferenceConstants.USE_LINE_CURVES);
+        Preferences.STORE.setToDefault(IPreferenceConstants.USE_LINE_JUMPS);
+    }
+    
+    @Test
+    public void outlineShape_SamePointsWhenNothingChanged() {
+        List<PointList> drawn = paint(vertical, 3);
+        assertSame(drawn.get(0), drawn.get(1));
+        assertSame(drawn.get(0), drawn.get(2));
+    }
+    
+    @Test
+    public void outlineShape_DrawsLineJump() {
+        // The vertical connection jumps over the horizontal one
+        assertTrue(paint(vertical, 1).get(0).size() > 2);
+        assertEquals(2, paint(horizontal, 1).get(0).size());
+    }
+    
+    @Test
+    public void outlineShape_NewPointsWhenBendpointsChange() {
+        PointList before = paint(vertical, 1).get(0);
+        vertical.setPoints(createPoints(120, 0, 120, 150));
+        assertNotSame(before, paint(vertical, 1).get(0));
+    }
+    
+    @Test
+    public void outlineShape_NewPointsWhenNearbyConnectionChanges() {
+        PointList before = paint(vertical, 1).get(0);
+        assertTrue(before.size() > 2);
+        
+        // Move away so there is no line jump
+        horizontal.setPoints(createPoints(0, 3000, 200, 3000));
+        
+        PointList after = paint(vertical, 1).get(0);
+        assertNotSame(before, after);
+        assertEquals(2, after.size());
+    }
+    
+    @Test
+    public void outlineShape_SamePointsWhenFarConnectionChanges() {
+        PointList before = paint(vertical, 1).get(0);
+        farAway.setPoints(createPoints(5000, 5100, 5200, 5100));
+        assertSame(before, paint(vertical, 1).get(0));
+    }
+    
+    @Test
+    public void outlineShape_NewPointsWhenPreferencesChange() {
+        PointList before = paint(vertical, 1).get(0);
+        
+        Preferences.STORE.setValue(IPreferenceConstants.USE_LINE_JUMPS, false);
+        vertical.updateLinePreferences();
+        
+        PointList after = paint(vertical, 1).get(0);
+        assertNotSame(before, after);
+        assertEquals(2, after.size());
+    }
+    
+    /**
+     * @return The points drawn by painting connection count times
+     */
+    private List<PointList> paint(RoundedPolylineConnection connection, int count) {
+        Graphics graphics = mock(Graphics.class);
+        
+        for(int i = 0; i < count; i++) {
+            connection.outlineShape(graphics);
+        }
+        
+        ArgumentCaptor<PointList> captor = ArgumentCaptor.forClass(PointList.class);
+        verify(graphics, atLeastOnce()).drawPolyline(captor.capture());
+        assertEquals(count, captor.getAllValues().size());
+        
+        return captor.getAllValues();
+    }
+    
+    private RoundedPolylineConnection addConnection(int x1, int y1, int x2, int y2) {
+        RoundedPolylineConnection connection = new RoundedPolylineConnection();
+        layer.add(connection);
+        connection.setPoints(createPoints(x1, y1, x2, y2));
+        return connection;
+    }
+    
+    private PointList createPoints(int x1, int y1, int x2, int y2) {
+        PointList points = new PointList();
+        points.addPoint(x1, y1);
+        points.addPoint(x2, y2);
+        return points;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.eclipse.gef.DefaultEditDomain;
+import org.eclipse.gef.EditPart;
+import org.eclipse.gef.commands.CommandStack;
+import org.eclipse.gef.ui.parts.GraphicalViewerImpl;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.KeyEvent;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Shell;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.diagram.util.DiagramUtils;
+import com.archimatetool.editor.model.commands.ModelCommandStack;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.testingtools.ArchimateTestModel;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class PanningSelectionExtendedToolTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PanningSelectionExtendedToolTests.class);
+    }
+
+    private Shell shell;
+    private GraphicalViewerImpl viewer;
+    private ModelCommandStack stack;
+    private PanningSelectionExtendedTool tool;
+    private IDiagramModelArchimateObject dmo;
+
+    @Before
+    public void runOnceBeforeEachTest() {
+        ArchimateTestModel tm = new ArchimateTestModel();
+        IArchimateModel model = tm.createNewModel();
+
+        stack = new ModelCommandStack();
+        model.setAdapter(CommandStack.class, stack);
+
+        IDiagramModel dm = model.getDefaultDiagramModel();
+        dmo = tm.createDiagramModelArchimateObjectAndAddToModel(IArchimateFactory.eINSTANCE.createBusinessActor());
+        dmo.setBounds(100, 100, 120, 55);
+        dm.getChildren().add(dmo);
+
+        shell = new Shell();
+        shell.setLayout(new FillLayout());
+        shell.setSize(800, 600);
+        viewer = DiagramUtils.createViewer(dm, shell);
+        shell.open();
+
+        DefaultEditDomain domain = new DefaultEditDomain(null);
+        domain.setCommandStack(stack);
+        domain.addViewer(viewer);
+
+        tool = new PanningSelectionExtendedTool();
+        domain.setActiveTool(tool);
+
+        EditPart editPart = (EditPart)viewer.getEditPartRegistry().get(dmo);
+        assertNotNull(editPart);
+        viewer.select(editPart);
+        viewer.flush();
+    }
+
+    @After
+    public void runOnceAfterEachTest() {
+        tool.deactivate();
+        shell.dispose();
+    }
+
+    @Test
+    public void keyboardMovesAreOneUndoEntry() {
+        String oldBounds = getBounds();
+
+        // Select a handle, move it and commit the move, three times
+        for(int i = 0; i < 3; i++) {
+            pressKey('.', '.');
+            pressKey((char)0, SWT.ARROW_RIGHT);
+            pressKey(SWT.CR, SWT.CR);
+        }
+
+        String newBounds = getBounds();
+        assertNotEquals(oldBounds, newBounds);
+        assertEquals(1, stack.getCommands().length);
+
+        // Undo and Redo go back to the same bounds as before and after the moves
+        stack.undo();
+        assertEquals(oldBounds, getBounds());
+
+        stack.redo();
+        assertEquals(newBounds, getBounds());
+    }
+
+    @Test
+    public void otherKeyEndsKeyboardGesture() {
+        pressKey('.', '.');
+        pressKey((char)0, SWT.ARROW_RIGHT);
+        pressKey(SWT.CR, SWT.CR);
+
+        // Any other key ends the gesture
+        pressKey(SWT.ESC, SWT.ESC);
+
+        pressKey('.', '.');
+        pressKey((char)0, SWT.ARROW_RIGHT);
+        pressKey(SWT.CR, SWT.CR);
+
+        assertEquals(2, stack.getCommands().length);
+    }
+
+    private String getBounds() {
+        IBounds bounds = dmo.getBounds();
+        return bounds.getX() + "," + bounds.getY() + "," + bounds.getWidth() + "," + bounds.getHeight();
+    }
+
+    private void pressKey(char character, int keyCode) {
+        Event event = new Event();
+        event.widget = viewer.getControl();
+        event.display = shell.getDisplay();
+        event.character = character;
+        event.keyCode = keyCode;
+
+        tool.keyDown(new KeyEvent(event), viewer);
+        tool.keyUp(new KeyEvent(event), viewer);
+    }
+}
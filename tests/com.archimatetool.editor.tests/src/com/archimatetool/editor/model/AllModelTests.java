@@ -6,6 +6,7 @@
 package com.archimatetool.editor.model;
 
 import com.archimatetool.editor.model.commands.CommandsTests;
+import com.archimatetool.editor.model.commands.ModelCommandStackTests;
 import com.archimatetool.editor.model.compatibility.ModelCompatibilityTests;
 import com.archimatetool.editor.model.compatibility.handlers.ArchiMate2To3HandlerTests;
 import com.archimatetool.editor.model.compatibility.handlers.FixDefaultSizesHandlerTests;
@@ -30,6 +31,7 @@ public class AllModelTests {
 
         // model.commands
         suite.addTest(CommandsTests.suite());
+        suite.addTest(ModelCommandStackTests.suite());
 
         // model.compatibility
         suite.addTest(ModelCompatibilityTests.suite());
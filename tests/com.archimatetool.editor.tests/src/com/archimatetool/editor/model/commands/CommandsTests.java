@@ -24,11 +24,13 @@ import org.junit.Test;
 
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IProperty;
 import com.archimatetool.testingtools.ArchimateTestModel;
 import com.archimatetool.tests.TestData;
 
@@ -155,6 +157,55 @@ public class CommandsTests {
         assertFalse(cmd.canExecute());
     }
     
+    @Test
+    public void testBulkChangeCommand() {
+        IArchimateElement element = (IArchimateElement)tm.getObjectByID("1544");
+        IFolder elementFolder = (IFolder)element.eContainer();
+        int elementIndex = elementFolder.getElements().indexOf(element);
+        
+        IArchimateRelationship relationship = (IArchimateRelationship)tm.getObjectByID("670aa5ed");
+        IFolder relationsFolder = (IFolder)relationship.eContainer();
+        
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        
+        BulkChangeCommand cmd = new BulkChangeCommand("Bulk");
+        assertFalse(cmd.canExecute());
+        
+        cmd.remove(element);
+        cmd.remove(relationship);
+        cmd.add(model, IArchimatePackage.Literals.PROPERTIES__PROPERTIES, property);
+        cmd.set(model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello");
+        cmd.set(model, IArchimatePackage.Literals.ARCHIMATE_MODEL__PURPOSE, model.getPurpose()); // No change so ignored
+        
+        assertEquals(4, cmd.size());
+        assertTrue(cmd.canExecute());
+        
+        cmd.execute();
+        
+        assertNull(element.eContainer());
+        assertNull(relationship.eContainer());
+        assertFalse(relationship.getSource().getSourceRelationships().contains(relationship));
+        assertFalse(relationship.getTarget().getTargetRelationships().contains(relationship));
+        assertTrue(model.getProperties().contains(property));
+        assertEquals("Hello", model.getName());
+        
+        cmd.undo();
+        
+        assertEquals(elementIndex, elementFolder.getElements().indexOf(element));
+        assertEquals(11, relationsFolder.getElements().indexOf(relationship));
+        assertTrue(relationship.getSource().getSourceRelationships().contains(relationship));
+        assertTrue(relationship.getTarget().getTargetRelationships().contains(relationship));
+        assertFalse(model.getProperties().contains(property));
+        assertEquals("Archisurance", model.getName());
+        
+        cmd.redo();
+        
+        assertNull(element.eContainer());
+        assertNull(relationship.eContainer());
+        assertTrue(model.getProperties().contains(property));
+        assertEquals("Hello", model.getName());
+    }
+    
     @Test
     public void testEObjectNonNotifyingCompoundCommand() {
         final boolean[] execute = new boolean[1];
@@ -0,0 +1,308 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.commands;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.gef.commands.Command;
+import org.eclipse.gef.commands.CompoundCommand;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.diagram.commands.SetConstraintObjectCommand;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModelGroup;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.testingtools.ArchimateTestModel;
+import com.archimatetool.tests.TestData;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ModelCommandStackTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelCommandStackTests.class);
+    }
+
+    private ArchimateTestModel tm;
+    private IArchimateModel model;
+    private ModelCommandStack stack;
+
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        model = tm.loadModel();
+        stack = new ModelCommandStack();
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Tests
+    // ---------------------------------------------------------------------------------------------
+
+    @Test
+    public void estimateSize_DetachedObjectIsLargerThanAttachedObject() {
+        Command renameCmd = new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello");
+        renameCmd.execute();
+        long renameSize = ModelCommandStack.estimateSize(renameCmd);
+
+        IFolder folder = (IFolder)tm.getObjectByID("403e5717");
+        Command deleteCmd = new DeleteFolderCommand(folder);
+        deleteCmd.execute();
+        long deleteSize = ModelCommandStack.estimateSize(deleteCmd);
+
+        assertTrue(renameSize > 0);
+        assertTrue(deleteSize > renameSize);
+
+        // The deleted folder and all of its contents are counted
+        int count = 1;
+        for(Iterator<EObject> iter = folder.eAllContents(); iter.hasNext(); iter.next()) {
+            count++;
+        }
+        assertTrue(deleteSize >= count * ModelCommandStack.EOBJECT_SIZE);
+    }
+
+    @Test
+    public void getUndoMemory_ExecuteUndoRedoFlush() {
+        assertEquals(0, stack.getUndoMemory());
+
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello"));
+        long size = stack.getUndoMemory();
+        assertTrue(size > 0);
+
+        // Undo keeps the command on the Redo stack
+        stack.undo();
+        assertEquals(size, stack.getUndoMemory());
+
+        stack.redo();
+        assertEquals(size, stack.getUndoMemory());
+
+        // Executing a new command flushes the Redo stack
+        stack.undo();
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello2"));
+        assertEquals(1, stack.getCommands().length);
+
+        stack.flush();
+        assertEquals(0, stack.getUndoMemory());
+    }
+
+    @Test
+    public void setMemoryLimit_TrimsOldestCommands() {
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello1"));
+        long size = stack.getUndoMemory();
+
+        // Allow room for two rename commands
+        stack.setMemoryLimit(size * 2);
+
+        for(int i = 2; i <= 10; i++) {
+            stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello" + i));
+        }
+
+        assertEquals("Hello10", model.getName());
+        assertTrue(stack.getCommands().length <= 3);
+        assertTrue(stack.getUndoMemory() <= size * 3);
+
+        // Most recent commands can still be undone
+        stack.undo();
+        assertEquals("Hello9", model.getName());
+        stack.undo();
+        assertEquals("Hello8", model.getName());
+    }
+
+    @Test
+    public void setMemoryLimit_RespectsUndoLimit() {
+        stack.setMemoryLimit(Long.MAX_VALUE);
+        stack.setUndoLimit(2);
+
+        for(int i = 1; i <= 5; i++) {
+            stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello" + i));
+        }
+
+        assertEquals(2, stack.getCommands().length);
+        assertEquals(2, stack.getUndoLimit());
+    }
+
+    @Test
+    public void setMemoryLimit_DirtyStateIsKept() {
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello1"));
+        stack.markSaveLocation();
+        assertFalse(stack.isDirty());
+
+        stack.setMemoryLimit(1);
+
+        IArchimateElement element = (IArchimateElement)tm.getObjectByID("1544");
+        stack.execute(new DeleteArchimateElementCommand(element));
+        assertTrue(stack.isDirty());
+
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello2"));
+        assertEquals(1, stack.getCommands().length);
+        assertTrue(stack.isDirty());
+    }
+    
+    @Test
+    public void merge_ConsecutiveFeatureUpdates() {
+        stack.setMergeTimeWindow(Long.MAX_VALUE);
+        
+        for(int i = 1; i <= 3; i++) {
+            stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello" + i));
+        }
+        
+        assertEquals("Hello3", model.getName());
+        assertEquals(1, stack.getCommands().length);
+        
+        stack.undo();
+        assertEquals("Archisurance", model.getName());
+        assertFalse(stack.canUndo());
+        
+        stack.redo();
+        assertEquals("Hello3", model.getName());
+        assertFalse(stack.canRedo());
+    }
+    
+    @Test
+    public void merge_NotByDefaultOutsideGesture() {
+        // Two separate renames straight after each other are two Undo entries
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello1"));
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello2"));
+        assertEquals(2, stack.getCommands().length);
+        
+        stack.undo();
+        assertEquals("Hello1", model.getName());
+    }
+    
+    @Test
+    public void merge_DifferentFeaturesAreNotMerged() {
+        stack.setMergeTimeWindow(Long.MAX_VALUE);
+        
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello"));
+        stack.execute(new EObjectFeatureCommand("Purpose", model, IArchimatePackage.Literals.ARCHIMATE_MODEL__PURPOSE, "Purpose"));
+        
+        IArchimateElement element = (IArchimateElement)tm.getObjectByID("1544");
+        stack.execute(new EObjectFeatureCommand("Rename", element, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello"));
+        
+        assertEquals(3, stack.getCommands().length);
+    }
+    
+    @Test
+    public void merge_NotAcrossSaveLocation() {
+        stack.setMergeTimeWindow(Long.MAX_VALUE);
+        
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello1"));
+        stack.markSaveLocation();
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello2"));
+        
+        assertEquals(2, stack.getCommands().length);
+        
+        stack.undo();
+        assertFalse(stack.isDirty());
+        assertEquals("Hello1", model.getName());
+    }
+    
+    @Test
+    public void merge_OutsideTimeWindowOnlyInGesture() {
+        stack.setMergeTimeWindow(0);
+        
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello1"));
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello2"));
+        assertEquals(2, stack.getCommands().length);
+        
+        stack.beginGesture();
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello3"));
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello4"));
+        stack.endGesture();
+        
+        stack.execute(new EObjectFeatureCommand("Rename", model, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello5"));
+        
+        assertEquals(3, stack.getCommands().length);
+        
+        stack.undo();
+        assertEquals("Hello4", model.getName());
+        stack.undo();
+        assertEquals("Hello1", model.getName());
+    }
+    
+    @Test
+    public void merge_BoundsInCompoundCommand() {
+        stack.setMergeTimeWindow(Long.MAX_VALUE);
+        
+        IDiagramModelGroup group = IArchimateFactory.eINSTANCE.createDiagramModelGroup();
+        group.setBounds(IArchimateFactory.eINSTANCE.createBounds(10, 10, 100, 100));
+        model.getDiagramModels().get(0).getChildren().add(group);
+        IBounds oldBounds = group.getBounds();
+        
+        for(int i = 1; i <= 5; i++) {
+            CompoundCommand compound = new CompoundCommand();
+            compound.add(new SetConstraintObjectCommand(group, IArchimateFactory.eINSTANCE.createBounds(10 + i, 10, 100, 100)));
+            stack.execute(compound);
+        }
+        
+        assertEquals(15, group.getBounds().getX());
+        assertEquals(1, stack.getCommands().length);
+        
+        stack.undo();
+        assertEquals(oldBounds, group.getBounds());
+        
+        stack.redo();
+        assertEquals(15, group.getBounds().getX());
+    }
+    
+    @Test
+    public void runGesture_ScriptedUpdatesAreOneUndoEntry() {
+        IArchimateElement element = (IArchimateElement)tm.getObjectByID("1544");
+        String oldName = element.getName();
+        String oldDocumentation = element.getDocumentation();
+        
+        // A script updating the same features many times
+        stack.runGesture(() -> {
+            for(int i = 1; i <= 10; i++) {
+                stack.execute(new EObjectFeatureCommand("Rename", element, IArchimatePackage.Literals.NAMEABLE__NAME, "Name" + i));
+                stack.execute(new EObjectFeatureCommand("Documentation", element, IArchimatePackage.Literals.DOCUMENTABLE__DOCUMENTATION, "Doc" + i));
+            }
+        });
+        
+        // Alternate features are not consecutive updates of the same feature, so one entry for each
+        assertEquals(20, stack.getCommands().length);
+        
+        stack.runGesture(() -> {
+            for(int i = 11; i <= 20; i++) {
+                stack.execute(new EObjectFeatureCommand("Rename", element, IArchimatePackage.Literals.NAMEABLE__NAME, "Name" + i));
+            }
+        });
+        
+        assertEquals(21, stack.getCommands().length);
+        assertEquals("Name20", element.getName());
+        
+        // Undo and Redo give the same states as if each Command was separate
+        stack.undo();
+        assertEquals("Name10", element.getName());
+        assertEquals("Doc10", element.getDocumentation());
+        
+        stack.redo();
+        assertEquals("Name20", element.getName());
+        
+        while(stack.canUndo()) {
+            stack.undo();
+        }
+        assertEquals(oldName, element.getName());
+        assertEquals(oldDocumentation, element.getDocumentation());
+        
+        // The gesture is closed
+        stack.execute(new EObjectFeatureCommand("Rename", element, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello1"));
+        stack.execute(new EObjectFeatureCommand("Rename", element, IArchimatePackage.Literals.NAMEABLE__NAME, "Hello2"));
+        assertEquals(2, stack.getCommands().length);
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.commandline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.testingtools.ArchimateTestModel;
+import com.archimatetool.tests.TestData;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ModelValidationTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelValidationTests.class);
+    }
+
+    @Test
+    public void validateModelFile() {
+        ModelValidation validation = new ModelValidation(TestData.TEST_MODEL_FILE_ARCHISURANCE).call();
+
+        assertFalse(validation.isFailed());
+        assertNull(validation.getException());
+        assertEquals("Archisurance", validation.getName());
+        assertEquals(TestData.TEST_MODEL_FILE_ARCHISURANCE, validation.getFile());
+
+        assertFalse(validation.getCheckerIssues().isEmpty());
+        assertEquals(validation.getCheckerIssues().keySet(), validation.getCheckerTimings().keySet());
+
+        // The counts are the issues of all checkers by severity
+        int errors = 0, warnings = 0, advice = 0;
+        for(List<IIssue> issues : validation.getCheckerIssues().values()) {
+            for(IIssue issue : issues) {
+                switch(ModelValidation.getSeverity(issue)) {
+                    case ModelValidation.Severity.ERROR:
+                        errors++;
+                        break;
+                    case ModelValidation.Severity.WARNING:
+                        warnings++;
+                        break;
+                    default:
+                        advice++;
+                }
+            }
+        }
+
+        assertEquals(errors, validation.getErrorCount());
+        assertEquals(warnings, validation.getWarningCount());
+        assertEquals(advice, validation.getAdviceCount());
+        assertTrue(errors + warnings + advice > 0);
+    }
+
+    @Test
+    public void validateLoadedModel() throws IOException {
+        IArchimateModel model = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE).loadModel();
+
+        ModelValidation validation = new ModelValidation(model).call();
+
+        assertFalse(validation.isFailed());
+        assertEquals(0, validation.getLoadTime());
+
+        // Same results as when the model is loaded from its file
+        ModelValidation fileValidation = new ModelValidation(TestData.TEST_MODEL_FILE_ARCHISURANCE).call();
+        assertEquals(fileValidation.getErrorCount(), validation.getErrorCount());
+        assertEquals(fileValidation.getWarningCount(), validation.getWarningCount());
+        assertEquals(fileValidation.getAdviceCount(), validation.getAdviceCount());
+    }
+
+    @Test
+    public void missingFileFails() {
+        File file = new File(TestUtils.getMainTempFolder(), "doesNotExist.archimate");
+
+        ModelValidation validation = new ModelValidation(file).call();
+
+        assertTrue(validation.isFailed());
+        assertTrue(validation.getException() instanceof IOException);
+        assertEquals("doesNotExist.archimate", validation.getName());
+        assertTrue(validation.getCheckerIssues().isEmpty());
+    }
+
+    @Test
+    public void invalidFileFails() throws IOException {
+        File file = TestUtils.createTempFile(".archimate");
+        Files.write(file.toPath(), "This is not a model".getBytes(StandardCharsets.UTF_8));
+
+        ModelValidation validation = new ModelValidation(file).call();
+
+        assertTrue(validation.isFailed());
+        assertTrue(validation.getException() instanceof IOException);
+        assertSame(file, validation.getFile());
+    }
+}
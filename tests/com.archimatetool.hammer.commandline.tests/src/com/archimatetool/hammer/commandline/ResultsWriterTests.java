@@ -0,0 +1,160 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.commandline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.jdom.JDOMUtils;
+import com.archimatetool.tests.TestData;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ResultsWriterTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ResultsWriterTests.class);
+    }
+
+    private static ModelValidation validation;
+    private static ModelValidation failedValidation;
+
+    @BeforeClass
+    public static void runOnceBeforeAllTests() {
+        validation = new ModelValidation(TestData.TEST_MODEL_FILE_ARCHISURANCE).call();
+        failedValidation = new ModelValidation(new File(TestUtils.getMainTempFolder(), "doesNotExist.archimate")).call();
+    }
+
+    @Test
+    public void quote() {
+        assertEquals("null", ResultsWriter.quote(null));
+        assertEquals("\"\"", ResultsWriter.quote(""));
+        assertEquals("\"a \\\"b\\\" \\\\ c\"", ResultsWriter.quote("a \"b\" \\ c"));
+        assertEquals("\"1\\n2\\r3\\t4\\u0001\"", ResultsWriter.quote("1\n2\r3\t4\u0001"));
+    }
+
+    @Test
+    public void writeJSON() throws Exception {
+        File file = TestUtils.createTempFile(".json");
+
+        new ResultsWriter(Arrays.asList(validation, failedValidation), 1234).writeJSON(file);
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+        assertTrue(json.startsWith("{\n  \"time\": 1234,\n"));
+        assertTrue(json.contains("\n  \"errors\": " + validation.getErrorCount() + ",\n"));
+        assertTrue(json.contains("\n  \"warnings\": " + validation.getWarningCount() + ",\n"));
+        assertTrue(json.contains("\n  \"advice\": " + validation.getAdviceCount() + ",\n"));
+        assertTrue(json.contains("\"name\": \"Archisurance\""));
+        assertTrue(json.contains("\"failure\": " + ResultsWriter.quote(failedValidation.getException().getMessage())));
+
+        // One entry per checker and one per issue
+        for(Entry<String, List<IIssue>> entry : validation.getCheckerIssues().entrySet()) {
+            assertTrue(json.contains("\"name\": \"" + entry.getKey() + "\""));
+        }
+
+        int issues = 0;
+        for(List<IIssue> list : validation.getCheckerIssues().values()) {
+            issues += list.size();
+        }
+        assertEquals(issues, count(json, "{ \"severity\": "));
+    }
+
+    @Test
+    public void writeJSONNoResults() throws Exception {
+        File file = TestUtils.createTempFile(".json");
+
+        new ResultsWriter(Collections.emptyList(), 0).writeJSON(file);
+
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        assertTrue(json.endsWith("  \"models\": []\n}\n"));
+    }
+
+    @Test
+    public void writeJUnit() throws Exception {
+        File file = TestUtils.createTempFile(".xml");
+
+        Set<String> failingSeverities = new HashSet<String>(Arrays.asList(ModelValidation.Severity.ERROR, ModelValidation.Severity.WARNING));
+
+        new ResultsWriter(Arrays.asList(validation, failedValidation), 1234).writeJUnit(file, failingSeverities);
+
+        Document doc = JDOMUtils.readXMLFile(file);
+        Element rootElement = doc.getRootElement();
+
+        assertEquals("testsuites", rootElement.getName());
+        assertEquals("1.234", rootElement.getAttributeValue("time"));
+
+        List<Element> suites = rootElement.getChildren("testsuite");
+        assertEquals(2, suites.size());
+
+        // One test case per checker. A checker fails if it found an error or warning.
+        Element suite = suites.get(0);
+        assertEquals("Archisurance", suite.getAttributeValue("name"));
+        assertEquals(validation.getCheckerIssues().size(), suite.getChildren("testcase").size());
+        assertEquals(String.valueOf(validation.getCheckerIssues().size()), suite.getAttributeValue("tests"));
+
+        int failures = 0;
+        for(Element caseElement : suite.getChildren("testcase")) {
+            List<IIssue> issues = validation.getCheckerIssues().get(caseElement.getAttributeValue("name"));
+            assertNotNull(issues);
+
+            boolean failed = false;
+            for(IIssue issue : issues) {
+                failed |= failingSeverities.contains(ModelValidation.getSeverity(issue));
+            }
+
+            if(failed) {
+                assertNotNull(caseElement.getChild("failure"));
+                failures++;
+            }
+            else {
+                assertNull(caseElement.getChild("failure"));
+            }
+        }
+
+        assertEquals(String.valueOf(failures), suite.getAttributeValue("failures"));
+        assertEquals("0", suite.getAttributeValue("errors"));
+
+        // A model that could not be loaded is an error
+        Element failedSuite = suites.get(1);
+        assertEquals("1", failedSuite.getAttributeValue("tests"));
+        assertEquals("1", failedSuite.getAttributeValue("errors"));
+        assertNotNull(failedSuite.getChild("testcase").getChild("error"));
+
+        assertEquals(String.valueOf(validation.getCheckerIssues().size() + 1), rootElement.getAttributeValue("tests"));
+        assertEquals(String.valueOf(failures), rootElement.getAttributeValue("failures"));
+        assertEquals("1", rootElement.getAttributeValue("errors"));
+    }
+
+    private int count(String s, String sub) {
+        int count = 0;
+        for(int i = s.indexOf(sub); i != -1; i = s.indexOf(sub, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
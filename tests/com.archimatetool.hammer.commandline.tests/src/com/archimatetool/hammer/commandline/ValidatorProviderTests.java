@@ -0,0 +1,200 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.commandline;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Options;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.commandline.CommandLineState;
+import com.archimatetool.tests.TestData;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ValidatorProviderTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ValidatorProviderTests.class);
+    }
+
+    private ValidatorProvider provider;
+    private CommandLine commandLine;
+
+    @Before
+    public void runOnceBeforeEachTest() {
+        provider = new ValidatorProvider();
+        provider.doLog = false;
+
+        commandLine = mock(CommandLine.class);
+
+        CommandLineState.setModel(null);
+        CommandLineState.setExitCode(0);
+    }
+
+    @After
+    public void runOnceAfterEachTest() {
+        CommandLineState.setModel(null);
+        CommandLineState.setExitCode(0);
+    }
+
+    @Test
+    public void getOptions() {
+        Options options = provider.getOptions();
+        assertNotNull(options);
+
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_MODELS));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_THREADS));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_JSON));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_JUNIT));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_MAX_ERRORS));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_MAX_WARNINGS));
+        assertTrue(options.hasLongOption(ValidatorProvider.OPTION_VALIDATE_MAX_ADVICE));
+
+        assertTrue(options.getOption(ValidatorProvider.OPTION_VALIDATE_MODELS).hasArgs());
+        assertFalse(options.getOption(ValidatorProvider.OPTION_VALIDATE).hasArg());
+    }
+
+    @Test
+    public void runWithoutOptionsDoesNothing() throws Exception {
+        provider.run(commandLine);
+        assertEquals(0, CommandLineState.getExitCode());
+    }
+
+    @Test(expected=IOException.class)
+    public void runValidateWithoutLoadedModel() throws Exception {
+        when(commandLine.hasOption(ValidatorProvider.OPTION_VALIDATE)).thenReturn(true);
+        provider.run(commandLine);
+    }
+
+    @Test
+    public void runWithinThresholds() throws Exception {
+        ModelValidation expected = new ModelValidation(TestData.TEST_MODEL_FILE_ARCHISURANCE).call();
+
+        setModels(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_ERRORS, String.valueOf(expected.getErrorCount()));
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_WARNINGS, String.valueOf(expected.getWarningCount()));
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_ADVICE, String.valueOf(expected.getAdviceCount()));
+
+        provider.run(commandLine);
+
+        assertEquals(0, CommandLineState.getExitCode());
+    }
+
+    @Test
+    public void runExceedsThreshold() throws Exception {
+        ModelValidation expected = new ModelValidation(TestData.TEST_MODEL_FILE_ARCHISURANCE).call();
+
+        // The maximum is one less than the number of warnings, or of advice if there are no warnings
+        assertTrue(expected.getWarningCount() + expected.getAdviceCount() > 0);
+
+        setModels(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_ERRORS, String.valueOf(expected.getErrorCount()));
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_WARNINGS, String.valueOf(Math.max(0, expected.getWarningCount() - 1)));
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_ADVICE, String.valueOf(Math.max(0, expected.getAdviceCount() - 1)));
+
+        provider.run(commandLine);
+
+        assertEquals(ValidatorProvider.EXIT_THRESHOLD_EXCEEDED, CommandLineState.getExitCode());
+    }
+
+    @Test
+    public void runDefaultMaxErrorsIsZero() throws Exception {
+        ModelValidation expected = new ModelValidation(TestData.TEST_MODEL_FILE_ARCHISURANCE).call();
+
+        setModels(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+
+        provider.run(commandLine);
+
+        assertEquals(expected.getErrorCount() > 0 ? ValidatorProvider.EXIT_THRESHOLD_EXCEEDED : 0, CommandLineState.getExitCode());
+    }
+
+    @Test
+    public void runModelThatCannotBeLoaded() throws Exception {
+        File badFile = TestUtils.createTempFile(".archimate");
+        Files.write(badFile.toPath(), "This is not a model".getBytes(StandardCharsets.UTF_8));
+
+        setModels(TestData.TEST_MODEL_FILE_ARCHISURANCE, badFile);
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_ERRORS, "1000000");
+
+        provider.run(commandLine);
+
+        // A failed model is reported even when the thresholds are not exceeded
+        assertEquals(ValidatorProvider.EXIT_FAILED, CommandLineState.getExitCode());
+    }
+
+    @Test
+    public void runWritesResults() throws Exception {
+        File jsonFile = TestUtils.createTempFile(".json");
+        File junitFile = TestUtils.createTempFile(".xml");
+        jsonFile.delete();
+        junitFile.delete();
+
+        setModels(TestData.TEST_MODEL_FILE_ARCHISURANCE, TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        setOption(ValidatorProvider.OPTION_VALIDATE_THREADS, "2");
+        setOption(ValidatorProvider.OPTION_VALIDATE_JSON, jsonFile.getPath());
+        setOption(ValidatorProvider.OPTION_VALIDATE_JUNIT, junitFile.getPath());
+
+        provider.run(commandLine);
+
+        assertTrue(jsonFile.exists());
+        assertTrue(junitFile.exists());
+
+        String json = new String(Files.readAllBytes(jsonFile.toPath()), StandardCharsets.UTF_8);
+        assertEquals(2, count(json, "\"name\": \"Archisurance\""));
+    }
+
+    @Test
+    public void runInvalidNumberUsesDefault() throws Exception {
+        setModels(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        setOption(ValidatorProvider.OPTION_VALIDATE_THREADS, "many");
+        setOption(ValidatorProvider.OPTION_VALIDATE_MAX_ERRORS, "1000000");
+
+        provider.run(commandLine);
+
+        assertEquals(0, CommandLineState.getExitCode());
+    }
+
+    private void setModels(File... files) {
+        String[] paths = new String[files.length];
+        for(int i = 0; i < files.length; i++) {
+            paths[i] = files[i].getPath();
+        }
+
+        when(commandLine.hasOption(ValidatorProvider.OPTION_VALIDATE_MODELS)).thenReturn(true);
+        when(commandLine.getOptionValues(ValidatorProvider.OPTION_VALIDATE_MODELS)).thenReturn(paths);
+    }
+
+    private void setOption(String option, String value) {
+        when(commandLine.hasOption(option)).thenReturn(true);
+        when(commandLine.getOptionValue(option)).thenReturn(value);
+    }
+
+    private int count(String s, String sub) {
+        int count = 0;
+        for(int i = s.indexOf(sub); i != -1; i = s.indexOf(sub, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
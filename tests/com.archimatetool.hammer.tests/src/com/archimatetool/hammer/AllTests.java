@@ -6,6 +6,9 @@
 package com.archimatetool.hammer;
 
 
+import com.archimatetool.hammer.validation.LiveValidatorTests;
+import com.archimatetool.hammer.validation.ModelChangeCounterTests;
+import com.archimatetool.hammer.validation.ValidationCacheTests;
 import com.archimatetool.hammer.validation.ValidatorTests;
 import com.archimatetool.hammer.validation.checkers.DuplicateElementCheckerTests;
 import com.archimatetool.hammer.validation.checkers.EmptyViewsCheckerTests;
@@ -15,6 +18,7 @@ import com.archimatetool.hammer.validation.checkers.NestedElementsCheckerTests;
 import com.archimatetool.hammer.validation.checkers.UnusedElementsCheckerTests;
 import com.archimatetool.hammer.validation.checkers.UnusedRelationsCheckerTests;
 import com.archimatetool.hammer.validation.checkers.ViewpointCheckerTests;
+import com.archimatetool.hammer.validation.checkers.ViewsCheckTaskTests;
 import com.archimatetool.hammer.validation.issues.AdviceCategoryTests;
 import com.archimatetool.hammer.validation.issues.AdviceTypeTests;
 import com.archimatetool.hammer.validation.issues.ErrorTypeTests;
@@ -34,6 +38,9 @@ public class AllTests {
 
 		// validation
 		suite.addTest(ValidatorTests.suite());
+		suite.addTest(LiveValidatorTests.suite());
+		suite.addTest(ValidationCacheTests.suite());
+		suite.addTest(ModelChangeCounterTests.suite());
 		
         // validation.checkers
 		suite.addTest(DuplicateElementCheckerTests.suite());
@@ -44,6 +51,7 @@ public class AllTests {
         suite.addTest(UnusedElementsCheckerTests.suite());
         suite.addTest(UnusedRelationsCheckerTests.suite());
         suite.addTest(ViewpointCheckerTests.suite());
+        suite.addTest(ViewsCheckTaskTests.suite());
 		
 		// validation.issues
         suite.addTest(AdviceCategoryTests.suite());
@@ -0,0 +1,215 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.hammer.validation.checkers.Messages;
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.hammer.validation.issues.IIssueCategory;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.testingtools.ArchimateTestModel;
+import com.archimatetool.tests.TestData;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class LiveValidatorTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(LiveValidatorTests.class);
+    }
+
+    private IArchimateModel model;
+    private LiveValidator validator;
+
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        TestUtils.ensureDefaultDisplay(); // Need to do this if running only these tests
+
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        model = tm.loadModel();
+        validator = new LiveValidator(model);
+
+        // Forward model notifications
+        model.eAdapters().add(new EContentAdapter() {
+            @Override
+            public void notifyChanged(Notification msg) {
+                super.notifyChanged(msg);
+                validator.notifyChanged(msg);
+            }
+        });
+    }
+
+    @Test
+    public void testValidateFindsSameIssuesAsValidator() {
+        List<Object> expected = new Validator(model).validate();
+        List<Object> actual = validator.validate();
+
+        assertEquals(expected.size(), actual.size());
+
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            assertEquals(((IIssueCategory)expected.get(i)).getIssues().size(), ((IIssueCategory)actual.get(i)).getIssues().size());
+        }
+    }
+
+    @Test(expected=OperationCanceledException.class)
+    public void testValidateCancelled() {
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        validator.validate(monitor);
+    }
+
+    @Test
+    public void testValidateCancelledWhileCheckersRun() {
+        // The monitor is checked once for each object in the model while they are collected, so cancel after that
+        int size = 0;
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext(); iter.next()) {
+            size++;
+        }
+        int cancelAfter = size + 10;
+
+        NullProgressMonitor monitor = new NullProgressMonitor() {
+            AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public boolean isCanceled() {
+                return count.incrementAndGet() > cancelAfter || super.isCanceled();
+            }
+        };
+
+        try {
+            validator.validate(monitor);
+            fail("Should have been cancelled");
+        }
+        catch(OperationCanceledException ex) {
+        }
+
+        // Can validate again
+        assertFalse(validator.validate().isEmpty());
+    }
+
+    @Test
+    public void testUpdateWithNoChanges() {
+        validator.validate();
+        assertFalse(validator.isDirty());
+
+        LiveValidator.Delta delta = validator.update();
+        assertTrue(delta.isEmpty());
+    }
+
+    @Test
+    public void testUpdateKeepsUnchangedIssues() {
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element.setName("Live");
+        model.getDefaultFolderForObject(element).getElements().add(element);
+
+        validator.validate();
+        IIssue unused = findIssue(element, Messages.UnusedElementsChecker_0);
+
+        element.setDocumentation("Some documentation");
+        assertTrue(validator.isDirty());
+
+        LiveValidator.Delta delta = validator.update();
+        assertTrue(delta.isEmpty());
+        assertSame(unused, findIssue(element, Messages.UnusedElementsChecker_0));
+    }
+
+    @Test
+    public void testUpdateDuplicateElements() {
+        IArchimateElement element1 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element1.setName("Live");
+        model.getDefaultFolderForObject(element1).getElements().add(element1);
+
+        validator.validate();
+        assertNull(findIssue(element1, Messages.DuplicateElementChecker_0));
+
+        // Add a duplicate
+        IArchimateElement element2 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element2.setName("Live");
+        model.getDefaultFolderForObject(element2).getElements().add(element2);
+
+        LiveValidator.Delta delta = validator.update();
+        assertTrue(delta.getRemovedIssues().isEmpty());
+        assertTrue(delta.getAddedIssues().contains(findIssue(element1, Messages.DuplicateElementChecker_0)));
+        assertTrue(delta.getAddedIssues().contains(findIssue(element2, Messages.DuplicateElementChecker_0)));
+        assertTrue(delta.getAddedIssues().contains(findIssue(element2, Messages.UnusedElementsChecker_0)));
+
+        // Rename it
+        element2.setName("Live2");
+
+        delta = validator.update();
+        assertNull(findIssue(element1, Messages.DuplicateElementChecker_0));
+        assertNull(findIssue(element2, Messages.DuplicateElementChecker_0));
+
+        // Remove it
+        element2.setName("Live");
+        validator.update();
+        model.getDefaultFolderForObject(element2).getElements().remove(element2);
+
+        delta = validator.update();
+        assertNull(findIssue(element1, Messages.DuplicateElementChecker_0));
+        assertNull(findIssue(element2, Messages.UnusedElementsChecker_0));
+        assertEquals(3, delta.getRemovedIssues().size());
+    }
+
+    @Test
+    public void testUpdateEmptyView() {
+        validator.validate();
+
+        IArchimateDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForObject(dm).getElements().add(dm);
+
+        validator.update();
+        IIssue issue = findIssue(dm, Messages.EmptyViewsChecker_0);
+        assertNotNull(issue);
+
+        dm.getChildren().add(IArchimateFactory.eINSTANCE.createDiagramModelGroup());
+
+        LiveValidator.Delta delta = validator.update();
+        assertTrue(delta.getRemovedIssues().contains(issue));
+        assertNull(findIssue(dm, Messages.EmptyViewsChecker_0));
+    }
+
+    private IIssue findIssue(Object object, String name) {
+        for(Object o : validator.getResult()) {
+            if(o instanceof IIssueCategory) {
+                for(IIssue issue : ((IIssueCategory)o).getIssues()) {
+                    if(issue.getObject() == object && name.equals(issue.getName())) {
+                        return issue;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
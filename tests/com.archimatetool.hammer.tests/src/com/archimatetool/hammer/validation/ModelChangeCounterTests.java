@@ -0,0 +1,202 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.hammer.validation.issues.IIssueCategory;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.testingtools.ArchimateTestModel;
+import com.archimatetool.tests.TestData;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ModelChangeCounterTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelChangeCounterTests.class);
+    }
+
+    private IArchimateModel model;
+    private ModelChangeCounter counter;
+
+    // Edits are made, and the counter is checked, holding this lock as if they were all made in the UI thread
+    private Object uiLock = new Object();
+
+    @Before
+    public void runOnceBeforeEachTest() throws IOException {
+        TestUtils.ensureDefaultDisplay(); // Need to do this if running only these tests
+
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        model = tm.loadModel();
+
+        counter = new ModelChangeCounter(model);
+
+        // Forward model notifications as the Model Manager does
+        model.eAdapters().add(new EContentAdapter() {
+            @Override
+            public void notifyChanged(Notification msg) {
+                super.notifyChanged(msg);
+                counter.notifyChanged(msg);
+            }
+        });
+    }
+
+    @Test
+    public void testCountsChanges() {
+        long count = counter.getCount();
+        assertFalse(counter.hasChangedSince(count));
+
+        model.setName("Changed");
+        assertTrue(counter.hasChangedSince(count));
+
+        // Setting the same value is not a change
+        count = counter.getCount();
+        model.setName("Changed");
+        assertFalse(counter.hasChangedSince(count));
+    }
+
+    @Test
+    public void testIgnoresOtherModels() {
+        IArchimateModel otherModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        otherModel.setDefaults();
+        otherModel.eAdapters().add(new EContentAdapter() {
+            @Override
+            public void notifyChanged(Notification msg) {
+                super.notifyChanged(msg);
+                counter.notifyChanged(msg);
+            }
+        });
+
+        long count = counter.getCount();
+        otherModel.setName("Changed");
+        assertFalse(counter.hasChangedSince(count));
+    }
+
+    @Test
+    public void testEditDuringValidation() throws Exception {
+        List<Integer> expected = getIssueCounts(new Validator(model).validate());
+
+        IArchimateDiagramModel view = null;
+        IArchimateElement target = null;
+
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(view == null && eObject instanceof IArchimateDiagramModel) {
+                view = (IArchimateDiagramModel)eObject;
+            }
+            if(target == null && eObject instanceof IArchimateElement) {
+                target = (IArchimateElement)eObject;
+            }
+        }
+
+        // Add and remove elements, relations and diagram objects while the model is validated
+        Throwable[] editError = new Throwable[1];
+
+        IArchimateDiagramModel editedView = view;
+        IArchimateElement editedTarget = target;
+
+        Thread editor = new Thread(() -> {
+            try {
+                for(int i = 0; i < 500; i++) {
+                    IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+                    IArchimateRelationship relation = IArchimateFactory.eINSTANCE.createAssociationRelationship();
+                    IDiagramModelArchimateObject dmo = IArchimateFactory.eINSTANCE.createDiagramModelArchimateObject();
+
+                    synchronized(uiLock) {
+                        element.setName(editedTarget.getName());
+                        model.getDefaultFolderForObject(element).getElements().add(element);
+                    }
+
+                    synchronized(uiLock) {
+                        relation.connect(element, editedTarget);
+                        model.getDefaultFolderForObject(relation).getElements().add(relation);
+                    }
+
+                    synchronized(uiLock) {
+                        dmo.setArchimateElement(element);
+                        editedView.getChildren().add(dmo);
+                    }
+
+                    synchronized(uiLock) {
+                        editedView.getChildren().remove(dmo);
+                        relation.disconnect();
+                        ((IFolder)relation.eContainer()).getElements().remove(relation);
+                        ((IFolder)element.eContainer()).getElements().remove(element);
+                    }
+                }
+            }
+            catch(Throwable ex) {
+                editError[0] = ex;
+            }
+        });
+
+        editor.start();
+
+        while(editor.isAlive()) {
+            long count = counter.getCount();
+            List<Object> result = null;
+
+            try {
+                result = new Validator(model).validate();
+            }
+            catch(RuntimeException ex) {
+                // Reading the model while it was being edited failed so it must have changed
+                synchronized(uiLock) {
+                    assertTrue("Validation failed but the model did not change: " + ex, counter.hasChangedSince(count));
+                }
+                continue;
+            }
+
+            synchronized(uiLock) {
+                // Only a result for a model that did not change while it was being read can be used
+                if(!counter.hasChangedSince(count)) {
+                    assertEquals(getIssueCounts(result), getIssueCounts(new Validator(model).validate()));
+                }
+            }
+        }
+
+        editor.join();
+        assertNull(editError[0]);
+
+        // Every edit was undone so validating again finds the same issues as before
+        long count = counter.getCount();
+        assertEquals(expected, getIssueCounts(new Validator(model).validate()));
+        assertFalse(counter.hasChangedSince(count));
+    }
+
+    private List<Integer> getIssueCounts(List<Object> result) {
+        List<Integer> counts = new ArrayList<Integer>();
+        for(Object object : result) {
+            counts.add(object instanceof IIssueCategory ? ((IIssueCategory)object).getIssues().size() : 0);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.hammer.validation.issues.IIssueCategory;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.testingtools.ArchimateTestModel;
+import com.archimatetool.tests.TestData;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ValidationCacheTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ValidationCacheTests.class);
+    }
+
+    private IArchimateModel model;
+    private ValidationCache cache;
+
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        TestUtils.ensureDefaultDisplay(); // Need to do this if running only these tests
+
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        model = tm.loadModel();
+        cache = new ValidationCache(null);
+    }
+
+    @Test
+    public void testSecondValidationUsesCache() {
+        List<String> expected = getIssues(validate());
+        assertEquals(0, cache.getHitCount());
+        assertTrue(cache.getMissCount() > 0);
+
+        int checks = cache.getMissCount();
+
+        List<String> actual = getIssues(validate());
+        assertEquals(checks, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testOnlyChangedObjectsAreChecked() {
+        validate();
+        int checks = cache.getMissCount();
+
+        IArchimateElement element = getFirstElement();
+        element.setName("Changed");
+
+        List<String> actual = getIssues(validate());
+        assertTrue(cache.getMissCount() > 0);
+        assertTrue(cache.getMissCount() < checks / 4);
+
+        // Same as without the cache
+        assertEquals(getIssues(new LiveValidator(model).validate()), actual);
+    }
+
+    @Test
+    public void testRemovedObjectsAreRemovedFromCache() {
+        validate();
+        int size = cache.size();
+
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element.setName("New");
+        model.getDefaultFolderForObject(element).getElements().add(element);
+        validate();
+        assertTrue(cache.size() > size);
+
+        model.getDefaultFolderForObject(element).getElements().remove(element);
+        validate();
+        assertEquals(size, cache.size());
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File file = TestUtils.createTempFile(".cache");
+        cache = new ValidationCache(file);
+
+        List<String> expected = getIssues(validate());
+        int checks = cache.getMissCount();
+        cache.save();
+        assertTrue(file.length() > 0);
+
+        cache = ValidationCache.load(file);
+        assertEquals(checks, cache.size());
+
+        List<String> actual = getIssues(validate());
+        assertEquals(checks, cache.getHitCount());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCacheFileIsForModelFile() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        File noFile = ValidationCache.getCacheFile(model);
+
+        // Copies of a model file have the same id
+        model.setFile(new File("model1.archimate"));
+        File file1 = ValidationCache.getCacheFile(model);
+        model.setFile(new File("model2.archimate"));
+        File file2 = ValidationCache.getCacheFile(model);
+
+        assertNotEquals(noFile, file1);
+        assertNotEquals(file1, file2);
+        assertTrue(file1.getName().startsWith(model.getId()));
+
+        model.setFile(new File("model1.archimate"));
+        assertEquals(file1, ValidationCache.getCacheFile(model));
+    }
+
+    @Test
+    public void testLoadInvalidFile() throws IOException {
+        File file = TestUtils.createTempFile(".cache");
+        cache = ValidationCache.load(file);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testChangedConfigurationClearsCache() {
+        validate();
+        assertTrue(cache.size() > 0);
+
+        cache.setConfiguration("something else");
+        assertEquals(0, cache.size());
+    }
+
+    private IArchimateElement getFirstElement() {
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IArchimateElement) {
+                return (IArchimateElement)eObject;
+            }
+        }
+        return null;
+    }
+
+    private List<Object> validate() {
+        LiveValidator validator = new LiveValidator(model);
+        validator.setCache(cache);
+        return validator.validate();
+    }
+
+    /**
+     * @return The issues as strings in order
+     */
+    private List<String> getIssues(List<Object> result) {
+        List<String> issues = new ArrayList<String>();
+
+        for(Object o : result) {
+            if(o instanceof IIssueCategory) {
+                for(IIssue issue : ((IIssueCategory)o).getIssues()) {
+                    issues.add(issue.getClass().getSimpleName() + "|" + issue.getName() + "|" + issue.getDescription()
+                            + "|" + issue.getExplanation() + "|" + System.identityHashCode(issue.getObject()));
+                }
+            }
+        }
+
+        return issues;
+    }
+}
@@ -13,10 +13,14 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.archimatetool.hammer.validation.issues.IIssue;
 import com.archimatetool.hammer.validation.issues.IIssueCategory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.testingtools.ArchimateTestModel;
@@ -26,6 +30,7 @@ import com.archimatetool.tests.TestUtils;
 import junit.framework.JUnit4TestAdapter;
 
 
+@SuppressWarnings("nls")
 public class ValidatorTests {
     
     public static junit.framework.Test suite() {
@@ -43,6 +48,7 @@ public class ValidatorTests {
         ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE);
         model = tm.loadModel();
         validator = new Validator(model);
+        validator.validate();
     }
     
     @Test
@@ -75,4 +81,68 @@ public class ValidatorTests {
     public void testGetArchimateViews() {
         assertEquals(17, validator.getArchimateViews().size());
     }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testGetArchimateElementsIsUnmodifiable() {
+        validator.getArchimateElements().clear();
+    }
+    
+    @Test
+    public void testGetCheckerTimings() {
+        Map<String, Long> timings = validator.getCheckerTimings();
+        assertFalse(timings.isEmpty());
+        assertTrue(timings.containsKey("InvalidRelationsChecker"));
+        
+        for(long time : timings.values()) {
+            assertTrue(time >= 0);
+        }
+    }
+    
+    @Test
+    public void testGetCheckerIssues() {
+        Map<String, List<IIssue>> checkerIssues = validator.getCheckerIssues();
+        assertEquals(validator.getCheckerTimings().keySet(), checkerIssues.keySet());
+        
+        // The issues of all checkers are the issues in the categories
+        int count = 0;
+        for(List<IIssue> issues : checkerIssues.values()) {
+            count += issues.size();
+        }
+        
+        int expected = 0;
+        for(Object object : validator.validate()) {
+            if(object instanceof IIssueCategory) {
+                expected += ((IIssueCategory)object).getIssues().size();
+            }
+        }
+        
+        assertEquals(expected, count);
+    }
+    
+    @Test(expected=OperationCanceledException.class)
+    public void testValidateCancelled() {
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        new Validator(model).validate(monitor);
+    }
+    
+    @Test
+    public void testValidateResultsAreInSameOrder() {
+        Validator validator = new Validator(model);
+        List<Object> list1 = validator.validate();
+        List<Object> list2 = validator.validate();
+        
+        assertEquals(list1.size(), list2.size());
+        
+        for(int i = 0; i < list1.size(); i++) {
+            List<? extends IIssue> issues1 = ((IIssueCategory)list1.get(i)).getIssues();
+            List<? extends IIssue> issues2 = ((IIssueCategory)list2.get(i)).getIssues();
+            assertEquals(issues1.size(), issues2.size());
+            
+            for(int j = 0; j < issues1.size(); j++) {
+                assertEquals(issues1.get(j).getDescription(), issues2.get(j).getDescription());
+                assertSame(issues1.get(j).getObject(), issues2.get(j).getObject());
+            }
+        }
+    }
 }
@@ -9,7 +9,10 @@ package com.archimatetool.hammer.validation.checkers;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -78,5 +81,209 @@ public class DuplicateElementCheckerTests {
         issues = checker.getIssues();
         assertTrue(issues.isEmpty());
     }
+    
+    @Test
+    public void testNamesAreNormalised() {
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        
+        IArchimateElement e1 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        e1.setName("Fido  Dog");
+        elements.add(e1);
+        
+        IArchimateElement e2 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        e2.setName(" fido dog ");
+        elements.add(e2);
+        
+        IArchimateElement e3 = IArchimateFactory.eINSTANCE.createBusinessRole();
+        e3.setName("Fido Dog");
+        elements.add(e3);
+        
+        DuplicateElementChecker checker = new DuplicateElementChecker(elements);
+        List<IIssue> issues = checker.getIssues();
+        assertEquals(2, issues.size());
+        assertSame(e1, issues.get(0).getObject());
+        assertSame(e2, issues.get(1).getObject());
+    }
+    
+    @Test
+    public void testDuplicatesAreReportedInOrder() {
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        
+        String[] names = { "a", "b", "c", "b", "a" };
+        for(String name : names) {
+            IArchimateElement e = IArchimateFactory.eINSTANCE.createBusinessActor();
+            e.setName(name);
+            elements.add(e);
+        }
+        
+        DuplicateElementChecker checker = new DuplicateElementChecker(elements);
+        List<IIssue> issues = checker.getIssues();
+        assertEquals(4, issues.size());
+        assertSame(elements.get(0), issues.get(0).getObject());
+        assertSame(elements.get(4), issues.get(1).getObject());
+        assertSame(elements.get(1), issues.get(2).getObject());
+        assertSame(elements.get(3), issues.get(3).getObject());
+    }
+    
+    @Test
+    public void testSimilarNames() {
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        
+        IArchimateElement e1 = IArchimateFactory.eINSTANCE.createApplicationComponent();
+        e1.setName("Customer DB");
+        elements.add(e1);
+        
+        IArchimateElement e2 = IArchimateFactory.eINSTANCE.createApplicationComponent();
+        e2.setName("Customer Database");
+        elements.add(e2);
+        
+        IArchimateElement e3 = IArchimateFactory.eINSTANCE.createApplicationComponent();
+        e3.setName("Payment Service");
+        elements.add(e3);
+        
+        IArchimateElement e4 = IArchimateFactory.eINSTANCE.createNode();
+        e4.setName("Customer Database");
+        elements.add(e4);
+        
+        // Not checked by default
+        DuplicateElementChecker checker = new DuplicateElementChecker(elements);
+        assertTrue(checker.getIssues().isEmpty());
+        
+        checker = new DuplicateElementChecker(elements, true, DuplicateElementChecker.DEFAULT_SIMILARITY_THRESHOLD);
+        List<IIssue> issues = checker.getIssues();
+        assertEquals(2, issues.size());
+        assertSame(e1, issues.get(0).getObject());
+        assertSame(e2, issues.get(1).getObject());
+        
+        // Higher threshold
+        checker = new DuplicateElementChecker(elements, true, 0.9f);
+        assertTrue(checker.getIssues().isEmpty());
+    }
+    
+    @Test
+    public void testExactDuplicatesAreNotReportedAsSimilar() {
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        
+        IArchimateElement e1 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        e1.setName("Customer");
+        elements.add(e1);
+        
+        IArchimateElement e2 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        e2.setName("customer");
+        elements.add(e2);
+        
+        DuplicateElementChecker checker = new DuplicateElementChecker(elements, true, 0.1f);
+        assertEquals(2, checker.getIssues().size());
+    }
+    
+    @Test
+    public void testGetSimilarity() {
+        Set<String> s1 = DuplicateElementChecker.getShingles(DuplicateElementChecker.normalise("Order Service"));
+        Set<String> s2 = DuplicateElementChecker.getShingles(DuplicateElementChecker.normalise("Order  Services"));
+        assertEquals(0.8f, DuplicateElementChecker.getSimilarity(s1, s2), 0.001f);
+        assertEquals(1f, DuplicateElementChecker.getSimilarity(s1, s1), 0.001f);
+        
+        // Short names have at least one shingle
+        assertEquals(1, DuplicateElementChecker.getShingles("a").size());
+    }
+    
+    @Test
+    public void testGetRowsPerBand() {
+        int previous = 0;
+        for(int i = 1; i < 100; i++) {
+            int rows = DuplicateElementChecker.getRowsPerBand(i / 100f);
+            assertTrue(rows >= previous);
+            assertTrue(rows >= DuplicateElementChecker.MIN_ROWS_PER_BAND && rows <= 8);
+            previous = rows;
+        }
+    }
+    
+    @Test
+    public void testLowThresholdIsBounded() {
+        // One row per band would put nearly every name in one bucket
+        assertEquals(DuplicateElementChecker.MIN_ROWS_PER_BAND, DuplicateElementChecker.getRowsPerBand(0.01f));
+        
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        
+        IArchimateElement e1 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        e1.setName("Customer Service Desk");
+        elements.add(e1);
+        
+        IArchimateElement e2 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        e2.setName("Customer Service Desks");
+        elements.add(e2);
+        
+        List<IIssue> issues = new DuplicateElementChecker(elements, true, 0.2f).getIssues();
+        assertEquals(2, issues.size());
+    }
+    
+    // Large models
+    
+    @Test
+    public void testLargeNumberOfElements() {
+        List<IArchimateElement> elements = createElements(80000, false);
+        List<IIssue> issues = new DuplicateElementChecker(elements).getIssues();
+        
+        // Every 100th element is a duplicate of the previous one of the same type
+        assertEquals(1600, issues.size());
+        for(int i = 0; i < issues.size(); i += 2) {
+            assertEquals(issues.get(i + 1).getObject(), elements.get(elements.indexOf(issues.get(i).getObject()) + 2));
+        }
+    }
+    
+    @Test
+    public void testLargeNumberOfElementsSimilar() {
+        List<IArchimateElement> elements = createElements(20000, true);
+        List<IIssue> issues = new DuplicateElementChecker(elements, true, 0.7f).getIssues();
+        
+        // Every 100th element has a similar name to the previous one of the same type, and each of the pair is reported
+        // with the other as its match. Random names are not similar to each other so nothing else is reported.
+        Set<Object> expected = new HashSet<Object>();
+        for(int i = 2; i < elements.size(); i += 100) {
+            IArchimateElement original = elements.get(i - 2);
+            IArchimateElement similar = elements.get(i);
+            expected.add(original);
+            expected.add(similar);
+            assertTrue(hasIssue(issues, original, similar.getName()));
+            assertTrue(hasIssue(issues, similar, original.getName()));
+        }
+        
+        assertEquals(400, issues.size());
+        for(IIssue issue : issues) {
+            assertTrue(expected.contains(issue.getObject()));
+        }
+    }
+    
+    private boolean hasIssue(List<IIssue> issues, IArchimateElement element, String matchName) {
+        for(IIssue issue : issues) {
+            if(issue.getObject() == element && issue.getDescription().contains("'" + matchName + "'")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @param similar If false every 100th element (and its neighbour of the same type) share a name.
+     *                If true every 100th element has the name of its neighbour of the same type with one character added.
+     */
+    private List<IArchimateElement> createElements(int count, boolean similar) {
+        List<IArchimateElement> elements = new ArrayList<IArchimateElement>();
+        Random random = new Random(1);
+        
+        for(int i = 0; i < count; i++) {
+            IArchimateElement e = (i % 2 == 0) ? IArchimateFactory.eINSTANCE.createBusinessActor() : IArchimateFactory.eINSTANCE.createApplicationComponent();
+            if(i % 100 == 2) {
+                e.setName(elements.get(i - 2).getName() + (similar ? "x" : ""));
+            }
+            else {
+                // Two random words of about 12 characters
+                e.setName(Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + " " + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+            }
+            elements.add(e);
+        }
+        
+        return elements;
+    }
 
 }
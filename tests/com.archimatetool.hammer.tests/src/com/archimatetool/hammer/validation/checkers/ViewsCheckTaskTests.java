@@ -0,0 +1,63 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.hammer.validation.checkers;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.archimatetool.hammer.validation.issues.AdviceType;
+import com.archimatetool.hammer.validation.issues.IIssue;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateFactory;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+public class ViewsCheckTaskTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ViewsCheckTaskTests.class);
+    }
+    
+    @Test
+    public void testCheckEmptyList() {
+        List<IIssue> issues = ViewsCheckTask.check(new ArrayList<IArchimateDiagramModel>(), (dm, list) -> {
+            list.add(new AdviceType());
+        });
+        
+        assertTrue(issues.isEmpty());
+    }
+    
+    @Test
+    public void testIssuesAreInOrderOfViews() {
+        List<IArchimateDiagramModel> views = new ArrayList<IArchimateDiagramModel>();
+        
+        // More than one chunk
+        for(int i = 0; i < ViewsCheckTask.CHUNK_SIZE * 10 + 3; i++) {
+            views.add(IArchimateFactory.eINSTANCE.createArchimateDiagramModel());
+        }
+        
+        List<IIssue> issues = ViewsCheckTask.check(views, (dm, list) -> {
+            AdviceType issue = new AdviceType();
+            issue.setObject(dm);
+            list.add(issue);
+        });
+        
+        assertEquals(views.size(), issues.size());
+        
+        for(int i = 0; i < views.size(); i++) {
+            assertSame(views.get(i), issues.get(i).getObject());
+        }
+    }
+
+}
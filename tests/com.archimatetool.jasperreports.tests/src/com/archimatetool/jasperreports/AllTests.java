@@ -9,8 +9,10 @@ package com.archimatetool.jasperreports;
 import junit.framework.TestSuite;
 
 import com.archimatetool.jasperreports.data.ArchimateModelDataSourceTests;
+import com.archimatetool.jasperreports.data.DiagramImagesTests;
 import com.archimatetool.jasperreports.data.ElementsDataSourceTests;
 import com.archimatetool.jasperreports.data.FieldDataFactoryTests;
+import com.archimatetool.jasperreports.data.ModelIndexTests;
 import com.archimatetool.jasperreports.data.PropertiesModelDataSourceTests;
 import com.archimatetool.jasperreports.data.ViewChildrenDataSourceTests;
 import com.archimatetool.jasperreports.data.ViewModelDataSourceTests;
@@ -22,9 +24,12 @@ public class AllTests {
 		TestSuite suite = new TestSuite("com.archimatetool.jasperreports");
 
 		suite.addTest(JasperReportsExporterTests.suite());
+		suite.addTest(CompiledReportCacheTests.suite());
 		suite.addTest(ArchimateModelDataSourceTests.suite());
+        suite.addTest(DiagramImagesTests.suite());
         suite.addTest(ElementsDataSourceTests.suite());
         suite.addTest(FieldDataFactoryTests.suite());
+        suite.addTest(ModelIndexTests.suite());
         suite.addTest(PropertiesModelDataSourceTests.suite());
         suite.addTest(ViewChildrenDataSourceTests.suite());
         suite.addTest(ViewModelDataSourceTests.suite());
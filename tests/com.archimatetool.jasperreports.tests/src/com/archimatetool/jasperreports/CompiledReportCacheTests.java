@@ -0,0 +1,127 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.tests.TestUtils;
+
+import junit.framework.JUnit4TestAdapter;
+import net.sf.jasperreports.engine.JasperReport;
+
+
+@SuppressWarnings("nls")
+public class CompiledReportCacheTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(CompiledReportCacheTests.class);
+    }
+
+    private File cacheFolder;
+    private File templateFile;
+
+    @Before
+    public void runBeforeEachTest() throws Exception {
+        File tmpFolder = TestUtils.createTempFolder("compiled-reports");
+        cacheFolder = new File(tmpFolder, "cache");
+        templateFile = new File(tmpFolder, "main.jrxml");
+        Files.copy(TestSupport.CUSTOM_REPORT_MAIN_FILE.toPath(), templateFile.toPath());
+    }
+
+    @After
+    public void runAfterEachTest() {
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+
+    @Test
+    public void testReportIsCompiledOnce() throws Exception {
+        CompiledReportCache cache = new CompiledReportCache(cacheFolder);
+
+        JasperReport report = cache.getReport(templateFile);
+        assertEquals("main_report", report.getName());
+        assertSame(report, cache.getReport(templateFile));
+
+        File[] cacheFiles = cacheFolder.listFiles();
+        assertEquals(1, cacheFiles.length);
+        assertEquals(CompiledReportCache.hash(Files.readAllBytes(templateFile.toPath())) + ".jasper", cacheFiles[0].getName());
+    }
+
+    @Test
+    public void testCompiledReportIsLoadedFromCacheFolder() throws Exception {
+        new CompiledReportCache(cacheFolder).getReport(templateFile);
+        File cacheFile = cacheFolder.listFiles()[0];
+        long lastModified = cacheFile.lastModified();
+
+        // A new cache, as after a restart, loads the compiled report and doesn't write it again
+        JasperReport report = new CompiledReportCache(cacheFolder).getReport(templateFile);
+        assertEquals("main_report", report.getName());
+        assertEquals(1, cacheFolder.listFiles().length);
+        assertEquals(lastModified, cacheFile.lastModified());
+    }
+
+    @Test
+    public void testChangedTemplateIsCompiledAgain() throws Exception {
+        CompiledReportCache cache = new CompiledReportCache(cacheFolder);
+        JasperReport report = cache.getReport(templateFile);
+
+        Files.write(templateFile.toPath(), "<!-- Changed -->".getBytes(), StandardOpenOption.APPEND);
+
+        assertNotSame(report, cache.getReport(templateFile));
+        assertEquals(2, cacheFolder.listFiles().length);
+    }
+
+    @Test
+    public void testDamagedCacheFileIsCompiledAgain() throws Exception {
+        new CompiledReportCache(cacheFolder).getReport(templateFile);
+        File cacheFile = cacheFolder.listFiles()[0];
+        Files.write(cacheFile.toPath(), "Not a report".getBytes());
+
+        JasperReport report = new CompiledReportCache(cacheFolder).getReport(templateFile);
+        assertEquals("main_report", report.getName());
+    }
+
+    @Test
+    public void testConcurrentUseCompilesOnce() throws Exception {
+        CompiledReportCache cache = new CompiledReportCache(cacheFolder);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<JasperReport>> futures = new ArrayList<>();
+            for(int i = 0; i < 4; i++) {
+                futures.add(executor.submit(() -> cache.getReport(templateFile)));
+            }
+
+            JasperReport report = futures.get(0).get();
+            for(Future<JasperReport> future : futures) {
+                assertSame(report, future.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        // No temporary files are left
+        assertEquals(1, cacheFolder.listFiles().length);
+        assertTrue(cacheFolder.listFiles()[0].getName().endsWith(".jasper"));
+    }
+}
@@ -6,17 +6,24 @@
 package com.archimatetool.jasperreports;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.testingtools.ArchimateTestModel;
 import com.archimatetool.tests.TestData;
@@ -24,6 +31,7 @@ import com.archimatetool.tests.TestUtils;
 
 import junit.framework.JUnit4TestAdapter;
 import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperExportManager;
 import net.sf.jasperreports.engine.JasperPrint;
 
 
@@ -143,6 +151,190 @@ public class JasperReportsExporterTests {
         assertEquals("4318.png", imageFiles[16].getName());
     }
 
+    @Test
+    public void testExportAllFormats() throws Exception {
+        File folder = new File(exportFolder, "all");
+        int options = JasperReportsExporter.EXPORT_HTML | JasperReportsExporter.EXPORT_PDF | JasperReportsExporter.EXPORT_DOCX
+                | JasperReportsExporter.EXPORT_PPT | JasperReportsExporter.EXPORT_RTF | JasperReportsExporter.EXPORT_ODT;
+        
+        JasperReportsExporter allExporter = new JasperReportsExporter(model, folder, exportFileName, mainTemplateFile, reportTitle, null, options);
+        JasperReportsExporter.Result result = allExporter.export(null);
+        
+        for(String extension : new String[] { ".html", ".pdf", ".docx", ".pptx", ".rtf", ".odt" }) {
+            assertTrue(new File(folder, exportFileName + extension).exists());
+        }
+        
+        assertTrue(result.getFillTime() >= 0);
+        assertTrue(result.getExportTime(JasperReportsExporter.EXPORT_PDF) >= 0);
+        assertTrue(result.getExportTime(JasperReportsExporter.EXPORT_ODT) >= 0);
+        assertTrue(result.getTotalTime() >= result.getFillTime());
+        
+        // Temp folder is deleted
+        assertFalse(new File(folder, "tmp").exists());
+    }
+    
+    @Test
+    public void testExportTimeIsNotSetForFormatNotExported() throws Exception {
+        File folder = new File(exportFolder, "pdf");
+        JasperReportsExporter pdfExporter = new JasperReportsExporter(model, folder, exportFileName, mainTemplateFile, reportTitle, null,
+                JasperReportsExporter.EXPORT_PDF);
+        JasperReportsExporter.Result result = pdfExporter.export(null);
+        
+        assertTrue(new File(folder, exportFileName + ".pdf").exists());
+        assertEquals(-1, result.getExportTime(JasperReportsExporter.EXPORT_HTML));
+    }
+
+    @Test
+    public void testVirtualizedFillIsSame() throws Exception {
+        IArchimateModel largeModel = createLargeModel();
+        
+        File folder = new File(exportFolder, "large");
+        File largeTmpFolder = new File(folder, "tmp");
+        largeTmpFolder.mkdirs();
+        
+        JasperReportsExporter largeExporter = new JasperReportsExporter(largeModel, folder, exportFileName, mainTemplateFile, reportTitle, null, 0);
+        largeExporter.writeDiagrams(largeTmpFolder);
+        
+        JasperPrint expected = largeExporter.createJasperPrint(largeTmpFolder);
+        
+        File swapFolder = new File(folder, "swap");
+        largeExporter.setVirtualizer(5, swapFolder);
+        
+        try {
+            JasperPrint actual = largeExporter.createJasperPrint(largeTmpFolder);
+            
+            assertTrue(expected.getPages().size() > 5);
+            assertEquals(expected.getPages().size(), actual.getPages().size());
+            
+            // The swap file is in the swap folder
+            assertEquals(1, swapFolder.listFiles().length);
+            
+            assertEquals(toXML(expected), toXML(actual));
+        }
+        finally {
+            largeExporter.disposeVirtualizer();
+        }
+        
+        // The swap file is deleted
+        assertEquals(0, swapFolder.listFiles().length);
+    }
+    
+    @Test
+    public void testVirtualizedExportAllFormats() throws Exception {
+        File folder = new File(exportFolder, "large-all");
+        File swapFolder = new File(folder, "swap");
+        int options = JasperReportsExporter.EXPORT_HTML | JasperReportsExporter.EXPORT_PDF | JasperReportsExporter.EXPORT_DOCX;
+        
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        
+        JasperReportsExporter largeExporter = new JasperReportsExporter(createLargeModel(), folder, exportFileName, mainTemplateFile, reportTitle, null, options) {
+            @Override
+            void exportHTML(JasperPrint jasperPrint, File file) throws JRException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                super.exportHTML(jasperPrint, file);
+                running.decrementAndGet();
+            }
+            
+            @Override
+            void exportPDF(JasperPrint jasperPrint, File file) throws JRException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                super.exportPDF(jasperPrint, file);
+                running.decrementAndGet();
+            }
+            
+            @Override
+            void exportDOCX(JasperPrint jasperPrint, File file) throws JRException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                super.exportDOCX(jasperPrint, file);
+                running.decrementAndGet();
+            }
+        };
+        largeExporter.setVirtualizer(5, swapFolder);
+        largeExporter.export(null);
+        
+        // Pages were swapped out so the formats were exported one at a time
+        assertEquals(1, maxRunning.get());
+        
+        for(String extension : new String[] { ".html", ".pdf", ".docx" }) {
+            File file = new File(folder, exportFileName + extension);
+            assertTrue(file.exists());
+            assertTrue(file.length() > 0);
+        }
+        
+        // The swap file is deleted
+        assertEquals(0, swapFolder.listFiles().length);
+    }
+    
+    @Test
+    public void testDefaultVirtualizerExportsFormatsAtSameTime() throws Exception {
+        File folder = new File(exportFolder, "default-all");
+        int options = JasperReportsExporter.EXPORT_HTML | JasperReportsExporter.EXPORT_PDF;
+        
+        // Each export waits until the other one has started as well, or times out if they run one at a time
+        CountDownLatch started = new CountDownLatch(Math.min(2, Runtime.getRuntime().availableProcessors()));
+        AtomicBoolean atSameTime = new AtomicBoolean(true);
+        
+        JasperReportsExporter defaultExporter = new JasperReportsExporter(model, folder, exportFileName, mainTemplateFile, reportTitle, null, options) {
+            @Override
+            void exportHTML(JasperPrint jasperPrint, File file) throws JRException {
+                waitForOtherExport();
+                super.exportHTML(jasperPrint, file);
+            }
+            
+            @Override
+            void exportPDF(JasperPrint jasperPrint, File file) throws JRException {
+                waitForOtherExport();
+                super.exportPDF(jasperPrint, file);
+            }
+            
+            private void waitForOtherExport() {
+                started.countDown();
+                try {
+                    if(!started.await(30, TimeUnit.SECONDS)) {
+                        atSameTime.set(false);
+                    }
+                }
+                catch(InterruptedException ex) {
+                    atSameTime.set(false);
+                }
+            }
+        };
+        
+        // The same settings as the export wizard. The pages of a small report are never swapped out.
+        defaultExporter.setVirtualizer(JasperReportsPlugin.INSTANCE.getVirtualizerMaxPages(), JasperReportsPlugin.INSTANCE.getSwapFolder());
+        defaultExporter.export(null);
+        
+        assertTrue(atSameTime.get());
+        assertTrue(new File(folder, exportFileName + ".html").exists());
+        assertTrue(new File(folder, exportFileName + ".pdf").exists());
+    }
+    
+    /**
+     * @return A large model so that most of the pages are swapped out
+     */
+    private IArchimateModel createLargeModel() {
+        IArchimateModel largeModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        largeModel.setDefaults();
+        largeModel.setName("Large Model");
+        
+        for(int i = 0; i < 600; i++) {
+            IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+            element.setName("Actor " + i);
+            element.setDocumentation("Documentation of actor " + i + "\nwith a second line\nand a third line");
+            largeModel.getDefaultFolderForObject(element).getElements().add(element);
+        }
+        
+        return largeModel;
+    }
+    
+    /**
+     * @return The JasperPrint as XML without the report date that's different each time it's filled
+     */
+    private String toXML(JasperPrint jasperPrint) throws JRException {
+        return JasperExportManager.exportReportToXml(jasperPrint).replaceAll("\\d{1,2} \\S+ \\d{4} \\d{2}:\\d{2}:\\d{2}", "DATE");
+    }
+
     @Test
     public void testJasperPrint() {
         assertEquals("main_report", jasperPrint.getName());
@@ -0,0 +1,67 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports.data;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class DiagramImagesTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(DiagramImagesTests.class);
+    }
+
+    @Test
+    public void testWaitForImageNotAdded() throws Exception {
+        // Returns straight away
+        DiagramImages.waitFor(new File("notAdded.png"));
+    }
+
+    @Test
+    public void testWaitForImageUntilDone() throws Exception {
+        File file = new File("image.png");
+        DiagramImages.add(file);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> future = executor.submit(() -> {
+                DiagramImages.waitFor(file);
+                return null;
+            });
+
+            try {
+                future.get(200, TimeUnit.MILLISECONDS);
+                fail("Should wait for the image");
+            }
+            catch(TimeoutException ex) {
+                // Still waiting
+            }
+
+            // Same file with a different path
+            DiagramImages.done(new File(file.getAbsolutePath()));
+
+            future.get(5, TimeUnit.SECONDS);
+            assertTrue(future.isDone());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
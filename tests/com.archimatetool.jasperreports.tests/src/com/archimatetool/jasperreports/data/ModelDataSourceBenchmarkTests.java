@@ -0,0 +1,187 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.Logger;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.util.ArchimateModelUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * Gets the elements of each layer and looks up elements by id as a report does, with the ModelIndex
+ * and with a search of the model for each call as before there was one, and logs the time taken by each.<p>
+ *
+ * This is not part of AllTests because it takes a while. It only runs if the number of elements
+ * is set with the system property "jasper.benchmark.elements", for example -Djasper.benchmark.elements=100000
+ */
+@SuppressWarnings("nls")
+public class ModelDataSourceBenchmarkTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelDataSourceBenchmarkTests.class);
+    }
+
+    private static final int ELEMENTS = Integer.getInteger("jasper.benchmark.elements", 0);
+
+    private static final int LOOKUPS = 10_000;
+
+    private static final String[] LAYERS = {
+            IDataConstants.ELEMENTS_STRATEGY,
+            IDataConstants.ELEMENTS_BUSINESS,
+            IDataConstants.ELEMENTS_APPLICATION,
+            IDataConstants.ELEMENTS_TECHNOLOGY,
+            IDataConstants.ELEMENTS_PHYSICAL,
+            IDataConstants.ELEMENTS_MOTIVATION,
+            IDataConstants.ELEMENTS_IMPLEMENTATION_MIGRATION,
+            IDataConstants.ELEMENTS_OTHER
+    };
+
+    private IArchimateModel model;
+    private List<String> ids = new ArrayList<>();
+
+    @Before
+    public void runOnceBeforeEachTest() {
+        assumeTrue("Set jasper.benchmark.elements to run this benchmark", ELEMENTS > 0);
+
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+
+        List<IArchimateElement> elements = new ArrayList<>();
+
+        for(int i = 0; i < ELEMENTS; i++) {
+            IArchimateElement element;
+            switch(i % 3) {
+                case 0:
+                    element = IArchimateFactory.eINSTANCE.createBusinessActor();
+                    break;
+                case 1:
+                    element = IArchimateFactory.eINSTANCE.createApplicationComponent();
+                    break;
+                default:
+                    element = IArchimateFactory.eINSTANCE.createNode();
+                    break;
+            }
+            element.setName("Element " + i);
+            model.getDefaultFolderForObject(element).getElements().add(element);
+            elements.add(element);
+        }
+
+        // Look up elements spread over the whole model
+        for(int i = 0; i < LOOKUPS; i++) {
+            ids.add(elements.get((int)((long)i * ELEMENTS / LOOKUPS)).getId());
+        }
+    }
+
+    @Test
+    public void testLayersAndLookups() {
+        // With the index shared by the clones of the data source
+        ArchimateModelDataSource ds = new ArchimateModelDataSource(model);
+
+        long start = System.nanoTime();
+
+        int count = 0;
+        for(String layer : LAYERS) {
+            // Each layer's sub-report has its own copy of the data source
+            ArchimateModelDataSource clone = ds.clone();
+            if(clone.hasElements(layer)) {
+                count += clone.getElementsDataSource(layer).size();
+            }
+        }
+
+        long layersTime = getTime(start);
+
+        start = System.nanoTime();
+
+        List<Object> found = new ArrayList<>();
+        for(String id : ids) {
+            found.add(ds.getElementByID(id));
+        }
+
+        long lookupsTime = getTime(start);
+
+        // Without the index
+        start = System.nanoTime();
+
+        int countWithoutIndex = 0;
+        for(String layer : LAYERS) {
+            if(!getConceptsWithoutIndex(layer).isEmpty()) {
+                List<IArchimateConcept> concepts = getConceptsWithoutIndex(layer);
+                ArchimateModelDataSource.sort(concepts);
+                countWithoutIndex += concepts.size();
+            }
+        }
+
+        long layersTimeWithoutIndex = getTime(start);
+
+        start = System.nanoTime();
+
+        List<Object> foundWithoutIndex = new ArrayList<>();
+        for(String id : ids) {
+            foundWithoutIndex.add(ArchimateModelUtils.getObjectByID(model, id));
+        }
+
+        long lookupsTimeWithoutIndex = getTime(start);
+
+        Logger.logInfo("Elements of " + LAYERS.length + " layers in a model of " + ELEMENTS + " elements took " + layersTime
+                + " ms with the index and " + layersTimeWithoutIndex + " ms without");
+        Logger.logInfo(LOOKUPS + " lookups by id in a model of " + ELEMENTS + " elements took " + lookupsTime
+                + " ms with the index and " + lookupsTimeWithoutIndex + " ms without");
+
+        assertEquals(ELEMENTS, count);
+        assertEquals(ELEMENTS, countWithoutIndex);
+        assertEquals(foundWithoutIndex, found);
+    }
+
+    private long getTime(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Search all the model's folders for the concepts of types as each data source did before there was a ModelIndex
+     */
+    private List<IArchimateConcept> getConceptsWithoutIndex(String types) {
+        Set<EClass> desiredEClasses = ArchimateModelDataSource.getClasses(types);
+        List<IArchimateConcept> concepts = new ArrayList<>();
+
+        for(IFolder folder : model.getFolders()) {
+            getConceptsWithoutIndex(folder, desiredEClasses, concepts);
+        }
+
+        return concepts;
+    }
+
+    private void getConceptsWithoutIndex(IFolder folder, Set<EClass> desiredEClasses, List<IArchimateConcept> concepts) {
+        for(EObject object : folder.getElements()) {
+            if(object instanceof IArchimateConcept) {
+                if(desiredEClasses.contains(object.eClass()) && !concepts.contains(object)) {
+                    concepts.add((IArchimateConcept)object);
+                }
+            }
+        }
+
+        for(IFolder f : folder.getFolders()) {
+            getConceptsWithoutIndex(f, desiredEClasses, concepts);
+        }
+    }
+}
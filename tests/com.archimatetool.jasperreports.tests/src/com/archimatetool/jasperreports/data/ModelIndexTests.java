@@ -0,0 +1,84 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.jasperreports.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.testingtools.ArchimateTestModel;
+import com.archimatetool.tests.TestData;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ModelIndexTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelIndexTests.class);
+    }
+
+    private static IArchimateModel model;
+    
+    @BeforeClass
+    public static void runOnceBeforeAllTests() throws IOException {
+        // Load ArchiMate model
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE_ARCHISURANCE);
+        model = tm.loadModel();
+    }
+    
+    @Test
+    public void getConcepts_SameAsDataSource() {
+        ModelIndex index = new ModelIndex(model);
+        
+        for(String types : new String[] { "BusinessActor", IDataConstants.ELEMENTS_BUSINESS, IDataConstants.RELATIONS, IDataConstants.ELEMENTS }) {
+            List<IArchimateConcept> concepts = index.getConcepts(types);
+            ElementsDataSource ds = new ElementsDataSource(model, types);
+            assertEquals(ds.size(), concepts.size());
+        }
+        
+        assertEquals(0, index.getConcepts("bogus").size());
+        
+        assertEquals(17, index.getConcepts("BusinessActor").size());
+    }
+    
+    @Test
+    public void getConcepts_IsCached() {
+        ModelIndex index = new ModelIndex(model);
+        assertSame(index.getConcepts(IDataConstants.ELEMENTS_BUSINESS), index.getConcepts(IDataConstants.ELEMENTS_BUSINESS));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void getConcepts_CannotBeChanged() {
+        new ModelIndex(model).getConcepts(IDataConstants.ELEMENTS_BUSINESS).clear();
+    }
+    
+    @Test
+    public void getObjectByID() {
+        ModelIndex index = new ModelIndex(model);
+        
+        assertSame(model, index.getObjectByID(model.getId()));
+        
+        IArchimateConcept concept = index.getConcepts("BusinessActor").get(0);
+        assertSame(concept, index.getObjectByID(concept.getId()));
+        
+        IDiagramModel dm = model.getDiagramModels().get(0);
+        assertSame(dm, index.getObjectByID(dm.getId()));
+        
+        assertNull(index.getObjectByID("unknown"));
+        assertNull(index.getObjectByID(null));
+    }
+}
@@ -6,7 +6,9 @@
 package com.archimatetool.reports;
 
 
+import com.archimatetool.reports.html.ConceptDataTests;
 import com.archimatetool.reports.html.HTMLReportExporterTests;
+import com.archimatetool.reports.html.SearchIndexTests;
 
 import junit.framework.TestSuite;
 
@@ -16,7 +18,9 @@ public class AllTests {
     public static junit.framework.Test suite() {
 		TestSuite suite = new TestSuite("com.archimatetool.reports");
 
+		suite.addTest(ConceptDataTests.suite());
 		suite.addTest(HTMLReportExporterTests.suite());
+		suite.addTest(SearchIndexTests.suite());
 		
         return suite;
 	}
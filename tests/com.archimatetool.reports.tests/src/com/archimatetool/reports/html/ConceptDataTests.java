@@ -0,0 +1,109 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.reports.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IAssociationRelationship;
+import com.archimatetool.model.IProperty;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class ConceptDataTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ConceptDataTests.class);
+    }
+
+    @Test
+    public void testCreateFile() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+
+        IArchimateElement actor = IArchimateFactory.eINSTANCE.createBusinessActor();
+        actor.setId("actor");
+        actor.setName("Actor");
+        actor.setDocumentation("Line 1\nLine 2");
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("Key");
+        property.setValue("Value");
+        actor.getProperties().add(property);
+        model.getDefaultFolderForObject(actor).getElements().add(actor);
+
+        IArchimateElement role = IArchimateFactory.eINSTANCE.createBusinessRole();
+        role.setId("role");
+        role.setName("Role");
+        model.getDefaultFolderForObject(role).getElements().add(role);
+
+        IAssociationRelationship relation = IArchimateFactory.eINSTANCE.createAssociationRelationship();
+        relation.setId("relation");
+        relation.connect(actor, role);
+        model.getDefaultFolderForObject(relation).getElements().add(relation);
+
+        ConceptData conceptData = new ConceptData(Arrays.asList(new IArchimateConcept[] { actor, role, relation }));
+        assertEquals(1, conceptData.getFileCount());
+
+        assertEquals("conceptData({"
+                + "\"actor\":{\"type\":\"BusinessActor\",\"name\":\"Actor\",\"documentation\":\"Line 1\\nLine 2\","
+                + "\"properties\":[[\"Key\",\"Value\"]],"
+                + "\"relationships\":[[\"relation\",\"AssociationRelationship\",\"\",\"actor\",\"Actor\",\"role\",\"Role\"]]},"
+                + "\"role\":{\"type\":\"BusinessRole\",\"name\":\"Role\",\"documentation\":\"\","
+                + "\"relationships\":[[\"relation\",\"AssociationRelationship\",\"\",\"actor\",\"Actor\",\"role\",\"Role\"]]},"
+                + "\"relation\":{\"type\":\"AssociationRelationship\",\"name\":\"\",\"documentation\":\"\","
+                + "\"source\":[\"actor\",\"Actor\"],\"target\":[\"role\",\"Role\"]}"
+                + "});\n", conceptData.createFile(0));
+    }
+
+    @Test
+    public void testConceptsAreSplitIntoFiles() {
+        List<IArchimateConcept> concepts = new ArrayList<>();
+        for(int i = 0; i < ConceptData.CONCEPTS_PER_FILE * 4; i++) {
+            IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+            concepts.add(element);
+        }
+
+        ConceptData conceptData = new ConceptData(concepts);
+        assertEquals(4, conceptData.getFileCount());
+
+        // Each concept is in the file given by the hash of its id
+        for(IArchimateConcept concept : concepts) {
+            int index = ConceptData.getFileIndex(concept.getId(), 4);
+            assertTrue(conceptData.createFile(index).contains("\"" + concept.getId() + "\":{"));
+        }
+    }
+
+    @Test
+    public void testGetFileIndex() {
+        // Must be the same as dataFile() in the concept page
+        assertEquals(5, ConceptData.getFileIndex("51da80a4-b701-4bee-ab54-62ca3a96daf6", 7));
+        assertEquals(6, ConceptData.getFileIndex("a", 7));
+        assertEquals(0, ConceptData.getFileIndex("a", 1));
+    }
+
+    @Test
+    public void testAppendString() {
+        StringBuilder sb = new StringBuilder();
+        ConceptData.appendString(sb, "\"quote\" back\\slash\r\n\ttab \u0001 \u2028 é");
+        assertEquals("\"\\\"quote\\\" back\\\\slash\\r\\n\\ttab \\u0001 \\u2028 é\"", sb.toString());
+
+        sb = new StringBuilder();
+        ConceptData.appendString(sb, null);
+        assertEquals("\"\"", sb.toString());
+    }
+}
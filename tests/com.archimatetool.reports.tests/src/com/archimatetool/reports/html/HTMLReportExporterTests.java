@@ -5,20 +5,46 @@
  */
 package com.archimatetool.reports.html;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
 import org.junit.Test;
 
+import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelImage;
 import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.IDiagramModelReference;
 import com.archimatetool.reports.TestData;
@@ -71,6 +97,10 @@ public class HTMLReportExporterTests {
         File objectsFolder = new File(modelFolder, "objects");
         assertTrue(objectsFolder.exists());
         assertEquals(10, objectsFolder.listFiles().length);
+        
+        File searchFolder = new File(modelFolder, "search");
+        assertTrue(new File(searchFolder, SearchIndex.CONCEPTS_FILE).exists());
+        assertTrue(new File(searchFolder, SearchIndex.getShardFileName(0)).exists());
 
         assertTrue(new File(targetFolder, "css").exists());
         assertTrue(new File(targetFolder, "elements").exists());
@@ -106,5 +136,287 @@ public class HTMLReportExporterTests {
         // Clean up
         FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
     }
+    
+    @Test
+    public void testCreateReportIsSameForAnyThreadCount() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        
+        exporter.setThreadCount(1);
+        File sequentialFolder = TestUtils.createTempFolder("archi-html-report-1");
+        exporter.createReport(sequentialFolder, "index.html");
+        
+        exporter.setThreadCount(4);
+        File parallelFolder = TestUtils.createTempFolder("archi-html-report-4");
+        exporter.createReport(parallelFolder, "index.html");
+        
+        assertSameFiles(sequentialFolder, parallelFolder);
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    @Test
+    public void testCreateIncrementalReportIsSameAsFullReport() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        
+        File fullFolder = TestUtils.createTempFolder("archi-html-report-full");
+        exporter.createReport(fullFolder, "index.html");
+        
+        exporter.setIncremental(true);
+        File incrementalFolder = TestUtils.createTempFolder("archi-html-report-incremental");
+        exporter.createReport(incrementalFolder, "index.html");
+        // And again with the manifest
+        exporter.createReport(incrementalFolder, "index.html");
+        
+        File manifestFile = new File(incrementalFolder, model.getId() + "/" + HTMLReportExporter.MANIFEST_FILE);
+        assertTrue(manifestFile.exists());
+        manifestFile.delete();
+        
+        assertSameFiles(fullFolder, incrementalFolder);
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    @Test
+    public void testCreateIncrementalReportWritesOnlyChangedFiles() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        exporter.setIncremental(true);
+        
+        File targetFolder = TestUtils.createTempFolder("archi-html-report");
+        exporter.createReport(targetFolder, "index.html");
+        
+        File modelFolder = new File(targetFolder, model.getId());
+        File elementsFolder = new File(modelFolder, "elements");
+        File imagesFolder = new File(modelFolder, "images");
+        
+        // Nothing has changed so no pages or images are written
+        setLastModified(modelFolder, 0);
+        exporter.createReport(targetFolder, "index.html");
+        
+        for(File folder : new File[] { elementsFolder, imagesFolder }) {
+            for(File file : folder.listFiles()) {
+                assertEquals(file.getPath(), 0, file.lastModified());
+            }
+        }
+        
+        // Change the documentation of an element so that its page is written
+        IArchimateElement element = (IArchimateElement)tm.getObjectByID("51da80a4-b701-4bee-ab54-62ca3a96daf6"); // Business Actor
+        element.setDocumentation("Changed");
+        exporter.createReport(targetFolder, "index.html");
+        
+        assertNotEquals(0, new File(elementsFolder, element.getId() + ".html").lastModified());
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    @Test
+    public void testHashDiagramModelIncludesImageContent() throws Exception {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        IArchiveManager archiveManager = IArchiveManager.FACTORY.createArchiveManager(model);
+        model.setAdapter(IArchiveManager.class, archiveManager);
+        
+        IArchimateDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForObject(dm).getElements().add(dm);
+        
+        IDiagramModelImage dmImage = IArchimateFactory.eINSTANCE.createDiagramModelImage();
+        dmImage.setImagePath("images/" + UUID.randomUUID() + ".png");
+        dm.getChildren().add(dmImage);
+        
+        long hash = ReportManifest.hashDiagramModel(dm, 100);
+        assertEquals(hash, ReportManifest.hashDiagramModel(dm, 100));
+        
+        // Load the image for the same path
+        ImageLoader loader = new ImageLoader();
+        ImageData imageData = new ImageData(1, 1, 24, new PaletteData(0xFF0000, 0xFF00, 0xFF));
+        imageData.setPixel(0, 0, (int)(System.nanoTime() & 0xFFFFFF));
+        loader.data = new ImageData[] { imageData };
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loader.save(out, SWT.IMAGE_PNG);
+        
+        assertEquals(dmImage.getImagePath(), archiveManager.addByteContentEntry(dmImage.getImagePath(), out.toByteArray()));
+        assertNotEquals(hash, ReportManifest.hashDiagramModel(dm, 100));
+    }
+    
+    @Test
+    public void testCreateIncrementalReportDeletesOrphanedFiles() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForObject(element).getElements().add(element);
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        exporter.setIncremental(true);
+        
+        File targetFolder = TestUtils.createTempFolder("archi-html-report");
+        exporter.createReport(targetFolder, "index.html");
+        
+        File elementFile = new File(targetFolder, model.getId() + "/elements/" + element.getId() + ".html");
+        assertTrue(elementFile.exists());
+        
+        // Delete the element and its page is deleted
+        model.getDefaultFolderForObject(element).getElements().remove(element);
+        exporter.createReport(targetFolder, "index.html");
+        
+        assertFalse(elementFile.exists());
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    @Test
+    public void testCreateArchiveIsSameAsReport() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        
+        File targetFolder = TestUtils.createTempFolder("archi-html-report");
+        exporter.createReport(targetFolder, "index.html");
+        
+        File zipFile = new File(TestUtils.createTempFolder("archi-html-archive"), "report.zip");
+        exporter.createArchive(zipFile, "index.html", null);
+        
+        // Same files with the same content
+        Map<String, byte[]> entries = new HashMap<>();
+        try(ZipFile zip = new ZipFile(zipFile)) {
+            for(ZipEntry entry : Collections.list(zip.entries())) {
+                try(InputStream in = zip.getInputStream(entry)) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] buf = new byte[8192];
+                    int length;
+                    while((length = in.read(buf)) != -1) {
+                        out.write(buf, 0, length);
+                    }
+                    entries.put(entry.getName(), out.toByteArray());
+                }
+            }
+        }
+        
+        List<Path> files = Files.walk(targetFolder.toPath()).filter(Files::isRegularFile).collect(Collectors.toList());
+        assertEquals(files.size(), entries.size());
+        
+        for(Path path : files) {
+            String name = targetFolder.toPath().relativize(path).toString().replace(File.separatorChar, '/');
+            assertArrayEquals(name, Files.readAllBytes(path), entries.get(name));
+        }
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    @Test
+    public void testCreateArchiveIsSameEachTime() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        File folder = TestUtils.createTempFolder("archi-html-archive");
+        
+        exporter.setThreadCount(1);
+        File zipFile1 = new File(folder, "report1.zip");
+        exporter.createArchive(zipFile1, "index.html", null);
+        
+        exporter.setThreadCount(4);
+        File zipFile2 = new File(folder, "report2.zip");
+        exporter.createArchive(zipFile2, "index.html", null);
+        
+        assertArrayEquals(Files.readAllBytes(zipFile1.toPath()), Files.readAllBytes(zipFile2.toPath()));
+        
+        // Nothing else is written
+        assertEquals(2, folder.listFiles().length);
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    @Test
+    public void testCreateDataModelReport() throws Exception {
+        ArchimateTestModel tm = new ArchimateTestModel(TestData.TEST_MODEL_FILE);
+        IArchimateModel model = tm.loadModel();
+        
+        HTMLReportExporter exporter = new HTMLReportExporter(model);
+        exporter.setDataModel(true);
+        
+        File targetFolder = TestUtils.createTempFolder("archi-html-report");
+        File outputFile = exporter.createReport(targetFolder, "index.html");
+        assertTrue(outputFile.exists());
+        
+        File modelFolder = new File(targetFolder, model.getId());
+        
+        // No page for each concept, just the model and concept pages
+        File elementsFolder = new File(modelFolder, "elements");
+        assertEquals(2, elementsFolder.listFiles().length);
+        assertTrue(new File(elementsFolder, "model.html").exists());
+        assertTrue(new File(elementsFolder, "concept.html").exists());
+        
+        // All concepts are in the data
+        File dataFile = new File(modelFolder, "data/" + ConceptData.getFileName(0));
+        String data = new String(Files.readAllBytes(dataFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(data.startsWith("conceptData({"));
+        
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IArchimateConcept) {
+                assertTrue(data.contains("\"" + ((IArchimateConcept)eObject).getId() + "\":{"));
+            }
+        }
+        
+        // Links go to the concept page
+        String index = new String(Files.readAllBytes(outputFile.toPath()), StandardCharsets.UTF_8);
+        assertTrue(index.contains(model.getId() + "/elements/concept.html?"));
+        assertFalse(index.contains(model.getId() + "/elements/51da80a4-b701-4bee-ab54-62ca3a96daf6.html"));
+        
+        // Views are still written
+        assertEquals(3, new File(modelFolder, "views").listFiles().length);
+        assertEquals(3, new File(modelFolder, "images").listFiles().length);
+        
+        // Clean up
+        FileUtils.deleteFolder(TestUtils.TMP_FOLDER);
+    }
+    
+    private void setLastModified(File folder, long time) {
+        for(File file : folder.listFiles()) {
+            if(file.isDirectory()) {
+                setLastModified(file, time);
+            }
+            else {
+                file.setLastModified(time);
+            }
+        }
+    }
+    
+    private void assertSameFiles(File expectedFolder, File actualFolder) throws Exception {
+        File[] expectedFiles = expectedFolder.listFiles();
+        Arrays.sort(expectedFiles);
+        
+        File[] actualFiles = actualFolder.listFiles();
+        Arrays.sort(actualFiles);
+        
+        assertEquals(expectedFiles.length, actualFiles.length);
+        
+        for(int i = 0; i < expectedFiles.length; i++) {
+            assertEquals(expectedFiles[i].getName(), actualFiles[i].getName());
+            
+            if(expectedFiles[i].isDirectory()) {
+                assertSameFiles(expectedFiles[i], actualFiles[i]);
+            }
+            else {
+                assertArrayEquals(expectedFiles[i].getPath(), Files.readAllBytes(expectedFiles[i].toPath()), Files.readAllBytes(actualFiles[i].toPath()));
+            }
+        }
+    }
 
 }
@@ -0,0 +1,112 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.reports.html;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IProperty;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+@SuppressWarnings("nls")
+public class SearchIndexTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(SearchIndexTests.class);
+    }
+
+    @Test
+    public void testTokenize() {
+        assertEquals(Arrays.asList("hello", "world", "application", "component", "v2", "test"),
+                SearchIndex.tokenize("Hello, World! Application-Component_v2 (test)"));
+
+        // Short tokens are not indexed and long tokens are cut
+        String longToken = "abcdefghijklmnopqrstuvwxyzabcdefghijklmnopqrstuvwxyz";
+        assertEquals(Arrays.asList("ab", longToken.substring(0, SearchIndex.MAX_TOKEN_LENGTH)),
+                SearchIndex.tokenize("a ab " + longToken));
+
+        // Letters that are not ASCII are part of a token
+        assertEquals(Arrays.asList("café", "über"), SearchIndex.tokenize("Café Über"));
+
+        assertTrue(SearchIndex.tokenize(null).isEmpty());
+        assertTrue(SearchIndex.tokenize("").isEmpty());
+    }
+
+    @Test
+    public void testGetShardIndex() {
+        // Must be the same as searchShardIndex() in search.js
+        assertEquals(5, SearchIndex.getShardIndex("actor", 7));
+        assertEquals(2, SearchIndex.getShardIndex("process", 7));
+        assertEquals(0, SearchIndex.getShardIndex("actor", 1));
+
+        // Tokens that start with the same two characters are in the same shard
+        assertEquals(SearchIndex.getShardIndex("ac", 7), SearchIndex.getShardIndex("actor", 7));
+    }
+
+    @Test
+    public void testCreateFiles() {
+        IArchimateElement role = createElement(IArchimateFactory.eINSTANCE.createBusinessRole(), "role", "Role");
+        IArchimateElement actor = createElement(IArchimateFactory.eINSTANCE.createBusinessActor(), "actor", "Actor");
+        IArchimateElement process = createElement(IArchimateFactory.eINSTANCE.createBusinessProcess(), "process", "Process");
+        process.setDocumentation("process PROCESS");
+        IArchimateElement actor2 = createElement(IArchimateFactory.eINSTANCE.createBusinessActor(), "actor2", "Actor \"Two\"");
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("Key");
+        property.setValue("Value");
+        actor2.getProperties().add(property);
+
+        SearchIndex searchIndex = new SearchIndex(Arrays.asList(new IArchimateConcept[] { role, actor, process, actor2 }));
+        assertEquals(1, searchIndex.getShardCount());
+
+        assertEquals("searchConcepts(["
+                + "[\"role\",\"Role\",\"BusinessRole\"],"
+                + "[\"actor\",\"Actor\",\"BusinessActor\"],"
+                + "[\"process\",\"Process\",\"BusinessProcess\"],"
+                + "[\"actor2\",\"Actor \\\"Two\\\"\",\"BusinessActor\"]"
+                + "]);\n", searchIndex.createConceptsFile());
+
+        // Tokens are sorted and positions are differences from the previous position
+        assertEquals("searchShard(0,["
+                + "[\"actor\",[1,2]],"
+                + "[\"process\",[2]],"
+                + "[\"role\",[0]],"
+                + "[\"two\",[3]],"
+                + "[\"value\",[3]]"
+                + "]);\n", searchIndex.createShardFile(0));
+    }
+
+    @Test
+    public void testTokensAreSplitIntoShards() {
+        List<IArchimateConcept> concepts = new ArrayList<>();
+        for(int i = 0; i < SearchIndex.TOKENS_PER_SHARD * 3; i++) {
+            concepts.add(createElement(IArchimateFactory.eINSTANCE.createBusinessActor(), "id" + i, "token" + i));
+        }
+
+        SearchIndex searchIndex = new SearchIndex(concepts);
+        assertEquals(3, searchIndex.getShardCount());
+
+        // Each token is in the shard given by the hash of its first two characters
+        int shard = SearchIndex.getShardIndex("token", 3);
+        assertTrue(searchIndex.createShardFile(shard).contains("[\"token0\",[0]]"));
+    }
+
+    private IArchimateElement createElement(IArchimateElement element, String id, String name) {
+        element.setId(id);
+        element.setName(name);
+        return element;
+    }
+}
@@ -22,6 +22,7 @@ public class AllTests {
         suite.addTest(getTest("com.archimatetool.editor.AllTests"));
         suite.addTest(getTest("com.archimatetool.export.svg.AllTests"));
         suite.addTest(getTest("com.archimatetool.hammer.AllTests"));
+        suite.addTest(getTest("com.archimatetool.hammer.commandline.AllTests"));
         suite.addTest(getTest("com.archimatetool.help.AllTests"));
         suite.addTest(getTest("com.archimatetool.jasperreports.AllTests"));
         suite.addTest(getTest("com.archimatetool.jdom.AllTests"));
@@ -16,7 +16,9 @@ public class AllTests {
 
         suite.addTest(XMLExchangeUtilsTests.suite());
 		suite.addTest(XMLModelExporterTests.suite());
+		suite.addTest(XMLModelStreamExporterTests.suite());
         suite.addTest(XMLModelImporterTests.suite());
+        suite.addTest(XMLModelStreamImporterTests.suite());
         suite.addTest(XMLValidatorTests.suite());
 		
         return suite;
@@ -0,0 +1,188 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.archimatetool.editor.Logger;
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IAssociationRelationship;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.tests.TestUtils;
+
+
+/**
+ * Validates and imports a large Open Exchange Format file with the JDOM importer and with the stream importer
+ * and logs the throughput and peak heap used by each.<p>
+ *
+ * This is not part of AllTests because it takes a while. It only runs if the number of elements
+ * is set with the system property "xmlexchange.benchmark.elements", for example -Dxmlexchange.benchmark.elements=100000
+ */
+@SuppressWarnings("nls")
+public class XMLModelImporterBenchmarkTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(XMLModelImporterBenchmarkTests.class);
+    }
+
+    private static final int ELEMENTS = Integer.getInteger("xmlexchange.benchmark.elements", 0);
+
+    // Elements on each View
+    private static final int VIEW_SIZE = 100;
+
+    private static File file;
+
+    @BeforeClass
+    public static void runOnceBeforeAllTests() throws IOException {
+        assumeTrue("Set xmlexchange.benchmark.elements to run this benchmark", ELEMENTS > 0);
+
+        TestUtils.ensureDefaultDisplay(); // Need to do this if running only these tests
+
+        file = TestUtils.createTempFile(".xml");
+        new XMLModelStreamExporter().exportModel(createModel(), file);
+    }
+
+    @Test
+    public void testCompareImporters() throws Exception {
+        long memoryBefore = resetPeakHeap();
+        long start = System.nanoTime();
+
+        new XMLValidator().validateXML(file);
+        IArchimateModel jdomModel = new XMLModelImporter().createArchiMateModel(file);
+
+        report("JDOM", start, getPeakHeap() - memoryBefore);
+        assertModel(jdomModel);
+        jdomModel = null;
+
+        memoryBefore = resetPeakHeap();
+        start = System.nanoTime();
+
+        IArchimateModel streamModel = new XMLModelStreamImporter().createArchiMateModel(file);
+
+        report("Stream", start, getPeakHeap() - memoryBefore);
+        assertModel(streamModel);
+    }
+
+    private void assertModel(IArchimateModel model) {
+        assertEquals(ELEMENTS, model.getFolder(FolderType.BUSINESS).getElements().size());
+        assertEquals(ELEMENTS, model.getFolder(FolderType.RELATIONS).getElements().size());
+        assertEquals((ELEMENTS + VIEW_SIZE - 1) / VIEW_SIZE, model.getFolder(FolderType.DIAGRAMS).getElements().size());
+    }
+
+    private void report(String name, long start, long memory) {
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        double megabytes = file.length() / (1024.0 * 1024.0);
+
+        Logger.logInfo(String.format("%s validate and import of %.1f MB took %.2f s (%.1f MB/s), peak heap used %d MB",
+                name, megabytes, seconds, megabytes / seconds, memory / (1024 * 1024)));
+    }
+
+    /**
+     * Collect garbage and reset the peak usage of the heap memory pools
+     * @return the heap used now
+     */
+    private static long resetPeakHeap() {
+        System.gc();
+
+        long used = 0;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+
+        return used;
+    }
+
+    /**
+     * @return the sum of the peak usage of the heap memory pools since the last reset
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if(pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * A model with elements, a relation and a property for each element, and Views of VIEW_SIZE elements each
+     */
+    private static IArchimateModel createModel() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        model.setName("Benchmark");
+
+        IArchimateElement[] elements = new IArchimateElement[ELEMENTS];
+
+        for(int i = 0; i < ELEMENTS; i++) {
+            IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+            element.setName("Actor " + i);
+            element.setDocumentation("Documentation for\nactor " + i);
+            model.getDefaultFolderForObject(element).getElements().add(element);
+
+            IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+            property.setKey("Key " + (i % 10));
+            property.setValue("Value " + i);
+            element.getProperties().add(property);
+
+            elements[i] = element;
+        }
+
+        IArchimateDiagramModel dm = null;
+        IDiagramModelArchimateObject previous = null;
+
+        for(int i = 0; i < ELEMENTS; i++) {
+            IAssociationRelationship relation = IArchimateFactory.eINSTANCE.createAssociationRelationship();
+            relation.connect(elements[i], elements[(i + 1) % ELEMENTS]);
+            model.getDefaultFolderForObject(relation).getElements().add(relation);
+
+            if(i % VIEW_SIZE == 0) {
+                dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+                dm.setName("View " + (i / VIEW_SIZE));
+                model.getDefaultFolderForObject(dm).getElements().add(dm);
+                previous = null;
+            }
+
+            IDiagramModelArchimateObject dmo = IArchimateFactory.eINSTANCE.createDiagramModelArchimateObject();
+            dmo.setArchimateElement(elements[i]);
+            dmo.setBounds((i % 10) * 150, ((i % VIEW_SIZE) / 10) * 80, 120, 55);
+            dm.getChildren().add(dmo);
+
+            // Connect from the previous element's object with the relation between them
+            if(previous != null) {
+                IDiagramModelArchimateConnection connection = IArchimateFactory.eINSTANCE.createDiagramModelArchimateConnection();
+                connection.setArchimateRelationship(previous.getArchimateElement().getSourceRelationships().get(0));
+                connection.connect(previous, dmo);
+            }
+
+            previous = dmo;
+        }
+
+        return model;
+    }
+}
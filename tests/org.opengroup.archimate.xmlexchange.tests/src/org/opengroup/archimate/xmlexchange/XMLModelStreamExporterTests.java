@@ -0,0 +1,173 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelNote;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.model.ISketchModel;
+import com.archimatetool.model.util.ArchimateResourceFactory;
+import com.archimatetool.tests.TestUtils;
+
+
+/**
+ * XML Model Stream Exporter Tests
+ *
+ * The stream exporter must write the same bytes as the JDOM exporter
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class XMLModelStreamExporterTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(XMLModelStreamExporterTests.class);
+    }
+
+    @BeforeClass
+    public static void runOnceBeforeAllTests() {
+        TestUtils.ensureDefaultDisplay(); // Need to do this if running only these tests
+    }
+
+    @Test
+    public void testExportArchisurance() throws IOException {
+        IArchimateModel model = loadModel();
+        assertSameOutput(model, null, null, false);
+    }
+
+    @Test
+    public void testExportArchisuranceWithOptions() throws IOException {
+        IArchimateModel model = loadModel();
+
+        Map<String, String> metadata = new LinkedHashMap<String, String>();
+        metadata.put("title", "Archisurance Test Exchange Model");
+        metadata.put("creator", "Phil Beauvoir");
+        metadata.put("subject", "");
+        metadata.put("description", "Test <the> \"Archisurance\" & Exchange Model\nSecond line");
+
+        assertSameOutput(model, "en", metadata, true);
+    }
+
+    @Test
+    public void testExportImportedModels() throws Exception {
+        assertSameOutput(new XMLModelImporter().createArchiMateModel(TestSupport.xmlFile1), "en", null, true);
+        assertSameOutput(new XMLModelImporter().createArchiMateModel(TestSupport.xmlFile2), null, null, true);
+    }
+
+    @Test
+    public void testExportSpecialText() throws IOException {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        model.setName("  Model & <Name>  ");
+        model.setPurpose("   ");
+
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element.setName("Tab\tand \"quotes\" and emoji \uD83D\uDE00");
+        element.setDocumentation("Line 1\r\nLine 2\nLine 3\r");
+        model.getDefaultFolderForObject(element).getElements().add(element);
+
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("Key \"1\"");
+        element.getProperties().add(property);
+
+        property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("");
+        property.setValue("Value");
+        element.getProperties().add(property);
+
+        IArchimateDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForObject(dm).getElements().add(dm);
+
+        IDiagramModelArchimateObject dmo = IArchimateFactory.eINSTANCE.createDiagramModelArchimateObject();
+        dmo.setArchimateElement(element);
+        dmo.setBounds(-100, -50, 120, 55);
+        dm.getChildren().add(dmo);
+
+        IDiagramModelNote note = IArchimateFactory.eINSTANCE.createDiagramModelNote();
+        note.setContent("A note\n\twith <text>");
+        note.setBounds(10, 10, 185, 80);
+        dm.getChildren().add(note);
+
+        // A Sketch View is not written
+        ISketchModel sketch = IArchimateFactory.eINSTANCE.createSketchModel();
+        model.getDefaultFolderForObject(sketch).getElements().add(sketch);
+
+        assertSameOutput(model, "en", null, true);
+        assertSameOutput(model, null, null, false);
+    }
+
+    @Test
+    public void testExportEmptyModel() throws IOException {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        assertSameOutput(model, null, null, true);
+    }
+
+    @Test
+    public void testFailedExportKeepsExistingFile() throws IOException {
+        File file = TestUtils.createTempFile(".xml");
+        Files.write(file.toPath(), "Existing".getBytes(StandardCharsets.UTF_8));
+
+        // No model so the export fails after it has started writing
+        try {
+            new XMLModelStreamExporter().exportModel(null, file);
+            fail("Should have thrown an exception");
+        }
+        catch(NullPointerException ex) {
+        }
+
+        assertEquals("Existing", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        // The temporary file was deleted
+        File[] tmpFiles = file.getParentFile().listFiles((dir, name) -> name.startsWith(file.getName()) && name.endsWith(".tmp"));
+        assertEquals(0, tmpFiles.length);
+    }
+
+    private IArchimateModel loadModel() throws IOException {
+        Resource resource = ArchimateResourceFactory.createNewResource(TestSupport.archiFile1);
+        resource.load(null);
+        return (IArchimateModel)resource.getContents().get(0);
+    }
+
+    private void assertSameOutput(IArchimateModel model, String languageCode, Map<String, String> metadata, boolean saveOrganisation) throws IOException {
+        XMLModelExporter exporter = new XMLModelExporter();
+        exporter.setLanguageCode(languageCode);
+        exporter.setMetadata(metadata);
+        exporter.setSaveOrganisation(saveOrganisation);
+        File file1 = TestUtils.createTempFile(".xml");
+        exporter.exportModel(model, file1);
+
+        XMLModelStreamExporter streamExporter = new XMLModelStreamExporter();
+        streamExporter.setLanguageCode(languageCode);
+        streamExporter.setMetadata(metadata);
+        streamExporter.setSaveOrganisation(saveOrganisation);
+        File file2 = TestUtils.createTempFile(".xml");
+        streamExporter.exportModel(model, file2);
+
+        assertArrayEquals(Files.readAllBytes(file1.toPath()), Files.readAllBytes(file2.toPath()));
+    }
+}
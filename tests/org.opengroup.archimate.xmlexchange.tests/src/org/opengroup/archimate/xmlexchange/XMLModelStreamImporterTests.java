@@ -0,0 +1,240 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package org.opengroup.archimate.xmlexchange;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import junit.framework.JUnit4TestAdapter;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.tests.TestUtils;
+
+
+/**
+ * XML Model Stream Importer Tests
+ *
+ * The stream importer must create the same model as the JDOM importer
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class XMLModelStreamImporterTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(XMLModelStreamImporterTests.class);
+    }
+
+    /**
+     * Changes that make a test file invalid. Each is a regular expression and its replacement for the first match.
+     */
+    private static final String[][] INVALID_CHANGES = {
+            { "xsi:type=\"BusinessActor\"", "xsi:type=\"Bogus\"" },         // Unknown element type
+            { "elementRef=\"[^\"]*\"", "elementRef=\"missing\"" },          // Node for a missing element
+            { "relationshipRef=\"[^\"]*\"", "relationshipRef=\"missing\"" }, // Connection for a missing relation
+            { "(<node [^>]*?) x=\"[^\"]*\"", "$1" },                         // Node without a co-ordinate
+    };
+
+    @BeforeClass
+    public static void runOnceBeforeAllTests() {
+        TestUtils.ensureDefaultDisplay(); // Need to do this if running only these tests
+    }
+
+    @Test
+    public void testImportSample() throws Exception {
+        IArchimateModel model = new XMLModelStreamImporter().createArchiMateModel(TestSupport.xmlFile1);
+        assertNotNull(model);
+        assertFalse(model.getFolders().isEmpty());
+        assertNotNull(model.getName());
+
+        assertSameModel(new XMLModelImporter().createArchiMateModel(TestSupport.xmlFile1), model);
+    }
+
+    @Test
+    public void testImportArchisurance() throws Exception {
+        IArchimateModel model = new XMLModelStreamImporter().createArchiMateModel(TestSupport.xmlFile2);
+        assertSameModel(new XMLModelImporter().createArchiMateModel(TestSupport.xmlFile2), model);
+    }
+
+    @Test
+    public void testImportAllTestFiles() throws Exception {
+        for(File file : getTestFiles()) {
+            IArchimateModel model = new XMLModelStreamImporter().createArchiMateModel(file);
+            assertSameModel(new XMLModelImporter().createArchiMateModel(file), model);
+        }
+    }
+
+    @Test
+    public void testImportAllInvalidTestFiles() throws Exception {
+        int count = 0;
+
+        for(File file : getTestFiles()) {
+            String xml = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+            for(String[] change : INVALID_CHANGES) {
+                String invalidXML = xml.replaceFirst(change[0], change[1]);
+                if(!invalidXML.equals(xml)) {
+                    assertSameFailure(createTempFile(invalidXML));
+                    count++;
+                }
+            }
+
+            // Not well formed
+            assertSameFailure(createTempFile(xml.substring(0, xml.length() / 2)));
+            count++;
+        }
+
+        assertTrue(count > getTestFiles().length);
+    }
+
+    @Test
+    public void testImportWithoutValidation() throws Exception {
+        XMLModelStreamImporter importer = new XMLModelStreamImporter();
+        importer.setValidate(false);
+        IArchimateModel model = importer.createArchiMateModel(TestSupport.xmlFile2);
+        assertSameModel(new XMLModelImporter().createArchiMateModel(TestSupport.xmlFile2), model);
+    }
+
+    @Test
+    public void testInvalidFileThrowsSAXException() throws Exception {
+        File file = createInvalidFile();
+
+        try {
+            new XMLModelStreamImporter().createArchiMateModel(file);
+            fail("Should have thrown SAXException");
+        }
+        catch(SAXException ex) {
+            assertTrue(ex.getMessage().contains("Bogus"));
+        }
+    }
+
+    @Test(expected=XMLModelParserException.class)
+    public void testInvalidFileWithoutValidationThrowsXMLModelParserException() throws Exception {
+        File file = createInvalidFile();
+
+        XMLModelStreamImporter importer = new XMLModelStreamImporter();
+        importer.setValidate(false);
+        importer.createArchiMateModel(file);
+    }
+
+    @Test
+    public void testNormalise() {
+        assertEquals("", XMLModelStreamImporter.normalise(""));
+        assertEquals("", XMLModelStreamImporter.normalise(" \t\r\n "));
+        assertEquals("a b c", XMLModelStreamImporter.normalise("  a \r\n b\t\tc  "));
+        assertEquals("abc", XMLModelStreamImporter.normalise("abc"));
+    }
+
+    /**
+     * Archisurance with an unknown element type
+     */
+    private File createInvalidFile() throws Exception {
+        String xml = new String(Files.readAllBytes(TestSupport.xmlFile2.toPath()), StandardCharsets.UTF_8);
+        return createTempFile(xml.replaceFirst("xsi:type=\"BusinessActor\"", "xsi:type=\"Bogus\""));
+    }
+
+    private File createTempFile(String xml) throws Exception {
+        File file = TestUtils.createTempFile(".xml");
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * @return All of the XML files in the test data folder
+     */
+    private File[] getTestFiles() {
+        File[] files = TestSupport.testFolder.listFiles((dir, name) -> name.endsWith(".xml"));
+        Arrays.sort(files);
+        assertTrue(files.length > 0);
+        return files;
+    }
+
+    /**
+     * Assert that neither importer can import a file.
+     * If the JDOM importer finds an error in the model the stream importer must find the same error when it does not validate.
+     */
+    private void assertSameFailure(File file) throws Exception {
+        Exception expected = null;
+
+        try {
+            new XMLModelImporter().createArchiMateModel(file);
+        }
+        catch(Exception ex) {
+            expected = ex;
+        }
+
+        assertNotNull("JDOM importer should have failed", expected);
+
+        XMLModelStreamImporter importer = new XMLModelStreamImporter();
+        importer.setValidate(false);
+
+        try {
+            importer.createArchiMateModel(file);
+            fail("Stream importer should have failed like the JDOM importer: " + expected);
+        }
+        catch(Exception ex) {
+            if(expected instanceof XMLModelParserException) {
+                assertEquals(XMLModelParserException.class, ex.getClass());
+                assertEquals(expected.getMessage(), ex.getMessage());
+            }
+        }
+
+        // And with validation
+        try {
+            new XMLModelStreamImporter().createArchiMateModel(file);
+            fail("Stream importer should have failed like the JDOM importer: " + expected);
+        }
+        catch(Exception ex) {
+        }
+    }
+
+    /**
+     * Assert that two models are the same by exporting them both and comparing the bytes.
+     * Nested connections are created with new identifiers so these are matched up first.
+     */
+    private void assertSameModel(IArchimateModel expected, IArchimateModel actual) throws Exception {
+        Iterator<EObject> iter1 = expected.eAllContents();
+        Iterator<EObject> iter2 = actual.eAllContents();
+
+        while(iter1.hasNext() && iter2.hasNext()) {
+            EObject eObject1 = iter1.next();
+            EObject eObject2 = iter2.next();
+            assertEquals(eObject1.eClass(), eObject2.eClass());
+
+            if(eObject1 instanceof IDiagramModelConnection) {
+                ((IDiagramModelConnection)eObject2).setId(((IDiagramModelConnection)eObject1).getId());
+            }
+        }
+
+        assertEquals(iter1.hasNext(), iter2.hasNext());
+
+        assertArrayEquals(export(expected), export(actual));
+    }
+
+    private byte[] export(IArchimateModel model) throws Exception {
+        XMLModelStreamExporter exporter = new XMLModelStreamExporter();
+        exporter.setSaveOrganisation(true);
+        File file = TestUtils.createTempFile(".xml");
+        exporter.exportModel(model, file);
+        return Files.readAllBytes(file.toPath());
+    }
+}
@@ -5,6 +5,8 @@
  */
 package org.opengroup.archimate.xmlexchange;
 
+import static org.junit.Assert.assertSame;
+
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -35,4 +37,9 @@ public class XMLValidatorTests {
         validator.validateXML(TestSupport.xmlFile2);
     }
     
+    @Test
+    public void testSchemaIsCompiledOnce() throws Exception {
+        assertSame(XMLValidator.getSchema(), XMLValidator.getSchema());
+    }
+    
 }